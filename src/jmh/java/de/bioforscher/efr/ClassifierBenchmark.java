@@ -0,0 +1,90 @@
+package de.bioforscher.efr;
+
+import de.bioforscher.efr.benchmark.BenchmarkChain;
+import de.bioforscher.efr.model.PredictionWriter;
+import de.bioforscher.efr.model.ResiduePrediction;
+import de.bioforscher.efr.registry.ModelBundle;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the steps of {@link EarlyFoldingClassifier#classify} following the feature assembly: creating Weka instances (the
+ * reference path), scoring by either path and ranking the residues for the CSV representation
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassifierBenchmark {
+    @Param({ "100", "1000", "10000", BenchmarkChain.EXAMPLE })
+    private String chain;
+    private BenchmarkChain benchmarkChain;
+    private ModelBundle model;
+
+    @Setup(Level.Trial)
+    public void createChain() {
+        benchmarkChain = BenchmarkChain.of(chain);
+        model = ModelBundle.bundled();
+    }
+
+    @Benchmark
+    public void createInstances(Blackhole blackhole) {
+        for(int row = 0; row < benchmarkChain.size(); row++) {
+            blackhole.consume(model.normalize(EarlyFoldingClassifier.createInstance(benchmarkChain.getFeatureMatrix(),
+                    row,
+                    benchmarkChain.getLoopFractions()[row])));
+        }
+    }
+
+    @Benchmark
+    public double[] referenceScoring() {
+        return EarlyFoldingClassifier.scoreByReference(model,
+                benchmarkChain.getFeatureMatrix(),
+                benchmarkChain.getLoopFractions(),
+                null,
+                benchmarkChain.getProlines());
+    }
+
+    @Benchmark
+    public double[] sharedHeaderScoring() {
+        // rows are normalized in place, so they are part of the measurement
+        double[][] featureRows = new double[benchmarkChain.size()][];
+        for(int row = 0; row < featureRows.length; row++) {
+            featureRows[row] = EarlyFoldingClassifier.createFeatureRow(benchmarkChain.getFeatureMatrix(),
+                    row,
+                    benchmarkChain.getLoopFractions()[row]);
+        }
+        return EarlyFoldingClassifier.scoreWithSharedHeader(model, featureRows, benchmarkChain.getProlines());
+    }
+
+    @Benchmark
+    public int[] ranking() {
+        return EarlyFoldingClassifier.rank(benchmarkChain.getProbabilities());
+    }
+
+    @Benchmark
+    public String csvRepresentation() {
+        int[] ranking = EarlyFoldingClassifier.rank(benchmarkChain.getProbabilities());
+        int numberOfEarlyFoldingResidues = (int) (0.15 * ranking.length);
+        List<ResiduePrediction> predictions = new ArrayList<>(ranking.length);
+        for(int rank = 0; rank < ranking.length; rank++) {
+            int row = ranking[rank];
+            ResiduePrediction prediction = benchmarkChain.getPredictions().get(row);
+            predictions.add(new ResiduePrediction(prediction.getIndex(),
+                    prediction.getChainId(),
+                    prediction.getResidueIdentifier(),
+                    prediction.getOneLetterCode(),
+                    prediction.getSecondaryStructure(),
+                    benchmarkChain.getFeatures()[row],
+                    prediction.getProbability(),
+                    rank < numberOfEarlyFoldingResidues));
+        }
+        return PredictionWriter.toString(predictions, PredictionWriter.Format.CSV);
+    }
+}
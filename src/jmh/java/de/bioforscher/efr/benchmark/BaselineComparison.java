@@ -0,0 +1,114 @@
+package de.bioforscher.efr.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * compares the JSON result of a benchmark run with the checked-in baseline and fails, when any benchmark got slower
+ * than the tolerance allows - when no baseline exists yet, the result becomes the new baseline, provided it was
+ * recorded by JMH on the JDK the application targets ({@value #TARGET_JDK})<br />
+ * usage: <code>[baseline.json] [result.json] [tolerance, e.g. 0.1]</code>
+ */
+public class BaselineComparison {
+    private static final double DEFAULT_TOLERANCE = 0.1;
+    private static final String TARGET_JDK = "1.8";
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    public static void main(String[] args) throws IOException {
+        if(args.length < 2) {
+            System.err.println("usage: BaselineComparison [baseline.json] [result.json] [tolerance]");
+            System.exit(2);
+        }
+
+        Path baselinePath = Paths.get(args[0]);
+        Path resultPath = Paths.get(args[1]);
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_TOLERANCE;
+        if(!Files.exists(baselinePath)) {
+            for(JsonNode benchmark : OBJECT_MAPPER.readTree(resultPath.toFile())) {
+                // scores of other JDKs or of hand-written runners are no reference for the deployed application
+                if(!benchmark.has("jmhVersion") || !benchmark.path("jdkVersion").asText().startsWith(TARGET_JDK)) {
+                    System.err.println("not recording " + resultPath + " as baseline: " +
+                            benchmark.get("benchmark").asText() + " was not run by JMH on JDK " + TARGET_JDK);
+                    System.exit(1);
+                }
+            }
+            Files.createDirectories(baselinePath.toAbsolutePath().getParent());
+            Files.copy(resultPath, baselinePath);
+            System.out.println("no baseline present, recorded " + resultPath + " as " + baselinePath);
+            // scores are only comparable on the same host
+            System.out.println("note the host it was recorded on when committing it");
+            return;
+        }
+
+        Map<String, JsonNode> baseline = readScores(baselinePath);
+        Map<String, JsonNode> result = readScores(resultPath);
+        int regressions = 0;
+        for(Map.Entry<String, JsonNode> entry : result.entrySet()) {
+            JsonNode baselineMetric = baseline.get(entry.getKey());
+            if(baselineMetric == null) {
+                System.out.println(String.format("%-100s new", entry.getKey()));
+                continue;
+            }
+
+            double baselineScore = baselineMetric.get("score").asDouble();
+            double score = entry.getValue().get("score").asDouble();
+            // positive values are always regressions: throughput is better when higher, anything else when lower
+            double change = isThroughput(entry.getKey()) ?
+                    (baselineScore - score) / baselineScore :
+                    (score - baselineScore) / baselineScore;
+            boolean regression = change > tolerance;
+            if(regression) {
+                regressions++;
+            }
+            System.out.println(String.format("%-100s %12.3f -> %12.3f %s %+7.1f%%%s",
+                    entry.getKey(),
+                    baselineScore,
+                    score,
+                    entry.getValue().get("scoreUnit").asText(),
+                    100 * change,
+                    regression ? " REGRESSION" : ""));
+        }
+
+        if(regressions > 0) {
+            System.err.println(regressions + " benchmarks regressed by more than " + (100 * tolerance) + "%");
+            System.exit(1);
+        }
+    }
+
+    private static boolean isThroughput(String key) {
+        return key.contains("[thrpt]");
+    }
+
+    /**
+     * @return the primary metric of each benchmark, keyed by its name, mode and parameters
+     */
+    private static Map<String, JsonNode> readScores(Path path) throws IOException {
+        Map<String, JsonNode> scores = new TreeMap<>();
+        for(JsonNode benchmark : OBJECT_MAPPER.readTree(path.toFile())) {
+            StringBuilder key = new StringBuilder(benchmark.get("benchmark").asText())
+                    .append(" [")
+                    .append(benchmark.get("mode").asText())
+                    .append("]");
+            JsonNode params = benchmark.get("params");
+            if(params != null) {
+                Map<String, String> sortedParams = new TreeMap<>();
+                Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+                while(fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    sortedParams.put(field.getKey(), field.getValue().asText());
+                }
+                sortedParams.forEach((name, value) -> key.append(" ").append(name).append("=").append(value));
+            }
+            scores.put(key.toString(), benchmark.get("primaryMetric"));
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,143 @@
+package de.bioforscher.efr.benchmark;
+
+import de.bioforscher.efr.model.FeatureColumn;
+import de.bioforscher.efr.model.FeatureMatrix;
+import de.bioforscher.efr.model.ResiduePrediction;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * the input of the classification steps following the feature assembly - either a synthetic chain of the given size or
+ * the bundled 1acj example (read from its CSV representation, so its values are already smoothed and normalized)
+ */
+public class BenchmarkChain {
+    /**
+     * the name of the bundled example, any other name is taken as the size of a synthetic chain
+     */
+    public static final String EXAMPLE = "1acj";
+    private final FeatureMatrix featureMatrix;
+    private final double[] loopFractions;
+    private final boolean[] prolines;
+    private final double[] probabilities;
+    private final double[][] features;
+    private final List<ResiduePrediction> predictions;
+
+    private BenchmarkChain(List<ResiduePrediction> predictions) {
+        this.predictions = predictions;
+        this.featureMatrix = new FeatureMatrix(predictions.size());
+        this.loopFractions = new double[predictions.size()];
+        this.prolines = new boolean[predictions.size()];
+        this.probabilities = new double[predictions.size()];
+        this.features = new double[predictions.size()][ResiduePrediction.FEATURE_NAMES.size()];
+        int loopFractionIndex = ResiduePrediction.FEATURE_NAMES.indexOf("loop_fraction");
+        for(int row = 0; row < predictions.size(); row++) {
+            ResiduePrediction prediction = predictions.get(row);
+            for(int i = 0; i < features[row].length; i++) {
+                features[row][i] = prediction.getFeature(i);
+            }
+            for(FeatureColumn column : FeatureColumn.values()) {
+                featureMatrix.set(row, column, features[row][ResiduePrediction.FEATURE_NAMES.indexOf(column.getColumnName())]);
+            }
+            loopFractions[row] = features[row][loopFractionIndex];
+            prolines[row] = "P".equals(prediction.getOneLetterCode());
+            probabilities[row] = prediction.getProbability();
+        }
+    }
+
+    /**
+     * @param name {@value #EXAMPLE} or the number of residues of a synthetic chain
+     * @return the chain
+     */
+    public static BenchmarkChain of(String name) {
+        return EXAMPLE.equals(name) ? example() : synthetic(Integer.parseInt(name));
+    }
+
+    private static BenchmarkChain synthetic(int residueCount) {
+        Random random = new Random(residueCount);
+        List<ResiduePrediction> predictions = new ArrayList<>(residueCount);
+        for(int row = 0; row < residueCount; row++) {
+            double[] features = new double[ResiduePrediction.FEATURE_NAMES.size()];
+            for(int i = 0; i < features.length; i++) {
+                features[i] = random.nextGaussian();
+            }
+            // roughly the frequency of prolines in the PDB
+            boolean proline = random.nextInt(22) == 0;
+            predictions.add(new ResiduePrediction(row,
+                    "A",
+                    String.valueOf(row + 1),
+                    proline ? "P" : "A",
+                    "C",
+                    features,
+                    proline ? 0 : random.nextDouble(),
+                    false));
+        }
+        return new BenchmarkChain(predictions);
+    }
+
+    private static BenchmarkChain example() {
+        try(InputStream inputStream = Thread.currentThread()
+                .getContextClassLoader()
+                .getResourceAsStream("data/example.csv");
+            BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            List<ResiduePrediction> predictions = new ArrayList<>();
+            // skip the header
+            String line = reader.readLine();
+            while((line = reader.readLine()) != null) {
+                if(!line.isEmpty()) {
+                    predictions.add(ResiduePrediction.parseCsvLine(line, predictions.size()));
+                }
+            }
+            // the CSV is ordered by rank - restore the sequence order
+            predictions.sort(Comparator.comparingInt(prediction -> Integer.parseInt(prediction.getResidueIdentifier().replaceAll("\\D", ""))));
+            return new BenchmarkChain(predictions);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int size() {
+        return predictions.size();
+    }
+
+    /**
+     * @return the smoothed features of each residue - shared, so copy before modifying
+     */
+    public FeatureMatrix getFeatureMatrix() {
+        return featureMatrix;
+    }
+
+    public double[] getLoopFractions() {
+        return loopFractions;
+    }
+
+    public boolean[] getProlines() {
+        return prolines;
+    }
+
+    public double[] getProbabilities() {
+        return probabilities;
+    }
+
+    /**
+     * @return the values of all {@link ResiduePrediction#FEATURE_NAMES} of each residue
+     */
+    public double[][] getFeatures() {
+        return features;
+    }
+
+    /**
+     * @return the predictions in sequence order
+     */
+    public List<ResiduePrediction> getPredictions() {
+        return predictions;
+    }
+}
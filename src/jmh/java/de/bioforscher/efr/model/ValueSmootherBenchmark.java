@@ -0,0 +1,74 @@
+package de.bioforscher.efr.model;
+
+import de.bioforscher.efr.benchmark.BenchmarkChain;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * smoothing of synthetic chains and the 1acj example - the mean kernel against averaging a stream of each window, as
+ * done before
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValueSmootherBenchmark {
+    @Param({ "100", "1000", "10000", BenchmarkChain.EXAMPLE })
+    private String chain;
+    private int residueCount;
+    @Param({ "4", "16" })
+    private int windowSize;
+    private double[] rawValues;
+    private FeatureMatrix featureMatrix;
+    private ValueSmoother meanSmoother;
+    private ValueSmoother gaussianSmoother;
+
+    @Setup(Level.Trial)
+    public void createChain() {
+        BenchmarkChain benchmarkChain = BenchmarkChain.of(chain);
+        residueCount = benchmarkChain.size();
+        featureMatrix = new FeatureMatrix(residueCount);
+        rawValues = benchmarkChain.getFeatureMatrix().getValues().clone();
+        meanSmoother = new ValueSmoother(SmoothingKernel.MEAN, windowSize);
+        gaussianSmoother = new ValueSmoother(SmoothingKernel.GAUSSIAN, windowSize);
+    }
+
+    @Setup(Level.Invocation)
+    public void resetChain() {
+        System.arraycopy(rawValues, 0, featureMatrix.getValues(), 0, rawValues.length);
+    }
+
+    @Benchmark
+    public void meanKernel(Blackhole blackhole) {
+        meanSmoother.smooth(featureMatrix);
+        blackhole.consume(featureMatrix);
+    }
+
+    @Benchmark
+    public void gaussianKernel(Blackhole blackhole) {
+        gaussianSmoother.smooth(featureMatrix);
+        blackhole.consume(featureMatrix);
+    }
+
+    @Benchmark
+    public void streamAverage(Blackhole blackhole) {
+        double[] values = featureMatrix.getValues();
+        double[] smoothedValues = new double[values.length];
+        for(FeatureColumn column : FeatureColumn.values()) {
+            int offset = featureMatrix.offset(column);
+            for(int row = 0; row < residueCount; row++) {
+                smoothedValues[offset + row] = Arrays.stream(values,
+                        offset + Math.max(row - windowSize, 0),
+                        offset + Math.min(row + windowSize, residueCount - 1) + 1)
+                        .average()
+                        .orElseThrow(() -> new IllegalArgumentException("could not compute average"));
+            }
+        }
+        blackhole.consume(smoothedValues);
+    }
+}
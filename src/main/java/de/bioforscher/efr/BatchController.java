@@ -0,0 +1,62 @@
+package de.bioforscher.efr;
+
+import de.bioforscher.efr.batch.BatchSummary;
+import de.bioforscher.efr.job.Job;
+import de.bioforscher.efr.service.BatchService;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * classification of lists of chains in the background
+ */
+@RestController
+@RequestMapping(value = "/api/", method = RequestMethod.GET)
+public class BatchController {
+    private final BatchService batchService;
+
+    public BatchController(BatchService batchService) {
+        this.batchService = batchService;
+    }
+
+    /**
+     * classify a list of chains in the background - results can be downloaded by {@link #getBatchResults(String, HttpServletResponse)}
+     * @param chainIds the chain ids (e.g. 1acj_A)
+     * @return the job handle, its result reports the batch id
+     */
+    @RequestMapping(value = "/batch", method = RequestMethod.POST, consumes = "application/json")
+    public Job<BatchSummary> submitBatch(@RequestBody List<String> chainIds) {
+        return batchService.submit(chainIds);
+    }
+
+    /**
+     * continue an interrupted batch - chains which were already classified are skipped
+     */
+    @RequestMapping(value = "/batch/{batchId}", method = RequestMethod.POST)
+    public Job<BatchSummary> resumeBatch(@PathVariable String batchId) {
+        return batchService.resume(batchId);
+    }
+
+    /**
+     * download all results of a batch which are available so far as zip archive
+     */
+    @RequestMapping(value = "/batch/{batchId}", method = RequestMethod.GET, produces = "application/zip")
+    public void getBatchResults(@PathVariable String batchId, HttpServletResponse response) throws IOException {
+        List<Path> files = batchService.getResultFiles(batchId);
+        response.setContentType("application/zip");
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + batchId + ".zip\"");
+        try(ZipOutputStream zipOutputStream = new ZipOutputStream(response.getOutputStream())) {
+            for(Path file : files) {
+                zipOutputStream.putNextEntry(new ZipEntry(file.getFileName().toString()));
+                Files.copy(file, zipOutputStream);
+                zipOutputStream.closeEntry();
+            }
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package de.bioforscher.efr;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * gzips responses of the given types once they exceed the minimum size, if the client accepts it - done by the
+ * application rather than the container, as the standalone Tomcat the WAR is deployed to ignores server.compression.*;
+ * the responses of jobs are written by the async dispatch, which is filtered as well and finishes the compressed stream
+ */
+public class CompressionFilter extends OncePerRequestFilter {
+    private static final String RESPONSE_ATTRIBUTE = CompressionFilter.class.getName() + ".response";
+    private static final String GZIP = "gzip";
+    private final Set<String> mimeTypes;
+    private final int minimumSize;
+
+    /**
+     * @param mimeTypes the content types to compress (without parameters such as the charset)
+     * @param minimumSize the number of bytes from which on a response is compressed
+     */
+    public CompressionFilter(Collection<String> mimeTypes, int minimumSize) {
+        this.mimeTypes = new HashSet<>();
+        mimeTypes.forEach(mimeType -> this.mimeTypes.add(mimeType.trim().toLowerCase(Locale.ENGLISH)));
+        this.minimumSize = minimumSize;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        CompressingResponse compressingResponse = (CompressingResponse) request.getAttribute(RESPONSE_ATTRIBUTE);
+        if(compressingResponse == null) {
+            // partial content cannot be compressed independently of the whole
+            if(!acceptsGzip(request) || request.getHeader(HttpHeaders.RANGE) != null) {
+                filterChain.doFilter(request, response);
+                return;
+            }
+            compressingResponse = new CompressingResponse(response);
+            request.setAttribute(RESPONSE_ATTRIBUTE, compressingResponse);
+            filterChain.doFilter(request, compressingResponse);
+        } else {
+            // async dispatch - the response is (or wraps) the one passed on by the initial dispatch
+            filterChain.doFilter(request, response);
+        }
+
+        if(!isAsyncStarted(request)) {
+            compressingResponse.finish();
+        }
+    }
+
+    static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if(acceptEncoding == null) {
+            return false;
+        }
+        for(String coding : acceptEncoding.split(",")) {
+            String[] split = coding.split(";");
+            if(!GZIP.equalsIgnoreCase(split[0].trim())) {
+                continue;
+            }
+            // gzip;q=0 explicitly refuses compressed responses
+            for(int i = 1; i < split.length; i++) {
+                String parameter = split[i].trim().replace(" ", "");
+                if(parameter.startsWith("q=") && parameter.substring(2).matches("0(\\.0*)?")) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private enum State {
+        /**
+         * less than the minimum size was written so far
+         */
+        BUFFERING,
+        PLAIN,
+        COMPRESSED
+    }
+
+    /**
+     * buffers the first bytes until either the minimum size is reached (the content gets compressed), or the response
+     * is flushed or finished before (the content is passed as is) - the content length is withheld until then
+     */
+    private class CompressingResponse extends HttpServletResponseWrapper {
+        private final ByteArrayOutputStream buffer;
+        private State state;
+        private long contentLength;
+        private OutputStream contentStream;
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+
+        CompressingResponse(HttpServletResponse response) {
+            super(response);
+            this.buffer = new ByteArrayOutputStream(minimumSize);
+            this.state = State.BUFFERING;
+            this.contentLength = -1;
+        }
+
+        @Override
+        public void setContentLength(int length) {
+            setContentLengthLong(length);
+        }
+
+        @Override
+        public void setContentLengthLong(long length) {
+            if(state == State.PLAIN) {
+                super.setContentLengthLong(length);
+            } else {
+                contentLength = length;
+            }
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if(HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(Long.parseLong(value));
+            } else {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if(HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(Long.parseLong(value));
+            } else {
+                super.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public void setIntHeader(String name, int value) {
+            if(HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(value);
+            } else {
+                super.setIntHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addIntHeader(String name, int value) {
+            if(HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(value);
+            } else {
+                super.addIntHeader(name, value);
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if(writer != null) {
+                throw new IllegalStateException("getWriter() was already called for this response");
+            }
+            if(outputStream == null) {
+                outputStream = new CompressingOutputStream(super.getOutputStream());
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if(writer == null) {
+                if(outputStream != null) {
+                    throw new IllegalStateException("getOutputStream() was already called for this response");
+                }
+                outputStream = new CompressingOutputStream(super.getOutputStream());
+                writer = new PrintWriter(new OutputStreamWriter(outputStream, getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if(writer != null) {
+                writer.flush();
+            } else if(outputStream != null) {
+                outputStream.flush();
+            }
+            super.flushBuffer();
+        }
+
+        @Override
+        public void resetBuffer() {
+            if(state == State.BUFFERING) {
+                buffer.reset();
+            }
+            super.resetBuffer();
+        }
+
+        @Override
+        public void reset() {
+            if(state == State.BUFFERING) {
+                buffer.reset();
+                contentLength = -1;
+            }
+            super.reset();
+        }
+
+        void finish() throws IOException {
+            if(writer != null) {
+                writer.flush();
+            }
+            if(state == State.BUFFERING) {
+                passPlain();
+            } else if(state == State.COMPRESSED) {
+                ((GZIPOutputStream) contentStream).finish();
+            }
+        }
+
+        private void write(byte[] bytes, int offset, int length) throws IOException {
+            if(state == State.BUFFERING) {
+                if(!isCompressible()) {
+                    passPlain();
+                } else if(buffer.size() + length < minimumSize) {
+                    buffer.write(bytes, offset, length);
+                    return;
+                } else {
+                    compress();
+                }
+            }
+            contentStream.write(bytes, offset, length);
+        }
+
+        private void flush() throws IOException {
+            // the client wants what was written so far
+            if(state == State.BUFFERING) {
+                passPlain();
+            }
+            contentStream.flush();
+        }
+
+        private boolean isCompressible() {
+            String contentType = getContentType();
+            if(contentType == null || getHeader(HttpHeaders.CONTENT_ENCODING) != null) {
+                return false;
+            }
+            return mimeTypes.contains(contentType.split(";")[0].trim().toLowerCase(Locale.ENGLISH));
+        }
+
+        private void passPlain() throws IOException {
+            if(isCompressible()) {
+                // caches must not hand this response to clients which asked for the compressed one
+                super.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            }
+            state = State.PLAIN;
+            if(contentLength >= 0) {
+                super.setContentLengthLong(contentLength);
+            }
+            contentStream = super.getOutputStream();
+            if(buffer.size() > 0) {
+                buffer.writeTo(contentStream);
+                buffer.reset();
+            }
+        }
+
+        private void compress() throws IOException {
+            super.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            super.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+            state = State.COMPRESSED;
+            // sync flush - streamed responses (e.g. tables) reach the client as they are written
+            contentStream = new GZIPOutputStream(super.getOutputStream(), 8192, true);
+            buffer.writeTo(contentStream);
+            buffer.reset();
+        }
+
+        private class CompressingOutputStream extends ServletOutputStream {
+            private final ServletOutputStream target;
+
+            CompressingOutputStream(ServletOutputStream target) {
+                this.target = target;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] { (byte) b }, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                CompressingResponse.this.write(bytes, offset, length);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                CompressingResponse.this.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                finish();
+                target.close();
+            }
+
+            @Override
+            public boolean isReady() {
+                return target.isReady();
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                target.setWriteListener(writeListener);
+            }
+        }
+    }
+}
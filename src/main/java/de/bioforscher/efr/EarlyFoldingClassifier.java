@@ -1,199 +1,490 @@
 package de.bioforscher.efr;
 
+import de.bioforscher.efr.graph.TopologyCalculator;
+import de.bioforscher.efr.metrics.Histogram;
+import de.bioforscher.efr.metrics.MetricsRegistry;
+import de.bioforscher.efr.model.FeatureColumn;
+import de.bioforscher.efr.model.FeatureMatrix;
+import de.bioforscher.efr.model.InteractionPartition;
+import de.bioforscher.efr.model.ParallelRows;
+import de.bioforscher.efr.model.PredictionWriter;
 import de.bioforscher.efr.model.RawFeatureVector;
-import de.bioforscher.efr.model.SmoothedFeatureVector;
+import de.bioforscher.efr.model.ResiduePrediction;
+import de.bioforscher.efr.model.ValueSmoother;
+import de.bioforscher.efr.pipeline.FeaturePipeline;
+import de.bioforscher.efr.pipeline.FeatureStage;
+import de.bioforscher.efr.pipeline.InstancePool;
+import de.bioforscher.efr.pipeline.PlipAnnotationStage;
+import de.bioforscher.efr.pipeline.ProgressListener;
+import de.bioforscher.efr.plip.PlipDocumentResolver;
+import de.bioforscher.efr.registry.ModelBundle;
+import de.bioforscher.efr.registry.ModelRegistry;
 import de.bioforscher.jstructure.StandardFormat;
 import de.bioforscher.jstructure.feature.asa.AccessibleSurfaceAreaCalculator;
 import de.bioforscher.jstructure.feature.energyprofile.EgorAgreementCalculator;
 import de.bioforscher.jstructure.feature.interaction.PLIPIntraMolecularAnnotator;
-import de.bioforscher.jstructure.feature.interaction.PLIPRestServiceQuery;
 import de.bioforscher.jstructure.feature.loopfraction.LoopFraction;
 import de.bioforscher.jstructure.feature.loopfraction.LoopFractionCalculator;
 import de.bioforscher.jstructure.feature.sse.GenericSecondaryStructure;
 import de.bioforscher.jstructure.model.feature.ComputationException;
 import de.bioforscher.jstructure.model.structure.Chain;
-import de.bioforscher.jstructure.model.structure.Structure;
 import de.bioforscher.jstructure.model.structure.aminoacid.AminoAcid;
 import de.bioforscher.jstructure.model.structure.aminoacid.Proline;
-import org.jsoup.nodes.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import weka.classifiers.Classifier;
 import weka.core.*;
 
-import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.StringJoiner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.stream.Collectors;
 
 public class EarlyFoldingClassifier {
     private static final Logger logger = LoggerFactory.getLogger(EarlyFoldingClassifier.class);
-    private final EgorAgreementCalculator EGOR_AGREEMENT_CALCULATOR = new EgorAgreementCalculator();
-    private final LoopFractionCalculator LOOP_FRACTION_CALCULATOR = new LoopFractionCalculator();
-    private final AccessibleSurfaceAreaCalculator ACCESSIBLE_SURFACE_AREA_CALCULATOR = new AccessibleSurfaceAreaCalculator();
-    private final PLIPIntraMolecularAnnotator PLIP_INTRA_MOLECULAR_ANNOTATOR = new PLIPIntraMolecularAnnotator();
-    private final Classifier model;
-    private static final EarlyFoldingClassifier INSTANCE = new EarlyFoldingClassifier();
+    /**
+     * jstructure calculators keep state while processing a structure - concurrent requests use distinct instances
+     */
+    private final InstancePool<EgorAgreementCalculator> EGOR_AGREEMENT_CALCULATORS = new InstancePool<>(EgorAgreementCalculator::new);
+    private final InstancePool<LoopFractionCalculator> LOOP_FRACTION_CALCULATORS = new InstancePool<>(LoopFractionCalculator::new);
+    private final InstancePool<AccessibleSurfaceAreaCalculator> ACCESSIBLE_SURFACE_AREA_CALCULATORS = new InstancePool<>(AccessibleSurfaceAreaCalculator::new);
+    private final PlipAnnotationStage PLIP_ANNOTATION_STAGE = new PlipAnnotationStage(PLIPIntraMolecularAnnotator::new);
+    /**
+     * prepares the stages of the feature pipeline and processes the residues of large chains, so both never compete
+     * for more threads than there are cores - released by {@link #shutdown()}
+     */
+    private final ForkJoinPool forkJoinPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+            pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("efr-worker-" + thread.getPoolIndex());
+                thread.setDaemon(true);
+                return thread;
+            },
+            null,
+            false);
+    /**
+     * structure-level features - independent stages are computed concurrently
+     */
+    private final FeaturePipeline featurePipeline = new FeaturePipeline(forkJoinPool,
+            // start with PLIP to fail fast
+            PLIP_ANNOTATION_STAGE,
+            FeatureStage.ofCalculator("computing energy profiles",
+                    structure -> EGOR_AGREEMENT_CALCULATORS.use(calculator -> calculator.process(structure)),
+                    "energy_profile", "egor"),
+            FeatureStage.ofCalculator("annotating secondary structure elements",
+                    structure -> LOOP_FRACTION_CALCULATORS.use(calculator -> calculator.process(structure)),
+                    "sse", "loop_fraction"),
+            FeatureStage.ofCalculator("computing relative accessible surface area",
+                    structure -> ACCESSIBLE_SURFACE_AREA_CALCULATORS.use(calculator -> calculator.process(structure)),
+                    "rasa"));
+    /**
+     * the models residues can be classified with - the model is chosen once per chain, so replacing a model never
+     * affects running classifications
+     */
+    private volatile ModelRegistry modelRegistry;
+    private volatile InferenceMode inferenceMode = InferenceMode.SHARED_HEADER;
+    private volatile TopologyCalculator topologyCalculator;
+    private volatile ParallelRows parallelRows = new ParallelRows(ParallelRows.DEFAULT_THRESHOLD, forkJoinPool);
 
     private EarlyFoldingClassifier() {
-        try {
-            InputStream inputStream = Thread.currentThread()
-                    .getContextClassLoader()
-                    .getResourceAsStream("data/efr-classifier.model");
-            model = (Classifier) SerializationHelper.read(inputStream);
-        } catch (Exception e) {
-            System.out.println("could not load GMLVQ-model");
-            e.printStackTrace();
-            throw new RuntimeException();
-        }
+        this.modelRegistry = new ModelRegistry(null);
     }
 
+    /**
+     * the bundled model is loaded by the first call
+     * @return the classifier
+     */
     public static EarlyFoldingClassifier getInstance() {
-        return INSTANCE;
+        return InstanceHolder.INSTANCE;
+    }
+
+    private static class InstanceHolder {
+        private static final EarlyFoldingClassifier INSTANCE = new EarlyFoldingClassifier();
+    }
+
+    /**
+     * release the threads of the classifier when the application shuts down - chains cannot be annotated afterwards
+     */
+    public void shutdown() {
+        forkJoinPool.shutdownNow();
+    }
+
+    /**
+     * @return the version of the default model - any cached result has to be discarded once the model changes
+     */
+    public String getModelVersion() {
+        return modelRegistry.getDefault().getVersion();
+    }
+
+    /**
+     * change the models residues can be classified with - by default, only the bundled model is available
+     * @param modelRegistry the registry to use
+     */
+    public void setModelRegistry(ModelRegistry modelRegistry) {
+        this.modelRegistry = modelRegistry;
+    }
+
+    public ModelRegistry getModelRegistry() {
+        return modelRegistry;
+    }
+
+    /**
+     * change where PLIP documents are retrieved from - by default, the PLIP-REST-Service is queried every time
+     * @param plipDocumentResolver the resolver to use
+     */
+    public void setPlipDocumentResolver(PlipDocumentResolver plipDocumentResolver) {
+        PLIP_ANNOTATION_STAGE.setPlipDocumentResolver(plipDocumentResolver);
+    }
+
+    /**
+     * change how residues are passed to the model - by default, all residues share a single dataset header
+     * @param inferenceMode the mode to use
+     */
+    public void setInferenceMode(InferenceMode inferenceMode) {
+        this.inferenceMode = inferenceMode;
+    }
+
+    /**
+     * change how the topologic properties of the residue graphs are computed - by default, jstructure is used
+     * @param topologyCalculator the calculator to use, <code>null</code> to use jstructure
+     */
+    public void setTopologyCalculator(TopologyCalculator topologyCalculator) {
+        this.topologyCalculator = topologyCalculator;
+    }
+
+    /**
+     * change from which size on the per-residue steps of a chain (feature assembly, smoothing and scoring) are split
+     * across all cores - by default, chains of {@value ParallelRows#DEFAULT_THRESHOLD} residues and more
+     * @param parallelThreshold the number of residues (0 - never split)
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelRows = new ParallelRows(parallelThreshold, forkJoinPool);
     }
 
     public EarlyFoldingClassification process(Chain chain) {
-        Structure structure = chain.getParentStructure();
+        return process(chain, ProgressListener.NONE);
+    }
+
+    /**
+     * @param progressListener notified whenever a step finished
+     */
+    public EarlyFoldingClassification process(Chain chain, ProgressListener progressListener) {
+        annotate(Collections.singletonList(chain), progressListener);
+        return classify(chain, progressListener);
+    }
+
+    /**
+     * compute the structure-level features of several chains of the same structure at once
+     * @param chains the chains to annotate
+     */
+    public void annotate(List<Chain> chains) {
+        annotate(chains, ProgressListener.NONE);
+    }
 
+    /**
+     * compute the structure-level features of several chains of the same structure at once
+     * @param chains the chains to annotate
+     * @param progressListener notified whenever a feature was computed
+     */
+    public void annotate(List<Chain> chains, ProgressListener progressListener) {
         // compute features
         logger.info("computing residue-level features");
+        featurePipeline.process(chains, progressListener);
+    }
 
-        // start with PLIP to fail fast
-        logger.info("querying PLIP-REST-Service");
-        try {
-            // try to annotate by standard routine
-            PLIP_INTRA_MOLECULAR_ANNOTATOR.process(structure);
-            logger.info("fetched PLIP contacts");
-        } catch (Exception e1) {
-            try {
-                // potential non-pdb-entry, try to compute on-the-fly
-                Document document = PLIPRestServiceQuery.calculateIntraChainDocument(chain);
-                PLIP_INTRA_MOLECULAR_ANNOTATOR.process(chain, document);
-                logger.info("computed PLIP contacts");
-            } catch (Exception e2) {
-                throw new ComputationException("could not compute polymer interactions for " + chain.getChainIdentifier());
-            }
-        }
-
-        logger.info("computing energy profiles");
-        EGOR_AGREEMENT_CALCULATOR.process(structure);
+    /**
+     * classify the residues of a chain, which has to be annotated by {@link #annotate(List)} before
+     * @param chain the chain to classify
+     * @return the classification
+     */
+    public EarlyFoldingClassification classify(Chain chain) {
+        return classify(chain, ProgressListener.NONE);
+    }
 
-        logger.info("annotating secondary structure elements");
-        LOOP_FRACTION_CALCULATOR.process(structure);
+    /**
+     * classify the residues of a chain, which has to be annotated by {@link #annotate(List)} before
+     * @param chain the chain to classify
+     * @param progressListener notified whenever a step finished
+     * @return the classification
+     */
+    public EarlyFoldingClassification classify(Chain chain, ProgressListener progressListener) {
+        return classify(chain, modelRegistry.getDefault(), progressListener);
+    }
 
-        logger.info("computing relative accessible surface area");
-        ACCESSIBLE_SURFACE_AREA_CALCULATOR.process(structure);
+    /**
+     * classify the residues of a chain, which has to be annotated by {@link #annotate(List)} before
+     * @param chain the chain to classify
+     * @param model the model to use
+     * @param progressListener notified whenever a step finished
+     * @return the classification
+     */
+    public EarlyFoldingClassification classify(Chain chain, ModelBundle model, ProgressListener progressListener) {
+        List<AminoAcid> aminoAcids = chain.aminoAcids().collect(Collectors.toList());
 
         // assign feature vectors
-        //TODO residue graph operations take long/crash
+        // residue graph operations of jstructure take long/crash for large chains - see setTopologyCalculator
         logger.info("creating feature vectors");
-        chain.aminoAcids().forEach(RawFeatureVector::assignRawFeatureVector);
+        TopologyCalculator topologyCalculator = this.topologyCalculator;
+        ParallelRows parallelRows = this.parallelRows;
+        FeatureMatrix featureMatrix = stageTimer("residue_features").time(() -> RawFeatureVector.createFeatureMatrix(aminoAcids,
+                InteractionPartition.DEFAULT_SEPARATION,
+                topologyCalculator,
+                parallelRows));
+        progressListener.onProgress("features", "assembled the features of " + aminoAcids.size() + " residues");
 
         // smooth feature vectors
         logger.info("smoothing feature vectors");
-        List<AminoAcid> aminoAcids = chain.aminoAcids().collect(Collectors.toList());
-        aminoAcids.forEach(aminoAcid -> SmoothedFeatureVector.assignSmoothedFeatureVector(aminoAcids, aminoAcid));
-
-        // classify each residue
-        StringJoiner outputJoiner = new StringJoiner(System.lineSeparator());
-        // print header
-        outputJoiner.add("chain,res,aa,sse,energy,egor,sse_size,loop_fraction,rasa,plip_local_contacts," +
-                        "plip_local_hbonds,plip_local_hydrophobic,plip_local_backbone,plip_long_range_contacts," +
-                        "plip_long_range_hbonds,plip_long_range_hydrophobic,plip_long_range_backbone," +
-                        "plip_betweenness,plip_closeness,plip_clusteringcoefficient,plip_hbonds_betweenness," +
-                        "plip_hbonds_closeness,plip_hbonds_clusteringcoefficient,plip_hydrophobic_betweenness," +
-                        "plip_hydrophobic_closeness,plip_hydrophobic_clusteringcoefficient,conv_betweenness," +
-                        "conv_closeness,conv_clusteringcoefficient,plip_neighborhoods,conv_neighborhoods,prob,folds");
+        stageTimer("smoothing").time(() -> ValueSmoother.smoothValues(featureMatrix, parallelRows));
+        progressListener.onProgress("smoothing", "smoothed feature vectors");
 
         logger.info("classifying amino acids");
-        List<String> output = chain.aminoAcids()
-                .map(aminoAcid -> {
-                    boolean isProline = aminoAcid instanceof Proline;
-
-                    SmoothedFeatureVector smoothedFeatureVector = aminoAcid.getFeature(SmoothedFeatureVector.class);
-                    double loopFraction = aminoAcid.getFeature(LoopFraction.class).getLoopFraction();
-                    Instance instance = createInstance(smoothedFeatureVector, loopFraction);
-                    double prob = 0.0;
-                    if (!isProline) {
-                        try {
-                            prob = model.distributionForInstance(normalize(instance))[0];
-                        } catch (Exception e) {
-                            e.printStackTrace();
-                        }
-                    }
+        long scoringStart = System.nanoTime();
+        double[][] featureRows = new double[aminoAcids.size()][];
+        double[] loopFractions = new double[aminoAcids.size()];
+        boolean[] prolines = new boolean[aminoAcids.size()];
+        parallelRows.forEachRange(aminoAcids.size(), (from, to) -> {
+            for(int row = from; row < to; row++) {
+                AminoAcid aminoAcid = aminoAcids.get(row);
+                prolines[row] = aminoAcid instanceof Proline;
+                loopFractions[row] = aminoAcid.getFeature(LoopFraction.class).getLoopFraction();
+                featureRows[row] = createFeatureRow(featureMatrix, row, loopFractions[row]);
+            }
+        });
+        double[] probabilities = score(model, parallelRows, featureMatrix, loopFractions, featureRows, prolines);
+        stageTimer("scoring").observeNanos(System.nanoTime() - scoringStart);
+
+        // the top 15% are considered early folding
+        int[] ranking = stageTimer("ranking").time(() -> rank(probabilities));
+        int numberOfEarlyFoldingResidues = (int) (0.15 * aminoAcids.size());
+        List<ResiduePrediction> predictions = new ArrayList<>(ranking.length);
+        for(int rank = 0; rank < ranking.length; rank++) {
+            int row = ranking[rank];
+            AminoAcid aminoAcid = aminoAcids.get(row);
+            predictions.add(new ResiduePrediction(row,
+                    aminoAcid.getParentChain().getChainIdentifier().getChainId(),
+                    aminoAcid.getResidueIdentifier().toString(),
+                    aminoAcid.getOneLetterCode(),
+                    aminoAcid.getFeature(GenericSecondaryStructure.class).getSecondaryStructure().getReducedRepresentation(),
+                    Arrays.copyOf(featureRows[row], ResiduePrediction.FEATURE_NAMES.size()),
+                    probabilities[row],
+                    rank < numberOfEarlyFoldingResidues));
+        }
 
-                    StringJoiner lineJoiner = new StringJoiner(",");
-                    lineJoiner.add(aminoAcid.getParentChain().getChainIdentifier().getChainId())
-                            .add(aminoAcid.getResidueIdentifier().toString())
-                            .add(aminoAcid.getOneLetterCode())
-                            .add(aminoAcid.getFeature(GenericSecondaryStructure.class).getSecondaryStructure().getReducedRepresentation());
-                    for (int i = 0; i < instance.numAttributes() - 1; i++) {
-                        lineJoiner.add(StandardFormat.format(instance.value(i)));
-                    }
-                    lineJoiner.add(StandardFormat.format(prob));
-                    return lineJoiner.toString();
-                })
-                .sorted(Comparator.comparingDouble((String line) -> Double.valueOf(line.split(",")[line.split(",").length - 1])).reversed())
-                .collect(Collectors.toList());
-
-        List<String> earlyFoldingResidues = new ArrayList<>();
-        int numberOfEarlyFoldingResidues = (int) (0.15 * (int) chain.aminoAcids().count());
-        int counter = 0;
-        for(int i = 0; i < chain.aminoAcids().count(); i++) {
-            boolean earlyFolding = counter < numberOfEarlyFoldingResidues;
-            outputJoiner.add(output.get(i) + "," + (earlyFolding ? "early" : "late"));
-            counter++;
-            if(earlyFolding) {
-                String[] split = output.get(i).split(",");
-                earlyFoldingResidues.add(split[2] + "-" + split[1]);
+        MetricsRegistry.getDefault()
+                .counter("efr_classified_residues_total", "residues classified")
+                .add(aminoAcids.size());
+        progressListener.onProgress("classification", "classified " + aminoAcids.size() + " residues");
+        return new EarlyFoldingClassification(predictions);
+    }
+
+    private static Histogram stageTimer(String stage) {
+        return MetricsRegistry.getDefault()
+                .histogram("efr_stage_duration_seconds", "time spent in each stage of the classification", "stage", stage);
+    }
+
+    /**
+     * probabilities are reported with 4 decimals
+     */
+    private static final long RANK_SCALE = 10000;
+
+    /**
+     * order residues by their reported (i.e. rounded) probability in descending order - ties keep their sequence order
+     * @param probabilities the probability of each residue
+     * @return the residue indices by rank
+     */
+    static int[] rank(double[] probabilities) {
+        // rank and index packed into one primitive key: the rounded probability in the upper, the index in the lower half
+        long[] keys = new long[probabilities.length];
+        for(int row = 0; row < probabilities.length; row++) {
+            long roundedProbability = Math.round(Double.parseDouble(StandardFormat.format(probabilities[row])) * RANK_SCALE);
+            keys[row] = ((RANK_SCALE - roundedProbability) << 32) | row;
+        }
+        Arrays.sort(keys);
+
+        int[] ranking = new int[keys.length];
+        for(int rank = 0; rank < keys.length; rank++) {
+            ranking[rank] = (int) keys[rank];
+        }
+        return ranking;
+    }
+
+    /**
+     * compute the probability of each residue to be early folding - prolines are never considered early folding
+     * @param model the model to use
+     * @param parallelRows decides whether residues are scored concurrently - each thread uses its own copy of the model
+     * @param loopFractions the loop fraction of each residue, which is not part of the feature matrix
+     * @param featureRows the rounded features of each residue, which are normalized in place for all scored residues
+     * @param prolines whether each residue is a proline
+     * @return the probabilities
+     */
+    double[] score(ModelBundle model,
+                   ParallelRows parallelRows,
+                   FeatureMatrix featureMatrix,
+                   double[] loopFractions,
+                   double[][] featureRows,
+                   boolean[] prolines) {
+        InferenceMode inferenceMode = this.inferenceMode;
+        if(inferenceMode == InferenceMode.REFERENCE) {
+            return scoreByReference(model, parallelRows, featureMatrix, loopFractions, featureRows, prolines);
+        }
+
+        double[] probabilities = scoreWithSharedHeader(model, parallelRows, featureRows, prolines);
+        if(inferenceMode == InferenceMode.VERIFY) {
+            double[] referenceProbabilities = scoreByReference(model, parallelRows, featureMatrix, loopFractions, null, prolines);
+            for(int row = 0; row < probabilities.length; row++) {
+                if(Double.compare(probabilities[row], referenceProbabilities[row]) != 0) {
+                    logger.warn("inference paths disagree for residue {}: {} (shared header) vs {} (reference)",
+                            row,
+                            probabilities[row],
+                            referenceProbabilities[row]);
+                }
             }
         }
+        return probabilities;
+    }
 
-        return new EarlyFoldingClassification(outputJoiner.toString(),
-                earlyFoldingResidues);
+    static double[] scoreWithSharedHeader(ModelBundle model, double[][] featureRows, boolean[] prolines) {
+        return scoreWithSharedHeader(model, ParallelRows.SEQUENTIAL, featureRows, prolines);
     }
 
-    private static final double[][] NORMALIZATION = new double[][] {
-            { -10.847, 4.548 }, // energy
-            { -12.017, 3.598 }, // egor
-            { 8.991, 5.076 }, // sse_size
-            { 0.43, 0.332 }, // loop_fraction
-            { 0.308, 0.118 }, // rasa
-            { 2.547, 1.282 }, // plip_local_contacts
-            { 2.198, 1.197 }, // plip_local_hbonds
-            { 0.2, 0.218 }, // plip_local_hydrophobic
-            { 1.924, 1.191 }, // plip_local_backbone
-            { 1.564, 1.05 }, // plip_long_range_contacts
-            { 0.888, 0.878 }, // plip_long_range_hbonds
-            { 0.56, 0.347 }, // plip_long_range_hydrophobic
-            { 0.744, 0.851 }, // plip_long_range_backbone
-            { 0.053, 0.024 }, // plip_betweenness
-            { 0.21, 0.035 }, // plip_closeness
-            { 0.185, 0.106 }, // plip_clusteringcoefficient
-            { 0.075, 0.041 }, // plip_hbonds_betweenness
-            { 0.142, 0.034 }, // plip_hbonds_closeness
-            { 0.157, 0.116 }, // plip_hbonds_clusteringcoefficient
-            { 0.072, 0.043 }, // plip_hydrophobic_betweenness
-            { 0.151, 0.033 }, // plip_hydrophobic_closeness
-            { 0.04, 0.065 }, // plip_hydrophobic_clusteringcoefficient
-            { 0.041, 0.019 }, // conv_betweenness
-            { 0.286, 0.054 }, // conv_closeness
-            { 0.574, 0.059 }, // conv_clusteringcoefficient
-            { 0.685, 0.309 }, // plip_neighborhoods
-            { 1.927, 0.846 } // conv_neighborhoods
+    /**
+     * each residue is still passed to the model on its own - only its instance wraps the feature row and shares the
+     * dataset header, instead of copying the row into a dataset of its own
+     * @throws ComputationException if the model cannot score a residue
+     */
+    static double[] scoreWithSharedHeader(ModelBundle model,
+                                          ParallelRows parallelRows,
+                                          double[][] featureRows,
+                                          boolean[] prolines) {
+        double[] probabilities = new double[featureRows.length];
+        parallelRows.forEachRange(featureRows.length, (from, to) -> model.getClassifiers().use(classifier -> {
+            for(int row = from; row < to; row++) {
+                if(prolines[row]) {
+                    continue;
+                }
+
+                double[] featureRow = featureRows[row];
+                model.normalize(featureRow);
+                // wraps the row without copying it
+                Instance instance = new DenseInstance(1.0, featureRow);
+                instance.setDataset(DATASET_HEADER);
+                try {
+                    probabilities[row] = classifier.distributionForInstance(instance)[0];
+                } catch (Exception e) {
+                    throw new ComputationException("could not score residue " + row, e);
+                }
+            }
+        }));
+        return probabilities;
+    }
+
+    static double[] scoreByReference(ModelBundle model,
+                                     FeatureMatrix featureMatrix,
+                                     double[] loopFractions,
+                                     double[][] featureRows,
+                                     boolean[] prolines) {
+        return scoreByReference(model, ParallelRows.SEQUENTIAL, featureMatrix, loopFractions, featureRows, prolines);
+    }
+
+    /**
+     * @param featureRows if present, the features of scored residues are replaced by their normalized values
+     * @throws ComputationException if the model cannot score a residue
+     */
+    static double[] scoreByReference(ModelBundle model,
+                                     ParallelRows parallelRows,
+                                     FeatureMatrix featureMatrix,
+                                     double[] loopFractions,
+                                     double[][] featureRows,
+                                     boolean[] prolines) {
+        double[] probabilities = new double[loopFractions.length];
+        parallelRows.forEachRange(loopFractions.length, (from, to) -> model.getClassifiers().use(classifier -> {
+            for(int row = from; row < to; row++) {
+                if(prolines[row]) {
+                    continue;
+                }
+
+                Instance instance = createInstance(featureMatrix, row, loopFractions[row]);
+                try {
+                    probabilities[row] = classifier.distributionForInstance(model.normalize(instance))[0];
+                } catch (Exception e) {
+                    throw new ComputationException("could not score residue " + row, e);
+                }
+                if(featureRows != null) {
+                    for(int i = 0; i < instance.numAttributes() - 1; i++) {
+                        featureRows[row][i] = instance.value(i);
+                    }
+                }
+            }
+        }));
+        return probabilities;
+    }
+
+    /**
+     * the rounded features of a residue in the attribute order of the model - the class value is missing
+     */
+    static double[] createFeatureRow(FeatureMatrix featureMatrix, int row, double loopFraction) {
+        double[] featureRow = new double[ResiduePrediction.FEATURE_NAMES.size() + 1];
+        for(int i = 0; i < ATTRIBUTE_COLUMNS.length; i++) {
+            // the loop fraction is the only feature not taken from the (smoothed) feature matrix
+            featureRow[i] = round(ATTRIBUTE_COLUMNS[i] == null ? loopFraction : featureMatrix.get(row, ATTRIBUTE_COLUMNS[i]));
+        }
+        featureRow[featureRow.length - 1] = Utils.missingValue();
+        return featureRow;
+    }
+
+    /**
+     * the source of each attribute - <code>null</code> marks the loop fraction, which is not smoothed
+     */
+    private static final FeatureColumn[] ATTRIBUTE_COLUMNS = new FeatureColumn[] {
+            FeatureColumn.ENERGY,
+            FeatureColumn.EGOR,
+            FeatureColumn.SECONDARY_STRUCTURE_ELEMENT_SIZE,
+            null,
+            FeatureColumn.RASA,
+            FeatureColumn.LOCAL_INTERACTIONS,
+            FeatureColumn.LOCAL_HYDROGEN,
+            FeatureColumn.LOCAL_HYDROPHOBIC,
+            FeatureColumn.LOCAL_BACKBONE,
+            FeatureColumn.NON_LOCAL_INTERACTIONS,
+            FeatureColumn.NON_LOCAL_HYDROGEN,
+            FeatureColumn.NON_LOCAL_HYDROPHOBIC,
+            FeatureColumn.NON_LOCAL_BACKBONE,
+            FeatureColumn.BETWEENNESS,
+            FeatureColumn.CLOSENESS,
+            FeatureColumn.CLUSTERING_COEFFICIENT,
+            FeatureColumn.HYDROGEN_BETWEENNESS,
+            FeatureColumn.HYDROGEN_CLOSENESS,
+            FeatureColumn.HYDROGEN_CLUSTERING_COEFFICIENT,
+            FeatureColumn.HYDROPHOBIC_BETWEENNESS,
+            FeatureColumn.HYDROPHOBIC_CLOSENESS,
+            // the model was trained with this (duplicated) value
+            FeatureColumn.HYDROGEN_CLUSTERING_COEFFICIENT,
+            FeatureColumn.CONV_BETWEENNESS,
+            FeatureColumn.CONV_CLOSENESS,
+            FeatureColumn.CONV_CLUSTERING_COEFFICIENT,
+            FeatureColumn.DISTINCT_NEIGHBORHOODS,
+            FeatureColumn.CONV_DISTINCT_NEIGHBORHOODS
     };
 
-    private Instance normalize(Instance instance) {
-        for(int i = 0; i < instance.numAttributes() - 1; i++) {
-            double[] normalization = NORMALIZATION[i];
-            instance.setValue(i, (instance.value(i) - normalization[0]) / normalization[1]);
+    /**
+     * the attributes the model expects - shared by all instances of the shared-header path, it is never modified
+     */
+    private static final Instances DATASET_HEADER = createDatasetHeader();
+
+    private static Instances createDatasetHeader() {
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        for(String featureName : ResiduePrediction.FEATURE_NAMES) {
+            attributes.add(new Attribute(featureName));
         }
-        return instance;
+        attributes.add(new Attribute("folds"));
+        Instances dataset = new Instances("classify", attributes, 0);
+        dataset.setClassIndex(attributes.size() - 1);
+        return dataset;
     }
 
-    private Instance createInstance(SmoothedFeatureVector smoothedFeatureVector, double loopFraction) {
+    static Instance createInstance(FeatureMatrix featureMatrix, int row, double loopFraction) {
         ArrayList<Attribute> attributes = new ArrayList<>();
         attributes.add(new Attribute("energy"));
         attributes.add(new Attribute("egor"));
@@ -227,42 +518,42 @@ public class EarlyFoldingClassifier {
         dataset.setClassIndex(attributes.size() - 1);
 
         SparseInstance sparseInstance = new SparseInstance(28);
-        sparseInstance.setValue(0, round(smoothedFeatureVector.getEnergy()));
-        sparseInstance.setValue(1, round(smoothedFeatureVector.getEgor()));
+        sparseInstance.setValue(0, round(featureMatrix.get(row, FeatureColumn.ENERGY)));
+        sparseInstance.setValue(1, round(featureMatrix.get(row, FeatureColumn.EGOR)));
 
-        sparseInstance.setValue(2, round(smoothedFeatureVector.getSecondaryStructureElementSize()));
+        sparseInstance.setValue(2, round(featureMatrix.get(row, FeatureColumn.SECONDARY_STRUCTURE_ELEMENT_SIZE)));
         sparseInstance.setValue(3, round(loopFraction));
 
-        sparseInstance.setValue(4, round(smoothedFeatureVector.getRasa()));
+        sparseInstance.setValue(4, round(featureMatrix.get(row, FeatureColumn.RASA)));
 
-        sparseInstance.setValue(5, round(smoothedFeatureVector.getLocalInteractions()));
-        sparseInstance.setValue(6, round(smoothedFeatureVector.getLocalHydrogen()));
-        sparseInstance.setValue(7, round(smoothedFeatureVector.getLocalHydrophobic()));
-        sparseInstance.setValue(8, round(smoothedFeatureVector.getLocalBackbone()));
+        sparseInstance.setValue(5, round(featureMatrix.get(row, FeatureColumn.LOCAL_INTERACTIONS)));
+        sparseInstance.setValue(6, round(featureMatrix.get(row, FeatureColumn.LOCAL_HYDROGEN)));
+        sparseInstance.setValue(7, round(featureMatrix.get(row, FeatureColumn.LOCAL_HYDROPHOBIC)));
+        sparseInstance.setValue(8, round(featureMatrix.get(row, FeatureColumn.LOCAL_BACKBONE)));
 
-        sparseInstance.setValue(9, round(smoothedFeatureVector.getNonLocalInteractions()));
-        sparseInstance.setValue(10, round(smoothedFeatureVector.getNonLocalHydrogen()));
-        sparseInstance.setValue(11, round(smoothedFeatureVector.getNonLocalHydrophobic()));
-        sparseInstance.setValue(12, round(smoothedFeatureVector.getNonLocalBackbone()));
+        sparseInstance.setValue(9, round(featureMatrix.get(row, FeatureColumn.NON_LOCAL_INTERACTIONS)));
+        sparseInstance.setValue(10, round(featureMatrix.get(row, FeatureColumn.NON_LOCAL_HYDROGEN)));
+        sparseInstance.setValue(11, round(featureMatrix.get(row, FeatureColumn.NON_LOCAL_HYDROPHOBIC)));
+        sparseInstance.setValue(12, round(featureMatrix.get(row, FeatureColumn.NON_LOCAL_BACKBONE)));
 
-        sparseInstance.setValue(13, round(smoothedFeatureVector.getBetweenness()));
-        sparseInstance.setValue(14, round(smoothedFeatureVector.getCloseness()));
-        sparseInstance.setValue(15, round(smoothedFeatureVector.getClusteringCoefficient()));
+        sparseInstance.setValue(13, round(featureMatrix.get(row, FeatureColumn.BETWEENNESS)));
+        sparseInstance.setValue(14, round(featureMatrix.get(row, FeatureColumn.CLOSENESS)));
+        sparseInstance.setValue(15, round(featureMatrix.get(row, FeatureColumn.CLUSTERING_COEFFICIENT)));
 
-        sparseInstance.setValue(16, round(smoothedFeatureVector.getHydrogenBetweenness()));
-        sparseInstance.setValue(17, round(smoothedFeatureVector.getHydrogenCloseness()));
-        sparseInstance.setValue(18, round(smoothedFeatureVector.getHydrogenClusteringCoefficient()));
+        sparseInstance.setValue(16, round(featureMatrix.get(row, FeatureColumn.HYDROGEN_BETWEENNESS)));
+        sparseInstance.setValue(17, round(featureMatrix.get(row, FeatureColumn.HYDROGEN_CLOSENESS)));
+        sparseInstance.setValue(18, round(featureMatrix.get(row, FeatureColumn.HYDROGEN_CLUSTERING_COEFFICIENT)));
 
-        sparseInstance.setValue(19, round(smoothedFeatureVector.getHydrophobicBetweenness()));
-        sparseInstance.setValue(20, round(smoothedFeatureVector.getHydrophobicCloseness()));
-        sparseInstance.setValue(21, round(smoothedFeatureVector.getHydrogenClusteringCoefficient()));
+        sparseInstance.setValue(19, round(featureMatrix.get(row, FeatureColumn.HYDROPHOBIC_BETWEENNESS)));
+        sparseInstance.setValue(20, round(featureMatrix.get(row, FeatureColumn.HYDROPHOBIC_CLOSENESS)));
+        sparseInstance.setValue(21, round(featureMatrix.get(row, FeatureColumn.HYDROGEN_CLUSTERING_COEFFICIENT)));
 
-        sparseInstance.setValue(22, round(smoothedFeatureVector.getConvBetweenness()));
-        sparseInstance.setValue(23, round(smoothedFeatureVector.getConvCloseness()));
-        sparseInstance.setValue(24, round(smoothedFeatureVector.getConvClusteringCoefficient()));
+        sparseInstance.setValue(22, round(featureMatrix.get(row, FeatureColumn.CONV_BETWEENNESS)));
+        sparseInstance.setValue(23, round(featureMatrix.get(row, FeatureColumn.CONV_CLOSENESS)));
+        sparseInstance.setValue(24, round(featureMatrix.get(row, FeatureColumn.CONV_CLUSTERING_COEFFICIENT)));
 
-        sparseInstance.setValue(25, round(smoothedFeatureVector.getDistinctNeighborhoods()));
-        sparseInstance.setValue(26, round(smoothedFeatureVector.getConvDistinctNeighborhoods()));
+        sparseInstance.setValue(25, round(featureMatrix.get(row, FeatureColumn.DISTINCT_NEIGHBORHOODS)));
+        sparseInstance.setValue(26, round(featureMatrix.get(row, FeatureColumn.CONV_DISTINCT_NEIGHBORHOODS)));
 
         dataset.add(sparseInstance);
         sparseInstance.setDataset(dataset);
@@ -271,25 +562,33 @@ public class EarlyFoldingClassifier {
         return sparseInstance;
     }
 
-    private double round(double value) {
+    private static double round(double value) {
         return (double) Math.round(value * 10000d) / 10000d;
     }
 
-    class EarlyFoldingClassification {
-        private final String csvRepresentation;
-        private final List<String> earlyFoldingResidues;
+    public static class EarlyFoldingClassification {
+        private final List<ResiduePrediction> predictions;
+
+        /**
+         * @param predictions the predictions of all residues, ranked by their probability to be early folding
+         */
+        public EarlyFoldingClassification(List<ResiduePrediction> predictions) {
+            this.predictions = predictions;
+        }
 
-        public EarlyFoldingClassification(String csvRepresentation, List<String> earlyFoldingResidues) {
-            this.csvRepresentation = csvRepresentation;
-            this.earlyFoldingResidues = earlyFoldingResidues;
+        public List<ResiduePrediction> getPredictions() {
+            return predictions;
         }
 
         public String getCsvRepresentation() {
-            return csvRepresentation;
+            return PredictionWriter.toString(predictions, PredictionWriter.Format.CSV);
         }
 
         public List<String> getEarlyFoldingResidues() {
-            return earlyFoldingResidues;
+            return predictions.stream()
+                    .filter(ResiduePrediction::isEarlyFolding)
+                    .map(ResiduePrediction::getLabel)
+                    .collect(Collectors.toList());
         }
     }
 }
@@ -0,0 +1,44 @@
+package de.bioforscher.efr;
+
+import de.bioforscher.efr.store.StructureStore;
+import de.bioforscher.jstructure.model.structure.StructureParser;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.servlet.DispatcherType;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * the structures all services work on and the compression of responses
+ */
+@Configuration
+public class EarlyFoldingConfiguration {
+    /**
+     * pre-parsed entries of the local PDB mirror - entries missing from the store are parsed from the mirror
+     * @param structureStoreDirectory the directory of the store, empty to parse every entry from the mirror
+     */
+    @Bean
+    public StructureStore structureStore(@Value("${efr.structure-store.directory:}") String structureStoreDirectory) {
+        // specify pdb directory
+        StructureParser.OptionalSteps.setLocalPdbDirectory(Paths.get("/srv/pdb/data/structures/divided/pdb/"));
+        return new StructureStore(structureStoreDirectory.isEmpty() ? null : Paths.get(structureStoreDirectory));
+    }
+
+    /**
+     * gzips larger responses, also of jobs (which complete by an async dispatch)
+     * @param mimeTypes the comma-separated content types to compress
+     * @param minimumSize the number of bytes from which on a response is compressed
+     */
+    @Bean
+    @ConditionalOnProperty(name = "efr.compression.enabled", havingValue = "true", matchIfMissing = true)
+    public FilterRegistrationBean compressionFilter(@Value("${efr.compression.mime-types:application/json,text/plain}") String mimeTypes,
+                                                    @Value("${efr.compression.min-response-size:2048}") int minimumSize) {
+        FilterRegistrationBean registration = new FilterRegistrationBean(new CompressionFilter(Arrays.asList(mimeTypes.split(",")), minimumSize));
+        registration.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.ASYNC);
+        return registration;
+    }
+}
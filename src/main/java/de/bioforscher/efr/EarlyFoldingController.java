@@ -1,174 +1,150 @@
 package de.bioforscher.efr;
 
+import de.bioforscher.efr.job.Job;
+import de.bioforscher.efr.model.ColumnarProteinEncoder;
 import de.bioforscher.efr.model.Protein;
-import de.bioforscher.jstructure.model.feature.ComputationException;
-import de.bioforscher.jstructure.model.structure.Chain;
-import de.bioforscher.jstructure.model.structure.Structure;
-import de.bioforscher.jstructure.model.structure.StructureParser;
-import de.bioforscher.jstructure.model.structure.selection.SelectionException;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import de.bioforscher.efr.service.ChainIdService;
+import de.bioforscher.efr.service.ProteinService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import javax.annotation.PostConstruct;
-import java.io.*;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.*;
-import java.util.concurrent.ConcurrentSkipListSet;
-import java.util.stream.Collectors;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * classification of PDB chains and uploaded structures
+ */
 @RestController
 @RequestMapping(value = "/api/", method = RequestMethod.GET)
 public class EarlyFoldingController {
-    private static final Logger logger = LoggerFactory.getLogger(EarlyFoldingController.class);
-    private static final String EXAMPLE_DATA_ID = "1acj_A";
+    private final ProteinService proteinService;
+    private final ChainIdService chainIdService;
+    private final JobResponses jobResponses;
+
+    public EarlyFoldingController(ProteinService proteinService,
+                                  ChainIdService chainIdService,
+                                  JobResponses jobResponses) {
+        this.proteinService = proteinService;
+        this.chainIdService = chainIdService;
+        this.jobResponses = jobResponses;
+    }
+
     /**
-     *  the flag indicating that a file was uploaded (with need to be base64-encoded to be processed by the REST-
-     *  interface) - this value can also be used to decode the submitted string as e.g. the header information has be
-     *  removed
+     * @param id the chain id (e.g. 1acj_A)
+     * @param includePdbRepresentation false to omit the coordinates - they can be retrieved by {@link #getStructure(String)}
+     * @param includeCsvRepresentation false to omit the CSV representation - it can be retrieved by
+     *                                 {@link #getProteinPredictions(String, String, String)}
+     * @param model the name or version of the model to use (see {@link ModelController#getModels()}), the default model
+     *              if absent
      */
-    private static final String FILE_ENCODING_FLAG = "base64,";
-    private Path pdbDirectory;
-    private Protein exampleProtein;
+    @RequestMapping(value= "/id/{id}", method = RequestMethod.GET)
+    public DeferredResult<Protein> getProtein(@PathVariable String id,
+                                              @RequestParam(value = "pdb", defaultValue = "true") boolean includePdbRepresentation,
+                                              @RequestParam(value = "csv", defaultValue = "true") boolean includeCsvRepresentation,
+                                              @RequestParam(value = "model", required = false) String model) {
+        return jobResponses.deferredResult(jobResponses.timed(proteinService.submitProteinJob(id, model), "id"),
+                protein -> protein.select(includePdbRepresentation, includeCsvRepresentation));
+    }
+
     /**
-     * collection of PDB chain ids: maps both chars in the middle to all chain ids in this bin
-     * e.g.: ac -> [1acj_A, 3ace_A, 3ace_B]
+     * binary variant of {@link #getProtein(String, boolean, boolean, String)} - chosen by requesting the content type
+     * {@value ColumnarProteinEncoder#MEDIA_TYPE}
      */
-    private Map<String, List<String>> chainIds;
-    private EarlyFoldingClassifier earlyFoldingClassifier;
+    @RequestMapping(value= "/id/{id}", method = RequestMethod.GET, produces = ColumnarProteinEncoder.MEDIA_TYPE)
+    public DeferredResult<byte[]> getEncodedProtein(@PathVariable String id,
+                                                    @RequestParam(value = "pdb", defaultValue = "true") boolean includePdbRepresentation,
+                                                    @RequestParam(value = "model", required = false) String model) {
+        return jobResponses.deferredResult(proteinService.submitProteinJob(id, model),
+                protein -> ColumnarProteinEncoder.encode(protein, includePdbRepresentation));
+    }
+
     /**
-     * limit number of concurrent jobs
+     * the coordinates of a chain in PDB format - they never change for a chain id, so clients may cache them; chains
+     * of the structure store are served right away (without ligands), all others once their job finished
      */
-    private static final int MAXIMUM_LOAD = 10;
-    private Set<String> locks;
-
-    @PostConstruct
-    public void activate() {
-        this.locks = new ConcurrentSkipListSet<>();
-
-        // specify pdb directory
-        this.pdbDirectory = Paths.get("/srv/pdb/data/structures/divided/pdb/");
-        StructureParser.OptionalSteps.setLocalPdbDirectory(pdbDirectory);
-
-        // initialize all chain ids from preprocessed file (mere lines of ids in format: 1acj_A)
-        logger.info("initializing chain id list for auto-completion of user input");
-        try {
-            try(InputStream inputStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("data/chainids.dat")) {
-                try(InputStreamReader inputStreamReader = new InputStreamReader(inputStream)) {
-                    try (BufferedReader bufferedReader = new BufferedReader(inputStreamReader)) {
-                        chainIds = bufferedReader.lines()
-                                .collect(Collectors.groupingBy(chainId -> chainId.substring(1, 3)));
-                    }
-                }
-            }
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+    @RequestMapping(value = "/structure/{id}", method = RequestMethod.GET)
+    public DeferredResult<ResponseEntity<String>> getStructure(@PathVariable String id) {
+        Optional<String> storedPdbRepresentation = proteinService.getStoredPdbRepresentation(id, false);
+        if(storedPdbRepresentation.isPresent()) {
+            DeferredResult<ResponseEntity<String>> deferredResult = new DeferredResult<>();
+            deferredResult.setResult(structureResponse(storedPdbRepresentation.get()));
+            return deferredResult;
         }
-        logger.info("registered {} valid amino acid chains",
-                chainIds.values()
-                        .stream()
-                        .mapToInt(Collection::size)
-                        .sum());
-
-        this.earlyFoldingClassifier = EarlyFoldingClassifier.getInstance();
 
-        // create example data container
-        logger.info("creating example data {}", EXAMPLE_DATA_ID);
-        String[] exampleSplit = EXAMPLE_DATA_ID.split("_");
-        Chain chain = StructureParser.fromPdbId(exampleSplit[0]).parse().select().chainId(exampleSplit[1]).asChain();
-        List<String> csvLines;
-        try {
-            try(InputStream inputStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("data/example.csv")) {
-                try(InputStreamReader inputStreamReader = new InputStreamReader(inputStream)) {
-                    try (BufferedReader bufferedReader = new BufferedReader(inputStreamReader)) {
-                        csvLines = bufferedReader.lines().collect(Collectors.toList());
-                    }
-                }
-            }
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
-        this.exampleProtein = new Protein(chain,
-                csvLines.stream()
-                        .collect(Collectors.joining(System.lineSeparator())),
-                csvLines.stream()
-                        .filter(line -> line.endsWith("early"))
-                        .map(line -> line.split(","))
-                        .map(split -> split[2] + "-" + split[1])
-                        .collect(Collectors.toList()));
+        return jobResponses.deferredResult(proteinService.submitProteinJob(id, null),
+                protein -> structureResponse(protein.getPdbRepresentation()));
     }
 
-    @RequestMapping(value= "/id/{id}", method = RequestMethod.GET)
-    public Protein getProtein(@PathVariable String id) {
-        logger.info("providing protein with id {}", id);
-        if(EXAMPLE_DATA_ID.equals(id)) {
-            return exampleProtein;
-        }
-
-        String[] split = id.split("_");
-        String pdbId = split[0];
-        String chainId = split[1];
-
-        Chain chain = StructureParser.fromPdbId(pdbId).parse()
-                .select()
-                .chainId(chainId)
-                .asChain();
-        return processChain(chain);
+    private static ResponseEntity<String> structureResponse(String pdbRepresentation) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_PLAIN)
+                .cacheControl(CacheControl.maxAge(1, TimeUnit.DAYS))
+                .body(pdbRepresentation);
     }
 
-    private Protein processChain(Chain chain) {
-        logger.info("current load: {} / {}",
-                locks.size(),
-                MAXIMUM_LOAD);
-        if(locks.size() >= MAXIMUM_LOAD) {
-            throw new ComputationException("job rejected due to high server load (limit=" + MAXIMUM_LOAD + ") - please wait some time before submitting a new job");
-        }
-
-        String lock = new Object().toString();
-        locks.add(lock);
-        EarlyFoldingClassifier.EarlyFoldingClassification earlyFoldingClassification = earlyFoldingClassifier.process(chain);
+    @RequestMapping(value = "/submit", method = RequestMethod.POST, consumes = "text/plain")
+    public DeferredResult<Protein> submit(@RequestBody String postPayload,
+                                          @RequestParam(value = "model", required = false) String model) {
+        return jobResponses.deferredResult(jobResponses.timed(proteinService.submitStructureJob(postPayload, model), "upload"));
+    }
 
-        Protein protein = new Protein(chain,
-                earlyFoldingClassification.getCsvRepresentation(),
-                earlyFoldingClassification.getEarlyFoldingResidues());
-        logger.info("created protein {}_{} with EFR: {}",
-                protein.getPdbId(),
-                protein.getChainId(),
-                protein.getEarlyFoldingResidues());
-        locks.remove(lock);
-        return protein;
+    /**
+     * asynchronous variant of {@link #getProtein(String, boolean, boolean, String)} - returns the job handle immediately
+     */
+    @RequestMapping(value = "/job/id/{id}", method = RequestMethod.POST)
+    public Job<Protein> submitProteinJob(@PathVariable String id,
+                                         @RequestParam(value = "model", required = false) String model) {
+        return proteinService.submitProteinJob(id, model);
     }
 
-    @RequestMapping(value = "/submit", method = RequestMethod.POST, consumes = "text/plain")
-    public Protein submit(@RequestBody String postPayload) {
-        String structureData = postPayload.substring(postPayload.indexOf(FILE_ENCODING_FLAG) + FILE_ENCODING_FLAG.length(), postPayload.length() - 2);
-        logger.info("processing submitted structure");
+    /**
+     * asynchronous variant of {@link #submit(String, String)} - returns the job handle immediately
+     */
+    @RequestMapping(value = "/job/submit", method = RequestMethod.POST, consumes = "text/plain")
+    public Job<Protein> submitStructureJob(@RequestBody String postPayload,
+                                           @RequestParam(value = "model", required = false) String model) {
+        return proteinService.submitStructureJob(postPayload, model);
+    }
 
-        try {
-            byte[] uploadedFileContent = Base64.getDecoder().decode(structureData);
-            Structure structure = StructureParser.fromInputStream(new ByteArrayInputStream(uploadedFileContent)).parse();
-            Chain chain = structure.select().asChain();
+    /**
+     * variant of {@link #getProtein(String, boolean, boolean, String)} reporting the progress as server-sent events -
+     * the result event contains the protein without its coordinates and CSV representation
+     * @param id the chain id (e.g. 1acj_A)
+     * @param model the name or version of the model to use, the default model if absent
+     */
+    @RequestMapping(value = "/id/{id}/events", method = RequestMethod.GET, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getProteinEvents(@PathVariable String id,
+                                       @RequestParam(value = "model", required = false) String model) {
+        return jobResponses.streamEvents(jobResponses.timed(proteinService.submitProteinJob(id, model), "id_events"));
+    }
 
-            return processChain(chain);
-        } catch (NullPointerException e) {
-            // NPE happens when ProteinIdentifier cannot be set
-            throw new ComputationException("no valid file content");
-        } catch (SelectionException e) {
-            throw new ComputationException("structure does not contain amino acids");
-        } catch (Exception e) {
-            // wrap generic exceptions
-            throw new ComputationException(e);
-        }
+    /**
+     * stream the residue predictions of a chain without the structure and the remaining meta data
+     * @param id the chain id (e.g. 1acj_A)
+     * @param format csv, tsv or json
+     * @param model the name or version of the model to use, the default model if absent
+     */
+    @RequestMapping(value = "/id/{id}/predictions", method = RequestMethod.GET)
+    public DeferredResult<ResponseEntity<StreamingResponseBody>> getProteinPredictions(@PathVariable String id,
+                                                                                      @RequestParam(value = "format", defaultValue = "csv") String format,
+                                                                                      @RequestParam(value = "model", required = false) String model) {
+        return jobResponses.predictions(proteinService.submitProteinJob(id, model), format);
     }
 
+    /**
+     * @param query the beginning of a chain id, at least 3 characters - the PDB id is case-insensitive
+     * @param limit the maximum number of suggestions
+     * @return matching chain ids in lexicographic order, empty if there is none
+     */
     @RequestMapping(value = "/complete/{query}", method = RequestMethod.GET)
-    public List<String> complete(@PathVariable String query) {
-        String middlePart = query.substring(1, 3);
-
-        return chainIds.get(middlePart)
-                .stream()
-                .filter(chainId -> chainId.startsWith(query))
-                .collect(Collectors.toList());
+    public List<String> complete(@PathVariable String query,
+                                 @RequestParam(value = "limit", defaultValue = "50") int limit) {
+        return chainIdService.complete(query, limit);
     }
 }
@@ -0,0 +1,20 @@
+package de.bioforscher.efr;
+
+/**
+ * how residues are passed to the GMLVQ-model
+ */
+public enum InferenceMode {
+    /**
+     * each residue is still scored on its own, but its instance wraps the primitive feature row and shares a single
+     * dataset header with all other residues - no dataset is created per residue
+     */
+    SHARED_HEADER,
+    /**
+     * each residue is wrapped in its own Weka dataset - the original path, kept as reference
+     */
+    REFERENCE,
+    /**
+     * score by both paths and report any residue whose probabilities differ
+     */
+    VERIFY
+}
@@ -0,0 +1,71 @@
+package de.bioforscher.efr;
+
+import de.bioforscher.efr.job.Job;
+import de.bioforscher.efr.job.JobManager;
+import de.bioforscher.jstructure.model.feature.ComputationException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * the status, progress and results of submitted jobs
+ */
+@RestController
+@RequestMapping(value = "/api/", method = RequestMethod.GET)
+public class JobController {
+    private final JobManager jobManager;
+    private final JobResponses jobResponses;
+
+    public JobController(JobManager jobManager,
+                         JobResponses jobResponses) {
+        this.jobManager = jobManager;
+        this.jobResponses = jobResponses;
+    }
+
+    /**
+     * report the status (and result, if present) of a job
+     * @param jobId the job id
+     * @param wait optional time in milliseconds to wait for the job to finish (long-polling)
+     * @return the job
+     */
+    @RequestMapping(value = "/job/{jobId}", method = RequestMethod.GET)
+    public DeferredResult<Job<?>> getJob(@PathVariable String jobId,
+                                         @RequestParam(value = "wait", defaultValue = "0") long wait) {
+        Job<?> job = getExistingJob(jobId);
+        DeferredResult<Job<?>> deferredResult = new DeferredResult<>(Math.max(1, Math.min(wait, jobResponses.getRequestTimeout())), job);
+        if(wait <= 0 || job.isDone()) {
+            deferredResult.setResult(job);
+        } else {
+            job.getFuture().whenComplete((result, throwable) -> deferredResult.setResult(job));
+        }
+        return deferredResult;
+    }
+
+    /**
+     * stream the progress of a job as server-sent events (see {@link JobResponses#streamEvents(Job)})
+     * @param jobId the job id
+     */
+    @RequestMapping(value = "/job/{jobId}/events", method = RequestMethod.GET, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getJobEvents(@PathVariable String jobId) {
+        return jobResponses.streamEvents(getExistingJob(jobId));
+    }
+
+    /**
+     * stream the residue predictions of a job once it finished
+     * @param jobId the job id
+     * @param format csv, tsv or json
+     */
+    @RequestMapping(value = "/job/{jobId}/predictions", method = RequestMethod.GET)
+    public DeferredResult<ResponseEntity<StreamingResponseBody>> getJobPredictions(@PathVariable String jobId,
+                                                                                  @RequestParam(value = "format", defaultValue = "csv") String format) {
+        return jobResponses.predictions(getExistingJob(jobId), format);
+    }
+
+    private Job<?> getExistingJob(String jobId) {
+        return jobManager.getJob(jobId)
+                .orElseThrow(() -> new ComputationException("unknown job " + jobId + " - results are only kept for a limited time"));
+    }
+}
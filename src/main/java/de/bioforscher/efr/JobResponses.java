@@ -0,0 +1,184 @@
+package de.bioforscher.efr;
+
+import de.bioforscher.efr.job.Job;
+import de.bioforscher.efr.job.JobEvent;
+import de.bioforscher.efr.metrics.MetricsRegistry;
+import de.bioforscher.efr.model.PredictionWriter;
+import de.bioforscher.efr.model.Protein;
+import de.bioforscher.jstructure.model.feature.ComputationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * turns jobs into responses - no request thread is occupied while waiting for a job
+ */
+@Component
+public class JobResponses {
+    private static final long KEEP_ALIVE_INTERVAL_SECONDS = 15;
+    private final ScheduledExecutorService keepAliveScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "efr-keep-alive");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * how long synchronous requests wait for their job before the client is referred to the job endpoint
+     */
+    private final long requestTimeout;
+
+    public JobResponses(@Value("${efr.jobs.request-timeout-ms:600000}") long requestTimeout) {
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * stop sending keep-alive comments - open event streams are closed along with the application context
+     */
+    @PreDestroy
+    public void deactivate() {
+        keepAliveScheduler.shutdownNow();
+    }
+
+    public long getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    /**
+     * record the time from the request until the result is available
+     */
+    public <T> Job<T> timed(Job<T> job, String endpoint) {
+        long start = System.nanoTime();
+        job.getFuture().whenComplete((result, throwable) -> MetricsRegistry.getDefault()
+                .histogram("efr_request_duration_seconds", "time until the result of a request is available", "endpoint", endpoint)
+                .observeNanos(System.nanoTime() - start));
+        return job;
+    }
+
+    /**
+     * bridge a job to a servlet-level asynchronous response, so that no request thread is occupied while waiting
+     */
+    public <T> DeferredResult<T> deferredResult(Job<T> job) {
+        return deferredResult(job, Function.identity());
+    }
+
+    /**
+     * @param view transforms the result of the job into the response
+     */
+    public <T, R> DeferredResult<R> deferredResult(Job<T> job, Function<T, R> view) {
+        DeferredResult<R> deferredResult = new DeferredResult<>(requestTimeout);
+        deferredResult.onTimeout(() -> deferredResult.setErrorResult(new ComputationException("job " + job.getId() +
+                " is still running - query /api/job/" + job.getId() + " for its result")));
+        job.getFuture().whenComplete((result, throwable) -> {
+            if(throwable == null) {
+                try {
+                    deferredResult.setResult(view.apply(result));
+                } catch (RuntimeException e) {
+                    deferredResult.setErrorResult(e);
+                }
+            } else {
+                deferredResult.setErrorResult(throwable instanceof CompletionException ? throwable.getCause() : throwable);
+            }
+        });
+        return deferredResult;
+    }
+
+    /**
+     * stream the progress of a job as server-sent events: one progress event per finished step (replayed for steps
+     * finished before the request), followed by a result or a failure event - comments are sent regularly in between,
+     * so proxies do not close the connection while a large chain is processed
+     */
+    public SseEmitter streamEvents(Job<?> job) {
+        SseEmitter emitter = new SseEmitter(requestTimeout);
+        Consumer<JobEvent> subscriber = event -> send(emitter, SseEmitter.event()
+                .name("progress")
+                .data(event, MediaType.APPLICATION_JSON));
+        ScheduledFuture<?> keepAlive = keepAliveScheduler.scheduleAtFixedRate(() -> send(emitter, SseEmitter.event().comment("keep-alive")),
+                KEEP_ALIVE_INTERVAL_SECONDS,
+                KEEP_ALIVE_INTERVAL_SECONDS,
+                TimeUnit.SECONDS);
+        // invoked on timeouts and disconnects as well
+        emitter.onCompletion(() -> {
+            job.unsubscribe(subscriber);
+            keepAlive.cancel(false);
+        });
+
+        job.subscribe(subscriber);
+        job.getFuture().whenComplete((result, throwable) -> {
+            if(throwable == null) {
+                Object data = result instanceof Protein ? ((Protein) result).select(false, false) : result;
+                send(emitter, SseEmitter.event()
+                        .name("result")
+                        .data(data, MediaType.APPLICATION_JSON));
+            } else {
+                Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+                send(emitter, SseEmitter.event()
+                        .name("failure")
+                        .data(Collections.singletonMap("message", cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName()),
+                                MediaType.APPLICATION_JSON));
+            }
+            emitter.complete();
+        });
+        return emitter;
+    }
+
+    private static void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException e) {
+            // the client is gone
+            emitter.complete();
+        } catch (IllegalStateException e) {
+            // the emitter completed in the meantime
+        }
+    }
+
+    /**
+     * stream the residue predictions of a job once it finished - like {@link #deferredResult(Job)}, no request thread
+     * waits for the job
+     * @param format csv, tsv or json
+     */
+    public DeferredResult<ResponseEntity<StreamingResponseBody>> predictions(Job<?> job, String format) {
+        PredictionWriter.Format outputFormat;
+        try {
+            outputFormat = PredictionWriter.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ComputationException("unknown format " + format + " - use csv, tsv or json");
+        }
+
+        return deferredResult(job, result -> {
+            if(!(result instanceof Protein)) {
+                throw new ComputationException("job " + job.getId() + " did not classify a protein");
+            }
+
+            Protein protein = (Protein) result;
+            StreamingResponseBody body = outputStream -> {
+                Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+                PredictionWriter.write(protein.getPredictions(), outputFormat, writer);
+                writer.flush();
+            };
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(outputFormat.getContentType() + ";charset=UTF-8"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + protein.getPdbId() + "_" +
+                            protein.getChainId() + "." + outputFormat.name().toLowerCase() + "\"")
+                    .body(body);
+        });
+    }
+}
@@ -0,0 +1,71 @@
+package de.bioforscher.efr;
+
+import de.bioforscher.efr.registry.ModelBundle;
+import de.bioforscher.efr.registry.ModelRegistry;
+import de.bioforscher.efr.service.ClassificationService;
+import de.bioforscher.efr.startup.StartupResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * the models available for classification
+ */
+@RestController
+@RequestMapping(value = "/api/", method = RequestMethod.GET)
+public class ModelController {
+    private final ClassificationService classificationService;
+
+    public ModelController(ClassificationService classificationService) {
+        this.classificationService = classificationService;
+    }
+
+    /**
+     * @return the loaded models (name, version, load time and estimated footprint) and the name of the default model -
+     * 503 while the classifier is loading
+     */
+    @RequestMapping(value = "/models", method = RequestMethod.GET)
+    public ResponseEntity<?> getModels() {
+        if(!classificationService.isReady()) {
+            return notReady();
+        }
+        ModelRegistry modelRegistry = classificationService.getModelRegistry();
+        return ResponseEntity.ok(describeModels(modelRegistry, modelRegistry.getBundles()));
+    }
+
+    /**
+     * scan the model directory right away instead of waiting for the next periodic reload
+     * @return the models loaded afterwards - 503 while the classifier is loading
+     */
+    @RequestMapping(value = "/models/reload", method = RequestMethod.POST)
+    public ResponseEntity<?> reloadModels() {
+        if(!classificationService.isReady()) {
+            return notReady();
+        }
+        ModelRegistry modelRegistry = classificationService.getModelRegistry();
+        return ResponseEntity.ok(describeModels(modelRegistry, modelRegistry.reload()));
+    }
+
+    /**
+     * answer right away instead of waiting for the classifier - its loading is started, if nobody did so before
+     */
+    private ResponseEntity<?> notReady() {
+        StartupResource<?> classifier = classificationService.getStartupResource();
+        classifier.loadInBackground();
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(classifier);
+    }
+
+    private static Map<String, Object> describeModels(ModelRegistry modelRegistry, List<ModelBundle> models) {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("default", modelRegistry.getDefault().getName());
+        description.put("models", models);
+        return description;
+    }
+}
@@ -0,0 +1,57 @@
+package de.bioforscher.efr;
+
+import de.bioforscher.efr.metrics.MetricsRegistry;
+import de.bioforscher.efr.service.ChainIdService;
+import de.bioforscher.efr.service.ClassificationService;
+import de.bioforscher.efr.service.ProteinService;
+import de.bioforscher.efr.startup.StartupResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * the state of the service for monitoring
+ */
+@RestController
+@RequestMapping(value = "/api/", method = RequestMethod.GET)
+public class StatusController {
+    /**
+     * everything which takes noticeable time to load
+     */
+    private final List<StartupResource<?>> startupResources;
+
+    public StatusController(ChainIdService chainIdService,
+                            ClassificationService classificationService,
+                            ProteinService proteinService) {
+        this.startupResources = Arrays.asList(chainIdService.getStartupResource(),
+                classificationService.getStartupResource(),
+                proteinService.getStartupResource());
+    }
+
+    /**
+     * all metrics in the Prometheus text format
+     */
+    @RequestMapping(value = "/metrics", method = RequestMethod.GET)
+    public void getMetrics(HttpServletResponse response) throws IOException {
+        response.setContentType("text/plain; version=0.0.4");
+        response.setCharacterEncoding("UTF-8");
+        MetricsRegistry.getDefault().write(response.getWriter());
+    }
+
+    /**
+     * report the state of all resources needed to serve requests - responds with 503 until all of them are loaded
+     */
+    @RequestMapping(value = "/ready", method = RequestMethod.GET)
+    public ResponseEntity<List<StartupResource<?>>> getReadiness() {
+        boolean ready = startupResources.stream().allMatch(StartupResource::isReady);
+        return ResponseEntity.status(ready ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE)
+                .body(startupResources);
+    }
+}
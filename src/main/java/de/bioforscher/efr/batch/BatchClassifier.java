@@ -0,0 +1,346 @@
+package de.bioforscher.efr.batch;
+
+import de.bioforscher.efr.EarlyFoldingClassifier;
+import de.bioforscher.efr.io.AtomicFiles;
+import de.bioforscher.efr.model.PredictionWriter;
+import de.bioforscher.efr.model.ResiduePrediction;
+import de.bioforscher.efr.pipeline.ProgressListener;
+import de.bioforscher.efr.registry.ModelBundle;
+import de.bioforscher.efr.store.StructureStore;
+import de.bioforscher.jstructure.model.structure.Chain;
+import de.bioforscher.jstructure.model.structure.Structure;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * classifies large collections of PDB chains: chains of the same entry are grouped, so each structure is parsed and
+ * annotated only once, groups are distributed across all cores and the result of each chain is written to the output
+ * directory as soon as it is available<br />
+ * the output directory contains:
+ * <ul>
+ *     <li>{@value #CHAIN_LIST_FILE} - the requested chain ids</li>
+ *     <li>{@value #MODEL_VERSION_FILE} - the version of the model used, resumed runs use the same model</li>
+ *     <li>{@value #PROGRESS_FILE} - one line per processed chain (id, status, message), used to resume runs</li>
+ *     <li>one CSV file per successfully classified chain, e.g. 1acj_A.csv</li>
+ * </ul>
+ */
+public class BatchClassifier {
+    private static final Logger logger = LoggerFactory.getLogger(BatchClassifier.class);
+    public static final String CHAIN_LIST_FILE = "chains.txt";
+    public static final String PROGRESS_FILE = "progress.tsv";
+    public static final String MODEL_VERSION_FILE = "model.txt";
+    private static final Pattern VALID_CHAIN_ID = Pattern.compile("[A-Za-z0-9]{4}_[A-Za-z0-9]+");
+    private static final String STATUS_SUCCEEDED = "OK";
+    private static final String STATUS_FAILED = "FAILED";
+    private final EarlyFoldingClassifier earlyFoldingClassifier;
+    private final StructureStore structureStore;
+    private final int threads;
+
+    public BatchClassifier(EarlyFoldingClassifier earlyFoldingClassifier, int threads) {
+        this(earlyFoldingClassifier, new StructureStore(null), threads);
+    }
+
+    /**
+     * @param earlyFoldingClassifier the classifier
+     * @param structureStore the source of structures
+     * @param threads the number of entries processed concurrently (0 - one per core)
+     */
+    public BatchClassifier(EarlyFoldingClassifier earlyFoldingClassifier, StructureStore structureStore, int threads) {
+        this.earlyFoldingClassifier = earlyFoldingClassifier;
+        this.structureStore = structureStore;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * start a new batch run - or continue a previous one, when the output directory already contains results
+     * @param chainIds the chains to classify (e.g. 1acj_A)
+     * @param outputDirectory the directory to write to
+     * @return the summary of this run
+     */
+    public BatchSummary run(List<String> chainIds, Path outputDirectory) {
+        return run(chainIds, outputDirectory, (chainId, chain, predictions) -> writeCsv(chainId, predictions, outputDirectory));
+    }
+
+    /**
+     * like {@link #run(List, Path)}, but results are passed to the given writer instead of being written as CSV files
+     * @param chainIds the chains to classify (e.g. 1acj_A)
+     * @param outputDirectory the directory for the chain list and the progress log
+     * @param resultWriter receives the predictions of each chain - invoked concurrently
+     * @return the summary of this run
+     */
+    public BatchSummary run(List<String> chainIds, Path outputDirectory, ResultWriter resultWriter) {
+        // a model replaced during the run must not end up in the results - neither one replaced between interruption and
+        // continuation
+        try {
+            Optional<String> modelVersion = readModelVersion(outputDirectory);
+            ModelBundle model = modelVersion.isPresent() ?
+                    earlyFoldingClassifier.getModelRegistry()
+                            .get(modelVersion.get())
+                            .orElseThrow(() -> new IllegalStateException("model " + modelVersion.get() + " of " +
+                                    outputDirectory.getFileName() + " is no longer available")) :
+                    earlyFoldingClassifier.getModelRegistry().getDefault();
+            return run(chainIds, outputDirectory, model, resultWriter);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * like {@link #run(List, Path, ResultWriter)}, but all chains are classified with the given model
+     * @param chainIds the chains to classify (e.g. 1acj_A)
+     * @param outputDirectory the directory for the chain list and the progress log
+     * @param model the model to use
+     * @param resultWriter receives the predictions of each chain - invoked concurrently
+     * @return the summary of this run
+     * @throws IllegalStateException if the directory contains results of another model
+     */
+    public BatchSummary run(List<String> chainIds, Path outputDirectory, ModelBundle model, ResultWriter resultWriter) {
+        try {
+            Files.createDirectories(outputDirectory);
+            Path chainListPath = outputDirectory.resolve(CHAIN_LIST_FILE);
+            if(!Files.exists(chainListPath)) {
+                Files.write(chainListPath, chainIds, StandardCharsets.UTF_8);
+            }
+            Optional<String> modelVersion = readModelVersion(outputDirectory);
+            if(!modelVersion.isPresent()) {
+                AtomicFiles.write(outputDirectory.resolve(MODEL_VERSION_FILE), model.getVersion().getBytes(StandardCharsets.UTF_8));
+            } else if(!modelVersion.get().equals(model.getVersion())) {
+                throw new IllegalStateException(outputDirectory.getFileName() + " contains results of model " +
+                        modelVersion.get() + ", not of " + model);
+            }
+
+            Set<String> finishedChainIds = readFinishedChainIds(outputDirectory);
+            List<String> requestedChainIds = chainIds.stream()
+                    .map(String::trim)
+                    .filter(chainId -> !chainId.isEmpty())
+                    .distinct()
+                    .collect(Collectors.toList());
+            // ids end up in file names, so anything unexpected is rejected right away
+            List<String> invalidChainIds = requestedChainIds.stream()
+                    .filter(chainId -> !VALID_CHAIN_ID.matcher(chainId).matches())
+                    .collect(Collectors.toList());
+            // group by PDB entry, retaining the requested order
+            Map<String, List<String>> chainIdsByEntry = requestedChainIds.stream()
+                    .filter(chainId -> VALID_CHAIN_ID.matcher(chainId).matches())
+                    .filter(chainId -> !finishedChainIds.contains(chainId))
+                    .collect(Collectors.groupingBy(chainId -> chainId.split("_")[0].toLowerCase(),
+                            LinkedHashMap::new,
+                            Collectors.toList()));
+            int total = requestedChainIds.size();
+            int skipped = total - invalidChainIds.size() - chainIdsByEntry.values().stream().mapToInt(List::size).sum();
+            logger.info("starting batch run with {} chains of {} entries using model {} - {} chains finished previously",
+                    total - skipped,
+                    chainIdsByEntry.size(),
+                    model,
+                    skipped);
+
+            AtomicInteger succeeded = new AtomicInteger();
+            AtomicInteger failed = new AtomicInteger();
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try(BufferedWriter progressWriter = Files.newBufferedWriter(outputDirectory.resolve(PROGRESS_FILE),
+                    StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND)) {
+                ProgressLog progressLog = new ProgressLog(progressWriter, succeeded, failed);
+                invalidChainIds.forEach(chainId -> progressLog.failed(chainId.replaceAll("\\s+", " "), "invalid chain id"));
+                List<Future<?>> futures = chainIdsByEntry.entrySet()
+                        .stream()
+                        .map(entry -> executor.submit(() -> processEntry(entry.getKey(), entry.getValue(), model, resultWriter, progressLog)))
+                        .collect(Collectors.toList());
+                for(Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+
+            BatchSummary batchSummary = new BatchSummary(outputDirectory.getFileName().toString(),
+                    total,
+                    skipped,
+                    succeeded.get(),
+                    failed.get());
+            logger.info("finished {}", batchSummary);
+            return batchSummary;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("batch run was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("batch run failed", e.getCause());
+        }
+    }
+
+    /**
+     * continue a previous run in the given directory - with the model the run was started with
+     * @param outputDirectory the directory of the previous run
+     * @return the summary of this run
+     * @throws IllegalStateException if the model of the previous run is no longer available
+     */
+    public BatchSummary resume(Path outputDirectory) {
+        try {
+            return run(Files.readAllLines(outputDirectory.resolve(CHAIN_LIST_FILE), StandardCharsets.UTF_8), outputDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void processEntry(String pdbId, List<String> chainIds, ModelBundle model, ResultWriter resultWriter, ProgressLog progressLog) {
+        try {
+            Structure structure = structureStore.parse(pdbId);
+            Map<String, Chain> chains = new LinkedHashMap<>();
+            for(String chainId : chainIds) {
+                try {
+                    chains.put(chainId, structure.select().chainId(chainId.split("_")[1]).asChain());
+                } catch (Exception e) {
+                    progressLog.failed(chainId, "chain not found");
+                }
+            }
+            if(chains.isEmpty()) {
+                return;
+            }
+
+            try {
+                // annotate all chains of this entry at once
+                earlyFoldingClassifier.annotate(new ArrayList<>(chains.values()));
+                chains.forEach((chainId, chain) -> classify(chainId, chain, model, resultWriter, progressLog));
+            } catch (Exception e) {
+                // isolate the failing chain by falling back to individual processing
+                logger.warn("could not annotate {} as a whole, processing chains individually: {}",
+                        pdbId,
+                        e.getMessage());
+                chains.keySet().forEach(chainId -> processEntryChainIndividually(pdbId, chainId, model, resultWriter, progressLog));
+            }
+        } catch (Exception e) {
+            chainIds.forEach(chainId -> progressLog.failed(chainId, e.getMessage()));
+        }
+    }
+
+    private void processEntryChainIndividually(String pdbId,
+                                              String chainId,
+                                              ModelBundle model,
+                                              ResultWriter resultWriter,
+                                              ProgressLog progressLog) {
+        try {
+            Chain chain = structureStore.parse(pdbId)
+                    .select()
+                    .chainId(chainId.split("_")[1])
+                    .asChain();
+            earlyFoldingClassifier.annotate(Collections.singletonList(chain));
+            classify(chainId, chain, model, resultWriter, progressLog);
+        } catch (Exception e) {
+            progressLog.failed(chainId, e.getMessage());
+        }
+    }
+
+    private void classify(String chainId, Chain chain, ModelBundle model, ResultWriter resultWriter, ProgressLog progressLog) {
+        try {
+            resultWriter.write(chainId, chain, earlyFoldingClassifier.classify(chain, model, ProgressListener.NONE).getPredictions());
+            progressLog.succeeded(chainId);
+        } catch (Exception e) {
+            progressLog.failed(chainId, e.getMessage());
+        }
+    }
+
+    private static void writeCsv(String chainId, List<ResiduePrediction> predictions, Path outputDirectory) throws IOException {
+        // a crash never leaves truncated results behind
+        AtomicFiles.write(outputDirectory.resolve(chainId + ".csv"), outputStream -> {
+            Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+            PredictionWriter.write(predictions, PredictionWriter.Format.CSV, writer);
+            writer.flush();
+        });
+    }
+
+    private Set<String> readFinishedChainIds(Path outputDirectory) throws IOException {
+        Path progressPath = outputDirectory.resolve(PROGRESS_FILE);
+        if(!Files.exists(progressPath)) {
+            return Collections.emptySet();
+        }
+
+        // failed chains are retried
+        try(Stream<String> lines = Files.lines(progressPath, StandardCharsets.UTF_8)) {
+            return lines.map(line -> line.split("\t"))
+                    .filter(split -> split.length > 1 && STATUS_SUCCEEDED.equals(split[1]))
+                    .map(split -> split[0])
+                    .collect(Collectors.toSet());
+        }
+    }
+
+    /**
+     * @param outputDirectory the directory of a run
+     * @return the version of the model the run was started with, empty for new runs
+     */
+    private static Optional<String> readModelVersion(Path outputDirectory) throws IOException {
+        Path modelVersionPath = outputDirectory.resolve(MODEL_VERSION_FILE);
+        if(!Files.exists(modelVersionPath)) {
+            return Optional.empty();
+        }
+        return Optional.of(new String(Files.readAllBytes(modelVersionPath), StandardCharsets.UTF_8).trim());
+    }
+
+    /**
+     * the destination of the predictions of a batch run
+     */
+    @FunctionalInterface
+    public interface ResultWriter {
+        /**
+         * @param chainId the chain id (e.g. 1acj_A)
+         * @param chain the classified chain
+         * @param predictions the predictions of all residues, ranked by their probability to be early folding
+         * @throws IOException if the predictions cannot be written - the chain is reported as failed
+         */
+        void write(String chainId, Chain chain, List<ResiduePrediction> predictions) throws IOException;
+    }
+
+    /**
+     * the checkpoint of a batch run - every line is flushed immediately
+     */
+    private static class ProgressLog {
+        private final BufferedWriter writer;
+        private final AtomicInteger succeeded;
+        private final AtomicInteger failed;
+
+        ProgressLog(BufferedWriter writer, AtomicInteger succeeded, AtomicInteger failed) {
+            this.writer = writer;
+            this.succeeded = succeeded;
+            this.failed = failed;
+        }
+
+        void succeeded(String chainId) {
+            succeeded.incrementAndGet();
+            write(chainId, STATUS_SUCCEEDED, "");
+        }
+
+        void failed(String chainId, String message) {
+            logger.warn("could not classify {}: {}", chainId, message);
+            failed.incrementAndGet();
+            write(chainId, STATUS_FAILED, message != null ? message.replaceAll("\\s+", " ") : "");
+        }
+
+        private synchronized void write(String chainId, String status, String message) {
+            try {
+                writer.write(chainId + "\t" + status + "\t" + message);
+                writer.newLine();
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
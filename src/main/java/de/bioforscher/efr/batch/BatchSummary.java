@@ -0,0 +1,52 @@
+package de.bioforscher.efr.batch;
+
+/**
+ * the outcome of a batch run
+ */
+public class BatchSummary {
+    private final String batchId;
+    private final int total;
+    private final int skipped;
+    private final int succeeded;
+    private final int failed;
+
+    public BatchSummary(String batchId, int total, int skipped, int succeeded, int failed) {
+        this.batchId = batchId;
+        this.total = total;
+        this.skipped = skipped;
+        this.succeeded = succeeded;
+        this.failed = failed;
+    }
+
+    public String getBatchId() {
+        return batchId;
+    }
+
+    /**
+     * @return the number of requested chains
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @return the number of chains already finished by a previous run
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    @Override
+    public String toString() {
+        return "batch " + batchId + ": " + total + " chains, " + skipped + " skipped, " + succeeded + " succeeded, " +
+                failed + " failed";
+    }
+}
@@ -0,0 +1,188 @@
+package de.bioforscher.efr.cache;
+
+import de.bioforscher.efr.EarlyFoldingClassifier;
+import de.bioforscher.efr.metrics.MetricsRegistry;
+import de.bioforscher.efr.pipeline.ProgressListener;
+import de.bioforscher.efr.store.StructureStore;
+import de.bioforscher.jstructure.model.feature.ComputationException;
+import de.bioforscher.jstructure.model.structure.Chain;
+import de.bioforscher.jstructure.model.structure.Structure;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+/**
+ * keeps fully annotated structures for a short time, so requests for sibling chains (e.g. 1abc_A, 1abc_B) share the
+ * structure-level computations and only run the chain-specific steps - concurrent requests for the same entry wait
+ * for a single annotation run; a failed annotation is remembered for a shorter time, so sibling chains are annotated
+ * individually right away instead of repeating the failing run - expired entries of any structure are dropped whenever
+ * the cache is accessed, so annotated structures are not kept until their own entry is looked up again
+ */
+public class AnnotatedStructureCache {
+    private static final Logger logger = LoggerFactory.getLogger(AnnotatedStructureCache.class);
+    private final EarlyFoldingClassifier earlyFoldingClassifier;
+    private final StructureStore structureStore;
+    private final long timeToLive;
+    private final long failureTimeToLive;
+    private final Map<String, Entry> entries;
+
+    /**
+     * @param earlyFoldingClassifier the classifier used to annotate structures
+     * @param structureStore the source of structures
+     * @param maximumSize the number of structures to keep
+     * @param timeToLive the time in milliseconds a structure is kept
+     * @param failureTimeToLive the time in milliseconds a failed annotation is kept
+     */
+    public AnnotatedStructureCache(EarlyFoldingClassifier earlyFoldingClassifier,
+                                   StructureStore structureStore,
+                                   int maximumSize,
+                                   long timeToLive,
+                                   long failureTimeToLive) {
+        this.earlyFoldingClassifier = earlyFoldingClassifier;
+        this.structureStore = structureStore;
+        this.timeToLive = timeToLive;
+        this.failureTimeToLive = failureTimeToLive;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maximumSize;
+            }
+        };
+    }
+
+    /**
+     * run the chain-specific steps on an annotated chain
+     * @param pdbId the PDB id of the entry
+     * @param chainId the chain id
+     * @param progressListener notified about the annotation - reusing an annotated structure is reported as a single step
+     * @param function the chain-specific steps, told whether this request annotated the structure itself (rather than
+     *                 reusing the annotation of another request) - invocations on chains of the same structure are
+     *                 serialized
+     * @param <T> the type of the result
+     * @return the result of the chain-specific steps
+     */
+    public <T> T apply(String pdbId, String chainId, ProgressListener progressListener, BiFunction<Chain, Boolean, T> function) {
+        AnnotatedStructure annotatedStructure;
+        try {
+            annotatedStructure = getAnnotatedStructure(pdbId.toLowerCase(), progressListener);
+        } catch (ComputationException e) {
+            // some chain of this entry could not be annotated - isolate the requested chain
+            logger.warn("could not annotate {} as a whole, annotating chain {} individually: {}",
+                    pdbId,
+                    chainId,
+                    e.getMessage());
+            Chain chain = structureStore.parse(pdbId)
+                    .select()
+                    .chainId(chainId)
+                    .asChain();
+            earlyFoldingClassifier.annotate(Collections.singletonList(chain), progressListener);
+            return function.apply(chain, true);
+        }
+
+        Structure structure = annotatedStructure.structure;
+        Chain chain = structure.select()
+                .chainId(chainId)
+                .asChain();
+        // feature containers are not thread-safe - sibling chains are classified one after another
+        synchronized (structure) {
+            return function.apply(chain, annotatedStructure.owner);
+        }
+    }
+
+    private AnnotatedStructure getAnnotatedStructure(String pdbId, ProgressListener progressListener) {
+        CompletableFuture<Structure> future;
+        boolean owner = false;
+        synchronized (entries) {
+            long now = System.currentTimeMillis();
+            removeExpiredEntries(now);
+            Entry entry = entries.get(pdbId);
+            if(entry != null) {
+                logger.info("reusing annotated structure {}{}",
+                        pdbId,
+                        entry.future.isCompletedExceptionally() ? " (failed)" : "");
+                future = entry.future;
+            } else {
+                future = new CompletableFuture<>();
+                entries.put(pdbId, new Entry(future, now + timeToLive));
+                owner = true;
+            }
+        }
+
+        MetricsRegistry.getDefault()
+                .counter("efr_structure_cache_requests_total", "lookups of annotated structures", "result", owner ? "miss" : "hit")
+                .increment();
+        if(owner) {
+            try {
+                Structure structure = structureStore.parse(pdbId);
+                progressListener.onProgress("structure", "parsed structure " + pdbId);
+                earlyFoldingClassifier.annotate(structure.chainsWithAminoAcids().collect(Collectors.toList()), progressListener);
+                future.complete(structure);
+            } catch (Throwable e) {
+                // waiting requests must never block forever
+                synchronized (entries) {
+                    long now = System.currentTimeMillis();
+                    removeExpiredEntries(now);
+                    Entry entry = entries.get(pdbId);
+                    if(entry != null && entry.future == future) {
+                        entries.put(pdbId, new Entry(future, now + failureTimeToLive));
+                    }
+                }
+                future.completeExceptionally(e);
+                if(e instanceof Error) {
+                    throw (Error) e;
+                }
+            }
+        }
+
+        try {
+            Structure structure = future.join();
+            if(!owner) {
+                progressListener.onProgress("structure", "reused annotated structure " + pdbId);
+            }
+            return new AnnotatedStructure(structure, owner);
+        } catch (CompletionException e) {
+            if(e.getCause() instanceof ComputationException) {
+                throw (ComputationException) e.getCause();
+            }
+            throw new ComputationException(e.getCause());
+        }
+    }
+
+    /**
+     * drop all entries whose time is up - there are few of them, so sweeping all on each access is cheap; the caller
+     * holds the lock on the entries
+     */
+    private void removeExpiredEntries(long now) {
+        entries.values().removeIf(entry -> entry.expiration <= now);
+    }
+
+    private static class AnnotatedStructure {
+        private final Structure structure;
+        /**
+         * <code>true</code> if the structure was annotated by this request
+         */
+        private final boolean owner;
+
+        AnnotatedStructure(Structure structure, boolean owner) {
+            this.structure = structure;
+            this.owner = owner;
+        }
+    }
+
+    private static class Entry {
+        private final CompletableFuture<Structure> future;
+        private final long expiration;
+
+        Entry(CompletableFuture<Structure> future, long expiration) {
+            this.future = future;
+            this.expiration = expiration;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package de.bioforscher.efr.cache;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * content-addressing of binary data (e.g. uploaded structures or model files)
+ */
+public class ContentHash {
+    private ContentHash() {
+        // deny instantiation
+    }
+
+    /**
+     * @param content the data to hash
+     * @return the hex-encoded SHA-256 digest of the data
+     */
+    public static String sha256(byte[] content) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder stringBuilder = new StringBuilder();
+            for(byte b : hash) {
+                stringBuilder.append(String.format("%02x", b));
+            }
+            return stringBuilder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM has to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
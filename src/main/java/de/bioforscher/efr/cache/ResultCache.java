@@ -0,0 +1,269 @@
+package de.bioforscher.efr.cache;
+
+import de.bioforscher.efr.io.AtomicFiles;
+import de.bioforscher.efr.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * two-tier cache of computation results: a size-bounded in-memory LRU with a time to live, backed by gzipped files
+ * in an (optional) directory which survive restarts - the directory is bounded as well: files are dropped once their
+ * time to live has passed and the oldest files are dropped whenever the directory exceeds its size (checked every
+ * {@value #SWEEP_INTERVAL} writes and on creation)
+ * @param <V> the type of cached values
+ */
+public class ResultCache<V extends Serializable> {
+    private static final Logger logger = LoggerFactory.getLogger(ResultCache.class);
+    /**
+     * keys are used as file names, so anything else is only cached in memory
+     */
+    private static final Pattern VALID_FILE_KEY = Pattern.compile("[A-Za-z0-9_\\-]+");
+    private static final String FILE_SUFFIX = ".ser.gz";
+    private static final int SWEEP_INTERVAL = 100;
+    /**
+     * temporary files older than this are leftovers of crashes
+     */
+    private static final long TEMPORARY_FILE_TIME_TO_LIVE = TimeUnit.HOURS.toMillis(1);
+    private final String name;
+    private final long timeToLive;
+    private final Path directory;
+    private final long diskTimeToLive;
+    private final long diskMaximumSize;
+    private final Map<String, Entry<V>> memory;
+    private final AtomicInteger writesSinceSweep;
+    private final AtomicBoolean sweeping;
+
+    /**
+     * @param name the name of this cache (for logging)
+     * @param maximumSize the number of entries kept in memory
+     * @param timeToLive the time in milliseconds an entry stays in memory
+     * @param directory the directory to persist results to, <code>null</code> to keep results in memory only
+     * @param diskTimeToLive the time in milliseconds an entry stays on disk after it was written
+     * @param diskMaximumSize the number of bytes the directory may occupy
+     */
+    public ResultCache(String name, int maximumSize, long timeToLive, Path directory, long diskTimeToLive, long diskMaximumSize) {
+        this.name = name;
+        this.timeToLive = timeToLive;
+        this.directory = directory;
+        this.diskTimeToLive = diskTimeToLive;
+        this.diskMaximumSize = diskMaximumSize;
+        this.writesSinceSweep = new AtomicInteger();
+        this.sweeping = new AtomicBoolean();
+        this.memory = new LinkedHashMap<String, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+                return size() > maximumSize;
+            }
+        };
+
+        if(directory != null) {
+            try {
+                Files.createDirectories(directory);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            sweep();
+        }
+        logger.info("initialized {} cache with {} in-memory entries, persisted to {}",
+                name,
+                maximumSize,
+                directory != null ? directory + " (at most " + (diskMaximumSize >> 20) + " MB)" : "-");
+    }
+
+    public Optional<V> get(String key) {
+        synchronized (memory) {
+            Entry<V> entry = memory.get(key);
+            if(entry != null) {
+                if(entry.expiration > System.currentTimeMillis()) {
+                    countRequest("memory");
+                    return Optional.of(entry.value);
+                }
+                memory.remove(key);
+            }
+        }
+
+        Optional<V> value = readFromDisk(key);
+        value.ifPresent(v -> putInMemory(key, v));
+        countRequest(value.isPresent() ? "disk" : "miss");
+        return value;
+    }
+
+    private void countRequest(String result) {
+        MetricsRegistry.getDefault()
+                .counter("efr_cache_requests_total", "lookups of cached results by where they were found", "cache", name, "result", result)
+                .increment();
+    }
+
+    public void put(String key, V value) {
+        putInMemory(key, value);
+        writeToDisk(key, value);
+    }
+
+    private void putInMemory(String key, V value) {
+        synchronized (memory) {
+            memory.put(key, new Entry<>(value, System.currentTimeMillis() + timeToLive));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Optional<V> readFromDisk(String key) {
+        if(directory == null || !VALID_FILE_KEY.matcher(key).matches()) {
+            return Optional.empty();
+        }
+
+        Path path = directory.resolve(key + FILE_SUFFIX);
+        try {
+            if(!Files.exists(path)) {
+                return Optional.empty();
+            }
+            if(Files.getLastModifiedTime(path).toMillis() + diskTimeToLive < System.currentTimeMillis()) {
+                delete(path, "expired");
+                return Optional.empty();
+            }
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+
+        try(ObjectInputStream objectInputStream = new ObjectInputStream(new GZIPInputStream(new BufferedInputStream(Files.newInputStream(path))))) {
+            logger.info("loaded {} from {} cache", key, name);
+            return Optional.of((V) objectInputStream.readObject());
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            // corrupt or incompatible entry - will be recomputed and overwritten
+            logger.warn("could not read {} from {} cache: {}", key, name, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void writeToDisk(String key, V value) {
+        if(directory == null || !VALID_FILE_KEY.matcher(key).matches()) {
+            return;
+        }
+
+        try {
+            AtomicFiles.write(directory.resolve(key + FILE_SUFFIX), outputStream -> {
+                try(ObjectOutputStream objectOutputStream = new ObjectOutputStream(new GZIPOutputStream(outputStream))) {
+                    objectOutputStream.writeObject(value);
+                }
+            });
+        } catch (IOException e) {
+            // a failing cache must never fail the computation
+            logger.warn("could not persist {} to {} cache: {}", key, name, e.getMessage());
+        }
+
+        if(writesSinceSweep.incrementAndGet() >= SWEEP_INTERVAL) {
+            sweep();
+        }
+    }
+
+    /**
+     * drop expired files and, while the directory is too large, the oldest ones - concurrent writers do not wait for a
+     * sweep in progress
+     */
+    private void sweep() {
+        if(!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            writesSinceSweep.set(0);
+            long now = System.currentTimeMillis();
+            List<CachedFile> files;
+            try(Stream<Path> paths = Files.list(directory)) {
+                files = paths.map(CachedFile::of)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toList());
+            }
+
+            List<CachedFile> retainedFiles = new ArrayList<>();
+            for(CachedFile file : files) {
+                if(AtomicFiles.isTemporary(file.path)) {
+                    if(file.lastModified + TEMPORARY_FILE_TIME_TO_LIVE < now) {
+                        delete(file.path, "abandoned");
+                    }
+                } else if(file.path.getFileName().toString().endsWith(FILE_SUFFIX)) {
+                    if(file.lastModified + diskTimeToLive < now) {
+                        delete(file.path, "expired");
+                    } else {
+                        retainedFiles.add(file);
+                    }
+                }
+            }
+
+            long size = retainedFiles.stream()
+                    .mapToLong(file -> file.size)
+                    .sum();
+            retainedFiles.sort(Comparator.comparingLong(file -> file.lastModified));
+            for(Iterator<CachedFile> iterator = retainedFiles.iterator(); size > diskMaximumSize && iterator.hasNext(); ) {
+                CachedFile file = iterator.next();
+                delete(file.path, "size");
+                size -= file.size;
+            }
+        } catch (IOException | UncheckedIOException e) {
+            logger.warn("could not clean up {} cache in {}: {}", name, directory, e.getMessage());
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    private void delete(Path path, String reason) {
+        try {
+            Files.deleteIfExists(path);
+            MetricsRegistry.getDefault()
+                    .counter("efr_cache_evictions_total", "cached results removed from disk by reason", "cache", name, "reason", reason)
+                    .increment();
+        } catch (IOException e) {
+            logger.warn("could not delete {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * a file of the cache directory when it was listed
+     */
+    private static class CachedFile {
+        private final Path path;
+        private final long lastModified;
+        private final long size;
+
+        CachedFile(Path path, long lastModified, long size) {
+            this.path = path;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+
+        /**
+         * @return the file, <code>null</code> if it vanished in the meantime
+         */
+        static CachedFile of(Path path) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                return new CachedFile(path, attributes.lastModifiedTime().toMillis(), attributes.size());
+            } catch (IOException e) {
+                return null;
+            }
+        }
+    }
+
+    private static class Entry<V> {
+        private final V value;
+        private final long expiration;
+
+        Entry(V value, long expiration) {
+            this.value = value;
+            this.expiration = expiration;
+        }
+    }
+}
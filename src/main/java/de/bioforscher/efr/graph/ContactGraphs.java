@@ -0,0 +1,156 @@
+package de.bioforscher.efr.graph;
+
+import de.bioforscher.jstructure.feature.interaction.HydrogenBond;
+import de.bioforscher.jstructure.feature.interaction.HydrophobicInteraction;
+import de.bioforscher.jstructure.feature.interaction.PLIPInteraction;
+import de.bioforscher.jstructure.feature.interaction.PLIPInteractionContainer;
+import de.bioforscher.jstructure.model.structure.Atom;
+import de.bioforscher.jstructure.model.structure.Group;
+import de.bioforscher.jstructure.model.structure.aminoacid.AminoAcid;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * the contact graphs of a chain: residues connected by any PLIP interaction, by hydrogen bonds, by hydrophobic
+ * interactions and residues whose alpha carbons are close (conventional contacts)
+ */
+public class ContactGraphs {
+    /**
+     * alpha carbons at most this far apart (in Angstrom) are in contact
+     */
+    public static final double CONVENTIONAL_CONTACT_DISTANCE = 8.0;
+    private final ResidueGraph fullPlip;
+    private final ResidueGraph hydrogenPlip;
+    private final ResidueGraph hydrophobicPlip;
+    private final ResidueGraph conventional;
+
+    private ContactGraphs(ResidueGraph fullPlip,
+                          ResidueGraph hydrogenPlip,
+                          ResidueGraph hydrophobicPlip,
+                          ResidueGraph conventional) {
+        this.fullPlip = fullPlip;
+        this.hydrogenPlip = hydrogenPlip;
+        this.hydrophobicPlip = hydrophobicPlip;
+        this.conventional = conventional;
+    }
+
+    /**
+     * @param aminoAcids the amino acids of a chain, annotated by PLIP - nodes are numbered in this order
+     * @return the graphs
+     */
+    public static ContactGraphs of(List<AminoAcid> aminoAcids) {
+        Map<Group, Integer> nodes = new IdentityHashMap<>();
+        for(int node = 0; node < aminoAcids.size(); node++) {
+            nodes.put(aminoAcids.get(node), node);
+        }
+
+        ResidueGraph.Builder fullPlip = ResidueGraph.builder(aminoAcids.size());
+        ResidueGraph.Builder hydrogenPlip = ResidueGraph.builder(aminoAcids.size());
+        ResidueGraph.Builder hydrophobicPlip = ResidueGraph.builder(aminoAcids.size());
+        for(AminoAcid aminoAcid : aminoAcids) {
+            for(PLIPInteraction interaction : aminoAcid.getFeature(PLIPInteractionContainer.class).getInteractions()) {
+                Integer node1 = nodes.get(interaction.getPartner1());
+                Integer node2 = nodes.get(interaction.getPartner2());
+                // interactions with ligands or other chains are no part of the graphs
+                if(node1 == null || node2 == null) {
+                    continue;
+                }
+
+                fullPlip.addEdge(node1, node2);
+                if(interaction instanceof HydrogenBond) {
+                    hydrogenPlip.addEdge(node1, node2);
+                }
+                if(interaction instanceof HydrophobicInteraction) {
+                    hydrophobicPlip.addEdge(node1, node2);
+                }
+            }
+        }
+
+        return new ContactGraphs(fullPlip.build(),
+                hydrogenPlip.build(),
+                hydrophobicPlip.build(),
+                createConventionalGraph(aminoAcids));
+    }
+
+    /**
+     * alpha carbons are binned into cubic cells with the edge length of the contact distance, so only neighboring cells
+     * have to be compared
+     */
+    private static ResidueGraph createConventionalGraph(List<AminoAcid> aminoAcids) {
+        ResidueGraph.Builder builder = ResidueGraph.builder(aminoAcids.size());
+        double[][] coordinates = new double[aminoAcids.size()][];
+        Map<Long, List<Integer>> cells = new HashMap<>();
+        for(int node = 0; node < aminoAcids.size(); node++) {
+            Atom alphaCarbon = aminoAcids.get(node).getCa();
+            if(alphaCarbon == null) {
+                continue;
+            }
+
+            coordinates[node] = alphaCarbon.getCoordinates();
+            cells.computeIfAbsent(cell(coordinates[node], 0, 0, 0), key -> new ArrayList<>()).add(node);
+        }
+
+        double squaredContactDistance = CONVENTIONAL_CONTACT_DISTANCE * CONVENTIONAL_CONTACT_DISTANCE;
+        for(int node = 0; node < aminoAcids.size(); node++) {
+            if(coordinates[node] == null) {
+                continue;
+            }
+
+            for(int x = -1; x <= 1; x++) {
+                for(int y = -1; y <= 1; y++) {
+                    for(int z = -1; z <= 1; z++) {
+                        List<Integer> cell = cells.get(cell(coordinates[node], x, y, z));
+                        if(cell == null) {
+                            continue;
+                        }
+
+                        for(int other : cell) {
+                            if(other > node && squaredDistance(coordinates[node], coordinates[other]) <= squaredContactDistance) {
+                                builder.addEdge(node, other);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return the key of the cell containing the coordinates, shifted by the given number of cells
+     */
+    private static long cell(double[] coordinates, int x, int y, int z) {
+        // 21 bits per dimension
+        long cellX = (long) Math.floor(coordinates[0] / CONVENTIONAL_CONTACT_DISTANCE) + x + (1 << 20);
+        long cellY = (long) Math.floor(coordinates[1] / CONVENTIONAL_CONTACT_DISTANCE) + y + (1 << 20);
+        long cellZ = (long) Math.floor(coordinates[2] / CONVENTIONAL_CONTACT_DISTANCE) + z + (1 << 20);
+        return (cellX << 42) | (cellY << 21) | cellZ;
+    }
+
+    private static double squaredDistance(double[] coordinates1, double[] coordinates2) {
+        double dx = coordinates1[0] - coordinates2[0];
+        double dy = coordinates1[1] - coordinates2[1];
+        double dz = coordinates1[2] - coordinates2[2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    public ResidueGraph getFullPlip() {
+        return fullPlip;
+    }
+
+    public ResidueGraph getHydrogenPlip() {
+        return hydrogenPlip;
+    }
+
+    public ResidueGraph getHydrophobicPlip() {
+        return hydrophobicPlip;
+    }
+
+    public ResidueGraph getConventional() {
+        return conventional;
+    }
+}
@@ -0,0 +1,59 @@
+package de.bioforscher.efr.graph;
+
+/**
+ * the topologic properties of all nodes of a {@link ResidueGraph}
+ */
+public class GraphTopology {
+    private final double[] betweenness;
+    private final double[] closeness;
+    private final double[] clusteringCoefficients;
+    private final int[] distinctNeighborhoodCounts;
+    private final boolean approximated;
+
+    GraphTopology(double[] betweenness,
+                  double[] closeness,
+                  double[] clusteringCoefficients,
+                  int[] distinctNeighborhoodCounts,
+                  boolean approximated) {
+        this.betweenness = betweenness;
+        this.closeness = closeness;
+        this.clusteringCoefficients = clusteringCoefficients;
+        this.distinctNeighborhoodCounts = distinctNeighborhoodCounts;
+        this.approximated = approximated;
+    }
+
+    /**
+     * @return the fraction of shortest paths between other nodes which pass through the node
+     */
+    public double getBetweenness(int node) {
+        return betweenness[node];
+    }
+
+    /**
+     * @return the number of reachable nodes divided by the sum of their distances, 0 for isolated nodes
+     */
+    public double getCloseness(int node) {
+        return closeness[node];
+    }
+
+    /**
+     * @return the fraction of pairs of neighbors which are adjacent themselves
+     */
+    public double getClusteringCoefficient(int node) {
+        return clusteringCoefficients[node];
+    }
+
+    /**
+     * @return the number of sequence segments covered by the non-local neighbors of the node
+     */
+    public int getDistinctNeighborhoodCount(int node) {
+        return distinctNeighborhoodCounts[node];
+    }
+
+    /**
+     * @return <code>true</code> if betweenness and closeness were estimated from a sample of source nodes
+     */
+    public boolean isApproximated() {
+        return approximated;
+    }
+}
@@ -0,0 +1,109 @@
+package de.bioforscher.efr.graph;
+
+import java.util.Arrays;
+
+/**
+ * an undirected, unweighted contact graph of the residues of a chain in compressed sparse row layout - nodes are
+ * identified by the position of the residue in its chain, the neighbors of each node are sorted
+ */
+public class ResidueGraph {
+    private final int nodeCount;
+    private final int[] offsets;
+    private final int[] neighbors;
+
+    private ResidueGraph(int nodeCount, int[] offsets, int[] neighbors) {
+        this.nodeCount = nodeCount;
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+    }
+
+    public static Builder builder(int nodeCount) {
+        return new Builder(nodeCount);
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getEdgeCount() {
+        return neighbors.length / 2;
+    }
+
+    public int degree(int node) {
+        return offsets[node + 1] - offsets[node];
+    }
+
+    /**
+     * @return the start of the neighbors of each node in {@link #getNeighbors()}, followed by the total length
+     */
+    int[] getOffsets() {
+        return offsets;
+    }
+
+    int[] getNeighbors() {
+        return neighbors;
+    }
+
+    public boolean isAdjacent(int node1, int node2) {
+        return Arrays.binarySearch(neighbors, offsets[node1], offsets[node1 + 1], node2) >= 0;
+    }
+
+    /**
+     * collects edges - duplicates and self-loops are dropped
+     */
+    public static class Builder {
+        private final int nodeCount;
+        private long[] edges = new long[16];
+        private int edgeCount;
+
+        private Builder(int nodeCount) {
+            this.nodeCount = nodeCount;
+        }
+
+        public Builder addEdge(int node1, int node2) {
+            if(node1 < 0 || node2 < 0 || node1 >= nodeCount || node2 >= nodeCount) {
+                throw new IndexOutOfBoundsException("edge " + node1 + "-" + node2 + " not within " + nodeCount + " nodes");
+            }
+            if(node1 == node2) {
+                return this;
+            }
+
+            if(edgeCount == edges.length) {
+                edges = Arrays.copyOf(edges, edges.length * 2);
+            }
+            edges[edgeCount++] = ((long) Math.min(node1, node2) << 32) | Math.max(node1, node2);
+            return this;
+        }
+
+        public ResidueGraph build() {
+            long[] sortedEdges = Arrays.copyOf(edges, edgeCount);
+            Arrays.sort(sortedEdges);
+            int uniqueEdgeCount = 0;
+            for(int i = 0; i < sortedEdges.length; i++) {
+                if(i == 0 || sortedEdges[i] != sortedEdges[i - 1]) {
+                    sortedEdges[uniqueEdgeCount++] = sortedEdges[i];
+                }
+            }
+
+            int[] offsets = new int[nodeCount + 1];
+            for(int i = 0; i < uniqueEdgeCount; i++) {
+                offsets[(int) (sortedEdges[i] >>> 32) + 1]++;
+                offsets[(int) sortedEdges[i] + 1]++;
+            }
+            for(int node = 0; node < nodeCount; node++) {
+                offsets[node + 1] += offsets[node];
+            }
+
+            // edges are ordered by their smaller node: each node receives its smaller, then its larger neighbors, both ascending
+            int[] neighbors = new int[2 * uniqueEdgeCount];
+            int[] positions = Arrays.copyOf(offsets, nodeCount);
+            for(int i = 0; i < uniqueEdgeCount; i++) {
+                int node1 = (int) (sortedEdges[i] >>> 32);
+                int node2 = (int) sortedEdges[i];
+                neighbors[positions[node1]++] = node2;
+                neighbors[positions[node2]++] = node1;
+            }
+            return new ResidueGraph(nodeCount, offsets, neighbors);
+        }
+    }
+}
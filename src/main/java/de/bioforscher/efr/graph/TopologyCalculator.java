@@ -0,0 +1,385 @@
+package de.bioforscher.efr.graph;
+
+import de.bioforscher.efr.model.FeatureColumn;
+import de.bioforscher.efr.model.FeatureMatrix;
+import de.bioforscher.efr.model.InteractionPartition;
+import de.bioforscher.jstructure.model.structure.aminoacid.AminoAcid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static de.bioforscher.efr.model.FeatureColumn.*;
+
+/**
+ * computes the topologic properties of residue graphs - an alternative to the properties computed by jstructure<br />
+ * betweenness (Brandes) and closeness are derived from one breadth-first search per source node, the sources are
+ * sharded across threads. Graphs with more nodes than the approximation threshold only use a random sample of sources,
+ * sized so that each estimate of the normalized betweenness is within the error bound with a probability of 90%
+ * (Hoeffding's inequality, union bound over all nodes) - all sources are used when the sample would not be smaller,
+ * which for an error bound of 0.01 is the case for any graph of less than about 70,000 nodes<br />
+ * the threads are kept until the calculator is closed
+ */
+public class TopologyCalculator implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(TopologyCalculator.class);
+    /**
+     * the probability that any estimate exceeds the error bound
+     */
+    private static final double FAILURE_PROBABILITY = 0.1;
+    /**
+     * smaller shards are not worth the hand-over to another thread
+     */
+    private static final int MINIMUM_SOURCES_PER_SHARD = 64;
+    private final int threads;
+    private final int approximationThreshold;
+    private final double errorBound;
+    private final ExecutorService executorService;
+
+    /**
+     * @param threads the number of threads to use (0 - one per core)
+     * @param approximationThreshold graphs with more nodes are sampled (0 - never)
+     * @param errorBound the tolerated absolute error of the normalized betweenness of sampled graphs
+     */
+    public TopologyCalculator(int threads, int approximationThreshold, double errorBound) {
+        if(errorBound <= 0 || errorBound >= 1) {
+            throw new IllegalArgumentException("error bound has to be within (0, 1), found " + errorBound);
+        }
+
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.approximationThreshold = approximationThreshold;
+        this.errorBound = errorBound;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executorService = Executors.newFixedThreadPool(this.threads, runnable -> {
+            Thread thread = new Thread(runnable, "efr-graph-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * stop the threads - running computations are interrupted
+     */
+    @Override
+    public void close() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * compute the topologic properties of all contact graphs of a chain and write them to the feature matrix
+     * @param aminoAcids the amino acids of the chain, annotated by PLIP
+     * @param featureMatrix the matrix to write to - one row per amino acid
+     */
+    public void assignTopologicFeatures(List<AminoAcid> aminoAcids, FeatureMatrix featureMatrix) {
+        ContactGraphs contactGraphs = ContactGraphs.of(aminoAcids);
+        GraphTopology fullPlip = calculate(contactGraphs.getFullPlip());
+        GraphTopology hydrogenPlip = calculate(contactGraphs.getHydrogenPlip());
+        GraphTopology hydrophobicPlip = calculate(contactGraphs.getHydrophobicPlip());
+        GraphTopology conventional = calculate(contactGraphs.getConventional());
+        for(int row = 0; row < aminoAcids.size(); row++) {
+            assign(featureMatrix, row, fullPlip, BETWEENNESS, CLOSENESS, CLUSTERING_COEFFICIENT);
+            assign(featureMatrix, row, hydrogenPlip, HYDROGEN_BETWEENNESS, HYDROGEN_CLOSENESS, HYDROGEN_CLUSTERING_COEFFICIENT);
+            assign(featureMatrix, row, hydrophobicPlip, HYDROPHOBIC_BETWEENNESS, HYDROPHOBIC_CLOSENESS, HYDROPHOBIC_CLUSTERING_COEFFICIENT);
+            assign(featureMatrix, row, conventional, CONV_BETWEENNESS, CONV_CLOSENESS, CONV_CLUSTERING_COEFFICIENT);
+            featureMatrix.set(row, DISTINCT_NEIGHBORHOODS, fullPlip.getDistinctNeighborhoodCount(row));
+            featureMatrix.set(row, CONV_DISTINCT_NEIGHBORHOODS, conventional.getDistinctNeighborhoodCount(row));
+        }
+    }
+
+    private void assign(FeatureMatrix featureMatrix,
+                        int row,
+                        GraphTopology graphTopology,
+                        FeatureColumn betweenness,
+                        FeatureColumn closeness,
+                        FeatureColumn clusteringCoefficient) {
+        featureMatrix.set(row, betweenness, graphTopology.getBetweenness(row));
+        featureMatrix.set(row, closeness, graphTopology.getCloseness(row));
+        featureMatrix.set(row, clusteringCoefficient, graphTopology.getClusteringCoefficient(row));
+    }
+
+    /**
+     * @param graph the graph
+     * @return the properties of all nodes
+     */
+    public GraphTopology calculate(ResidueGraph graph) {
+        int nodeCount = graph.getNodeCount();
+        int[] sources = selectSources(nodeCount);
+        boolean approximated = sources.length < nodeCount;
+        if(approximated) {
+            logger.info("estimating betweenness and closeness of {} nodes from {} sources", nodeCount, sources.length);
+        }
+
+        ShortestPaths shortestPaths = computeShortestPaths(graph, sources);
+        double[] betweenness = new double[nodeCount];
+        double[] closeness = new double[nodeCount];
+        if(nodeCount > 2) {
+            // every pair is counted from both ends - normalized by the number of pairs not involving the node
+            double scale = (double) nodeCount / sources.length / ((nodeCount - 1.0) * (nodeCount - 2.0));
+            for(int node = 0; node < nodeCount; node++) {
+                betweenness[node] = shortestPaths.dependencies[node] * scale;
+            }
+        }
+        Search search = null;
+        for(int node = 0; node < nodeCount; node++) {
+            if(shortestPaths.sourceCounts[node] > 0) {
+                // the reciprocal of the average distance to all reachable nodes
+                closeness[node] = shortestPaths.sourceCounts[node] / (double) shortestPaths.distanceSums[node];
+            } else if(graph.degree(node) > 0) {
+                // not reached by any sampled source - its own search is cheap, as its component has to be small
+                if(search == null) {
+                    search = new Search(graph);
+                }
+                long distanceSum = search.run(node, null);
+                closeness[node] = (search.getReachedCount() - 1) / (double) distanceSum;
+            }
+        }
+
+        return new GraphTopology(betweenness,
+                closeness,
+                computeClusteringCoefficients(graph),
+                computeDistinctNeighborhoodCounts(graph),
+                approximated);
+    }
+
+    /**
+     * @return all nodes, or a reproducible random sample of them for large graphs
+     */
+    private int[] selectSources(int nodeCount) {
+        int[] nodes = new int[nodeCount];
+        for(int node = 0; node < nodeCount; node++) {
+            nodes[node] = node;
+        }
+        if(approximationThreshold <= 0 || nodeCount <= approximationThreshold) {
+            return nodes;
+        }
+
+        long sampleSize = (long) Math.ceil(Math.log(2.0 * nodeCount / FAILURE_PROBABILITY) / (2 * errorBound * errorBound));
+        if(sampleSize >= nodeCount) {
+            return nodes;
+        }
+
+        // partial Fisher-Yates shuffle - seeded by the graph size, so results are reproducible
+        Random random = new Random(nodeCount);
+        for(int i = 0; i < sampleSize; i++) {
+            int j = i + random.nextInt(nodeCount - i);
+            int node = nodes[i];
+            nodes[i] = nodes[j];
+            nodes[j] = node;
+        }
+        int[] sample = new int[(int) sampleSize];
+        System.arraycopy(nodes, 0, sample, 0, sample.length);
+        return sample;
+    }
+
+    private ShortestPaths computeShortestPaths(ResidueGraph graph, int[] sources) {
+        int shardCount = Math.max(1, Math.min(threads, sources.length / MINIMUM_SOURCES_PER_SHARD));
+        if(shardCount == 1) {
+            return computeShard(graph, sources, 0, 1);
+        }
+
+        List<Future<ShortestPaths>> shards = new ArrayList<>(shardCount);
+        for(int shard = 0; shard < shardCount; shard++) {
+            int offset = shard;
+            shards.add(executorService.submit(() -> computeShard(graph, sources, offset, shardCount)));
+        }
+        try {
+            ShortestPaths shortestPaths = shards.get(0).get();
+            for(int shard = 1; shard < shardCount; shard++) {
+                shortestPaths.add(shards.get(shard).get());
+            }
+            return shortestPaths;
+        } catch (InterruptedException e) {
+            shards.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("computation of shortest paths was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("computation of shortest paths failed", e.getCause());
+        }
+    }
+
+    /**
+     * process every n-th source - interleaved, as the cost of a source depends on the size of its component
+     */
+    private static ShortestPaths computeShard(ResidueGraph graph, int[] sources, int offset, int stride) {
+        ShortestPaths shortestPaths = new ShortestPaths(graph.getNodeCount());
+        Search search = new Search(graph);
+        for(int i = offset; i < sources.length; i += stride) {
+            search.run(sources[i], shortestPaths);
+        }
+        return shortestPaths;
+    }
+
+    private static double[] computeClusteringCoefficients(ResidueGraph graph) {
+        int[] offsets = graph.getOffsets();
+        int[] neighbors = graph.getNeighbors();
+        double[] clusteringCoefficients = new double[graph.getNodeCount()];
+        // marks the neighbors of the current node
+        int[] marks = new int[graph.getNodeCount()];
+        for(int node = 0; node < graph.getNodeCount(); node++) {
+            int degree = graph.degree(node);
+            if(degree < 2) {
+                continue;
+            }
+
+            for(int i = offsets[node]; i < offsets[node + 1]; i++) {
+                marks[neighbors[i]] = node + 1;
+            }
+            int links = 0;
+            for(int i = offsets[node]; i < offsets[node + 1]; i++) {
+                int neighbor = neighbors[i];
+                for(int j = offsets[neighbor]; j < offsets[neighbor + 1]; j++) {
+                    // count each link between neighbors once
+                    if(neighbors[j] > neighbor && marks[neighbors[j]] == node + 1) {
+                        links++;
+                    }
+                }
+            }
+            clusteringCoefficients[node] = 2.0 * links / (degree * (degree - 1.0));
+        }
+        return clusteringCoefficients;
+    }
+
+    private static int[] computeDistinctNeighborhoodCounts(ResidueGraph graph) {
+        int[] offsets = graph.getOffsets();
+        int[] neighbors = graph.getNeighbors();
+        int[] distinctNeighborhoodCounts = new int[graph.getNodeCount()];
+        for(int node = 0; node < graph.getNodeCount(); node++) {
+            int previousNeighbor = -1;
+            for(int i = offsets[node]; i < offsets[node + 1]; i++) {
+                int neighbor = neighbors[i];
+                if(Math.abs(neighbor - node) <= InteractionPartition.DEFAULT_SEPARATION) {
+                    continue;
+                }
+                // neighbors are sorted - a gap in sequence starts a new neighborhood
+                if(previousNeighbor == -1 || neighbor - previousNeighbor > InteractionPartition.DEFAULT_SEPARATION) {
+                    distinctNeighborhoodCounts[node]++;
+                }
+                previousNeighbor = neighbor;
+            }
+        }
+        return distinctNeighborhoodCounts;
+    }
+
+    /**
+     * the accumulated results of several breadth-first searches
+     */
+    private static class ShortestPaths {
+        private final double[] dependencies;
+        private final long[] distanceSums;
+        private final int[] sourceCounts;
+
+        ShortestPaths(int nodeCount) {
+            this.dependencies = new double[nodeCount];
+            this.distanceSums = new long[nodeCount];
+            this.sourceCounts = new int[nodeCount];
+        }
+
+        void add(ShortestPaths other) {
+            for(int node = 0; node < dependencies.length; node++) {
+                dependencies[node] += other.dependencies[node];
+                distanceSums[node] += other.distanceSums[node];
+                sourceCounts[node] += other.sourceCounts[node];
+            }
+        }
+    }
+
+    /**
+     * the working memory of breadth-first searches - reused for all sources of a shard, only visited entries are reset
+     */
+    private static class Search {
+        private final int[] offsets;
+        private final int[] neighbors;
+        private final int[] distances;
+        private final double[] pathCounts;
+        private final double[] dependencies;
+        /**
+         * nodes in the order of their visit - the queue of the search and, in reverse, the order of accumulation
+         */
+        private final int[] order;
+        private int reachedCount;
+
+        Search(ResidueGraph graph) {
+            this.offsets = graph.getOffsets();
+            this.neighbors = graph.getNeighbors();
+            this.distances = new int[graph.getNodeCount()];
+            this.pathCounts = new double[graph.getNodeCount()];
+            this.dependencies = new double[graph.getNodeCount()];
+            this.order = new int[graph.getNodeCount()];
+            Arrays.fill(distances, -1);
+        }
+
+        /**
+         * @param shortestPaths the results to add distances and dependencies to - <code>null</code> to only compute the
+         *                      distances from the source
+         * @return the sum of the distances from the source to all reachable nodes
+         */
+        long run(int source, ShortestPaths shortestPaths) {
+            distances[source] = 0;
+            pathCounts[source] = 1;
+            order[0] = source;
+            int head = 0;
+            int tail = 1;
+            while(head < tail) {
+                int node = order[head++];
+                for(int i = offsets[node]; i < offsets[node + 1]; i++) {
+                    int neighbor = neighbors[i];
+                    if(distances[neighbor] < 0) {
+                        distances[neighbor] = distances[node] + 1;
+                        order[tail++] = neighbor;
+                    }
+                    if(distances[neighbor] == distances[node] + 1) {
+                        pathCounts[neighbor] += pathCounts[node];
+                    }
+                }
+            }
+
+            long distanceSum = 0;
+            for(int i = 1; i < tail; i++) {
+                distanceSum += distances[order[i]];
+            }
+
+            if(shortestPaths != null) {
+                // distances are symmetric - the distance from the source is the distance to the source
+                for(int i = 1; i < tail; i++) {
+                    shortestPaths.distanceSums[order[i]] += distances[order[i]];
+                    shortestPaths.sourceCounts[order[i]]++;
+                }
+
+                for(int i = tail - 1; i > 0; i--) {
+                    int node = order[i];
+                    double coefficient = (1 + dependencies[node]) / pathCounts[node];
+                    for(int j = offsets[node]; j < offsets[node + 1]; j++) {
+                        int predecessor = neighbors[j];
+                        if(distances[predecessor] == distances[node] - 1) {
+                            dependencies[predecessor] += pathCounts[predecessor] * coefficient;
+                        }
+                    }
+                    shortestPaths.dependencies[node] += dependencies[node];
+                }
+            }
+
+            for(int i = 0; i < tail; i++) {
+                distances[order[i]] = -1;
+                pathCounts[order[i]] = 0;
+                dependencies[order[i]] = 0;
+            }
+            reachedCount = tail;
+            return distanceSum;
+        }
+
+        /**
+         * @return the number of nodes reached by the last search, including its source
+         */
+        int getReachedCount() {
+            return reachedCount;
+        }
+    }
+}
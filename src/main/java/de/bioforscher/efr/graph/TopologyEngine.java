@@ -0,0 +1,26 @@
+package de.bioforscher.efr.graph;
+
+/**
+ * where the topologic properties of the residue graphs (betweenness, closeness, ...) come from
+ */
+public enum TopologyEngine {
+    /**
+     * computed by jstructure - the values the model was trained with
+     */
+    JSTRUCTURE,
+    /**
+     * computed by the {@link TopologyCalculator} on compact adjacency arrays, in parallel and optionally approximated -
+     * experimental, as parity with the values of jstructure is not verified yet
+     */
+    NATIVE;
+
+    /**
+     * results are only valid for the model and the features they were computed with - the application and the
+     * precomputed prediction tables have to agree on this
+     * @param modelVersion the version of the model
+     * @return the version of the results of the model, computed from the properties of this engine
+     */
+    public String getResultVersion(String modelVersion) {
+        return this == JSTRUCTURE ? modelVersion : modelVersion + "-" + name().toLowerCase();
+    }
+}
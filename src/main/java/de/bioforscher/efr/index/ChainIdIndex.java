@@ -0,0 +1,193 @@
+package de.bioforscher.efr.index;
+
+import de.bioforscher.efr.io.AtomicFiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * sorted chain ids packed into fixed-width ASCII records, answering prefix queries by binary search - the packed file
+ * is created offline (see {@link #write(Collection, Path)}) and memory-mapped, so no strings are held on the heap:
+ * <pre>
+ * int      magic number 'EFRI'
+ * int      record length l
+ * int      number of records n
+ * byte     n records of l bytes each, sorted, shorter ids are padded by 0
+ * </pre>
+ */
+public class ChainIdIndex {
+    private static final int MAGIC_NUMBER = 0x45465249;
+    private static final int HEADER_SIZE = 12;
+    private final ByteBuffer records;
+    private final int recordLength;
+    private final int size;
+
+    private ChainIdIndex(ByteBuffer buffer) {
+        if(buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC_NUMBER) {
+            throw new IllegalArgumentException("not a chain id index");
+        }
+        this.recordLength = buffer.getInt(4);
+        this.size = buffer.getInt(8);
+        if(buffer.capacity() < HEADER_SIZE + (long) recordLength * size) {
+            throw new IllegalArgumentException("chain id index is truncated");
+        }
+        buffer.position(HEADER_SIZE);
+        this.records = buffer.slice();
+    }
+
+    /**
+     * map a packed index file into memory
+     * @param path the index file
+     * @return the index
+     */
+    public static ChainIdIndex map(Path path) throws IOException {
+        try(FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // the mapping remains valid once the channel is closed
+            return new ChainIdIndex(fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size()));
+        }
+    }
+
+    /**
+     * read a packed index which is not available as file (e.g. packaged in an archive)
+     * @param inputStream the content of the index file
+     * @return the index
+     */
+    public static ChainIdIndex read(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+        return new ChainIdIndex(ByteBuffer.wrap(outputStream.toByteArray()));
+    }
+
+    /**
+     * create an index in memory
+     * @param chainIds the chain ids in arbitrary order, duplicates are ignored
+     * @return the index
+     */
+    public static ChainIdIndex of(Collection<String> chainIds) {
+        return new ChainIdIndex(ByteBuffer.wrap(encode(chainIds)));
+    }
+
+    /**
+     * create a packed index file - it is written to a temporary file first and then moved to its destination
+     * @param chainIds the chain ids in arbitrary order, duplicates are ignored
+     * @param path the index file
+     */
+    public static void write(Collection<String> chainIds, Path path) throws IOException {
+        AtomicFiles.write(path, encode(chainIds));
+    }
+
+    private static byte[] encode(Collection<String> chainIds) {
+        // the natural order of ASCII strings matches the order of their bytes
+        SortedSet<String> sortedChainIds = new TreeSet<>(chainIds);
+        int recordLength = 0;
+        for(String chainId : sortedChainIds) {
+            for(int i = 0; i < chainId.length(); i++) {
+                char character = chainId.charAt(i);
+                if(character == 0 || character > 127) {
+                    throw new IllegalArgumentException("chain id is not printable ASCII: " + chainId);
+                }
+            }
+            recordLength = Math.max(recordLength, chainId.length());
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + recordLength * sortedChainIds.size());
+        buffer.putInt(MAGIC_NUMBER)
+                .putInt(recordLength)
+                .putInt(sortedChainIds.size());
+        for(String chainId : sortedChainIds) {
+            byte[] record = new byte[recordLength];
+            byte[] bytes = chainId.getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(bytes, 0, record, 0, bytes.length);
+            buffer.put(record);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * @return the number of chain ids
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param prefix the beginning of the chain id (case-sensitive)
+     * @param limit the maximum number of chain ids to report
+     * @return all chain ids starting with the prefix in lexicographic order - empty if there is none
+     */
+    public List<String> complete(String prefix, int limit) {
+        byte[] prefixBytes = prefix.getBytes(StandardCharsets.US_ASCII);
+        if(prefixBytes.length > recordLength || limit < 1) {
+            return Collections.emptyList();
+        }
+
+        List<String> chainIds = new ArrayList<>();
+        for(int index = lowerBound(prefixBytes); index < size && chainIds.size() < limit; index++) {
+            if(compare(index, prefixBytes) != 0) {
+                break;
+            }
+            chainIds.add(get(index));
+        }
+        return chainIds;
+    }
+
+    /**
+     * @return the first record not smaller than the prefix
+     */
+    private int lowerBound(byte[] prefixBytes) {
+        int low = 0;
+        int high = size;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(compare(middle, prefixBytes) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * compare the beginning of a record to the prefix - 0 means the record starts with the prefix
+     */
+    private int compare(int index, byte[] prefixBytes) {
+        int offset = index * recordLength;
+        for(int i = 0; i < prefixBytes.length; i++) {
+            // absolute reads do not alter the state of the buffer, so queries may run concurrently
+            int difference = (records.get(offset + i) & 0xFF) - (prefixBytes[i] & 0xFF);
+            if(difference != 0) {
+                return difference;
+            }
+        }
+        return 0;
+    }
+
+    private String get(int index) {
+        int offset = index * recordLength;
+        byte[] bytes = new byte[recordLength];
+        int length = 0;
+        while(length < recordLength && records.get(offset + length) != 0) {
+            bytes[length] = records.get(offset + length);
+            length++;
+        }
+        return new String(bytes, 0, length, StandardCharsets.US_ASCII);
+    }
+}
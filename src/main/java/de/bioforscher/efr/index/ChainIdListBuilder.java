@@ -0,0 +1,216 @@
+package de.bioforscher.efr.index;
+
+import de.bioforscher.efr.io.AtomicFiles;
+import de.bioforscher.jstructure.model.identifier.ChainIdentifier;
+import de.bioforscher.jstructure.model.structure.Chain;
+import de.bioforscher.jstructure.model.structure.Structure;
+import de.bioforscher.jstructure.model.structure.StructureParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * collects the ids of all chains containing amino acids from a local PDB mirror (*.ent.gz files) - only files which
+ * changed since the last run are parsed again, the output directory contains:
+ * <ul>
+ *     <li>{@value #CHAIN_LIST_FILE} - sorted, distinct chain ids, one per line</li>
+ *     <li>{@value #INDEX_FILE} - the same ids packed for auto-completion (see {@link ChainIdIndex})</li>
+ *     <li>{@value #MANIFEST_FILE} - per structure file: path, size, modification time and chain ids</li>
+ * </ul>
+ * all files are written to temporary files first, so an interrupted run never leaves partial results behind
+ */
+public class ChainIdListBuilder {
+    private static final Logger logger = LoggerFactory.getLogger(ChainIdListBuilder.class);
+    public static final String CHAIN_LIST_FILE = "chainids.dat";
+    public static final String INDEX_FILE = "chainids.idx";
+    public static final String MANIFEST_FILE = "chainids.manifest";
+    private static final String STRUCTURE_FILE_SUFFIX = ".ent.gz";
+    private final Path pdbDirectory;
+    private final int threads;
+
+    /**
+     * @param pdbDirectory the root of the local PDB mirror
+     * @param threads the number of files parsed concurrently (0 - one per core)
+     */
+    public ChainIdListBuilder(Path pdbDirectory, int threads) {
+        this.pdbDirectory = pdbDirectory;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * update the chain id list in the given directory
+     * @param outputDirectory the directory to write to - its manifest decides which files have to be parsed
+     * @return the number of chain ids
+     */
+    public int build(Path outputDirectory) {
+        try {
+            Files.createDirectories(outputDirectory);
+            Map<String, ManifestEntry> previousManifest = readManifest(outputDirectory.resolve(MANIFEST_FILE));
+
+            List<Path> structureFiles;
+            try(Stream<Path> paths = Files.walk(pdbDirectory)) {
+                structureFiles = paths.filter(path -> path.getFileName().toString().endsWith(STRUCTURE_FILE_SUFFIX))
+                        .filter(Files::isRegularFile)
+                        .sorted()
+                        .collect(Collectors.toList());
+            }
+
+            Map<String, ManifestEntry> manifest = new ConcurrentHashMap<>();
+            List<Path> changedFiles = new ArrayList<>();
+            Set<String> keys = new HashSet<>();
+            for(Path structureFile : structureFiles) {
+                String key = pdbDirectory.relativize(structureFile).toString();
+                keys.add(key);
+                BasicFileAttributes attributes = Files.readAttributes(structureFile, BasicFileAttributes.class);
+                ManifestEntry previousEntry = previousManifest.get(key);
+                if(previousEntry != null && previousEntry.matches(attributes)) {
+                    manifest.put(key, previousEntry);
+                } else {
+                    changedFiles.add(structureFile);
+                }
+            }
+            logger.info("found {} structure files - {} are new or changed, {} were removed",
+                    structureFiles.size(),
+                    changedFiles.size(),
+                    previousManifest.keySet().stream().filter(key -> !keys.contains(key)).count());
+
+            parse(changedFiles, manifest);
+
+            SortedSet<String> chainIds = new TreeSet<>();
+            manifest.values().forEach(entry -> chainIds.addAll(entry.chainIds));
+
+            writeAtomically(outputDirectory.resolve(CHAIN_LIST_FILE), chainIds);
+            ChainIdIndex.write(chainIds, outputDirectory.resolve(INDEX_FILE));
+            // the manifest comes last: should anything before fail, the next run parses the changed files again
+            writeAtomically(outputDirectory.resolve(MANIFEST_FILE), new TreeMap<>(manifest).entrySet()
+                    .stream()
+                    .map(entry -> entry.getValue().toLine(entry.getKey()))
+                    .collect(Collectors.toList()));
+            logger.info("wrote {} chain ids to {}",
+                    chainIds.size(),
+                    outputDirectory);
+            return chainIds.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void parse(List<Path> changedFiles, Map<String, ManifestEntry> manifest) throws IOException {
+        AtomicInteger processed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = changedFiles.stream()
+                    .map(structureFile -> executor.submit(() -> {
+                        try {
+                            BasicFileAttributes attributes = Files.readAttributes(structureFile, BasicFileAttributes.class);
+                            List<String> chainIds = parseChainIds(structureFile);
+                            manifest.put(pdbDirectory.relativize(structureFile).toString(),
+                                    new ManifestEntry(attributes.size(), attributes.lastModifiedTime().toMillis(), chainIds));
+                        } catch (Exception e) {
+                            // failed files are not part of the manifest and will be parsed again next time
+                            failed.incrementAndGet();
+                            logger.warn("could not parse {}: {}",
+                                    structureFile,
+                                    e.getMessage());
+                        }
+                        int count = processed.incrementAndGet();
+                        if(count % 1000 == 0) {
+                            logger.info("parsed {} of {} files",
+                                    count,
+                                    changedFiles.size());
+                        }
+                    }))
+                    .collect(Collectors.toList());
+            for(Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while parsing structure files", e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        if(failed.get() > 0) {
+            logger.warn("{} of {} structure files could not be parsed",
+                    failed.get(),
+                    changedFiles.size());
+        }
+    }
+
+    private List<String> parseChainIds(Path structureFile) throws IOException {
+        try(InputStream inputStream = new GZIPInputStream(Files.newInputStream(structureFile))) {
+            Structure structure = StructureParser.fromInputStream(inputStream)
+                    // suppress parsing of ligand information
+                    .minimalParsing(true)
+                    .parse();
+            return structure.chainsWithAminoAcids()
+                    .map(Chain::getChainIdentifier)
+                    .map(ChainIdentifier::getFullName)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static Map<String, ManifestEntry> readManifest(Path manifestPath) throws IOException {
+        Map<String, ManifestEntry> manifest = new HashMap<>();
+        if(!Files.exists(manifestPath)) {
+            return manifest;
+        }
+        try(Stream<String> lines = Files.lines(manifestPath, StandardCharsets.UTF_8)) {
+            lines.map(line -> line.split("\t", -1))
+                    .filter(split -> split.length == 4)
+                    .forEach(split -> manifest.put(split[0], new ManifestEntry(Long.parseLong(split[1]),
+                            Long.parseLong(split[2]),
+                            split[3].isEmpty() ? Collections.emptyList() : Arrays.asList(split[3].split(",")))));
+        }
+        return manifest;
+    }
+
+    private static void writeAtomically(Path path, Collection<String> lines) throws IOException {
+        AtomicFiles.write(path, outputStream -> {
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            for(String line : lines) {
+                writer.write(line);
+                writer.newLine();
+            }
+            writer.flush();
+        });
+    }
+
+    private static class ManifestEntry {
+        private final long size;
+        private final long lastModified;
+        private final List<String> chainIds;
+
+        ManifestEntry(long size, long lastModified, List<String> chainIds) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.chainIds = chainIds;
+        }
+
+        boolean matches(BasicFileAttributes attributes) {
+            return size == attributes.size() && lastModified == attributes.lastModifiedTime().toMillis();
+        }
+
+        String toLine(String key) {
+            return key + "\t" + size + "\t" + lastModified + "\t" + String.join(",", chainIds);
+        }
+    }
+}
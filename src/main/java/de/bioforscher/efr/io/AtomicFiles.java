@@ -0,0 +1,78 @@
+package de.bioforscher.efr.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * writes files such that readers (and restarts after a crash) never see partial content: the content is written to a
+ * temporary file in the same directory, which then replaces the destination in a single step - temporary files end
+ * with {@value #TEMPORARY_SUFFIX} and are removed when writing fails
+ */
+public class AtomicFiles {
+    private static final Logger logger = LoggerFactory.getLogger(AtomicFiles.class);
+    public static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private AtomicFiles() {
+        // deny instantiation
+    }
+
+    /**
+     * @param path the destination - missing parent directories are created
+     * @param content the content
+     * @throws IOException if the file cannot be written, the destination is left untouched in that case
+     */
+    public static void write(Path path, byte[] content) throws IOException {
+        write(path, outputStream -> outputStream.write(content));
+    }
+
+    /**
+     * @param path the destination - missing parent directories are created
+     * @param content writes the content - it may close the stream when done (e.g. to finish a compressed stream)
+     * @throws IOException if the file cannot be written, the destination is left untouched in that case
+     */
+    public static void write(Path path, Content content) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporaryPath = Files.createTempFile(directory, path.getFileName().toString(), TEMPORARY_SUFFIX);
+        try {
+            try(OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(temporaryPath))) {
+                content.writeTo(outputStream);
+            }
+            Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            deleteQuietly(temporaryPath);
+        }
+    }
+
+    /**
+     * @param path the file
+     * @return true if the file ends with {@value #TEMPORARY_SUFFIX}, i.e. it may be incomplete
+     */
+    public static boolean isTemporary(Path path) {
+        return path.getFileName().toString().endsWith(TEMPORARY_SUFFIX);
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // must not hide the original failure
+            logger.warn("could not delete {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * the content of a file
+     */
+    @FunctionalInterface
+    public interface Content {
+        void writeTo(OutputStream outputStream) throws IOException;
+    }
+}
@@ -0,0 +1,88 @@
+package de.bioforscher.efr.job;
+
+/**
+ * estimates the cost of a job from the size of the chain it processes - chains range from peptides to complexes
+ * two orders of magnitude larger, so their processing time is what the queue has to account for<br />
+ * the processing time per residue is learned from the chains which were actually processed (the measurements exported
+ * as efr_residue_processing_seconds), the heap is estimated from the number of atoms (parsed structure, surface
+ * calculation, the copies of the structure annotated by the calculator stages) and residues (features and annotations)
+ * - both are coarse, but sufficient to tell a peptide from a complex
+ */
+public class CostModel {
+    /**
+     * assumed for jobs whose chain is not known before they run
+     */
+    public static final int TYPICAL_RESIDUE_COUNT = 250;
+    public static final int TYPICAL_ATOM_COUNT = 2000;
+    private static final double INITIAL_SECONDS_PER_RESIDUE = 0.01;
+    /**
+     * the weight of each new measurement - recent measurements dominate after some dozen chains
+     */
+    private static final double SMOOTHING = 0.05;
+    private static final long BYTES_PER_JOB = 1 << 20;
+    private static final long BYTES_PER_ATOM = 2048;
+    private static final long BYTES_PER_RESIDUE = 8192;
+    /**
+     * the calculator stages of the feature pipeline (energy profile, secondary structure, surface) each annotate their
+     * own copy of the structure, concurrently - see FeatureStage#ofCalculator
+     */
+    private static final int STRUCTURE_COPIES = 3;
+    private static final long BYTES_PER_COPIED_ATOM = 512;
+    private volatile double secondsPerResidue;
+
+    public CostModel() {
+        this.secondsPerResidue = INITIAL_SECONDS_PER_RESIDUE;
+    }
+
+    /**
+     * @param residueCount the number of residues of the chain
+     * @param atomCount the number of atoms of the chain
+     * @return the estimated cost of processing the chain
+     */
+    public JobCost estimate(int residueCount, int atomCount) {
+        return new JobCost(residueCount,
+                atomCount,
+                residueCount * secondsPerResidue,
+                BYTES_PER_JOB + atomCount * bytesPerAtom() + residueCount * BYTES_PER_RESIDUE);
+    }
+
+    /**
+     * @return the estimated cost of processing a chain of unknown size
+     */
+    public JobCost estimateTypical() {
+        return estimate(TYPICAL_RESIDUE_COUNT, TYPICAL_ATOM_COUNT);
+    }
+
+    /**
+     * batches process one chain per core
+     * @param chainCount the number of chains of the batch
+     * @return the estimated cost of processing all chains of the batch
+     */
+    public JobCost estimateBatch(int chainCount) {
+        int concurrentChains = Math.max(1, Math.min(chainCount, Runtime.getRuntime().availableProcessors()));
+        return new JobCost(chainCount * TYPICAL_RESIDUE_COUNT,
+                concurrentChains * TYPICAL_ATOM_COUNT,
+                chainCount * TYPICAL_RESIDUE_COUNT * secondsPerResidue,
+                BYTES_PER_JOB + concurrentChains * (TYPICAL_ATOM_COUNT * bytesPerAtom() + TYPICAL_RESIDUE_COUNT * BYTES_PER_RESIDUE));
+    }
+
+    private static long bytesPerAtom() {
+        return BYTES_PER_ATOM + STRUCTURE_COPIES * BYTES_PER_COPIED_ATOM;
+    }
+
+    /**
+     * record the time it took to process a chain
+     * @param residueCount the number of residues of the chain
+     * @param durationNanos the processing time
+     */
+    public synchronized void observe(int residueCount, long durationNanos) {
+        if(residueCount == 0) {
+            return;
+        }
+        secondsPerResidue += SMOOTHING * (durationNanos / 1e9 / residueCount - secondsPerResidue);
+    }
+
+    public double getSecondsPerResidue() {
+        return secondsPerResidue;
+    }
+}
@@ -0,0 +1,149 @@
+package de.bioforscher.efr.job;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import de.bioforscher.efr.pipeline.ProgressListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * a unit of work handled by the {@link JobManager} - clients receive the id immediately and may poll for the status
+ * and eventually the result, or subscribe to the steps of the job as they finish
+ * @param <T> the type of the result
+ */
+public class Job<T> implements ProgressListener {
+    private final String id;
+    private final String description;
+    private final JobCost cost;
+    private final long submissionTime;
+    private final CompletableFuture<T> future;
+    private volatile JobStatus status;
+    private volatile long startTime;
+    private volatile long finishTime;
+    private volatile String message;
+    /**
+     * guarded by this job, as are the subscribers
+     */
+    private final List<JobEvent> events;
+    private final List<Consumer<JobEvent>> subscribers;
+
+    Job(String id, String description, JobCost cost) {
+        this.id = id;
+        this.description = description;
+        this.cost = cost;
+        this.submissionTime = System.currentTimeMillis();
+        this.future = new CompletableFuture<>();
+        this.status = JobStatus.QUEUED;
+        this.events = new ArrayList<>();
+        this.subscribers = new ArrayList<>();
+    }
+
+    void start() {
+        this.startTime = System.currentTimeMillis();
+        this.status = JobStatus.RUNNING;
+        onProgress("started", "started processing");
+    }
+
+    /**
+     * record a finished step and pass it on to all subscribers
+     */
+    @Override
+    public void onProgress(String step, String message) {
+        JobEvent event = new JobEvent(step, message, System.currentTimeMillis());
+        List<Consumer<JobEvent>> currentSubscribers;
+        synchronized (this) {
+            events.add(event);
+            currentSubscribers = new ArrayList<>(subscribers);
+        }
+        currentSubscribers.forEach(subscriber -> subscriber.accept(event));
+    }
+
+    /**
+     * receive all steps of this job - the steps finished so far are passed on right away
+     * @param subscriber the subscriber
+     */
+    public void subscribe(Consumer<JobEvent> subscriber) {
+        List<JobEvent> previousEvents;
+        synchronized (this) {
+            previousEvents = new ArrayList<>(events);
+            subscribers.add(subscriber);
+        }
+        previousEvents.forEach(subscriber);
+    }
+
+    public synchronized void unsubscribe(Consumer<JobEvent> subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    void complete(T result) {
+        this.finishTime = System.currentTimeMillis();
+        this.status = JobStatus.FINISHED;
+        future.complete(result);
+    }
+
+    void fail(Throwable throwable) {
+        this.finishTime = System.currentTimeMillis();
+        this.status = JobStatus.FAILED;
+        this.message = throwable.getMessage() != null ? throwable.getMessage() : throwable.getClass().getSimpleName();
+        future.completeExceptionally(throwable);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * @return the estimated cost, which determines when the job is processed
+     */
+    public JobCost getCost() {
+        return cost;
+    }
+
+    public JobStatus getStatus() {
+        return status;
+    }
+
+    public long getSubmissionTime() {
+        return submissionTime;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getFinishTime() {
+        return finishTime;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * @return the steps finished so far
+     */
+    public synchronized List<JobEvent> getEvents() {
+        return Collections.unmodifiableList(new ArrayList<>(events));
+    }
+
+    public T getResult() {
+        return status == JobStatus.FINISHED ? future.getNow(null) : null;
+    }
+
+    @JsonIgnore
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    @JsonIgnore
+    public CompletableFuture<T> getFuture() {
+        return future;
+    }
+}
@@ -0,0 +1,56 @@
+package de.bioforscher.efr.job;
+
+/**
+ * the estimated resources a job requires - used to order and admit queued jobs, see {@link CostModel}
+ */
+public class JobCost {
+    /**
+     * the cost of jobs which are never queued
+     */
+    public static final JobCost NONE = new JobCost(0, 0, 0, 0);
+    private final int residueCount;
+    private final int atomCount;
+    private final double estimatedSeconds;
+    private final long estimatedBytes;
+
+    JobCost(int residueCount, int atomCount, double estimatedSeconds, long estimatedBytes) {
+        this.residueCount = residueCount;
+        this.atomCount = atomCount;
+        this.estimatedSeconds = estimatedSeconds;
+        this.estimatedBytes = estimatedBytes;
+    }
+
+    /**
+     * @return the number of residues to process
+     */
+    public int getResidueCount() {
+        return residueCount;
+    }
+
+    /**
+     * @return the number of atoms held in memory at once
+     */
+    public int getAtomCount() {
+        return atomCount;
+    }
+
+    /**
+     * @return the estimated processing time at the time of submission
+     */
+    public double getEstimatedSeconds() {
+        return estimatedSeconds;
+    }
+
+    /**
+     * @return the estimated heap occupied while processing
+     */
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return residueCount + " residues, " + atomCount + " atoms, ~" + String.format("%.1f", estimatedSeconds) + " s, ~" +
+                (estimatedBytes >> 20) + " MB";
+    }
+}
@@ -0,0 +1,31 @@
+package de.bioforscher.efr.job;
+
+/**
+ * a step of a job, which finished
+ */
+public class JobEvent {
+    private final String step;
+    private final String message;
+    private final long time;
+
+    JobEvent(String step, String message, long time) {
+        this.step = step;
+        this.message = message;
+        this.time = time;
+    }
+
+    /**
+     * @return the short name of the step, e.g. plip or classification
+     */
+    public String getStep() {
+        return step;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public long getTime() {
+        return time;
+    }
+}
@@ -0,0 +1,374 @@
+package de.bioforscher.efr.job;
+
+import de.bioforscher.efr.metrics.MetricsRegistry;
+import de.bioforscher.jstructure.model.feature.ComputationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * executes classification jobs on a bounded worker pool - request threads only enqueue jobs and are never blocked by
+ * the computation itself<br />
+ * jobs are not processed in the order of their submission, but by their estimated cost (see {@link CostModel}): a
+ * peptide submitted after a large complex is processed first, rather than waiting for minutes - each job is ranked by
+ * its submission time plus its estimated processing time (times the aging factor), so an expensive job is only passed
+ * by jobs submitted while it would have been processed and does not starve<br />
+ * a job is admitted when a worker is idle and the estimated heap of all running jobs stays within the memory budget -
+ * a job exceeding the budget on its own is admitted once all other jobs have finished
+ */
+@Component
+public class JobManager {
+    private static final Logger logger = LoggerFactory.getLogger(JobManager.class);
+    private final Map<String, Job<?>> jobs;
+    /**
+     * unfinished jobs by their content key - used to attach identical requests to the same computation
+     */
+    private final Map<String, Job<?>> activeJobs;
+    private final CostModel costModel;
+    /**
+     * guarded by itself, as are the counters of running jobs
+     */
+    private final PriorityQueue<QueuedJob> queue;
+    private int runningJobCount;
+    private long runningBytes;
+    private final AtomicLong sequence;
+    private final ExecutorService executor;
+    private final int workerCount;
+    private final int queueCapacity;
+    private final long memoryBudget;
+    private final double agingFactor;
+    private final long retentionTime;
+
+    public JobManager(@Value("${efr.jobs.threads:0}") int threads,
+                      @Value("${efr.jobs.queue-capacity:100}") int queueCapacity,
+                      @Value("${efr.jobs.retention-minutes:30}") long retentionMinutes,
+                      @Value("${efr.jobs.memory-budget-mb:0}") long memoryBudgetMegabytes,
+                      @Value("${efr.jobs.aging-factor:1.0}") double agingFactor) {
+        // default to one worker per core and half of the heap
+        this.workerCount = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.memoryBudget = memoryBudgetMegabytes > 0 ? memoryBudgetMegabytes << 20 : Runtime.getRuntime().maxMemory() / 2;
+        this.jobs = new ConcurrentHashMap<>();
+        this.activeJobs = new ConcurrentHashMap<>();
+        this.costModel = new CostModel();
+        this.queue = new PriorityQueue<>();
+        this.sequence = new AtomicLong();
+        this.queueCapacity = queueCapacity;
+        this.agingFactor = agingFactor;
+        this.retentionTime = TimeUnit.MINUTES.toMillis(retentionMinutes);
+        // jobs are only handed over once admitted, so the pool never has to queue them
+        this.executor = Executors.newFixedThreadPool(workerCount, new WorkerThreadFactory());
+        MetricsRegistry metricsRegistry = MetricsRegistry.getDefault();
+        metricsRegistry.gauge("efr_jobs_running", "jobs currently processed", this::getRunningJobCount);
+        metricsRegistry.gauge("efr_jobs_queued", "jobs waiting for a worker", this::getQueuedJobCount);
+        metricsRegistry.gauge("efr_jobs_retained", "jobs whose status can be queried", () -> jobs.size());
+        metricsRegistry.gauge("efr_jobs_running_bytes", "estimated heap occupied by running jobs", this::getRunningBytes);
+        metricsRegistry.gauge("efr_jobs_queued_seconds", "estimated processing time of all waiting jobs", this::getQueuedSeconds);
+        metricsRegistry.gauge("efr_jobs_seconds_per_residue", "processing time per residue assumed by the cost model", costModel::getSecondsPerResidue);
+        logger.info("initialized job queue with {} workers, capacity {} and memory budget {} MB",
+                workerCount,
+                queueCapacity,
+                memoryBudget >> 20);
+    }
+
+    /**
+     * @return estimates the cost of jobs before they are submitted - feed it with the time it took to process chains
+     */
+    public CostModel getCostModel() {
+        return costModel;
+    }
+
+    /**
+     * enqueue a new job
+     * @param description a human-readable description of the job
+     * @param task the actual computation
+     * @param <T> the type of the result
+     * @return the handle of the job, which is returned immediately
+     * @throws ComputationException when the queue is full
+     */
+    public <T> Job<T> submit(String description, Callable<T> task) {
+        return submit(description, (JobTask<T>) progressListener -> task.call());
+    }
+
+    /**
+     * enqueue a new job, which reports its progress
+     * @param description a human-readable description of the job
+     * @param task the actual computation
+     * @param <T> the type of the result
+     * @return the handle of the job, which is returned immediately
+     * @throws ComputationException when the queue is full
+     */
+    public <T> Job<T> submit(String description, JobTask<T> task) {
+        return submit(description, costModel.estimateTypical(), task);
+    }
+
+    /**
+     * enqueue a new job, which reports its progress
+     * @param description a human-readable description of the job
+     * @param cost the estimated cost, which determines when the job is processed
+     * @param task the actual computation
+     * @param <T> the type of the result
+     * @return the handle of the job, which is returned immediately
+     * @throws ComputationException when the queue is full
+     */
+    public <T> Job<T> submit(String description, JobCost cost, JobTask<T> task) {
+        evictExpiredJobs();
+
+        Job<T> job = new Job<>(UUID.randomUUID().toString(), description, cost);
+        // expensive jobs rank as if they were submitted later - by the time they would take to process
+        long rank = job.getSubmissionTime() + (long) (agingFactor * cost.getEstimatedSeconds() * 1000);
+        int queuedJobCount;
+        synchronized (queue) {
+            if(queue.size() >= queueCapacity) {
+                MetricsRegistry.getDefault().counter("efr_jobs_total", "processed jobs by outcome", "result", "rejected").increment();
+                throw new ComputationException("job rejected due to high server load (queue limit=" + queueCapacity + ") - please wait some time before submitting a new job");
+            }
+            jobs.put(job.getId(), job);
+            queue.add(new QueuedJob(rank, sequence.getAndIncrement(), cost, () -> run(job, task)));
+            queuedJobCount = queue.size();
+        }
+
+        logger.info("queued job {} [{}] ({}) - current load: {} running, {} queued",
+                job.getId(),
+                description,
+                cost,
+                getRunningJobCount(),
+                queuedJobCount);
+        dispatch();
+        return job;
+    }
+
+    /**
+     * enqueue a new job, unless an identical job is already queued or running - in that case the handle of the
+     * existing job is returned and no further computation is started
+     * @param key the content key identifying identical jobs
+     * @param description a human-readable description of the job
+     * @param task the actual computation
+     * @param <T> the type of the result - must be the same for all jobs sharing a key
+     * @return the handle of the new or the existing job
+     * @throws ComputationException when the queue is full
+     */
+    public <T> Job<T> submit(String key, String description, Callable<T> task) {
+        return submit(key, description, (JobTask<T>) progressListener -> task.call());
+    }
+
+    /**
+     * enqueue a new job, unless an identical job is already queued or running
+     * @param key the content key identifying identical jobs
+     * @param description a human-readable description of the job
+     * @param cost the estimated cost, which determines when the job is processed
+     * @param task the actual computation
+     * @param <T> the type of the result - must be the same for all jobs sharing a key
+     * @return the handle of the new or the existing job
+     * @throws ComputationException when the queue is full
+     */
+    public <T> Job<T> submit(String key, String description, JobCost cost, Callable<T> task) {
+        return submit(key, description, cost, (JobTask<T>) progressListener -> task.call());
+    }
+
+    /**
+     * enqueue a new job, which reports its progress, unless an identical job is already queued or running
+     * @param key the content key identifying identical jobs
+     * @param description a human-readable description of the job
+     * @param task the actual computation
+     * @param <T> the type of the result - must be the same for all jobs sharing a key
+     * @return the handle of the new or the existing job
+     * @throws ComputationException when the queue is full
+     */
+    public <T> Job<T> submit(String key, String description, JobTask<T> task) {
+        return submit(key, description, costModel.estimateTypical(), task);
+    }
+
+    /**
+     * enqueue a new job, which reports its progress, unless an identical job is already queued or running
+     * @param key the content key identifying identical jobs
+     * @param description a human-readable description of the job
+     * @param cost the estimated cost, which determines when the job is processed
+     * @param task the actual computation
+     * @param <T> the type of the result - must be the same for all jobs sharing a key
+     * @return the handle of the new or the existing job
+     * @throws ComputationException when the queue is full
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Job<T> submit(String key, String description, JobCost cost, JobTask<T> task) {
+        synchronized (activeJobs) {
+            Job<?> activeJob = activeJobs.get(key);
+            if(activeJob != null) {
+                logger.info("attaching request to already submitted job {} [{}]",
+                        activeJob.getId(),
+                        activeJob.getDescription());
+                return (Job<T>) activeJob;
+            }
+
+            Job<T> job = submit(description, cost, task);
+            activeJobs.put(key, job);
+            job.getFuture().whenComplete((result, throwable) -> activeJobs.remove(key, job));
+            return job;
+        }
+    }
+
+    /**
+     * register a job whose result is already known (e.g. a cache hit) - it is never queued and thus never rejected
+     * @param description a human-readable description of the job
+     * @param result the result
+     * @param <T> the type of the result
+     * @return the handle of the finished job
+     */
+    public <T> Job<T> completed(String description, T result) {
+        evictExpiredJobs();
+
+        Job<T> job = new Job<>(UUID.randomUUID().toString(), description, JobCost.NONE);
+        job.start();
+        job.complete(result);
+        jobs.put(job.getId(), job);
+        return job;
+    }
+
+    public Optional<Job<?>> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    public int getRunningJobCount() {
+        synchronized (queue) {
+            return runningJobCount;
+        }
+    }
+
+    public int getQueuedJobCount() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    private long getRunningBytes() {
+        synchronized (queue) {
+            return runningBytes;
+        }
+    }
+
+    private double getQueuedSeconds() {
+        synchronized (queue) {
+            return queue.stream()
+                    .mapToDouble(queuedJob -> queuedJob.cost.getEstimatedSeconds())
+                    .sum();
+        }
+    }
+
+    /**
+     * hand over queued jobs to the workers as long as they fit - the highest ranked job is never passed by a cheaper
+     * one, otherwise a stream of small jobs could keep a large one from ever fitting into the budget
+     */
+    private void dispatch() {
+        List<QueuedJob> admittedJobs = new ArrayList<>();
+        synchronized (queue) {
+            while(!queue.isEmpty() && runningJobCount < workerCount) {
+                QueuedJob queuedJob = queue.peek();
+                if(runningJobCount > 0 && runningBytes + queuedJob.cost.getEstimatedBytes() > memoryBudget) {
+                    break;
+                }
+                queue.poll();
+                runningJobCount++;
+                runningBytes += queuedJob.cost.getEstimatedBytes();
+                admittedJobs.add(queuedJob);
+            }
+        }
+
+        for(QueuedJob queuedJob : admittedJobs) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        queuedJob.action.run();
+                    } finally {
+                        release(queuedJob);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // the manager is shutting down
+                release(queuedJob);
+            }
+        }
+    }
+
+    private void release(QueuedJob queuedJob) {
+        synchronized (queue) {
+            runningJobCount--;
+            runningBytes -= queuedJob.cost.getEstimatedBytes();
+        }
+        if(!executor.isShutdown()) {
+            dispatch();
+        }
+    }
+
+    private <T> void run(Job<T> job, JobTask<T> task) {
+        job.start();
+        MetricsRegistry metricsRegistry = MetricsRegistry.getDefault();
+        metricsRegistry.histogram("efr_job_wait_seconds", "time jobs spent in the queue")
+                .observe((job.getStartTime() - job.getSubmissionTime()) / 1000.0);
+        try {
+            job.complete(task.call(job));
+            metricsRegistry.counter("efr_jobs_total", "processed jobs by outcome", "result", "finished").increment();
+            metricsRegistry.histogram("efr_job_duration_seconds", "time jobs spent processing")
+                    .observe((job.getFinishTime() - job.getStartTime()) / 1000.0);
+            logger.info("finished job {} in {} ms",
+                    job.getId(),
+                    job.getFinishTime() - job.getStartTime());
+        } catch (Throwable throwable) {
+            // never leave a job dangling - waiting clients have to be notified in any case
+            logger.warn("job {} failed: {}",
+                    job.getId(),
+                    throwable.getMessage());
+            metricsRegistry.counter("efr_jobs_total", "processed jobs by outcome", "result", "failed").increment();
+            job.fail(throwable);
+        }
+    }
+
+    private void evictExpiredJobs() {
+        long threshold = System.currentTimeMillis() - retentionTime;
+        jobs.values().removeIf(job -> job.isDone() && job.getFinishTime() < threshold);
+    }
+
+    @PreDestroy
+    public void deactivate() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * a job waiting for admission - ordered by rank, jobs of equal rank by submission
+     */
+    private static class QueuedJob implements Comparable<QueuedJob> {
+        private final long rank;
+        private final long sequence;
+        private final JobCost cost;
+        private final Runnable action;
+
+        QueuedJob(long rank, long sequence, JobCost cost, Runnable action) {
+            this.rank = rank;
+            this.sequence = sequence;
+            this.cost = cost;
+            this.action = action;
+        }
+
+        @Override
+        public int compareTo(QueuedJob other) {
+            int comparison = Long.compare(rank, other.rank);
+            return comparison != 0 ? comparison : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "efr-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
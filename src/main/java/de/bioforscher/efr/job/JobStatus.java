@@ -0,0 +1,8 @@
+package de.bioforscher.efr.job;
+
+public enum JobStatus {
+    QUEUED,
+    RUNNING,
+    FINISHED,
+    FAILED
+}
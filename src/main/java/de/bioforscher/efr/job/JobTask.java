@@ -0,0 +1,17 @@
+package de.bioforscher.efr.job;
+
+import de.bioforscher.efr.pipeline.ProgressListener;
+
+/**
+ * the computation of a job, which reports its progress
+ * @param <T> the type of the result
+ */
+@FunctionalInterface
+public interface JobTask<T> {
+    /**
+     * @param progressListener records the progress in the job
+     * @return the result
+     * @throws Exception when the computation fails
+     */
+    T call(ProgressListener progressListener) throws Exception;
+}
@@ -0,0 +1,25 @@
+package de.bioforscher.efr.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * a monotonically increasing count
+ */
+public class Counter {
+    private final LongAdder count = new LongAdder();
+
+    Counter() {
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    public long get() {
+        return count.sum();
+    }
+}
@@ -0,0 +1,93 @@
+package de.bioforscher.efr.metrics;
+
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * the distribution of observed values in fixed buckets - used as timer, values are reported in seconds
+ */
+public class Histogram {
+    /**
+     * from 5 ms up to 10 min - covers everything from smoothing a chain to computing PLIP documents on the fly
+     */
+    static final double[] DEFAULT_BUCKETS = { 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 120, 300, 600 };
+    private final double[] upperBounds;
+    private final LongAdder[] bucketCounts;
+    private final DoubleAdder sum;
+    private final LongAdder count;
+
+    Histogram(double[] upperBounds) {
+        this.upperBounds = upperBounds;
+        // the last bucket collects all values above the largest bound
+        this.bucketCounts = new LongAdder[upperBounds.length + 1];
+        for(int i = 0; i < bucketCounts.length; i++) {
+            bucketCounts[i] = new LongAdder();
+        }
+        this.sum = new DoubleAdder();
+        this.count = new LongAdder();
+    }
+
+    public void observe(double value) {
+        int bucket = 0;
+        while(bucket < upperBounds.length && value > upperBounds[bucket]) {
+            bucket++;
+        }
+        bucketCounts[bucket].increment();
+        sum.add(value);
+        count.increment();
+    }
+
+    /**
+     * @param durationNanos a duration in nanoseconds, recorded in seconds
+     */
+    public void observeNanos(long durationNanos) {
+        observe(durationNanos / 1e9);
+    }
+
+    /**
+     * record the duration of an action - also when it fails
+     * @param action the action
+     * @return the result of the action
+     */
+    public <T> T time(Supplier<T> action) {
+        long start = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            observeNanos(System.nanoTime() - start);
+        }
+    }
+
+    public void time(Runnable action) {
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } finally {
+            observeNanos(System.nanoTime() - start);
+        }
+    }
+
+    double[] getUpperBounds() {
+        return upperBounds;
+    }
+
+    /**
+     * @return the number of observations in each bucket (not cumulative), the last one being unbounded
+     */
+    long[] getBucketCounts() {
+        long[] counts = new long[bucketCounts.length];
+        for(int i = 0; i < counts.length; i++) {
+            counts[i] = bucketCounts[i].sum();
+        }
+        return counts;
+    }
+
+    public double getSum() {
+        return sum.sum();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+}
@@ -0,0 +1,154 @@
+package de.bioforscher.efr.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * collects counters, histograms and gauges and writes them in the Prometheus text format - metrics are identified by
+ * name and labels, asking twice for the same metric returns the same instance
+ */
+public class MetricsRegistry {
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+    private final ConcurrentMap<String, Family> families = new ConcurrentSkipListMap<>();
+
+    /**
+     * @return the registry shared by all components
+     */
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @param name the metric name, which should end with _total
+     * @param help the description of the metric
+     * @param labels alternating label names and values
+     * @return the counter
+     */
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, "counter").metrics.computeIfAbsent(formatLabels(labels), key -> new Counter());
+    }
+
+    /**
+     * @param name the metric name, which should end with the unit (e.g. _seconds)
+     * @param help the description of the metric
+     * @param labels alternating label names and values
+     * @return the histogram with the default (timing) buckets
+     */
+    public Histogram histogram(String name, String help, String... labels) {
+        return histogram(name, help, Histogram.DEFAULT_BUCKETS, labels);
+    }
+
+    /**
+     * @param upperBounds the ascending upper bounds of the buckets - only considered on creation
+     */
+    public Histogram histogram(String name, String help, double[] upperBounds, String... labels) {
+        return (Histogram) family(name, help, "histogram").metrics.computeIfAbsent(formatLabels(labels), key -> new Histogram(upperBounds));
+    }
+
+    /**
+     * register a value which is determined on each scrape - replaces any previous gauge of the same name and labels
+     */
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, "gauge").metrics.put(formatLabels(labels), value);
+    }
+
+    /**
+     * drop a metric, e.g. a gauge of a component which is gone - does nothing, if there is no such metric
+     */
+    public void remove(String name, String... labels) {
+        Family family = families.get(name);
+        if(family != null) {
+            family.metrics.remove(formatLabels(labels));
+        }
+    }
+
+    private Family family(String name, String help, String type) {
+        Family family = families.computeIfAbsent(name, key -> new Family(help, type));
+        if(!family.type.equals(type)) {
+            throw new IllegalArgumentException("metric " + name + " is already registered as " + family.type);
+        }
+        return family;
+    }
+
+    private static String formatLabels(String... labels) {
+        if(labels.length % 2 != 0) {
+            throw new IllegalArgumentException("labels have to be given as name-value pairs");
+        }
+        StringBuilder stringBuilder = new StringBuilder();
+        for(int i = 0; i < labels.length; i += 2) {
+            stringBuilder.append(i == 0 ? "" : ",")
+                    .append(labels[i])
+                    .append("=\"")
+                    .append(labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+                    .append("\"");
+        }
+        return stringBuilder.toString();
+    }
+
+    /**
+     * write all metrics in the Prometheus text exposition format (version 0.0.4)
+     * @param writer the target
+     */
+    public void write(Writer writer) throws IOException {
+        for(Map.Entry<String, Family> familyEntry : families.entrySet()) {
+            String name = familyEntry.getKey();
+            Family family = familyEntry.getValue();
+            writer.write("# HELP " + name + " " + family.help + "\n");
+            writer.write("# TYPE " + name + " " + family.type + "\n");
+            for(Map.Entry<String, Object> metricEntry : family.metrics.entrySet()) {
+                String labels = metricEntry.getKey();
+                Object metric = metricEntry.getValue();
+                if(metric instanceof Counter) {
+                    writeSample(writer, name, labels, ((Counter) metric).get());
+                } else if(metric instanceof DoubleSupplier) {
+                    writeSample(writer, name, labels, ((DoubleSupplier) metric).getAsDouble());
+                } else {
+                    writeHistogram(writer, name, labels, (Histogram) metric);
+                }
+            }
+        }
+        writer.flush();
+    }
+
+    private static void writeHistogram(Writer writer, String name, String labels, Histogram histogram) throws IOException {
+        String separator = labels.isEmpty() ? "" : ",";
+        double[] upperBounds = histogram.getUpperBounds();
+        long[] bucketCounts = histogram.getBucketCounts();
+        long cumulativeCount = 0;
+        for(int i = 0; i < upperBounds.length; i++) {
+            cumulativeCount += bucketCounts[i];
+            writeSample(writer, name + "_bucket", labels + separator + "le=\"" + upperBounds[i] + "\"", cumulativeCount);
+        }
+        cumulativeCount += bucketCounts[upperBounds.length];
+        writeSample(writer, name + "_bucket", labels + separator + "le=\"+Inf\"", cumulativeCount);
+        writeSample(writer, name + "_sum", labels, histogram.getSum());
+        // consistent with the +Inf bucket, even when observations happen while writing
+        writeSample(writer, name + "_count", labels, cumulativeCount);
+    }
+
+    private static void writeSample(Writer writer, String name, String labels, double value) throws IOException {
+        writer.write(name);
+        if(!labels.isEmpty()) {
+            writer.write("{" + labels + "}");
+        }
+        writer.write(" ");
+        writer.write(value == (long) value ? Long.toString((long) value) : Double.toString(value));
+        writer.write("\n");
+    }
+
+    private static class Family {
+        private final String help;
+        private final String type;
+        private final ConcurrentMap<String, Object> metrics = new ConcurrentHashMap<>();
+
+        Family(String help, String type) {
+            this.help = help;
+            this.type = type;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package de.bioforscher.efr.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * compact binary representation of a protein for clients which do not need the CSV text - all values are big-endian
+ * and stored column by column (in sequence order), which also lets generic compression (gzip) exploit the similarity
+ * of neighboring values:
+ * <pre>
+ * int      magic number 'EFRC'
+ * short    format version
+ * string   pdb id, chain id, title (each: int length, UTF-8 bytes - length -1 for absent values)
+ * int      number of residues n
+ * int      number of features m
+ * string   m feature names
+ * string   n residue identifiers
+ * byte     n one-letter codes
+ * byte     n reduced secondary structure elements
+ * float    m columns of n feature values
+ * float    n probabilities
+ * byte     ceil(n / 8) early folding flags, least significant bit first
+ * string   pdb representation (absent, if not requested)
+ * </pre>
+ */
+public class ColumnarProteinEncoder {
+    public static final String MEDIA_TYPE = "application/x-efr-columnar";
+    private static final int MAGIC_NUMBER = 0x45465243;
+    private static final short VERSION = 1;
+
+    private ColumnarProteinEncoder() {
+        // deny instantiation
+    }
+
+    /**
+     * @param protein the protein to encode
+     * @param includePdbRepresentation whether to append the coordinates
+     * @return the encoded protein
+     */
+    public static byte[] encode(Protein protein, boolean includePdbRepresentation) {
+        List<ResiduePrediction> predictions = protein.getPredictions()
+                .stream()
+                .sorted(Comparator.comparingInt(ResiduePrediction::getIndex))
+                .collect(Collectors.toList());
+        int residueCount = predictions.size();
+        int featureCount = ResiduePrediction.FEATURE_NAMES.size();
+
+        // features dominate the size: 4 bytes per value
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(256 + residueCount * (4 * featureCount + 16));
+        try(DataOutputStream outputStream = new DataOutputStream(byteArrayOutputStream)) {
+            outputStream.writeInt(MAGIC_NUMBER);
+            outputStream.writeShort(VERSION);
+            writeString(outputStream, protein.getPdbId());
+            writeString(outputStream, protein.getChainId());
+            writeString(outputStream, protein.getTitle());
+
+            outputStream.writeInt(residueCount);
+            outputStream.writeInt(featureCount);
+            for(String featureName : ResiduePrediction.FEATURE_NAMES) {
+                writeString(outputStream, featureName);
+            }
+            for(ResiduePrediction prediction : predictions) {
+                writeString(outputStream, prediction.getResidueIdentifier());
+            }
+            for(ResiduePrediction prediction : predictions) {
+                outputStream.writeByte(prediction.getOneLetterCode().charAt(0));
+            }
+            for(ResiduePrediction prediction : predictions) {
+                outputStream.writeByte(prediction.getSecondaryStructure().charAt(0));
+            }
+            for(int featureIndex = 0; featureIndex < featureCount; featureIndex++) {
+                for(ResiduePrediction prediction : predictions) {
+                    outputStream.writeFloat((float) prediction.getFeature(featureIndex));
+                }
+            }
+            for(ResiduePrediction prediction : predictions) {
+                outputStream.writeFloat((float) prediction.getProbability());
+            }
+            byte[] earlyFoldingFlags = new byte[(residueCount + 7) / 8];
+            for(int i = 0; i < residueCount; i++) {
+                if(predictions.get(i).isEarlyFolding()) {
+                    earlyFoldingFlags[i / 8] |= 1 << (i % 8);
+                }
+            }
+            outputStream.write(earlyFoldingFlags);
+            writeString(outputStream, includePdbRepresentation ? protein.getPdbRepresentation() : null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream outputStream, String value) throws IOException {
+        if(value == null) {
+            outputStream.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        outputStream.writeInt(bytes.length);
+        outputStream.write(bytes);
+    }
+}
@@ -0,0 +1,46 @@
+package de.bioforscher.efr.model;
+
+/**
+ * the schema of a {@link FeatureMatrix}: all residue-level features which are smoothed before classification
+ */
+public enum FeatureColumn {
+    SECONDARY_STRUCTURE_ELEMENT_SIZE("sse_size"),
+    LOCAL_HYDROGEN("plip_local_hbonds"),
+    LOCAL_HYDROPHOBIC("plip_local_hydrophobic"),
+    LOCAL_BACKBONE("plip_local_backbone"),
+    LOCAL_INTERACTIONS("plip_local_contacts"),
+    NON_LOCAL_HYDROGEN("plip_long_range_hbonds"),
+    NON_LOCAL_HYDROPHOBIC("plip_long_range_hydrophobic"),
+    NON_LOCAL_BACKBONE("plip_long_range_backbone"),
+    NON_LOCAL_INTERACTIONS("plip_long_range_contacts"),
+    ENERGY("energy"),
+    EGOR("egor"),
+    RASA("rasa"),
+    BETWEENNESS("plip_betweenness"),
+    CLOSENESS("plip_closeness"),
+    CLUSTERING_COEFFICIENT("plip_clusteringcoefficient"),
+    HYDROGEN_BETWEENNESS("plip_hbonds_betweenness"),
+    HYDROGEN_CLOSENESS("plip_hbonds_closeness"),
+    HYDROGEN_CLUSTERING_COEFFICIENT("plip_hbonds_clusteringcoefficient"),
+    HYDROPHOBIC_BETWEENNESS("plip_hydrophobic_betweenness"),
+    HYDROPHOBIC_CLOSENESS("plip_hydrophobic_closeness"),
+    HYDROPHOBIC_CLUSTERING_COEFFICIENT("plip_hydrophobic_clusteringcoefficient"),
+    CONV_BETWEENNESS("conv_betweenness"),
+    CONV_CLOSENESS("conv_closeness"),
+    CONV_CLUSTERING_COEFFICIENT("conv_clusteringcoefficient"),
+    DISTINCT_NEIGHBORHOODS("plip_neighborhoods"),
+    CONV_DISTINCT_NEIGHBORHOODS("conv_neighborhoods");
+
+    private final String columnName;
+
+    FeatureColumn(String columnName) {
+        this.columnName = columnName;
+    }
+
+    /**
+     * @return the name of this feature as used by the model and in CSV output
+     */
+    public String getColumnName() {
+        return columnName;
+    }
+}
@@ -0,0 +1,48 @@
+package de.bioforscher.efr.model;
+
+/**
+ * the residue-level features of a chain in a single primitive array (residues x {@link FeatureColumn}s) - stored
+ * column by column, so operations along the sequence (such as smoothing) access contiguous memory
+ */
+public class FeatureMatrix {
+    public static final int COLUMN_COUNT = FeatureColumn.values().length;
+    private final int rowCount;
+    private final double[] values;
+
+    /**
+     * @param rowCount the number of residues
+     */
+    public FeatureMatrix(int rowCount) {
+        this.rowCount = rowCount;
+        this.values = new double[rowCount * COLUMN_COUNT];
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public double get(int row, FeatureColumn column) {
+        return values[offset(column) + row];
+    }
+
+    public void set(int row, FeatureColumn column, double value) {
+        values[offset(column) + row] = value;
+    }
+
+    /**
+     * @param column the column
+     * @return the index of the first value of this column in {@link #getValues()}
+     */
+    public int offset(FeatureColumn column) {
+        return column.ordinal() * rowCount;
+    }
+
+    /**
+     * direct access to the backing array for tight loops - column <code>c</code> occupies the indices
+     * <code>[c * rowCount, (c + 1) * rowCount)</code>
+     * @return the backing array
+     */
+    public double[] getValues() {
+        return values;
+    }
+}
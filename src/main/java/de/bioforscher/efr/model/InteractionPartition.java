@@ -0,0 +1,107 @@
+package de.bioforscher.efr.model;
+
+import de.bioforscher.jstructure.feature.interaction.HydrogenBond;
+import de.bioforscher.jstructure.feature.interaction.HydrophobicInteraction;
+import de.bioforscher.jstructure.feature.interaction.PLIPInteraction;
+import de.bioforscher.jstructure.feature.interaction.PLIPInteractionContainer;
+
+/**
+ * the PLIP interactions of a residue counted by type - split into local interactions (partners close in sequence)
+ * and non-local ones, with every interaction visited exactly once
+ */
+public class InteractionPartition {
+    /**
+     * partners more than this many residues apart form a non-local interaction - the model was trained with this value
+     */
+    public static final int DEFAULT_SEPARATION = 5;
+    private int localInteractions;
+    private int localHydrogenBonds;
+    private int localHydrophobicInteractions;
+    private int localBackboneInteractions;
+    private int nonLocalInteractions;
+    private int nonLocalHydrogenBonds;
+    private int nonLocalHydrophobicInteractions;
+    private int nonLocalBackboneInteractions;
+
+    private InteractionPartition() {
+    }
+
+    /**
+     * partition with the {@link #DEFAULT_SEPARATION}
+     * @param plipInteractionContainer the interactions of a residue
+     * @return the counts
+     */
+    public static InteractionPartition of(PLIPInteractionContainer plipInteractionContainer) {
+        return of(plipInteractionContainer, DEFAULT_SEPARATION);
+    }
+
+    /**
+     * @param plipInteractionContainer the interactions of a residue
+     * @param separation the largest sequence separation of local interactions
+     * @return the counts
+     */
+    public static InteractionPartition of(PLIPInteractionContainer plipInteractionContainer, int separation) {
+        InteractionPartition partition = new InteractionPartition();
+        for(PLIPInteraction interaction : plipInteractionContainer.getInteractions()) {
+            boolean hydrogenBond = interaction instanceof HydrogenBond;
+            boolean hydrophobicInteraction = interaction instanceof HydrophobicInteraction;
+            boolean backboneInteraction = interaction.isBackboneInteraction();
+            if(Math.abs(interaction.getPartner1().getResidueIndex() - interaction.getPartner2().getResidueIndex()) > separation) {
+                partition.nonLocalInteractions++;
+                if(hydrogenBond) {
+                    partition.nonLocalHydrogenBonds++;
+                }
+                if(hydrophobicInteraction) {
+                    partition.nonLocalHydrophobicInteractions++;
+                }
+                if(backboneInteraction) {
+                    partition.nonLocalBackboneInteractions++;
+                }
+            } else {
+                partition.localInteractions++;
+                if(hydrogenBond) {
+                    partition.localHydrogenBonds++;
+                }
+                if(hydrophobicInteraction) {
+                    partition.localHydrophobicInteractions++;
+                }
+                if(backboneInteraction) {
+                    partition.localBackboneInteractions++;
+                }
+            }
+        }
+        return partition;
+    }
+
+    public int getLocalInteractions() {
+        return localInteractions;
+    }
+
+    public int getLocalHydrogenBonds() {
+        return localHydrogenBonds;
+    }
+
+    public int getLocalHydrophobicInteractions() {
+        return localHydrophobicInteractions;
+    }
+
+    public int getLocalBackboneInteractions() {
+        return localBackboneInteractions;
+    }
+
+    public int getNonLocalInteractions() {
+        return nonLocalInteractions;
+    }
+
+    public int getNonLocalHydrogenBonds() {
+        return nonLocalHydrogenBonds;
+    }
+
+    public int getNonLocalHydrophobicInteractions() {
+        return nonLocalHydrophobicInteractions;
+    }
+
+    public int getNonLocalBackboneInteractions() {
+        return nonLocalBackboneInteractions;
+    }
+}
@@ -0,0 +1,103 @@
+package de.bioforscher.efr.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * splits the per-residue work of large chains into contiguous ranges of rows, which are processed concurrently on a
+ * fork/join pool - chains below the threshold are processed by the calling thread, because splitting does not pay off
+ * for them; ranges only ever write to their own rows, so results do not depend on the number of threads
+ */
+public class ParallelRows {
+    public static final int DEFAULT_THRESHOLD = 1000;
+    /**
+     * processes every chain by the calling thread
+     */
+    public static final ParallelRows SEQUENTIAL = new ParallelRows(0);
+    private static final int MINIMUM_ROWS_PER_RANGE = 128;
+    private final int threshold;
+    private final ForkJoinPool pool;
+
+    /**
+     * process large chains on the common pool
+     * @param threshold the number of residues from which on chains are processed concurrently (0 - never)
+     */
+    public ParallelRows(int threshold) {
+        this(threshold, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param threshold the number of residues from which on chains are processed concurrently (0 - never)
+     * @param pool processes the ranges - its lifecycle is up to the caller
+     */
+    public ParallelRows(int threshold, ForkJoinPool pool) {
+        this.threshold = threshold > 0 ? threshold : Integer.MAX_VALUE;
+        this.pool = pool;
+    }
+
+    /**
+     * @param rowCount the number of residues
+     * @return <code>true</code> if chains of this size are processed concurrently
+     */
+    public boolean isParallel(int rowCount) {
+        return rowCount >= threshold;
+    }
+
+    /**
+     * process all rows - returns once every range is done
+     * @param rowCount the number of rows
+     * @param action invoked once per range - concurrently for large chains
+     */
+    public void forEachRange(int rowCount, RangeAction action) {
+        if(!isParallel(rowCount)) {
+            action.apply(0, rowCount);
+            return;
+        }
+
+        // a few ranges per thread balance the load, when some residues take longer than others
+        int rangeCount = Math.max(1, Math.min(4 * pool.getParallelism(), rowCount / MINIMUM_ROWS_PER_RANGE));
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(rangeCount);
+        for(int range = 0; range < rangeCount; range++) {
+            int from = (int) ((long) rowCount * range / rangeCount);
+            int to = (int) ((long) rowCount * (range + 1) / rangeCount);
+            tasks.add(pool.submit(() -> action.apply(from, to)));
+        }
+        tasks.forEach(ForkJoinTask::join);
+    }
+
+    /**
+     * process all columns of a feature matrix - e.g. operations along the sequence, which cannot be split into ranges
+     * of residues
+     * @param featureMatrix the matrix
+     * @param action invoked once per column - concurrently for large chains
+     */
+    public void forEachColumn(FeatureMatrix featureMatrix, Consumer<FeatureColumn> action) {
+        if(!isParallel(featureMatrix.getRowCount())) {
+            for(FeatureColumn column : FeatureColumn.values()) {
+                action.accept(column);
+            }
+            return;
+        }
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(FeatureColumn.values().length);
+        for(FeatureColumn column : FeatureColumn.values()) {
+            tasks.add(pool.submit(() -> action.accept(column)));
+        }
+        tasks.forEach(ForkJoinTask::join);
+    }
+
+    /**
+     * the work on a range of rows
+     */
+    @FunctionalInterface
+    public interface RangeAction {
+        /**
+         * @param from the first row (inclusive)
+         * @param to the last row (exclusive)
+         */
+        void apply(int from, int to);
+    }
+}
@@ -0,0 +1,128 @@
+package de.bioforscher.efr.model;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import de.bioforscher.jstructure.StandardFormat;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * writes residue predictions line by line (or object by object), so results can be streamed directly to a client
+ */
+public class PredictionWriter {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    public enum Format {
+        CSV(",", "text/csv"),
+        TSV("\t", "text/tab-separated-values"),
+        JSON(null, "application/json");
+
+        private final String delimiter;
+        private final String contentType;
+
+        Format(String delimiter, String contentType) {
+            this.delimiter = delimiter;
+            this.contentType = contentType;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+    }
+
+    private PredictionWriter() {
+        // deny instantiation
+    }
+
+    /**
+     * @param predictions the predictions in the order they are written
+     * @param format the output format
+     * @param writer the target - it is flushed, but not closed
+     */
+    public static void write(List<ResiduePrediction> predictions, Format format, Writer writer) throws IOException {
+        if(format == Format.JSON) {
+            writeJson(predictions, writer);
+        } else {
+            writeDelimited(predictions, format.delimiter, writer);
+        }
+        writer.flush();
+    }
+
+    /**
+     * @return the complete output as string
+     */
+    public static String toString(List<ResiduePrediction> predictions, Format format) {
+        StringWriter stringWriter = new StringWriter();
+        try {
+            write(predictions, format, stringWriter);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return stringWriter.toString();
+    }
+
+    private static void writeDelimited(List<ResiduePrediction> predictions, String delimiter, Writer writer) throws IOException {
+        writer.write("chain");
+        writer.write(delimiter);
+        writer.write("res");
+        writer.write(delimiter);
+        writer.write("aa");
+        writer.write(delimiter);
+        writer.write("sse");
+        for(String featureName : ResiduePrediction.FEATURE_NAMES) {
+            writer.write(delimiter);
+            writer.write(featureName);
+        }
+        writer.write(delimiter);
+        writer.write("prob");
+        writer.write(delimiter);
+        writer.write("folds");
+
+        for(ResiduePrediction prediction : predictions) {
+            writer.write(System.lineSeparator());
+            writer.write(prediction.getChainId());
+            writer.write(delimiter);
+            writer.write(prediction.getResidueIdentifier());
+            writer.write(delimiter);
+            writer.write(prediction.getOneLetterCode());
+            writer.write(delimiter);
+            writer.write(prediction.getSecondaryStructure());
+            for(int i = 0; i < ResiduePrediction.FEATURE_NAMES.size(); i++) {
+                writer.write(delimiter);
+                writer.write(StandardFormat.format(prediction.getFeature(i)));
+            }
+            writer.write(delimiter);
+            writer.write(StandardFormat.format(prediction.getProbability()));
+            writer.write(delimiter);
+            writer.write(prediction.isEarlyFolding() ? "early" : "late");
+        }
+    }
+
+    private static void writeJson(List<ResiduePrediction> predictions, Writer writer) throws IOException {
+        JsonGenerator generator = JSON_FACTORY.createGenerator(writer);
+        // the writer belongs to the caller
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.writeStartArray();
+        for(ResiduePrediction prediction : predictions) {
+            generator.writeStartObject();
+            generator.writeStringField("chain", prediction.getChainId());
+            generator.writeStringField("res", prediction.getResidueIdentifier());
+            generator.writeStringField("aa", prediction.getOneLetterCode());
+            generator.writeStringField("sse", prediction.getSecondaryStructure());
+            for(int i = 0; i < ResiduePrediction.FEATURE_NAMES.size(); i++) {
+                generator.writeFieldName(ResiduePrediction.FEATURE_NAMES.get(i));
+                generator.writeNumber(StandardFormat.format(prediction.getFeature(i)));
+            }
+            generator.writeFieldName("prob");
+            generator.writeNumber(StandardFormat.format(prediction.getProbability()));
+            generator.writeStringField("folds", prediction.isEarlyFolding() ? "early" : "late");
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.flush();
+    }
+}
@@ -1,37 +1,108 @@
 package de.bioforscher.efr.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import de.bioforscher.jstructure.model.structure.Chain;
 
+import java.io.Serializable;
 import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 
-public class Protein {
-    private final String csvRepresentation;
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class Protein implements Serializable {
+    private static final long serialVersionUID = 2L;
+    private final List<ResiduePrediction> predictions;
     private final String pdbRepresentation;
     private final List<String> earlyFoldingResidues;
     private final String pdbId;
     private final String chainId;
     private final String title;
+    private final boolean csvRepresentationOmitted;
 
+    /**
+     * @param predictions the predictions of all residues, ranked by their probability to be early folding
+     */
     public Protein(Chain chain,
-                   String csvRepresentation,
-                   List<String> earlyFoldingResidues) {
-        this.csvRepresentation = csvRepresentation;
+                   List<ResiduePrediction> predictions) {
+        this.predictions = predictions;
         this.pdbRepresentation = chain.getPdbRepresentation();
         this.pdbId = chain.getChainIdentifier().getProteinIdentifier().getPdbId();
         this.chainId = chain.getChainIdentifier().getChainId();
         this.title = chain.getParentStructure().getTitle();
+        this.earlyFoldingResidues = collectEarlyFoldingResidues(predictions);
+        this.csvRepresentationOmitted = false;
+    }
+
+    /**
+     * a protein restored from stored predictions - without coordinates, see {@link #withPdbRepresentation(String)}
+     * @param predictions the predictions of all residues, ranked by their probability to be early folding
+     */
+    public Protein(String pdbId,
+                   String chainId,
+                   String title,
+                   List<ResiduePrediction> predictions) {
+        this.predictions = predictions;
+        this.pdbRepresentation = null;
+        this.pdbId = pdbId;
+        this.chainId = chainId;
+        this.title = title;
+        this.earlyFoldingResidues = collectEarlyFoldingResidues(predictions);
+        this.csvRepresentationOmitted = false;
+    }
 
-        // sort efr again
-        this.earlyFoldingResidues = earlyFoldingResidues.stream()
-                //TODO may die on insertion codes
-                .sorted(Comparator.comparingInt(string -> Integer.valueOf(string.split("-")[1])))
+    private Protein(Protein protein, String pdbRepresentation, boolean csvRepresentationOmitted) {
+        this.predictions = protein.predictions;
+        this.pdbRepresentation = pdbRepresentation;
+        this.earlyFoldingResidues = protein.earlyFoldingResidues;
+        this.pdbId = protein.pdbId;
+        this.chainId = protein.chainId;
+        this.title = protein.title;
+        this.csvRepresentationOmitted = csvRepresentationOmitted;
+    }
+
+    private static List<String> collectEarlyFoldingResidues(List<ResiduePrediction> predictions) {
+        // report efr in sequence order
+        return predictions.stream()
+                .filter(ResiduePrediction::isEarlyFolding)
+                .sorted(Comparator.comparingInt(ResiduePrediction::getIndex))
+                .map(ResiduePrediction::getLabel)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * a lighter view of this protein for responses - omitted representations are not serialized at all
+     * @param includePdbRepresentation whether to keep the coordinates
+     * @param includeCsvRepresentation whether to keep the CSV representation
+     * @return this protein, if everything is included - a copy otherwise
+     */
+    public Protein select(boolean includePdbRepresentation, boolean includeCsvRepresentation) {
+        if(includePdbRepresentation && includeCsvRepresentation) {
+            return this;
+        }
+        return new Protein(this,
+                includePdbRepresentation ? pdbRepresentation : null,
+                csvRepresentationOmitted || !includeCsvRepresentation);
+    }
+
+    /**
+     * @param pdbRepresentation the coordinates of the chain
+     * @return a copy of this protein with the given coordinates
+     */
+    public Protein withPdbRepresentation(String pdbRepresentation) {
+        return new Protein(this, pdbRepresentation, csvRepresentationOmitted);
+    }
+
     public String getCsvRepresentation() {
-        return csvRepresentation;
+        if(csvRepresentationOmitted) {
+            return null;
+        }
+        return PredictionWriter.toString(predictions, PredictionWriter.Format.CSV);
+    }
+
+    @JsonIgnore
+    public List<ResiduePrediction> getPredictions() {
+        return predictions;
     }
 
     public String getPdbRepresentation() {
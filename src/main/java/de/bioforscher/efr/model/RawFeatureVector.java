@@ -1,5 +1,6 @@
 package de.bioforscher.efr.model;
 
+import de.bioforscher.efr.graph.TopologyCalculator;
 import de.bioforscher.jstructure.feature.asa.AccessibleSurfaceArea;
 import de.bioforscher.jstructure.feature.energyprofile.EgorAgreement;
 import de.bioforscher.jstructure.feature.energyprofile.EnergyProfile;
@@ -8,67 +9,133 @@ import de.bioforscher.jstructure.feature.sse.GenericSecondaryStructure;
 import de.bioforscher.jstructure.graph.ResidueTopologicPropertiesContainer;
 import de.bioforscher.jstructure.model.structure.aminoacid.AminoAcid;
 
-import java.util.stream.Collectors;
+import java.util.List;
 
-public class RawFeatureVector extends FeatureVector {
-    public RawFeatureVector(double secondaryStructureElementSize, double localHydrogen, double localHydrophobic, double localBackbone, double localInteractions, double nonLocalHydrogen, double nonLocalHydrophobic, double nonLocalBackbone, double nonLocalInteractions, double energy, double egor, double rasa, double betweenness, double closeness, double clusteringCoefficient, double hydrogenBetweenness, double hydrogenCloseness, double hydrogenClusteringCoefficient, double hydrophobicBetweenness, double hydrophobicCloseness, double hydrophobicClusteringCoefficient, double convBetweenness, double convCloseness, double convClusteringCoefficient, double distinctNeighborhoods, double convDistinctNeighborhoods) {
-        super(secondaryStructureElementSize, localHydrogen, localHydrophobic, localBackbone, localInteractions, nonLocalHydrogen, nonLocalHydrophobic, nonLocalBackbone, nonLocalInteractions, energy, egor, rasa, betweenness, closeness, clusteringCoefficient, hydrogenBetweenness, hydrogenCloseness, hydrogenClusteringCoefficient, hydrophobicBetweenness, hydrophobicCloseness, hydrophobicClusteringCoefficient, convBetweenness, convCloseness, convClusteringCoefficient, distinctNeighborhoods, convDistinctNeighborhoods);
+import static de.bioforscher.efr.model.FeatureColumn.*;
+
+/**
+ * gathers the raw (i.e. unsmoothed) features of amino acids
+ */
+public class RawFeatureVector {
+    private RawFeatureVector() {
+        // deny instantiation
+    }
+
+    /**
+     * gather the raw features of a whole chain
+     * @param aminoAcids the amino acids of the chain
+     * @return the feature matrix with one row per amino acid
+     */
+    public static FeatureMatrix createFeatureMatrix(List<AminoAcid> aminoAcids) {
+        return createFeatureMatrix(aminoAcids, InteractionPartition.DEFAULT_SEPARATION);
+    }
+
+    /**
+     * gather the raw features of a whole chain
+     * @param aminoAcids the amino acids of the chain
+     * @param separation the largest sequence separation of local interactions
+     * @return the feature matrix with one row per amino acid
+     */
+    public static FeatureMatrix createFeatureMatrix(List<AminoAcid> aminoAcids, int separation) {
+        return createFeatureMatrix(aminoAcids, separation, null);
+    }
+
+    /**
+     * gather the raw features of a whole chain
+     * @param aminoAcids the amino acids of the chain
+     * @param separation the largest sequence separation of local interactions
+     * @param topologyCalculator computes the topologic properties of the residue graphs - <code>null</code> to use the
+     *                           properties computed by jstructure
+     * @return the feature matrix with one row per amino acid
+     */
+    public static FeatureMatrix createFeatureMatrix(List<AminoAcid> aminoAcids,
+                                                    int separation,
+                                                    TopologyCalculator topologyCalculator) {
+        return createFeatureMatrix(aminoAcids, separation, topologyCalculator, ParallelRows.SEQUENTIAL);
+    }
+
+    /**
+     * gather the raw features of a whole chain - the features computed by the pipeline are only read, so residues
+     * can be processed concurrently
+     * @param aminoAcids the amino acids of the chain
+     * @param separation the largest sequence separation of local interactions
+     * @param topologyCalculator computes the topologic properties of the residue graphs - <code>null</code> to use the
+     *                           properties computed by jstructure
+     * @param parallelRows decides whether residues are processed concurrently
+     * @return the feature matrix with one row per amino acid
+     */
+    public static FeatureMatrix createFeatureMatrix(List<AminoAcid> aminoAcids,
+                                                    int separation,
+                                                    TopologyCalculator topologyCalculator,
+                                                    ParallelRows parallelRows) {
+        FeatureMatrix featureMatrix = new FeatureMatrix(aminoAcids.size());
+        parallelRows.forEachRange(aminoAcids.size(), (from, to) -> {
+            for(int row = from; row < to; row++) {
+                assignResidueFeatures(aminoAcids.get(row), featureMatrix, row, separation);
+            }
+        });
+        if(topologyCalculator == null) {
+            // jstructure computes the residue graphs of the whole chain on first access - this must not happen concurrently
+            for(int row = 0; row < aminoAcids.size(); row++) {
+                assignTopologicFeatures(aminoAcids.get(row), featureMatrix, row);
+            }
+        } else {
+            topologyCalculator.assignTopologicFeatures(aminoAcids, featureMatrix);
+        }
+        return featureMatrix;
+    }
+
+    public static void assignRawFeatureVector(AminoAcid aminoAcid, FeatureMatrix featureMatrix, int row) {
+        assignRawFeatureVector(aminoAcid, featureMatrix, row, InteractionPartition.DEFAULT_SEPARATION);
     }
 
-    public static void assignRawFeatureVector(AminoAcid aminoAcid) {
+    public static void assignRawFeatureVector(AminoAcid aminoAcid, FeatureMatrix featureMatrix, int row, int separation) {
+        assignResidueFeatures(aminoAcid, featureMatrix, row, separation);
+        assignTopologicFeatures(aminoAcid, featureMatrix, row);
+    }
+
+    private static void assignResidueFeatures(AminoAcid aminoAcid, FeatureMatrix featureMatrix, int row, int separation) {
         GenericSecondaryStructure sse = aminoAcid.getFeature(GenericSecondaryStructure.class);
 
-        PLIPInteractionContainer plipInteractionContainer = aminoAcid.getFeature(PLIPInteractionContainer.class);
-        PLIPInteractionContainer nonLocalPlipInteractionContainer = new PLIPInteractionContainer(null,
-                plipInteractionContainer
-                        .getInteractions()
-                        .stream()
-                        // interactions have to be non-local
-                        .filter(inter -> Math.abs(inter.getPartner1().getResidueIndex() - inter.getPartner2().getResidueIndex()) > 5)
-                        .collect(Collectors.toList()));
-        PLIPInteractionContainer localPlipInteractionContainer = new PLIPInteractionContainer(null,
-                plipInteractionContainer
-                        .getInteractions()
-                        .stream()
-                        // interactions have to be local
-                        .filter(inter -> !nonLocalPlipInteractionContainer.getInteractions().contains(inter))
-                        .collect(Collectors.toList()));
+        InteractionPartition interactionPartition = InteractionPartition.of(aminoAcid.getFeature(PLIPInteractionContainer.class),
+                separation);
+
+        // assign features to smooth
+        featureMatrix.set(row, SECONDARY_STRUCTURE_ELEMENT_SIZE, sse.getSurroundingSecondaryStructureElement(aminoAcid).getSize());
+
+        featureMatrix.set(row, LOCAL_HYDROGEN, interactionPartition.getLocalHydrogenBonds());
+        featureMatrix.set(row, LOCAL_HYDROPHOBIC, interactionPartition.getLocalHydrophobicInteractions());
+        featureMatrix.set(row, LOCAL_BACKBONE, interactionPartition.getLocalBackboneInteractions());
+        featureMatrix.set(row, LOCAL_INTERACTIONS, interactionPartition.getLocalInteractions());
 
+        featureMatrix.set(row, NON_LOCAL_HYDROGEN, interactionPartition.getNonLocalHydrogenBonds());
+        featureMatrix.set(row, NON_LOCAL_HYDROPHOBIC, interactionPartition.getNonLocalHydrophobicInteractions());
+        featureMatrix.set(row, NON_LOCAL_BACKBONE, interactionPartition.getNonLocalBackboneInteractions());
+        featureMatrix.set(row, NON_LOCAL_INTERACTIONS, interactionPartition.getNonLocalInteractions());
+
+        featureMatrix.set(row, ENERGY, aminoAcid.getFeature(EnergyProfile.class).getSolvationEnergy());
+        featureMatrix.set(row, EGOR, aminoAcid.getFeature(EgorAgreement.class).getEgorPrediction());
+
+        featureMatrix.set(row, RASA, aminoAcid.getFeature(AccessibleSurfaceArea.class).getRelativeAccessibleSurfaceArea());
+    }
+
+    private static void assignTopologicFeatures(AminoAcid aminoAcid, FeatureMatrix featureMatrix, int row) {
         ResidueTopologicPropertiesContainer residueTopologicPropertiesContainer =
                 aminoAcid.getFeature(ResidueTopologicPropertiesContainer.class);
 
-        // assign features to smooth
-        RawFeatureVector featureVector = new RawFeatureVector(sse.getSurroundingSecondaryStructureElement(aminoAcid).getSize(),
-                localPlipInteractionContainer.getHydrogenBonds().size(),
-                localPlipInteractionContainer.getHydrophobicInteractions().size(),
-                localPlipInteractionContainer.getBackboneInteractions().size(),
-                localPlipInteractionContainer.getInteractions().size(),
-
-                nonLocalPlipInteractionContainer.getHydrogenBonds().size(),
-                nonLocalPlipInteractionContainer.getHydrophobicInteractions().size(),
-                nonLocalPlipInteractionContainer.getBackboneInteractions().size(),
-                nonLocalPlipInteractionContainer.getInteractions().size(),
-
-                aminoAcid.getFeature(EnergyProfile.class).getSolvationEnergy(),
-                aminoAcid.getFeature(EgorAgreement.class).getEgorPrediction(),
-
-                aminoAcid.getFeature(AccessibleSurfaceArea.class).getRelativeAccessibleSurfaceArea(),
-
-                residueTopologicPropertiesContainer.getFullPlip().getBetweenness(),
-                residueTopologicPropertiesContainer.getFullPlip().getCloseness(),
-                residueTopologicPropertiesContainer.getFullPlip().getClusteringCoefficient(),
-                residueTopologicPropertiesContainer.getHydrogenPlip().getBetweenness(),
-                residueTopologicPropertiesContainer.getHydrogenPlip().getCloseness(),
-                residueTopologicPropertiesContainer.getHydrogenPlip().getClusteringCoefficient(),
-                residueTopologicPropertiesContainer.getHydrophobicPlip().getBetweenness(),
-                residueTopologicPropertiesContainer.getHydrophobicPlip().getCloseness(),
-                residueTopologicPropertiesContainer.getHydrophobicPlip().getClusteringCoefficient(),
-                residueTopologicPropertiesContainer.getConventional().getBetweenness(),
-                residueTopologicPropertiesContainer.getConventional().getCloseness(),
-                residueTopologicPropertiesContainer.getConventional().getClusteringCoefficient(),
-                residueTopologicPropertiesContainer.getFullPlip().getDistinctNeighborhoodCount(),
-                residueTopologicPropertiesContainer.getConventional().getDistinctNeighborhoodCount());
-
-        aminoAcid.getFeatureContainer().addFeature(featureVector);
+        featureMatrix.set(row, BETWEENNESS, residueTopologicPropertiesContainer.getFullPlip().getBetweenness());
+        featureMatrix.set(row, CLOSENESS, residueTopologicPropertiesContainer.getFullPlip().getCloseness());
+        featureMatrix.set(row, CLUSTERING_COEFFICIENT, residueTopologicPropertiesContainer.getFullPlip().getClusteringCoefficient());
+        featureMatrix.set(row, HYDROGEN_BETWEENNESS, residueTopologicPropertiesContainer.getHydrogenPlip().getBetweenness());
+        featureMatrix.set(row, HYDROGEN_CLOSENESS, residueTopologicPropertiesContainer.getHydrogenPlip().getCloseness());
+        featureMatrix.set(row, HYDROGEN_CLUSTERING_COEFFICIENT, residueTopologicPropertiesContainer.getHydrogenPlip().getClusteringCoefficient());
+        featureMatrix.set(row, HYDROPHOBIC_BETWEENNESS, residueTopologicPropertiesContainer.getHydrophobicPlip().getBetweenness());
+        featureMatrix.set(row, HYDROPHOBIC_CLOSENESS, residueTopologicPropertiesContainer.getHydrophobicPlip().getCloseness());
+        featureMatrix.set(row, HYDROPHOBIC_CLUSTERING_COEFFICIENT, residueTopologicPropertiesContainer.getHydrophobicPlip().getClusteringCoefficient());
+        featureMatrix.set(row, CONV_BETWEENNESS, residueTopologicPropertiesContainer.getConventional().getBetweenness());
+        featureMatrix.set(row, CONV_CLOSENESS, residueTopologicPropertiesContainer.getConventional().getCloseness());
+        featureMatrix.set(row, CONV_CLUSTERING_COEFFICIENT, residueTopologicPropertiesContainer.getConventional().getClusteringCoefficient());
+        featureMatrix.set(row, DISTINCT_NEIGHBORHOODS, residueTopologicPropertiesContainer.getFullPlip().getDistinctNeighborhoodCount());
+        featureMatrix.set(row, CONV_DISTINCT_NEIGHBORHOODS, residueTopologicPropertiesContainer.getConventional().getDistinctNeighborhoodCount());
     }
 }
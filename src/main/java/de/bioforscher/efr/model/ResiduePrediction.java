@@ -0,0 +1,134 @@
+package de.bioforscher.efr.model;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * the classification of a single residue along with the features it is based on
+ */
+public class ResiduePrediction implements Serializable {
+    private static final long serialVersionUID = 1L;
+    /**
+     * the features in the order the model expects them
+     */
+    public static final List<String> FEATURE_NAMES = Collections.unmodifiableList(Arrays.asList("energy",
+            "egor",
+            "sse_size",
+            "loop_fraction",
+            "rasa",
+            "plip_local_contacts",
+            "plip_local_hbonds",
+            "plip_local_hydrophobic",
+            "plip_local_backbone",
+            "plip_long_range_contacts",
+            "plip_long_range_hbonds",
+            "plip_long_range_hydrophobic",
+            "plip_long_range_backbone",
+            "plip_betweenness",
+            "plip_closeness",
+            "plip_clusteringcoefficient",
+            "plip_hbonds_betweenness",
+            "plip_hbonds_closeness",
+            "plip_hbonds_clusteringcoefficient",
+            "plip_hydrophobic_betweenness",
+            "plip_hydrophobic_closeness",
+            "plip_hydrophobic_clusteringcoefficient",
+            "conv_betweenness",
+            "conv_closeness",
+            "conv_clusteringcoefficient",
+            "plip_neighborhoods",
+            "conv_neighborhoods"));
+    private final int index;
+    private final String chainId;
+    private final String residueIdentifier;
+    private final String oneLetterCode;
+    private final String secondaryStructure;
+    private final double[] features;
+    private final double probability;
+    private final boolean earlyFolding;
+
+    /**
+     * @param index the position of the residue in its chain
+     * @param features the values of all {@link #FEATURE_NAMES} - normalized, when the residue was scored by the model
+     */
+    public ResiduePrediction(int index,
+                             String chainId,
+                             String residueIdentifier,
+                             String oneLetterCode,
+                             String secondaryStructure,
+                             double[] features,
+                             double probability,
+                             boolean earlyFolding) {
+        this.index = index;
+        this.chainId = chainId;
+        this.residueIdentifier = residueIdentifier;
+        this.oneLetterCode = oneLetterCode;
+        this.secondaryStructure = secondaryStructure;
+        this.features = features;
+        this.probability = probability;
+        this.earlyFolding = earlyFolding;
+    }
+
+    /**
+     * read a prediction from a line of the CSV representation
+     * @param line the line (the header is not allowed)
+     * @param index the position of the residue in its chain
+     * @return the prediction
+     */
+    public static ResiduePrediction parseCsvLine(String line, int index) {
+        String[] split = line.split(",");
+        double[] features = new double[FEATURE_NAMES.size()];
+        for(int i = 0; i < features.length; i++) {
+            features[i] = Double.parseDouble(split[4 + i]);
+        }
+        return new ResiduePrediction(index,
+                split[0],
+                split[1],
+                split[2],
+                split[3],
+                features,
+                Double.parseDouble(split[4 + features.length]),
+                "early".equals(split[5 + features.length]));
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getChainId() {
+        return chainId;
+    }
+
+    public String getResidueIdentifier() {
+        return residueIdentifier;
+    }
+
+    public String getOneLetterCode() {
+        return oneLetterCode;
+    }
+
+    public String getSecondaryStructure() {
+        return secondaryStructure;
+    }
+
+    public double getFeature(int featureIndex) {
+        return features[featureIndex];
+    }
+
+    public double getProbability() {
+        return probability;
+    }
+
+    public boolean isEarlyFolding() {
+        return earlyFolding;
+    }
+
+    /**
+     * @return the short representation used by the front end, e.g. A-42
+     */
+    public String getLabel() {
+        return oneLetterCode + "-" + residueIdentifier;
+    }
+}
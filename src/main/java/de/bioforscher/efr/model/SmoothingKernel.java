@@ -0,0 +1,41 @@
+package de.bioforscher.efr.model;
+
+/**
+ * the weighting of neighboring residues during smoothing
+ */
+public enum SmoothingKernel {
+    /**
+     * all residues in the window contribute equally - the smoothing the model was trained with
+     */
+    MEAN,
+    /**
+     * weights decay with a standard deviation of half the window size
+     */
+    GAUSSIAN,
+    /**
+     * weights decay linearly towards the window borders
+     */
+    TRIANGULAR;
+
+    /**
+     * @param windowSize the number of residues considered in each direction
+     * @return the weight of each sequence separation from 0 to <code>windowSize</code>
+     */
+    double[] weights(int windowSize) {
+        double[] weights = new double[windowSize + 1];
+        double sigma = Math.max(windowSize / 2.0, 1.0);
+        for(int distance = 0; distance <= windowSize; distance++) {
+            switch (this) {
+                case GAUSSIAN:
+                    weights[distance] = Math.exp(-(distance * distance) / (2 * sigma * sigma));
+                    break;
+                case TRIANGULAR:
+                    weights[distance] = windowSize + 1 - distance;
+                    break;
+                default:
+                    weights[distance] = 1;
+            }
+        }
+        return weights;
+    }
+}
@@ -1,92 +1,161 @@
 package de.bioforscher.efr.model;
 
-import de.bioforscher.jstructure.model.structure.aminoacid.AminoAcid;
-
-import java.util.List;
-import java.util.function.ToDoubleFunction;
-
+/**
+ * averages each feature over a window of neighboring residues (by default the residue itself and up to 4 residues in
+ * N- and C-terminal direction) - all features of a chain are smoothed in place; each window is summed anew, so a chain
+ * of n residues takes n * (2 * window size + 1) additions per feature, because running sums would not reproduce the
+ * features the model was trained with bit by bit
+ */
 public class ValueSmoother {
-    public static void smoothValues(List<AminoAcid> aminoAcidsToSmooth, AminoAcid aminoAcid) {
-        double secondaryStructureElementSize = smoothValue(aminoAcidsToSmooth, FeatureVector::getSecondaryStructureElementSize);
-
-        double localHydrogen = smoothValue(aminoAcidsToSmooth, FeatureVector::getLocalHydrogen);
-        double localHydrophobic = smoothValue(aminoAcidsToSmooth, FeatureVector::getLocalHydrophobic);
-        double localBackbone = smoothValue(aminoAcidsToSmooth, FeatureVector::getLocalBackbone);
-        double localInteractions = smoothValue(aminoAcidsToSmooth, FeatureVector::getLocalInteractions);
-
-        double nonLocalHydrogen = smoothValue(aminoAcidsToSmooth, FeatureVector::getNonLocalHydrogen);
-        double nonLocalHydrophobic = smoothValue(aminoAcidsToSmooth, FeatureVector::getNonLocalHydrophobic);
-        double nonLocalBackbone = smoothValue(aminoAcidsToSmooth, FeatureVector::getNonLocalBackbone);
-        double nonLocalInteractions = smoothValue(aminoAcidsToSmooth, FeatureVector::getNonLocalInteractions);
-
-        double energy = smoothValue(aminoAcidsToSmooth, FeatureVector::getEnergy);
-        double egor = smoothValue(aminoAcidsToSmooth, FeatureVector::getEgor);
-
-        double rasa = smoothValue(aminoAcidsToSmooth, FeatureVector::getRasa);
-
-        double betweenness = smoothValue(aminoAcidsToSmooth, FeatureVector::getBetweenness);
-        double closeness = smoothValue(aminoAcidsToSmooth, FeatureVector::getCloseness);
-        double clusteringCoefficient = smoothValue(aminoAcidsToSmooth, FeatureVector::getClusteringCoefficient);
-
-        double hydrogenBetweenness = smoothValue(aminoAcidsToSmooth, FeatureVector::getHydrogenBetweenness);
-        double hydrogenCloseness = smoothValue(aminoAcidsToSmooth, FeatureVector::getHydrogenCloseness);
-        double hydrogenClusteringCoefficient = smoothValue(aminoAcidsToSmooth, FeatureVector::getHydrogenClusteringCoefficient);
-
-        double hydrophobicBetweenness = smoothValue(aminoAcidsToSmooth, FeatureVector::getHydrophobicBetweenness);
-        double hydrophobicCloseness = smoothValue(aminoAcidsToSmooth, FeatureVector::getHydrophobicCloseness);
-        double hydrophobicClusteringCoefficient = smoothValue(aminoAcidsToSmooth, FeatureVector::getHydrophobicClusteringCoefficient);
-
-        double convBetweenness = smoothValue(aminoAcidsToSmooth, FeatureVector::getConvBetweenness);
-        double convCloseness = smoothValue(aminoAcidsToSmooth, FeatureVector::getConvCloseness);
-        double convClusteringCoefficient = smoothValue(aminoAcidsToSmooth, FeatureVector::getConvClusteringCoefficient);
-
-        double distinctNeighborhoods = smoothValue(aminoAcidsToSmooth, FeatureVector::getDistinctNeighborhoods);
-        double convDistinctNeighborhoods = smoothValue(aminoAcidsToSmooth, FeatureVector::getConvDistinctNeighborhoods);
-
-        SmoothedFeatureVector smoothedFeatureVector = new SmoothedFeatureVector(secondaryStructureElementSize,
+    public static final int DEFAULT_WINDOW_SIZE = 4;
+    public static final ValueSmoother DEFAULT = new ValueSmoother(SmoothingKernel.MEAN, DEFAULT_WINDOW_SIZE);
+    private final SmoothingKernel kernel;
+    private final int windowSize;
+    private final double[] weights;
+
+    /**
+     * @param kernel the weighting of neighboring residues
+     * @param windowSize the number of residues considered in each direction
+     */
+    public ValueSmoother(SmoothingKernel kernel, int windowSize) {
+        if(windowSize < 0) {
+            throw new IllegalArgumentException("window size must not be negative");
+        }
+        this.kernel = kernel;
+        this.windowSize = windowSize;
+        this.weights = kernel.weights(windowSize);
+    }
 
-                localHydrogen,
-                localHydrophobic,
-                localBackbone,
-                localInteractions,
+    /**
+     * smooth all features in place by the default smoother
+     * @param featureMatrix the raw features, which will be replaced by their smoothed values
+     */
+    public static void smoothValues(FeatureMatrix featureMatrix) {
+        DEFAULT.smooth(featureMatrix);
+    }
 
-                nonLocalHydrogen,
-                nonLocalHydrophobic,
-                nonLocalBackbone,
-                nonLocalInteractions,
+    /**
+     * smooth all features in place by the default smoother
+     * @param featureMatrix the raw features, which will be replaced by their smoothed values
+     * @param parallelRows decides whether columns are smoothed concurrently
+     */
+    public static void smoothValues(FeatureMatrix featureMatrix, ParallelRows parallelRows) {
+        DEFAULT.smooth(featureMatrix, parallelRows);
+    }
 
-                energy,
-                egor,
+    /**
+     * smooth all features in place
+     * @param featureMatrix the raw features, which will be replaced by their smoothed values
+     */
+    public void smooth(FeatureMatrix featureMatrix) {
+        smooth(featureMatrix, ParallelRows.SEQUENTIAL);
+    }
 
-                rasa,
+    /**
+     * smooth all features in place - columns are independent of each other, so large chains are smoothed column by
+     * column concurrently
+     * @param featureMatrix the raw features, which will be replaced by their smoothed values
+     * @param parallelRows decides whether columns are smoothed concurrently
+     */
+    public void smooth(FeatureMatrix featureMatrix, ParallelRows parallelRows) {
+        // raw values of the preceding residues, which have already been overwritten - one buffer per column
+        parallelRows.forEachColumn(featureMatrix, column -> smooth(featureMatrix, column, new double[windowSize + 1]));
+    }
 
-                betweenness,
-                closeness,
-                clusteringCoefficient,
+    private void smooth(FeatureMatrix featureMatrix, FeatureColumn column, double[] history) {
+        if(kernel == SmoothingKernel.MEAN) {
+            smoothByMean(featureMatrix, featureMatrix.offset(column), history);
+        } else {
+            smoothByWeights(featureMatrix, featureMatrix.offset(column), history);
+        }
+    }
 
-                hydrogenBetweenness,
-                hydrogenCloseness,
-                hydrogenClusteringCoefficient,
+    /**
+     * the mean of a window - the model was trained on the results of {@link java.util.stream.DoubleStream#average()} of
+     * Java 8 over the residue itself, its N-terminal and then its C-terminal neighbors, so values are summed in exactly
+     * this order and by the same compensated summation to reproduce these results bit by bit
+     */
+    private void smoothByMean(FeatureMatrix featureMatrix, int offset, double[] history) {
+        int rowCount = featureMatrix.getRowCount();
+        double[] values = featureMatrix.getValues();
+        int historySize = history.length;
+        // compensated sum, its compensation and the simple sum
+        double[] sum = new double[3];
+
+        for(int row = 0; row < rowCount; row++) {
+            double value = values[offset + row];
+            sum[0] = 0;
+            sum[1] = 0;
+            sum[2] = 0;
+            int count = 1;
+            add(sum, value);
+
+            for(int distance = 1; distance <= windowSize && row - distance > -1; distance++) {
+                add(sum, history[(row - distance) % historySize]);
+                count++;
+            }
+            for(int distance = 1; distance <= windowSize && row + distance < rowCount; distance++) {
+                add(sum, values[offset + row + distance]);
+                count++;
+            }
+
+            history[row % historySize] = value;
+            values[offset + row] = finalSum(sum) / count;
+        }
+    }
 
-                hydrophobicBetweenness,
-                hydrophobicCloseness,
-                hydrophobicClusteringCoefficient,
+    private static void add(double[] sum, double value) {
+        double compensatedValue = value - sum[1];
+        double velvel = sum[0] + compensatedValue;
+        sum[1] = (velvel - sum[0]) - compensatedValue;
+        sum[0] = velvel;
+        sum[2] += value;
+    }
 
-                convBetweenness,
-                convCloseness,
-                convClusteringCoefficient,
+    private static double finalSum(double[] sum) {
+        // Java 8 adds the compensation, later runtimes subtract it - the model was trained on Java 8
+        double compensatedSum = sum[0] + sum[1];
+        // infinite values cannot be compensated
+        if(Double.isNaN(compensatedSum) && Double.isInfinite(sum[2])) {
+            return sum[2];
+        }
+        return compensatedSum;
+    }
 
-                distinctNeighborhoods,
-                convDistinctNeighborhoods);
+    /**
+     * weighted mean of a window - residues missing at the chain termini do not contribute to the normalization
+     */
+    private void smoothByWeights(FeatureMatrix featureMatrix, int offset, double[] history) {
+        int rowCount = featureMatrix.getRowCount();
+        double[] values = featureMatrix.getValues();
+        int historySize = history.length;
+
+        for(int row = 0; row < rowCount; row++) {
+            double value = values[offset + row];
+            double weightedSum = weights[0] * value;
+            double weightSum = weights[0];
+
+            for(int distance = 1; distance <= windowSize; distance++) {
+                if(row - distance > -1) {
+                    weightedSum += weights[distance] * history[(row - distance) % historySize];
+                    weightSum += weights[distance];
+                }
+                if(row + distance < rowCount) {
+                    weightedSum += weights[distance] * values[offset + row + distance];
+                    weightSum += weights[distance];
+                }
+            }
+
+            history[row % historySize] = value;
+            values[offset + row] = weightedSum / weightSum;
+        }
+    }
 
-        aminoAcid.getFeatureContainer().addFeature(smoothedFeatureVector);
+    public SmoothingKernel getKernel() {
+        return kernel;
     }
 
-    private static double smoothValue(List<AminoAcid> aminoAcidsToSmooth, ToDoubleFunction<FeatureVector> mapping) {
-        return aminoAcidsToSmooth.stream()
-                .map(aminoAcid -> aminoAcid.getFeature(RawFeatureVector.class))
-                .mapToDouble(mapping)
-                .average()
-                .orElseThrow(() -> new IllegalArgumentException("could not compute average"));
+    public int getWindowSize() {
+        return windowSize;
     }
-}
\ No newline at end of file
+}
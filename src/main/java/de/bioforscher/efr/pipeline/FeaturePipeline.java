@@ -0,0 +1,205 @@
+package de.bioforscher.efr.pipeline;
+
+import de.bioforscher.efr.metrics.MetricsRegistry;
+import de.bioforscher.jstructure.model.feature.ComputationException;
+import de.bioforscher.jstructure.model.structure.Chain;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * executes a set of {@link FeatureStage}s on one or more chains - stages without mutual dependencies are prepared concurrently by
+ * the given executor, so e.g. remote queries overlap with local computations, whereas all writes to feature containers are
+ * serialized, because feature containers are not thread-safe - once a stage fails, pending stages are cancelled and
+ * stages still running discard their results
+ */
+public class FeaturePipeline {
+    private static final Logger logger = LoggerFactory.getLogger(FeaturePipeline.class);
+    private final List<FeatureStage<?>> stages;
+    private final Executor executor;
+
+    /**
+     * @param executor prepares the stages - a {@link ForkJoinPool}, if stages wait for remote services (see
+     *                 {@link #block(Callable)}); its lifecycle is up to the caller
+     * @param stages the stages in topological order, i.e. each stage has to be declared after all stages providing
+     *               features it requires
+     */
+    public FeaturePipeline(Executor executor, FeatureStage<?>... stages) {
+        this.executor = executor;
+        this.stages = Collections.unmodifiableList(Arrays.asList(stages));
+
+        Set<String> provided = new HashSet<>();
+        for(FeatureStage<?> stage : this.stages) {
+            for(String requirement : stage.getRequires()) {
+                if(!provided.contains(requirement)) {
+                    throw new IllegalArgumentException("stage '" + stage.getName() + "' requires '" + requirement +
+                            "', which is not provided by any preceding stage");
+                }
+            }
+            provided.addAll(stage.getProvides());
+        }
+    }
+
+    public List<FeatureStage<?>> getStages() {
+        return stages;
+    }
+
+    /**
+     * annotate a chain by running all stages
+     * @param chain the chain to annotate
+     * @throws ComputationException when any stage fails - the first failure is reported immediately
+     */
+    public void process(Chain chain) {
+        process(Collections.singletonList(chain));
+    }
+
+    /**
+     * annotate several chains of the same structure at once - structure-level stages run only once
+     * @param chains the chains to annotate
+     * @throws ComputationException when any stage fails - the first failure is reported immediately
+     */
+    public void process(List<Chain> chains) {
+        process(chains, ProgressListener.NONE);
+    }
+
+    /**
+     * annotate several chains of the same structure at once - structure-level stages run only once
+     * @param chains the chains to annotate
+     * @param progressListener notified whenever a stage finished
+     * @throws ComputationException when any stage fails - the first failure is reported immediately
+     */
+    public void process(List<Chain> chains, ProgressListener progressListener) {
+        if(chains.isEmpty() || chains.stream().map(Chain::getParentStructure).distinct().count() > 1) {
+            throw new IllegalArgumentException("chains have to stem from a single structure");
+        }
+
+        // guards the feature containers of these chains and their parent structure
+        ReadWriteLock featureLock = new ReentrantReadWriteLock();
+        Map<String, CompletableFuture<Void>> providers = new HashMap<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        CompletableFuture<Void> failure = new CompletableFuture<>();
+
+        for(FeatureStage<?> stage : stages) {
+            CompletableFuture<Void> future = CompletableFuture.allOf(stage.getRequires()
+                    .stream()
+                    .map(providers::get)
+                    .toArray(CompletableFuture[]::new))
+                    .thenRunAsync(() -> runStage(stage, chains, featureLock, failure, progressListener), executor);
+            stage.getProvides().forEach(feature -> providers.put(feature, future));
+            futures.add(future);
+        }
+        for(CompletableFuture<Void> future : futures) {
+            future.whenComplete((result, throwable) -> {
+                if(throwable != null && failure.completeExceptionally(throwable)) {
+                    futures.forEach(pending -> pending.cancel(false));
+                }
+            });
+        }
+
+        try {
+            CompletableFuture.anyOf(CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])), failure).join();
+        } catch (CompletionException e) {
+            // wait for a stage still writing - all others see the failure and leave the chains untouched
+            featureLock.writeLock().lock();
+            featureLock.writeLock().unlock();
+            Throwable cause = e.getCause();
+            if(cause instanceof ComputationException) {
+                throw (ComputationException) cause;
+            }
+            throw new ComputationException(cause);
+        }
+    }
+
+    private <R> void runStage(FeatureStage<R> stage,
+                              List<Chain> chains,
+                              ReadWriteLock featureLock,
+                              CompletableFuture<Void> failure,
+                              ProgressListener progressListener) {
+        if(failure.isDone()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        String target = chains.stream()
+                .map(chain -> chain.getChainIdentifier().getFullName())
+                .collect(Collectors.joining(", "));
+        logger.info("[{}] {}",
+                target,
+                stage.getName());
+
+        R prepared = stage.prepare(chains, featureLock.readLock());
+        featureLock.writeLock().lock();
+        try {
+            // the caller already gave up on these chains
+            if(failure.isDone()) {
+                logger.info("[{}] discarding {}, another stage failed",
+                        target,
+                        stage.getName());
+                return;
+            }
+            stage.apply(chains, prepared);
+        } finally {
+            featureLock.writeLock().unlock();
+        }
+
+        // named after the first feature, e.g. plip or rasa
+        String stageName = stage.getProvides().iterator().next();
+        MetricsRegistry.getDefault()
+                .histogram("efr_stage_duration_seconds", "time spent in each stage of the classification", "stage", stageName)
+                .observeNanos(System.nanoTime() - startNanos);
+        progressListener.onProgress(stageName, "finished " + stage.getName());
+        logger.info("[{}] finished {} in {} ms",
+                target,
+                stage.getName(),
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * run a blocking operation (e.g. network I/O) on a fork/join pool without starving it - the pool may compensate
+     * by activating a spare thread in the meantime
+     * @param callable the blocking operation
+     * @param <T> the type of the result
+     * @return the result
+     * @throws Exception when the operation fails
+     */
+    static <T> T block(Callable<T> callable) throws Exception {
+        BlockingOperation<T> blockingOperation = new BlockingOperation<>(callable);
+        ForkJoinPool.managedBlock(blockingOperation);
+        if(blockingOperation.exception != null) {
+            throw blockingOperation.exception;
+        }
+        return blockingOperation.result;
+    }
+
+    private static class BlockingOperation<T> implements ForkJoinPool.ManagedBlocker {
+        private final Callable<T> callable;
+        private boolean done;
+        private T result;
+        private Exception exception;
+
+        BlockingOperation(Callable<T> callable) {
+            this.callable = callable;
+        }
+
+        @Override
+        public boolean block() {
+            try {
+                result = callable.call();
+            } catch (Exception e) {
+                exception = e;
+            }
+            done = true;
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return done;
+        }
+    }
+}
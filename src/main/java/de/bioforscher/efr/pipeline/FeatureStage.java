@@ -0,0 +1,142 @@
+package de.bioforscher.efr.pipeline;
+
+import de.bioforscher.jstructure.model.feature.FeatureContainer;
+import de.bioforscher.jstructure.model.feature.FeatureContainerEntry;
+import de.bioforscher.jstructure.model.structure.Chain;
+import de.bioforscher.jstructure.model.structure.Group;
+import de.bioforscher.jstructure.model.structure.Structure;
+
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * one step of the {@link FeaturePipeline}: declares the features it requires and provides and is split into a
+ * preparation phase, which must not write to any feature container and runs concurrently with other stages (thus, it
+ * should do all the expensive work), and an application phase, which writes results to the feature containers and is
+ * serialized by the pipeline
+ * @param <R> the type of the intermediate result passed from preparation to application
+ */
+public abstract class FeatureStage<R> {
+    private final String name;
+    private final Set<String> requires;
+    private final Set<String> provides;
+
+    protected FeatureStage(String name, Set<String> requires, Set<String> provides) {
+        this.name = name;
+        this.requires = Collections.unmodifiableSet(requires);
+        this.provides = Collections.unmodifiableSet(provides);
+    }
+
+    /**
+     * gather everything needed to annotate the chains - e.g. query remote services
+     * @param chains the chains to annotate, all of them belong to the same structure
+     * @return the intermediate result, may be <code>null</code>
+     */
+    protected R prepare(List<Chain> chains) {
+        return null;
+    }
+
+    /**
+     * gather everything needed to annotate the chains, reading feature containers is allowed while holding the given
+     * lock - by default, {@link #prepare(List)} is invoked
+     * @param chains the chains to annotate, all of them belong to the same structure
+     * @param readLock prevents other stages from writing to feature containers while held
+     * @return the intermediate result, may be <code>null</code>
+     */
+    protected R prepare(List<Chain> chains, Lock readLock) {
+        return prepare(chains);
+    }
+
+    /**
+     * write the features of this stage to the chains or their parent structure
+     * @param chains the chains to annotate, all of them belong to the same structure
+     * @param prepared the result of {@link #prepare(List)}
+     */
+    protected abstract void apply(List<Chain> chains, R prepared);
+
+    public String getName() {
+        return name;
+    }
+
+    public Set<String> getRequires() {
+        return requires;
+    }
+
+    public Set<String> getProvides() {
+        return provides;
+    }
+
+    /**
+     * wrap a structure-level calculator, which computes and writes features in a single step - it processes a copy of
+     * the structure during preparation, the features it added are transferred to the structure afterwards
+     * @param name the name of the stage
+     * @param calculator the calculator to invoke once on the parent structure of the chains
+     * @param provides the features provided by this stage
+     * @return the stage
+     */
+    public static FeatureStage<Structure> ofCalculator(String name, Consumer<Structure> calculator, String... provides) {
+        return ofCalculator(name, calculator, new String[0], provides);
+    }
+
+    /**
+     * wrap a structure-level calculator, which depends on other features
+     * @param name the name of the stage
+     * @param calculator the calculator to invoke once on the parent structure of the chains
+     * @param requires the features required by this stage
+     * @param provides the features provided by this stage
+     * @return the stage
+     */
+    public static FeatureStage<Structure> ofCalculator(String name, Consumer<Structure> calculator, String[] requires, String... provides) {
+        return new FeatureStage<Structure>(name, new LinkedHashSet<>(Arrays.asList(requires)), new LinkedHashSet<>(Arrays.asList(provides))) {
+            @Override
+            protected Structure prepare(List<Chain> chains, Lock readLock) {
+                Structure copy;
+                readLock.lock();
+                try {
+                    copy = chains.get(0).getParentStructure().createDeepCopy();
+                } finally {
+                    readLock.unlock();
+                }
+                calculator.accept(copy);
+                return copy;
+            }
+
+            @Override
+            protected void apply(List<Chain> chains, Structure copy) {
+                Structure structure = chains.get(0).getParentStructure();
+                transferFeatures(copy.getFeatureContainer(), structure.getFeatureContainer());
+                transferFeatures(copy.chains().map(Chain::getFeatureContainer).collect(Collectors.toList()),
+                        structure.chains().map(Chain::getFeatureContainer).collect(Collectors.toList()));
+                transferFeatures(copy.groups().map(Group::getFeatureContainer).collect(Collectors.toList()),
+                        structure.groups().map(Group::getFeatureContainer).collect(Collectors.toList()));
+            }
+        };
+    }
+
+    private static void transferFeatures(List<FeatureContainer> sources, List<FeatureContainer> targets) {
+        if(sources.size() != targets.size()) {
+            throw new IllegalStateException("copy of structure does not match the structure");
+        }
+        for(int i = 0; i < sources.size(); i++) {
+            transferFeatures(sources.get(i), targets.get(i));
+        }
+    }
+
+    /**
+     * add the entries the calculator added to the copy, i.e. those of a type the target does not have - whether the
+     * copy shares the entries present when it was created or copies them does not matter
+     */
+    private static void transferFeatures(FeatureContainer source, FeatureContainer target) {
+        Set<Class<?>> present = target.getFeatures()
+                .stream()
+                .map(Object::getClass)
+                .collect(Collectors.toSet());
+        for(FeatureContainerEntry entry : new ArrayList<>(source.getFeatures())) {
+            if(!present.contains(entry.getClass())) {
+                target.addFeature(entry);
+            }
+        }
+    }
+}
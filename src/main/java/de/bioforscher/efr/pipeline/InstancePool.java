@@ -0,0 +1,68 @@
+package de.bioforscher.efr.pipeline;
+
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * instances of a class which must not be used by several threads at once (e.g. jstructure calculators or Weka
+ * classifiers) - each user borrows an idle instance or creates a new one, so there are never more instances than
+ * concurrent users; instances whose use failed are discarded, as their state is unknown
+ * @param <T> the type of the instances
+ */
+public class InstancePool<T> {
+    private final Supplier<T> factory;
+    private final Deque<T> idleInstances;
+
+    /**
+     * @param factory creates a new instance whenever no idle one is left
+     */
+    public InstancePool(Supplier<T> factory) {
+        this.factory = factory;
+        this.idleInstances = new ConcurrentLinkedDeque<>();
+    }
+
+    /**
+     * @param factory creates a new instance whenever no idle one is left
+     * @param instance the first idle instance
+     */
+    public InstancePool(Supplier<T> factory, T instance) {
+        this(factory);
+        idleInstances.push(instance);
+    }
+
+    /**
+     * @param action invoked with an instance, which is used by no other thread in the meantime
+     */
+    public void use(Consumer<T> action) {
+        apply(instance -> {
+            action.accept(instance);
+            return null;
+        });
+    }
+
+    /**
+     * @param function invoked with an instance, which is used by no other thread in the meantime
+     * @param <R> the type of the result
+     * @return the result of the function
+     */
+    public <R> R apply(Function<T, R> function) {
+        T instance = idleInstances.poll();
+        if(instance == null) {
+            instance = factory.get();
+        }
+        R result = function.apply(instance);
+        // the most recently used instance is handed out first - it is the one most likely to be cached
+        idleInstances.push(instance);
+        return result;
+    }
+
+    /**
+     * @return the number of instances currently not in use
+     */
+    public int getIdleCount() {
+        return idleInstances.size();
+    }
+}
@@ -0,0 +1,60 @@
+package de.bioforscher.efr.pipeline;
+
+import de.bioforscher.efr.plip.PlipDocumentResolver;
+import de.bioforscher.jstructure.feature.interaction.PLIPIntraMolecularAnnotator;
+import de.bioforscher.jstructure.model.feature.ComputationException;
+import de.bioforscher.jstructure.model.structure.Chain;
+import org.jsoup.nodes.Document;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * annotates intra-chain contacts - the (potentially network-bound) retrieval of the PLIP document happens during
+ * preparation and thus overlaps with the other stages; annotators are pooled, as they must not be shared by
+ * concurrent annotations
+ */
+public class PlipAnnotationStage extends FeatureStage<List<Document>> {
+    public static final String FEATURE = "plip";
+    private final InstancePool<PLIPIntraMolecularAnnotator> plipIntraMolecularAnnotators;
+    private volatile PlipDocumentResolver plipDocumentResolver;
+
+    /**
+     * @param plipIntraMolecularAnnotatorFactory creates the annotators
+     */
+    public PlipAnnotationStage(Supplier<PLIPIntraMolecularAnnotator> plipIntraMolecularAnnotatorFactory) {
+        super("querying PLIP-REST-Service", Collections.emptySet(), Collections.singleton(FEATURE));
+        this.plipIntraMolecularAnnotators = new InstancePool<>(plipIntraMolecularAnnotatorFactory);
+        this.plipDocumentResolver = PlipDocumentResolver.createRemoteResolver();
+    }
+
+    public void setPlipDocumentResolver(PlipDocumentResolver plipDocumentResolver) {
+        this.plipDocumentResolver = plipDocumentResolver;
+    }
+
+    @Override
+    protected List<Document> prepare(List<Chain> chains) {
+        List<Document> documents = new ArrayList<>();
+        for(Chain chain : chains) {
+            try {
+                documents.add(FeaturePipeline.block(() -> plipDocumentResolver.getIntraChainDocument(chain)));
+            } catch (ComputationException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new ComputationException("could not compute polymer interactions for " + chain.getChainIdentifier());
+            }
+        }
+        return documents;
+    }
+
+    @Override
+    protected void apply(List<Chain> chains, List<Document> documents) {
+        plipIntraMolecularAnnotators.use(plipIntraMolecularAnnotator -> {
+            for(int i = 0; i < chains.size(); i++) {
+                plipIntraMolecularAnnotator.process(chains.get(i), documents.get(i));
+            }
+        });
+    }
+}
@@ -0,0 +1,19 @@
+package de.bioforscher.efr.pipeline;
+
+/**
+ * receives the completion of the individual steps of a classification (e.g. the PLIP annotation or the scoring) -
+ * calls may originate from any thread
+ */
+@FunctionalInterface
+public interface ProgressListener {
+    /**
+     * ignores all progress
+     */
+    ProgressListener NONE = (step, message) -> {};
+
+    /**
+     * @param step the short name of the finished step, e.g. plip or classification
+     * @param message a human-readable description
+     */
+    void onProgress(String step, String message);
+}
@@ -0,0 +1,49 @@
+package de.bioforscher.efr.plip;
+
+/**
+ * stops calling a failing remote service for some time after a number of consecutive failures - after that time a
+ * single trial call is permitted, which either closes the circuit again or reopens it
+ */
+public class CircuitBreaker {
+    private final int failureThreshold;
+    private final long openDuration;
+    private int consecutiveFailures;
+    private long openUntil;
+
+    /**
+     * @param failureThreshold the number of consecutive failures which open the circuit
+     * @param openDuration the time in milliseconds no calls are permitted once the circuit is open
+     */
+    public CircuitBreaker(int failureThreshold, long openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+    }
+
+    public synchronized boolean isCallPermitted() {
+        long now = System.currentTimeMillis();
+        if(now < openUntil) {
+            return false;
+        }
+        if(consecutiveFailures >= failureThreshold) {
+            // half-open: let this single call through, but block all others until it reports back
+            openUntil = now + openDuration;
+        }
+        return true;
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        openUntil = 0;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if(consecutiveFailures >= failureThreshold) {
+            openUntil = System.currentTimeMillis() + openDuration;
+        }
+    }
+
+    public synchronized boolean isOpen() {
+        return System.currentTimeMillis() < openUntil;
+    }
+}
@@ -0,0 +1,30 @@
+package de.bioforscher.efr.plip;
+
+import de.bioforscher.jstructure.model.structure.Chain;
+import org.jsoup.nodes.Document;
+
+import java.util.Optional;
+
+/**
+ * a source of PLIP documents describing the intra-chain contacts of a chain
+ */
+public interface PlipDocumentProvider {
+    /**
+     * @param chain the chain of interest
+     * @return the document or nothing, when this provider cannot supply it
+     */
+    Optional<Document> getIntraChainDocument(Chain chain);
+
+    /**
+     * @return <code>true</code> when documents of this provider describe the deposited PDB entry and may therefore be
+     * stored by chain id
+     */
+    default boolean isPersistable() {
+        return false;
+    }
+
+    /**
+     * @return a short name of this kind of provider, used to label metrics
+     */
+    String getSourceName();
+}
@@ -0,0 +1,82 @@
+package de.bioforscher.efr.plip;
+
+import de.bioforscher.efr.metrics.MetricsRegistry;
+import de.bioforscher.jstructure.model.feature.ComputationException;
+import de.bioforscher.jstructure.model.structure.Chain;
+import org.jsoup.nodes.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * resolves the PLIP document of a chain by consulting the local store first and the given providers in order -
+ * documents of persistable providers are stored after the first retrieval
+ */
+public class PlipDocumentResolver {
+    private static final Logger logger = LoggerFactory.getLogger(PlipDocumentResolver.class);
+    private final StoredPlipDocumentProvider store;
+    private final List<PlipDocumentProvider> providers;
+
+    /**
+     * @param store the local store, may be <code>null</code>
+     * @param providers the providers to consult in order
+     */
+    public PlipDocumentResolver(StoredPlipDocumentProvider store, PlipDocumentProvider... providers) {
+        this.store = store;
+        this.providers = new ArrayList<>();
+        if(store != null) {
+            this.providers.add(store);
+        }
+        this.providers.addAll(Arrays.asList(providers));
+    }
+
+    /**
+     * the behaviour without any local data: fetch precomputed documents and fall back to on-the-fly calculation
+     * @return the default resolver
+     */
+    public static PlipDocumentResolver createRemoteResolver() {
+        return new PlipDocumentResolver(null,
+                new RemotePlipDocumentProvider(RemotePlipDocumentProvider.Mode.PRECOMPUTED, 30_000, new CircuitBreaker(5, 120_000), 8),
+                new RemotePlipDocumentProvider(RemotePlipDocumentProvider.Mode.ON_THE_FLY, 300_000, new CircuitBreaker(5, 120_000), 8));
+    }
+
+    /**
+     * @param chain the chain of interest
+     * @return the PLIP document of this chain
+     * @throws ComputationException when no provider can supply the document
+     */
+    public Document getIntraChainDocument(Chain chain) {
+        MetricsRegistry metricsRegistry = MetricsRegistry.getDefault();
+        for(int i = 0; i < providers.size(); i++) {
+            PlipDocumentProvider provider = providers.get(i);
+            Optional<Document> document = provider.getIntraChainDocument(chain);
+            if(i > 0) {
+                metricsRegistry.counter("efr_plip_fallbacks_total", "PLIP documents requested from a provider after all preceding ones failed", "source", sourceName(provider))
+                        .increment();
+            }
+            if(document.isPresent()) {
+                metricsRegistry.counter("efr_plip_documents_total", "resolved PLIP documents by provider", "source", sourceName(provider))
+                        .increment();
+                logger.info("fetched PLIP contacts of {} from {}",
+                        chain.getChainIdentifier(),
+                        provider);
+                if(store != null && provider != store && provider.isPersistable()) {
+                    store.store(chain, document.get());
+                }
+                return document.get();
+            }
+        }
+
+        metricsRegistry.counter("efr_plip_failures_total", "PLIP documents no provider could supply").increment();
+        throw new ComputationException("could not compute polymer interactions for " + chain.getChainIdentifier());
+    }
+
+    private String sourceName(PlipDocumentProvider provider) {
+        // the store and read-only stand-in directories are of the same kind
+        return provider == store ? "store" : provider.getSourceName();
+    }
+}
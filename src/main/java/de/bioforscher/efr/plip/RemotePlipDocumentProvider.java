@@ -0,0 +1,162 @@
+package de.bioforscher.efr.plip;
+
+import de.bioforscher.jstructure.feature.interaction.PLIPRestServiceQuery;
+import de.bioforscher.jstructure.model.structure.Chain;
+import org.jsoup.HttpStatusException;
+import org.jsoup.nodes.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * queries the PLIP-REST-Service - either for precomputed documents of PDB entries or for an on-the-fly calculation,
+ * guarded by a timeout and a circuit breaker so a slow or unavailable service does not stall the whole application;
+ * the number of concurrent queries is bounded, queries exceeding the bound wait (counting against their timeout) or are
+ * skipped once too many are waiting
+ */
+public class RemotePlipDocumentProvider implements PlipDocumentProvider {
+    private static final Logger logger = LoggerFactory.getLogger(RemotePlipDocumentProvider.class);
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+    /**
+     * the number of queries waiting for a thread per allowed concurrent query
+     */
+    private static final int QUEUED_QUERIES_PER_THREAD = 4;
+    private final ExecutorService executor;
+    private final Mode mode;
+    private final long timeout;
+    private final CircuitBreaker circuitBreaker;
+
+    public enum Mode {
+        /**
+         * fetch the precomputed document of a PDB entry
+         */
+        PRECOMPUTED(PLIPRestServiceQuery::getIntraChainDocument),
+        /**
+         * submit the chain and let the service compute the document - slow, but works for any structure
+         */
+        ON_THE_FLY(PLIPRestServiceQuery::calculateIntraChainDocument);
+
+        private final Function<Chain, Document> query;
+
+        Mode(Function<Chain, Document> query) {
+            this.query = query;
+        }
+    }
+
+    /**
+     * @param mode which kind of query to perform
+     * @param timeout the time in milliseconds after which a query is abandoned
+     * @param circuitBreaker the circuit breaker guarding the service
+     * @param maximumConcurrentQueries the number of queries issued at once
+     */
+    public RemotePlipDocumentProvider(Mode mode, long timeout, CircuitBreaker circuitBreaker, int maximumConcurrentQueries) {
+        this.mode = mode;
+        this.timeout = timeout;
+        this.circuitBreaker = circuitBreaker;
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(maximumConcurrentQueries,
+                maximumConcurrentQueries,
+                60,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(maximumConcurrentQueries * QUEUED_QUERIES_PER_THREAD),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "efr-plip-" + THREAD_COUNTER.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        this.executor = threadPoolExecutor;
+    }
+
+    @Override
+    public Optional<Document> getIntraChainDocument(Chain chain) {
+        if(!circuitBreaker.isCallPermitted()) {
+            logger.warn("PLIP-REST-Service is considered unavailable - skipping {} query for {}",
+                    mode,
+                    chain.getChainIdentifier());
+            return Optional.empty();
+        }
+
+        Future<Document> future;
+        try {
+            future = executor.submit(() -> mode.query.apply(chain));
+        } catch (RejectedExecutionException e) {
+            logger.warn("too many pending {} queries - skipping query for {}",
+                    mode,
+                    chain.getChainIdentifier());
+            return Optional.empty();
+        }
+        try {
+            Document document = future.get(timeout, TimeUnit.MILLISECONDS);
+            circuitBreaker.recordSuccess();
+            if(document == null || document.text().trim().isEmpty()) {
+                logger.info("{} query for {} returned no document",
+                        mode,
+                        chain.getChainIdentifier());
+                return Optional.empty();
+            }
+            return Optional.of(document);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            circuitBreaker.recordFailure();
+            logger.warn("{} query for {} timed out after {} ms",
+                    mode,
+                    chain.getChainIdentifier(),
+                    timeout);
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch (ExecutionException e) {
+            // missing precomputed documents (e.g. for uploaded structures) are expected and do not indicate an outage
+            if(mode == Mode.ON_THE_FLY || !isNotFound(e.getCause())) {
+                circuitBreaker.recordFailure();
+            } else {
+                circuitBreaker.recordSuccess();
+            }
+            logger.info("{} query for {} failed: {}",
+                    mode,
+                    chain.getChainIdentifier(),
+                    e.getCause().getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @param throwable the reason a query failed
+     * @return true if the service answered, but has no document - false for transport errors (e.g. refused
+     * connections) and server errors, which indicate an outage
+     */
+    static boolean isNotFound(Throwable throwable) {
+        for(Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if(cause instanceof HttpStatusException) {
+                return ((HttpStatusException) cause).getStatusCode() < 500;
+            }
+            if(cause instanceof IOException) {
+                return false;
+            }
+        }
+        // e.g. a document which could not be parsed
+        return true;
+    }
+
+    @Override
+    public boolean isPersistable() {
+        return mode == Mode.PRECOMPUTED;
+    }
+
+    @Override
+    public String getSourceName() {
+        return "remote_" + mode.name().toLowerCase();
+    }
+
+    @Override
+    public String toString() {
+        return "PLIP-REST-Service (" + mode + ")";
+    }
+}
@@ -0,0 +1,95 @@
+package de.bioforscher.efr.plip;
+
+import de.bioforscher.efr.io.AtomicFiles;
+import de.bioforscher.jstructure.model.structure.Chain;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * gzipped PLIP documents in a directory, keyed by chain id and divided like the PDB (e.g. ac/1acj_A.xml.gz) - used
+ * as persistent store of remote results as well as read-only stand-in for offline runs
+ */
+public class StoredPlipDocumentProvider implements PlipDocumentProvider {
+    private static final Logger logger = LoggerFactory.getLogger(StoredPlipDocumentProvider.class);
+    private static final Pattern VALID_CHAIN_ID = Pattern.compile("[A-Za-z0-9]{4}_[A-Za-z0-9]+");
+    private static final String FILE_SUFFIX = ".xml.gz";
+    private final Path directory;
+
+    public StoredPlipDocumentProvider(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public Optional<Document> getIntraChainDocument(Chain chain) {
+        Optional<Path> path = resolve(chain);
+        if(!path.isPresent() || !Files.exists(path.get())) {
+            return Optional.empty();
+        }
+
+        try(Reader reader = new InputStreamReader(new GZIPInputStream(Files.newInputStream(path.get())), StandardCharsets.UTF_8)) {
+            StringBuilder content = new StringBuilder();
+            char[] buffer = new char[8192];
+            int read;
+            while((read = reader.read(buffer)) != -1) {
+                content.append(buffer, 0, read);
+            }
+            return Optional.of(Jsoup.parse(content.toString()));
+        } catch (IOException e) {
+            logger.warn("could not read stored PLIP document {}: {}", path.get(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * persist a document
+     * @param chain the chain described by the document
+     * @param document the document
+     */
+    public void store(Chain chain, Document document) {
+        Optional<Path> path = resolve(chain);
+        if(!path.isPresent()) {
+            return;
+        }
+
+        try {
+            AtomicFiles.write(path.get(), outputStream -> {
+                try(Writer writer = new OutputStreamWriter(new GZIPOutputStream(outputStream), StandardCharsets.UTF_8)) {
+                    writer.write(document.outerHtml());
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("could not store PLIP document of {}: {}", chain.getChainIdentifier(), e.getMessage());
+        }
+    }
+
+    private Optional<Path> resolve(Chain chain) {
+        String chainId = chain.getChainIdentifier().getFullName();
+        if(chainId == null || !VALID_CHAIN_ID.matcher(chainId).matches()) {
+            return Optional.empty();
+        }
+
+        String normalizedChainId = chainId.substring(0, 4).toLowerCase() + chainId.substring(4);
+        return Optional.of(directory.resolve(normalizedChainId.substring(1, 3)).resolve(normalizedChainId + FILE_SUFFIX));
+    }
+
+    @Override
+    public String getSourceName() {
+        return "stored";
+    }
+
+    @Override
+    public String toString() {
+        return "stored documents in " + directory;
+    }
+}
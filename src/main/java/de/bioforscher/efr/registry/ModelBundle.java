@@ -0,0 +1,281 @@
+package de.bioforscher.efr.registry;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import de.bioforscher.efr.cache.ContentHash;
+import de.bioforscher.efr.model.ResiduePrediction;
+import de.bioforscher.efr.pipeline.InstancePool;
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.Classifier;
+import weka.core.Instance;
+import weka.core.SerializationHelper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * a trained model together with the normalization of its input features - bundles are immutable, a retrained model is
+ * a new bundle<br />
+ * a bundle directory contains {@value #MODEL_FILE} (the serialized Weka classifier) and optionally
+ * {@value #NORMALIZATION_FILE} (one line per feature in the order of {@link ResiduePrediction#FEATURE_NAMES}: name,
+ * mean and standard deviation, preceded by a header line) - without normalization file, the normalization of the
+ * bundled model is used<br />
+ * Weka does not promise that classifiers can be used by several threads at once, so each scoring thread borrows a copy
+ * of the model from {@link #getClassifiers()}
+ */
+public class ModelBundle {
+    public static final String MODEL_FILE = "efr-classifier.model";
+    public static final String NORMALIZATION_FILE = "efr-normalization.csv";
+    public static final String BUNDLED_NAME = "bundled";
+    private final String name;
+    private final String version;
+    private final String source;
+    private final InstancePool<Classifier> classifiers;
+    private final double[][] normalization;
+    private final long loadingTime;
+    private final long footprint;
+    private final long loadedAt;
+
+    private ModelBundle(String name,
+                        String version,
+                        String source,
+                        Classifier classifier,
+                        double[][] normalization,
+                        long loadingTime,
+                        long footprint) {
+        this.name = name;
+        this.version = version;
+        this.source = source;
+        this.classifiers = new InstancePool<>(() -> copy(classifier), classifier);
+        this.normalization = normalization;
+        this.loadingTime = loadingTime;
+        this.footprint = footprint;
+        this.loadedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * the model shipped with the application - loaded by the first call
+     * @return the bundled model
+     */
+    public static ModelBundle bundled() {
+        return BundledHolder.BUNDLED;
+    }
+
+    private static class BundledHolder {
+        private static final ModelBundle BUNDLED = loadBundled();
+    }
+
+    private static ModelBundle loadBundled() {
+        long start = System.currentTimeMillis();
+        try {
+            return create(BUNDLED_NAME,
+                    "classpath:data/" + MODEL_FILE,
+                    readResource("data/" + MODEL_FILE),
+                    ReferenceNormalization.CONTENT,
+                    start);
+        } catch (IOException e) {
+            throw new IllegalStateException("could not load bundled model", e);
+        }
+    }
+
+    /**
+     * @param name the name of the bundle
+     * @param directory the bundle directory
+     * @return the bundle
+     * @throws IOException if the directory does not contain a valid bundle
+     */
+    public static ModelBundle load(String name, Path directory) throws IOException {
+        long start = System.currentTimeMillis();
+        Path normalizationPath = directory.resolve(NORMALIZATION_FILE);
+        return create(name,
+                directory.toString(),
+                Files.readAllBytes(directory.resolve(MODEL_FILE)),
+                Files.exists(normalizationPath) ? Files.readAllBytes(normalizationPath) : ReferenceNormalization.CONTENT,
+                start);
+    }
+
+    private static ModelBundle create(String name,
+                                      String source,
+                                      byte[] modelContent,
+                                      byte[] normalizationContent,
+                                      long start) throws IOException {
+        double[][] normalization = parseNormalization(normalizationContent);
+        // the digest of the model alone identifies bundles with the reference normalization, so results computed before
+        // models were bundled remain valid
+        String version = Arrays.deepEquals(normalization, ReferenceNormalization.VALUES) ?
+                ContentHash.sha256(modelContent).substring(0, 16) :
+                ContentHash.sha256(concatenate(modelContent, normalizationContent)).substring(0, 16);
+
+        Classifier classifier;
+        try {
+            classifier = (Classifier) SerializationHelper.read(new ByteArrayInputStream(modelContent));
+        } catch (Exception e) {
+            throw new IOException("could not deserialize model of " + source + ": " + e.getMessage(), e);
+        }
+        return new ModelBundle(name,
+                version,
+                source,
+                classifier,
+                normalization,
+                System.currentTimeMillis() - start,
+                ObjectFootprint.estimate(classifier));
+    }
+
+    private static Classifier copy(Classifier classifier) {
+        try {
+            return AbstractClassifier.makeCopy(classifier);
+        } catch (Exception e) {
+            throw new IllegalStateException("could not copy model", e);
+        }
+    }
+
+    private static double[][] parseNormalization(byte[] normalizationContent) throws IOException {
+        String[] lines = new String(normalizationContent, StandardCharsets.UTF_8).trim().split("\\r?\\n");
+        int featureCount = ResiduePrediction.FEATURE_NAMES.size();
+        if(lines.length != featureCount + 1) {
+            throw new IOException("normalization has to contain a header and " + featureCount + " features - found " +
+                    (lines.length - 1));
+        }
+
+        double[][] normalization = new double[featureCount][];
+        for(int i = 0; i < featureCount; i++) {
+            String[] split = lines[i + 1].split(",");
+            String featureName = ResiduePrediction.FEATURE_NAMES.get(i);
+            if(split.length != 3 || !featureName.equals(split[0].trim())) {
+                throw new IOException("expected normalization of " + featureName + " in line " + (i + 2) + " - found: " +
+                        lines[i + 1]);
+            }
+            try {
+                normalization[i] = new double[] { Double.parseDouble(split[1].trim()), Double.parseDouble(split[2].trim()) };
+            } catch (NumberFormatException e) {
+                throw new IOException("invalid normalization of " + featureName + ": " + lines[i + 1]);
+            }
+            if(!(normalization[i][1] > 0)) {
+                throw new IOException("standard deviation of " + featureName + " has to be positive");
+            }
+        }
+        return normalization;
+    }
+
+    private static byte[] concatenate(byte[] first, byte[] second) {
+        byte[] content = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, content, first.length, second.length);
+        return content;
+    }
+
+    private static byte[] readResource(String name) throws IOException {
+        try(InputStream inputStream = Thread.currentThread().getContextClassLoader().getResourceAsStream(name)) {
+            if(inputStream == null) {
+                throw new IOException("missing resource " + name);
+            }
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+            return outputStream.toByteArray();
+        }
+    }
+
+    /**
+     * the normalization the bundled model was trained with
+     */
+    private static class ReferenceNormalization {
+        private static final byte[] CONTENT;
+        private static final double[][] VALUES;
+
+        static {
+            try {
+                CONTENT = readResource("data/" + NORMALIZATION_FILE);
+                VALUES = parseNormalization(CONTENT);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * normalize the features of a residue in place
+     * @param featureRow the features in the attribute order of the model - a trailing class value is left untouched
+     */
+    public void normalize(double[] featureRow) {
+        for(int i = 0; i < normalization.length; i++) {
+            featureRow[i] = (featureRow[i] - normalization[i][0]) / normalization[i][1];
+        }
+    }
+
+    /**
+     * normalize the features of an instance in place
+     * @param instance the instance
+     * @return the instance
+     */
+    public Instance normalize(Instance instance) {
+        for(int i = 0; i < normalization.length; i++) {
+            instance.setValue(i, (instance.value(i) - normalization[i][0]) / normalization[i][1]);
+        }
+        return instance;
+    }
+
+    /**
+     * @return the name of the bundle (i.e. its directory)
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the digest identifying model and normalization - results are only valid for the version they were
+     * computed with
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * @return where the bundle was loaded from
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return copies of the model - each one is used by a single thread at a time
+     */
+    @JsonIgnore
+    public InstancePool<Classifier> getClassifiers() {
+        return classifiers;
+    }
+
+    /**
+     * @return the time in milliseconds it took to read and deserialize the bundle
+     */
+    public long getLoadingTime() {
+        return loadingTime;
+    }
+
+    /**
+     * @return the estimated heap occupied by the model in bytes - each concurrently used copy occupies as much
+     */
+    public long getFootprint() {
+        return footprint;
+    }
+
+    /**
+     * @return when the bundle was loaded (milliseconds since the epoch)
+     */
+    public long getLoadedAt() {
+        return loadedAt;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + version + ")";
+    }
+}
@@ -0,0 +1,300 @@
+package de.bioforscher.efr.registry;
+
+import de.bioforscher.efr.metrics.Counter;
+import de.bioforscher.efr.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * the models available for classification: the bundled model and each bundle directory (see {@link ModelBundle}) in the
+ * registry directory, named by its directory (e.g. models/2018-03/efr-classifier.model) - the default model is named
+ * by the file {@value #DEFAULT_FILE} in the registry directory, otherwise the bundled model is used<br />
+ * {@link #reload()} picks up new, changed and removed bundles and replaces the state of the registry at once: running
+ * classifications keep the bundle they started with, subsequent requests get the new one - a bundle which cannot be
+ * loaded (e.g. because it is still being copied) keeps its previous version and is tried again on the next reload -
+ * periodic reloads run until the registry is closed
+ */
+public class ModelRegistry implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(ModelRegistry.class);
+    public static final String DEFAULT_FILE = "default";
+    private final Path directory;
+    private volatile State state;
+    private final List<Consumer<List<ModelBundle>>> reloadListeners;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param directory the registry directory - <code>null</code> to only provide the bundled model
+     */
+    public ModelRegistry(Path directory) {
+        this.directory = directory;
+        this.reloadListeners = new CopyOnWriteArrayList<>();
+        ModelBundle bundled = ModelBundle.bundled();
+        this.state = new State(Collections.singletonMap(bundled.getName(), bundled),
+                Collections.emptyMap(),
+                bundled.getName());
+        registerMetrics(bundled);
+        if(directory != null) {
+            reload();
+        }
+    }
+
+    /**
+     * @return the model used by requests which do not select one
+     */
+    public ModelBundle getDefault() {
+        State state = this.state;
+        return state.bundles.get(state.defaultName);
+    }
+
+    /**
+     * @param model the name or the version of a model - <code>null</code> or empty for the default model
+     * @return the model, empty if no such model is loaded
+     */
+    public Optional<ModelBundle> get(String model) {
+        State state = this.state;
+        if(model == null || model.isEmpty()) {
+            return Optional.of(state.bundles.get(state.defaultName));
+        }
+
+        ModelBundle bundle = state.bundles.get(model);
+        if(bundle != null) {
+            return Optional.of(bundle);
+        }
+        return state.bundles.values()
+                .stream()
+                .filter(candidate -> candidate.getVersion().equals(model))
+                .findFirst();
+    }
+
+    /**
+     * @return all loaded models, the bundled model first
+     */
+    public List<ModelBundle> getBundles() {
+        return new ArrayList<>(state.bundles.values());
+    }
+
+    /**
+     * @param reloadListener notified with all loaded models after each scan of the registry directory - e.g. to drop
+     *                       whatever was kept for models which were unloaded
+     */
+    public void addReloadListener(Consumer<List<ModelBundle>> reloadListener) {
+        reloadListeners.add(reloadListener);
+    }
+
+    /**
+     * reload the registry directory every now and then - the first reload happens after the given interval
+     * @param interval the time between two reloads
+     * @param unit the unit of the interval
+     */
+    public synchronized void reloadPeriodically(long interval, TimeUnit unit) {
+        if(directory == null || scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "efr-model-registry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                reload();
+            } catch (RuntimeException e) {
+                logger.warn("could not reload model registry {}", directory, e);
+            }
+        }, interval, interval, unit);
+    }
+
+    /**
+     * stop reloading periodically - the loaded models stay available
+     */
+    @Override
+    public synchronized void close() {
+        if(scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * scan the registry directory - bundles whose files did not change are kept as they are
+     * @return all loaded models
+     */
+    public synchronized List<ModelBundle> reload() {
+        if(directory == null) {
+            return getBundles();
+        }
+
+        List<Path> bundleDirectories;
+        try(Stream<Path> paths = Files.list(directory)) {
+            bundleDirectories = paths.filter(path -> Files.isRegularFile(path.resolve(ModelBundle.MODEL_FILE)))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            // keep serving the previous state
+            logger.warn("could not read model registry {}: {}", directory, e.getMessage());
+            return getBundles();
+        }
+
+        State previousState = state;
+        Map<String, ModelBundle> bundles = new LinkedHashMap<>();
+        Map<String, String> stamps = new HashMap<>();
+        ModelBundle bundled = ModelBundle.bundled();
+        bundles.put(bundled.getName(), bundled);
+        for(Path bundleDirectory : bundleDirectories) {
+            String name = bundleDirectory.getFileName().toString();
+            if(bundled.getName().equals(name)) {
+                logger.warn("ignoring model bundle {} - the name is reserved for the bundled model", bundleDirectory);
+                continue;
+            }
+
+            ModelBundle previousBundle = previousState.bundles.get(name);
+            String previousStamp = previousState.stamps.get(name);
+            String stamp = stamp(bundleDirectory);
+            if(previousBundle != null && stamp.equals(previousStamp)) {
+                bundles.put(name, previousBundle);
+                stamps.put(name, stamp);
+                continue;
+            }
+
+            try {
+                ModelBundle bundle = ModelBundle.load(name, bundleDirectory);
+                // the files were merely touched
+                if(previousBundle != null && previousBundle.getVersion().equals(bundle.getVersion())) {
+                    bundle = previousBundle;
+                } else {
+                    logger.info("loaded model {} in {} ms - estimated footprint: {} kB",
+                            bundle,
+                            bundle.getLoadingTime(),
+                            bundle.getFootprint() / 1024);
+                    loadCounter("loaded").increment();
+                }
+                bundles.put(name, bundle);
+                stamps.put(name, stamp);
+            } catch (IOException | RuntimeException e) {
+                logger.warn("could not load model bundle {}: {}", bundleDirectory, e.getMessage());
+                loadCounter("failed").increment();
+                if(previousBundle != null) {
+                    bundles.put(name, previousBundle);
+                    stamps.put(name, previousStamp);
+                }
+            }
+        }
+
+        String defaultName = readDefaultName(bundles, previousState.defaultName);
+        state = new State(bundles, stamps, defaultName);
+
+        previousState.bundles.values()
+                .stream()
+                .filter(bundle -> bundles.get(bundle.getName()) != bundle)
+                .forEach(bundle -> {
+                    logger.info("unloaded model {}", bundle);
+                    unregisterMetrics(bundle);
+                });
+        bundles.values()
+                .stream()
+                .filter(bundle -> previousState.bundles.get(bundle.getName()) != bundle)
+                .forEach(this::registerMetrics);
+        if(!defaultName.equals(previousState.defaultName) ||
+                bundles.get(defaultName) != previousState.bundles.get(previousState.defaultName)) {
+            logger.info("default model is now {}", bundles.get(defaultName));
+        }
+        List<ModelBundle> loadedBundles = getBundles();
+        reloadListeners.forEach(reloadListener -> reloadListener.accept(loadedBundles));
+        return loadedBundles;
+    }
+
+    private String readDefaultName(Map<String, ModelBundle> bundles, String previousDefaultName) {
+        Path defaultPath = directory.resolve(DEFAULT_FILE);
+        if(!Files.exists(defaultPath)) {
+            return ModelBundle.BUNDLED_NAME;
+        }
+
+        try {
+            String defaultName = new String(Files.readAllBytes(defaultPath), StandardCharsets.UTF_8).trim();
+            if(bundles.containsKey(defaultName)) {
+                return defaultName;
+            }
+            logger.warn("default model {} is not loaded", defaultName);
+        } catch (IOException e) {
+            logger.warn("could not read default model from {}: {}", defaultPath, e.getMessage());
+        }
+        return bundles.containsKey(previousDefaultName) ? previousDefaultName : ModelBundle.BUNDLED_NAME;
+    }
+
+    /**
+     * @return identifies the state of the files of a bundle - unreadable files result in a stamp no bundle has
+     */
+    private static String stamp(Path bundleDirectory) {
+        StringBuilder stamp = new StringBuilder();
+        for(String fileName : new String[] { ModelBundle.MODEL_FILE, ModelBundle.NORMALIZATION_FILE }) {
+            Path path = bundleDirectory.resolve(fileName);
+            try {
+                if(Files.exists(path)) {
+                    stamp.append(Files.getLastModifiedTime(path).toMillis())
+                            .append(":")
+                            .append(Files.size(path));
+                }
+            } catch (IOException e) {
+                stamp.append("?");
+            }
+            stamp.append("/");
+        }
+        return stamp.toString();
+    }
+
+    private void registerMetrics(ModelBundle bundle) {
+        MetricsRegistry metricsRegistry = MetricsRegistry.getDefault();
+        metricsRegistry.gauge("efr_model_footprint_bytes",
+                "estimated heap occupied by each loaded model",
+                bundle::getFootprint,
+                "model", bundle.getName(),
+                "version", bundle.getVersion());
+        metricsRegistry.gauge("efr_model_loading_seconds",
+                "time it took to load each loaded model",
+                () -> bundle.getLoadingTime() / 1000.0,
+                "model", bundle.getName(),
+                "version", bundle.getVersion());
+    }
+
+    private void unregisterMetrics(ModelBundle bundle) {
+        MetricsRegistry metricsRegistry = MetricsRegistry.getDefault();
+        metricsRegistry.remove("efr_model_footprint_bytes", "model", bundle.getName(), "version", bundle.getVersion());
+        metricsRegistry.remove("efr_model_loading_seconds", "model", bundle.getName(), "version", bundle.getVersion());
+    }
+
+    private static Counter loadCounter(String result) {
+        return MetricsRegistry.getDefault()
+                .counter("efr_model_loads_total", "attempts to load a model bundle", "result", result);
+    }
+
+    /**
+     * an immutable state of the registry
+     */
+    private static class State {
+        private final Map<String, ModelBundle> bundles;
+        /**
+         * the state of the files each bundle was loaded from
+         */
+        private final Map<String, String> stamps;
+        private final String defaultName;
+
+        State(Map<String, ModelBundle> bundles, Map<String, String> stamps, String defaultName) {
+            this.bundles = bundles;
+            this.stamps = stamps;
+            this.defaultName = defaultName;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package de.bioforscher.efr.registry;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+/**
+ * estimates the heap occupied by an object graph by walking its instance fields - sizes follow the layout of a 64-bit
+ * HotSpot VM with compressed references (12 bytes object header, 16 bytes array header, 8 byte alignment), which is
+ * precise enough to compare models with each other
+ */
+class ObjectFootprint {
+    private static final int OBJECT_HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE_SIZE = 4;
+    private static final Map<Class<?>, ClassLayout> LAYOUTS = Collections.synchronizedMap(new HashMap<>());
+
+    private ObjectFootprint() {
+        // deny instantiation
+    }
+
+    /**
+     * @param root the object to measure
+     * @return the estimated size in bytes of the object and everything reachable from it
+     */
+    static long estimate(Object root) {
+        Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Object> pending = new ArrayDeque<>();
+        pending.push(root);
+        long size = 0;
+        while(!pending.isEmpty()) {
+            Object object = pending.pop();
+            if(!visited.add(object)) {
+                continue;
+            }
+
+            Class<?> type = object.getClass();
+            if(type.isArray()) {
+                int length = Array.getLength(object);
+                Class<?> componentType = type.getComponentType();
+                size += align(ARRAY_HEADER + (long) length * sizeOf(componentType));
+                if(!componentType.isPrimitive()) {
+                    for(int i = 0; i < length; i++) {
+                        push(pending, Array.get(object, i));
+                    }
+                }
+                continue;
+            }
+
+            ClassLayout layout = LAYOUTS.computeIfAbsent(type, ClassLayout::new);
+            size += layout.size;
+            for(Field field : layout.references) {
+                try {
+                    push(pending, field.get(object));
+                } catch (IllegalAccessException e) {
+                    // not reachable - setAccessible succeeded when the layout was created
+                }
+            }
+        }
+        return size;
+    }
+
+    private static void push(Deque<Object> pending, Object object) {
+        // shared infrastructure is not part of the model
+        if(object == null || object instanceof Class || object instanceof ClassLoader || object instanceof Thread) {
+            return;
+        }
+        pending.push(object);
+    }
+
+    private static int sizeOf(Class<?> type) {
+        if(type == long.class || type == double.class) {
+            return 8;
+        }
+        if(type == int.class || type == float.class) {
+            return 4;
+        }
+        if(type == short.class || type == char.class) {
+            return 2;
+        }
+        if(type == byte.class || type == boolean.class) {
+            return 1;
+        }
+        return REFERENCE_SIZE;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    /**
+     * the shallow size and the reference fields of a class, including those of its superclasses
+     */
+    private static class ClassLayout {
+        private final long size;
+        private final List<Field> references;
+
+        ClassLayout(Class<?> type) {
+            long fieldSize = 0;
+            List<Field> references = new ArrayList<>();
+            for(Class<?> current = type; current != null; current = current.getSuperclass()) {
+                for(Field field : current.getDeclaredFields()) {
+                    if(Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    fieldSize += sizeOf(field.getType());
+                    if(!field.getType().isPrimitive()) {
+                        try {
+                            field.setAccessible(true);
+                            references.add(field);
+                        } catch (RuntimeException e) {
+                            // counted, but not followed
+                        }
+                    }
+                }
+            }
+            this.size = align(OBJECT_HEADER + fieldSize);
+            this.references = references;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package de.bioforscher.efr.runonce;
+
+import de.bioforscher.efr.EarlyFoldingClassifier;
+import de.bioforscher.efr.batch.BatchClassifier;
+import de.bioforscher.jstructure.model.structure.StructureParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * headless batch classification of a list of chain ids (one per line, e.g. 1acj_A) - rerunning with the same output
+ * directory resumes an interrupted run<br />
+ * usage: S3_ClassifyChains chain-id-file output-directory [threads] [local-pdb-directory]
+ */
+public class S3_ClassifyChains {
+    public static void main(String[] args) throws IOException {
+        if(args.length < 2) {
+            System.err.println("usage: S3_ClassifyChains chain-id-file output-directory [threads] [local-pdb-directory]");
+            System.exit(1);
+        }
+
+        List<String> chainIds = Files.readAllLines(Paths.get(args[0]));
+        Path outputDirectory = Paths.get(args[1]);
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+        if(args.length > 3) {
+            StructureParser.OptionalSteps.setLocalPdbDirectory(Paths.get(args[3]));
+        }
+
+        System.out.println(new BatchClassifier(EarlyFoldingClassifier.getInstance(), threads).run(chainIds, outputDirectory));
+    }
+}
@@ -0,0 +1,31 @@
+package de.bioforscher.efr.runonce;
+
+import de.bioforscher.efr.index.ChainIdIndex;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * packs a plain chain id list (one id per line) into the index used for auto-completion - only needed for lists
+ * which were not created by {@link S1_CreateChainIdList}, which writes both
+ */
+public class S4_CreateChainIdIndex {
+    public static void main(String[] args) throws IOException {
+        Path chainIdList = Paths.get(args.length > 0 ? args[0] : "src/main/resources/data/chainids.dat");
+        Path indexFile = Paths.get(args.length > 1 ? args[1] : "src/main/resources/data/chainids.idx");
+
+        List<String> chainIds;
+        try(Stream<String> lines = Files.lines(chainIdList)) {
+            chainIds = lines.map(String::trim)
+                    .filter(line -> !line.isEmpty())
+                    .collect(Collectors.toList());
+        }
+        ChainIdIndex.write(chainIds, indexFile);
+        System.out.println("wrote " + ChainIdIndex.map(indexFile).size() + " chain ids to " + indexFile);
+    }
+}
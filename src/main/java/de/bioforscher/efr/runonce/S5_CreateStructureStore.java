@@ -0,0 +1,20 @@
+package de.bioforscher.efr.runonce;
+
+import de.bioforscher.efr.store.StructureStoreWriter;
+
+import java.nio.file.Paths;
+
+/**
+ * converts the entries of a local PDB mirror to the pre-parsed binary format read by the application (see
+ * efr.structure-store.directory) - only entries changed since the previous run are converted<br />
+ * usage: S5_CreateStructureStore [pdb-directory] [store-directory] [threads]
+ */
+public class S5_CreateStructureStore {
+    public static void main(String[] args) {
+        String pdbDirectory = args.length > 0 ? args[0] : "/srv/pdb/data/structures/divided/pdb/";
+        String storeDirectory = args.length > 1 ? args[1] : "/srv/pdb/data/structures/divided/efrs/";
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+
+        new StructureStoreWriter(Paths.get(pdbDirectory), threads).convert(Paths.get(storeDirectory));
+    }
+}
@@ -0,0 +1,76 @@
+package de.bioforscher.efr.runonce;
+
+import de.bioforscher.efr.EarlyFoldingClassifier;
+import de.bioforscher.efr.batch.BatchClassifier;
+import de.bioforscher.efr.graph.TopologyCalculator;
+import de.bioforscher.efr.graph.TopologyEngine;
+import de.bioforscher.efr.model.Protein;
+import de.bioforscher.efr.registry.ModelBundle;
+import de.bioforscher.efr.store.StructureStore;
+import de.bioforscher.efr.table.PredictionTable;
+import de.bioforscher.efr.table.PredictionTableWriter;
+import de.bioforscher.jstructure.model.structure.StructureParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * classifies a list of chain ids (e.g. data/chainids.dat) into the prediction table read by the application (see
+ * efr.prediction-table.directory) - chains already part of the table are skipped, so rerunning with an updated list
+ * appends the new chains of the PDB - a model bundle directory (see efr.models.directory) fills the table of that model
+ * before it becomes the default, NATIVE (see efr.graph.engine) fills the table read by an application using the native
+ * topology engine<br />
+ * usage: S6_PrecomputePredictions chain-id-file table-directory [threads] [local-pdb-directory] [structure-store-directory] [model-bundle-directory] [topology-engine]
+ */
+public class S6_PrecomputePredictions {
+    public static void main(String[] args) throws IOException {
+        if(args.length < 2) {
+            System.err.println("usage: S6_PrecomputePredictions chain-id-file table-directory [threads] [local-pdb-directory] [structure-store-directory] [model-bundle-directory] [topology-engine]");
+            System.exit(1);
+        }
+
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+        if(args.length > 3) {
+            StructureParser.OptionalSteps.setLocalPdbDirectory(Paths.get(args[3]));
+        }
+        StructureStore structureStore = new StructureStore(args.length > 4 && !args[4].isEmpty() ? Paths.get(args[4]) : null);
+        ModelBundle model = args.length > 5 ?
+                ModelBundle.load(Paths.get(args[5]).getFileName().toString(), Paths.get(args[5])) :
+                ModelBundle.bundled();
+        TopologyEngine topologyEngine = args.length > 6 ? TopologyEngine.valueOf(args[6]) : TopologyEngine.JSTRUCTURE;
+
+        EarlyFoldingClassifier earlyFoldingClassifier = EarlyFoldingClassifier.getInstance();
+        // exact - the table is shared by all applications using the engine
+        TopologyCalculator topologyCalculator = topologyEngine == TopologyEngine.NATIVE ?
+                new TopologyCalculator(threads, 0, 0.01) :
+                null;
+        earlyFoldingClassifier.setTopologyCalculator(topologyCalculator);
+        // predictions are only valid for the model (and the features) they were computed with
+        Path tableDirectory = Paths.get(args[1], topologyEngine.getResultVersion(model.getVersion()));
+        PredictionTable predictionTable = new PredictionTable(tableDirectory);
+        List<String> chainIds = Files.readAllLines(Paths.get(args[0]))
+                .stream()
+                .map(String::trim)
+                .filter(chainId -> !chainId.isEmpty())
+                .filter(chainId -> !predictionTable.contains(chainId))
+                .collect(Collectors.toList());
+        System.out.println(chainIds.size() + " chains are missing from the prediction table");
+
+        try(PredictionTableWriter predictionTableWriter = new PredictionTableWriter(tableDirectory)) {
+            // the progress log of this run - the table itself decides what is left to do next time
+            Path runDirectory = tableDirectory.resolve("runs").resolve(String.valueOf(System.currentTimeMillis()));
+            System.out.println(new BatchClassifier(earlyFoldingClassifier, structureStore, threads).run(chainIds,
+                    runDirectory,
+                    model,
+                    (chainId, chain, predictions) -> predictionTableWriter.append(new Protein(chain, predictions))));
+        } finally {
+            if(topologyCalculator != null) {
+                topologyCalculator.close();
+            }
+        }
+    }
+}
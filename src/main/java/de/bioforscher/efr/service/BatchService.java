@@ -0,0 +1,115 @@
+package de.bioforscher.efr.service;
+
+import de.bioforscher.efr.batch.BatchClassifier;
+import de.bioforscher.efr.batch.BatchSummary;
+import de.bioforscher.efr.io.AtomicFiles;
+import de.bioforscher.efr.job.Job;
+import de.bioforscher.efr.job.JobManager;
+import de.bioforscher.jstructure.model.feature.ComputationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * classifies lists of chains in the background - each batch writes its results to a directory of its own, named by the
+ * batch id; batches are disabled unless a batch directory is configured
+ */
+@Component
+public class BatchService {
+    private static final Logger logger = LoggerFactory.getLogger(BatchService.class);
+    private static final Pattern VALID_BATCH_ID = Pattern.compile("[0-9a-f\\-]{36}");
+    private final JobManager jobManager;
+    private final ClassificationService classificationService;
+    /**
+     * <code>null</code> if batches are disabled
+     */
+    private final Path batchDirectory;
+
+    public BatchService(JobManager jobManager,
+                        ClassificationService classificationService,
+                        @Value("${efr.batch.directory:}") String batchDirectory) {
+        this.jobManager = jobManager;
+        this.classificationService = classificationService;
+        this.batchDirectory = batchDirectory.isEmpty() ? null : Paths.get(batchDirectory);
+    }
+
+    /**
+     * @param chainIds the chain ids (e.g. 1acj_A)
+     * @return the job handle, its result reports the batch id
+     * @throws ComputationException if batches are disabled
+     */
+    public Job<BatchSummary> submit(List<String> chainIds) {
+        Path batchDirectory = getBatchDirectory();
+        String batchId = UUID.randomUUID().toString();
+        logger.info("submitting batch {} of {} chains",
+                batchId,
+                chainIds.size());
+        return jobManager.submit("batch:" + batchId,
+                "batch " + batchId,
+                jobManager.getCostModel().estimateBatch(chainIds.size()),
+                () -> classificationService.getBatchClassifier().run(chainIds, batchDirectory.resolve(batchId)));
+    }
+
+    /**
+     * continue an interrupted batch - chains which were already classified are skipped
+     * @param batchId the batch id
+     * @return the job handle
+     * @throws ComputationException if there is no such batch
+     */
+    public Job<BatchSummary> resume(String batchId) {
+        Path directory = resolveDirectory(batchId);
+        return jobManager.submit("batch:" + batchId,
+                "batch " + batchId,
+                jobManager.getCostModel().estimateBatch(countChains(directory)),
+                () -> classificationService.getBatchClassifier().resume(directory));
+    }
+
+    /**
+     * @param batchId the batch id
+     * @return all result files of the batch written so far, in lexicographic order
+     * @throws ComputationException if there is no such batch
+     */
+    public List<Path> getResultFiles(String batchId) throws IOException {
+        try(Stream<Path> paths = Files.list(resolveDirectory(batchId))) {
+            return paths.filter(path -> !AtomicFiles.isTemporary(path))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private Path getBatchDirectory() {
+        if(batchDirectory == null) {
+            throw new ComputationException("batches are disabled - no efr.batch.directory is configured");
+        }
+        return batchDirectory;
+    }
+
+    private Path resolveDirectory(String batchId) {
+        Path directory = getBatchDirectory().resolve(batchId);
+        if(!VALID_BATCH_ID.matcher(batchId).matches() || !Files.isDirectory(directory)) {
+            throw new ComputationException("unknown batch " + batchId);
+        }
+        return directory;
+    }
+
+    private static int countChains(Path batchDirectory) {
+        try(Stream<String> lines = Files.lines(batchDirectory.resolve(BatchClassifier.CHAIN_LIST_FILE))) {
+            return (int) lines.filter(line -> !line.trim().isEmpty()).count();
+        } catch (IOException | UncheckedIOException e) {
+            // the batch fails as soon as it runs
+            return 0;
+        }
+    }
+}
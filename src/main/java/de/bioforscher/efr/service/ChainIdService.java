@@ -0,0 +1,101 @@
+package de.bioforscher.efr.service;
+
+import de.bioforscher.efr.index.ChainIdIndex;
+import de.bioforscher.efr.startup.StartupMode;
+import de.bioforscher.efr.startup.StartupResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * suggests chain ids of the PDB
+ */
+@Component
+public class ChainIdService {
+    private static final Logger logger = LoggerFactory.getLogger(ChainIdService.class);
+    private static final int MAXIMUM_COMPLETION_LIMIT = 1000;
+    private final Environment environment;
+    /**
+     * all PDB chain ids in sorted order, e.g.: 1acj -> [1acj_A]
+     */
+    private StartupResource<ChainIdIndex> chainIdIndex;
+
+    public ChainIdService(Environment environment) {
+        this.environment = environment;
+    }
+
+    @PostConstruct
+    public void activate() {
+        this.chainIdIndex = new StartupResource<>("chain-id-index", ChainIdService::loadChainIdIndex);
+        chainIdIndex.start(environment.getProperty("efr.startup.mode", StartupMode.class, StartupMode.BACKGROUND));
+    }
+
+    /**
+     * map the packed index when it is an actual file - fall back to the plain list, when no index was created
+     */
+    private static ChainIdIndex loadChainIdIndex() {
+        // initialize all chain ids from preprocessed index (packed from lines of ids in format: 1acj_A)
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        URL indexUrl = classLoader.getResource("data/chainids.idx");
+        try {
+            if(indexUrl != null) {
+                if("file".equals(indexUrl.getProtocol())) {
+                    return ChainIdIndex.map(Paths.get(indexUrl.toURI()));
+                }
+                try(InputStream inputStream = indexUrl.openStream()) {
+                    return ChainIdIndex.read(inputStream);
+                }
+            }
+
+            logger.warn("no chain id index present - creating it from chain id list");
+            try(InputStream inputStream = classLoader.getResourceAsStream("data/chainids.dat")) {
+                try(InputStreamReader inputStreamReader = new InputStreamReader(inputStream)) {
+                    try (BufferedReader bufferedReader = new BufferedReader(inputStreamReader)) {
+                        return ChainIdIndex.of(bufferedReader.lines().collect(Collectors.toList()));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the index as reported by the readiness endpoint
+     */
+    public StartupResource<?> getStartupResource() {
+        return chainIdIndex;
+    }
+
+    /**
+     * @param query the beginning of a chain id, at least 3 characters - the PDB id is case-insensitive
+     * @param limit the maximum number of suggestions
+     * @return matching chain ids in lexicographic order, empty if there is none
+     */
+    public List<String> complete(String query, int limit) {
+        if(query.length() < 3) {
+            return Collections.emptyList();
+        }
+
+        // PDB ids are stored in lower case, chain ids are case-sensitive
+        int pdbIdLength = Math.min(query.length(), 4);
+        String prefix = query.substring(0, pdbIdLength).toLowerCase() + query.substring(pdbIdLength);
+        return chainIdIndex.get().complete(prefix, Math.min(limit, MAXIMUM_COMPLETION_LIMIT));
+    }
+}
@@ -0,0 +1,347 @@
+package de.bioforscher.efr.service;
+
+import de.bioforscher.efr.EarlyFoldingClassifier;
+import de.bioforscher.efr.InferenceMode;
+import de.bioforscher.efr.batch.BatchClassifier;
+import de.bioforscher.efr.cache.AnnotatedStructureCache;
+import de.bioforscher.efr.cache.ResultCache;
+import de.bioforscher.efr.graph.TopologyCalculator;
+import de.bioforscher.efr.graph.TopologyEngine;
+import de.bioforscher.efr.model.Protein;
+import de.bioforscher.efr.pipeline.ProgressListener;
+import de.bioforscher.efr.plip.CircuitBreaker;
+import de.bioforscher.efr.plip.PlipDocumentProvider;
+import de.bioforscher.efr.plip.PlipDocumentResolver;
+import de.bioforscher.efr.plip.RemotePlipDocumentProvider;
+import de.bioforscher.efr.plip.StoredPlipDocumentProvider;
+import de.bioforscher.efr.registry.ModelBundle;
+import de.bioforscher.efr.registry.ModelRegistry;
+import de.bioforscher.efr.startup.StartupMode;
+import de.bioforscher.efr.startup.StartupResource;
+import de.bioforscher.efr.store.StructureStore;
+import de.bioforscher.efr.table.PredictionTable;
+import de.bioforscher.jstructure.model.feature.ComputationException;
+import de.bioforscher.jstructure.model.structure.Chain;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * the classifier, the models it may use and the results they computed - loading the classifier takes a while, so
+ * everything but {@link #isReady()} waits for it
+ */
+@Component
+public class ClassificationService {
+    private static final Logger logger = LoggerFactory.getLogger(ClassificationService.class);
+    private final Environment environment;
+    private final StructureStore structureStore;
+    private StartupResource<Classification> classification;
+
+    public ClassificationService(Environment environment,
+                                 StructureStore structureStore) {
+        this.environment = environment;
+        this.structureStore = structureStore;
+    }
+
+    @PostConstruct
+    public void activate() {
+        this.classification = new StartupResource<>("classifier", this::createClassification);
+        classification.start(environment.getProperty("efr.startup.mode", StartupMode.class, StartupMode.BACKGROUND));
+    }
+
+    private Classification createClassification() {
+        EarlyFoldingClassifier earlyFoldingClassifier = EarlyFoldingClassifier.getInstance();
+        String modelDirectory = environment.getProperty("efr.models.directory", "");
+        ModelRegistry modelRegistry = new ModelRegistry(modelDirectory.isEmpty() ? null : Paths.get(modelDirectory));
+        earlyFoldingClassifier.setModelRegistry(modelRegistry);
+        earlyFoldingClassifier.setPlipDocumentResolver(createPlipDocumentResolver());
+        earlyFoldingClassifier.setInferenceMode(environment.getProperty("efr.classifier.inference",
+                InferenceMode.class,
+                InferenceMode.SHARED_HEADER));
+        earlyFoldingClassifier.setParallelThreshold(environment.getProperty("efr.classifier.parallel-threshold", Integer.class, 1000));
+        TopologyEngine topologyEngine = environment.getProperty("efr.graph.engine", TopologyEngine.class, TopologyEngine.JSTRUCTURE);
+        TopologyCalculator topologyCalculator = null;
+        if(topologyEngine == TopologyEngine.NATIVE) {
+            topologyCalculator = new TopologyCalculator(environment.getProperty("efr.graph.threads", Integer.class, 0),
+                    environment.getProperty("efr.graph.approximation-threshold", Integer.class, 0),
+                    environment.getProperty("efr.graph.approximation-error", Double.class, 0.01));
+        }
+        earlyFoldingClassifier.setTopologyCalculator(topologyCalculator);
+
+        Classification classification = new Classification(earlyFoldingClassifier,
+                modelRegistry,
+                topologyEngine,
+                topologyCalculator,
+                new AnnotatedStructureCache(earlyFoldingClassifier,
+                        structureStore,
+                        environment.getProperty("efr.structure-cache.entries", Integer.class, 20),
+                        TimeUnit.SECONDS.toMillis(environment.getProperty("efr.structure-cache.ttl-seconds", Long.class, 300L)),
+                        TimeUnit.SECONDS.toMillis(environment.getProperty("efr.structure-cache.failure-ttl-seconds", Long.class, 30L))),
+                new BatchClassifier(earlyFoldingClassifier,
+                        structureStore,
+                        environment.getProperty("efr.batch.threads", Integer.class, 0)));
+
+        // results of unloaded models are dropped - jobs still using them finish as usual
+        modelRegistry.addReloadListener(classification::retainResults);
+        long modelReloadInterval = environment.getProperty("efr.models.reload-seconds", Long.class, 60L);
+        if(modelReloadInterval > 0) {
+            modelRegistry.reloadPeriodically(modelReloadInterval, TimeUnit.SECONDS);
+        }
+        return classification;
+    }
+
+    private PlipDocumentResolver createPlipDocumentResolver() {
+        String storeDirectory = environment.getProperty("efr.plip.store-directory", "");
+        String offlineDirectory = environment.getProperty("efr.plip.offline-directory", "");
+        boolean remoteEnabled = environment.getProperty("efr.plip.remote-enabled", Boolean.class, true);
+        long fetchTimeout = TimeUnit.SECONDS.toMillis(environment.getProperty("efr.plip.fetch-timeout-seconds", Long.class, 30L));
+        long calculationTimeout = TimeUnit.SECONDS.toMillis(environment.getProperty("efr.plip.calculation-timeout-seconds", Long.class, 300L));
+        int failureThreshold = environment.getProperty("efr.plip.circuit-breaker.failure-threshold", Integer.class, 5);
+        long openDuration = TimeUnit.SECONDS.toMillis(environment.getProperty("efr.plip.circuit-breaker.open-seconds", Long.class, 120L));
+        int maximumConcurrentQueries = environment.getProperty("efr.plip.max-concurrent-queries", Integer.class, 8);
+
+        List<PlipDocumentProvider> providers = new ArrayList<>();
+        if(!offlineDirectory.isEmpty()) {
+            providers.add(new StoredPlipDocumentProvider(Paths.get(offlineDirectory)));
+        }
+        if(remoteEnabled) {
+            providers.add(new RemotePlipDocumentProvider(RemotePlipDocumentProvider.Mode.PRECOMPUTED,
+                    fetchTimeout,
+                    new CircuitBreaker(failureThreshold, openDuration),
+                    maximumConcurrentQueries));
+            providers.add(new RemotePlipDocumentProvider(RemotePlipDocumentProvider.Mode.ON_THE_FLY,
+                    calculationTimeout,
+                    new CircuitBreaker(failureThreshold, openDuration),
+                    maximumConcurrentQueries));
+        }
+        logger.info("PLIP documents are resolved from store '{}' and {}",
+                storeDirectory,
+                providers);
+
+        return new PlipDocumentResolver(storeDirectory.isEmpty() ? null : new StoredPlipDocumentProvider(Paths.get(storeDirectory)),
+                providers.toArray(new PlipDocumentProvider[0]));
+    }
+
+    /**
+     * @param resultVersion the version of the model and the features
+     */
+    private ModelResults createModelResults(String resultVersion) {
+        int cacheSize = environment.getProperty("efr.cache.memory-entries", Integer.class, 500);
+        long cacheTimeToLive = TimeUnit.MINUTES.toMillis(environment.getProperty("efr.cache.ttl-minutes", Long.class, 720L));
+        String cacheDirectory = environment.getProperty("efr.cache.directory", "");
+        long diskTimeToLive = TimeUnit.DAYS.toMillis(environment.getProperty("efr.cache.disk-ttl-days", Long.class, 30L));
+        long diskMaximumSize = environment.getProperty("efr.cache.disk-max-mb", Long.class, 1024L) << 20;
+        String predictionTableDirectory = environment.getProperty("efr.prediction-table.directory", "");
+        return new ModelResults(new ResultCache<>("protein",
+                        cacheSize,
+                        cacheTimeToLive,
+                        cacheDirectory.isEmpty() ? null : Paths.get(cacheDirectory, "proteins", resultVersion),
+                        diskTimeToLive,
+                        diskMaximumSize),
+                new ResultCache<>("upload",
+                        cacheSize,
+                        cacheTimeToLive,
+                        cacheDirectory.isEmpty() ? null : Paths.get(cacheDirectory, "uploads", resultVersion),
+                        diskTimeToLive,
+                        diskMaximumSize),
+                predictionTableDirectory.isEmpty() ? null : new PredictionTable(Paths.get(predictionTableDirectory, resultVersion)));
+    }
+
+    /**
+     * release the threads of the classifier and stop reloading models - a classifier which is still loading is left
+     * to the JVM
+     */
+    @PreDestroy
+    public void deactivate() {
+        if(!classification.isReady()) {
+            return;
+        }
+
+        Classification classification = this.classification.get();
+        classification.earlyFoldingClassifier.shutdown();
+        classification.modelRegistry.close();
+        if(classification.topologyCalculator != null) {
+            classification.topologyCalculator.close();
+        }
+    }
+
+    /**
+     * @return the classifier as reported by the readiness endpoint
+     */
+    public StartupResource<?> getStartupResource() {
+        return classification;
+    }
+
+    /**
+     * @return true if the classifier can be used without waiting
+     */
+    public boolean isReady() {
+        return classification.isReady();
+    }
+
+    public ModelRegistry getModelRegistry() {
+        return classification.get().modelRegistry;
+    }
+
+    public BatchClassifier getBatchClassifier() {
+        return classification.get().batchClassifier;
+    }
+
+    /**
+     * @param model the name or version of a model, <code>null</code> for the default model
+     * @return the loaded model
+     * @throws ComputationException if no such model is loaded
+     */
+    public ModelBundle resolveModel(String model) {
+        return getModelRegistry().get(model)
+                .orElseThrow(() -> new ComputationException("unknown model " + model + " - available models are listed by /api/models"));
+    }
+
+    /**
+     * @param model the model
+     * @return the results computed by the model - created on first use, which reads the cache directory, so concurrent
+     * requests for other models do not wait for it
+     */
+    public ModelResults getResults(ModelBundle model) {
+        Classification classification = this.classification.get();
+        String version = model.getVersion();
+        CompletableFuture<ModelResults> future = classification.modelResults.get(version);
+        if(future == null) {
+            CompletableFuture<ModelResults> created = new CompletableFuture<>();
+            future = classification.modelResults.putIfAbsent(version, created);
+            if(future == null) {
+                future = created;
+                try {
+                    created.complete(createModelResults(classification.topologyEngine.getResultVersion(version)));
+                } catch (RuntimeException e) {
+                    // the next request tries again
+                    classification.modelResults.remove(version, created);
+                    created.completeExceptionally(e);
+                }
+            }
+        }
+
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if(e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * annotate and classify a single chain
+     * @param chain the chain
+     * @param model the model to use
+     * @param progressListener records the progress
+     * @return the classified protein
+     */
+    public Protein classify(Chain chain, ModelBundle model, ProgressListener progressListener) {
+        classification.get().earlyFoldingClassifier.annotate(Collections.singletonList(chain), progressListener);
+        return classifyAnnotated(chain, model, progressListener);
+    }
+
+    /**
+     * annotate and classify a chain of the PDB - the structure-level annotation is shared with sibling chains
+     * requested shortly before or after
+     * @param pdbId the PDB id
+     * @param chainId the chain id (e.g. A)
+     * @param model the model to use
+     * @param progressListener records the progress
+     * @param annotationListener receives the classified protein, if the structure was annotated for this request
+     *                           (rather than reused from a sibling chain) - e.g. to measure the full processing time
+     * @return the classified protein
+     */
+    public Protein classify(String pdbId,
+                            String chainId,
+                            ModelBundle model,
+                            ProgressListener progressListener,
+                            Consumer<Protein> annotationListener) {
+        return classification.get().annotatedStructureCache.apply(pdbId,
+                chainId,
+                progressListener,
+                (chain, annotated) -> {
+                    Protein protein = classifyAnnotated(chain, model, progressListener);
+                    if(annotated) {
+                        annotationListener.accept(protein);
+                    }
+                    return protein;
+                });
+    }
+
+    private Protein classifyAnnotated(Chain chain, ModelBundle model, ProgressListener progressListener) {
+        EarlyFoldingClassifier.EarlyFoldingClassification earlyFoldingClassification = classification.get()
+                .earlyFoldingClassifier
+                .classify(chain, model, progressListener);
+
+        Protein protein = new Protein(chain, earlyFoldingClassification.getPredictions());
+        logger.info("created protein {}_{} with EFR: {}",
+                protein.getPdbId(),
+                protein.getChainId(),
+                protein.getEarlyFoldingResidues());
+        return protein;
+    }
+
+    /**
+     * everything needed to classify chains
+     */
+    private static class Classification {
+        private final EarlyFoldingClassifier earlyFoldingClassifier;
+        private final ModelRegistry modelRegistry;
+        /**
+         * distinguishes results of different feature implementations computed by the same model
+         */
+        private final TopologyEngine topologyEngine;
+        /**
+         * computes the topologic properties for the native engine - <code>null</code> for jstructure
+         */
+        private final TopologyCalculator topologyCalculator;
+        /**
+         * recently annotated structures, shared by requests for sibling chains (and by all models)
+         */
+        private final AnnotatedStructureCache annotatedStructureCache;
+        private final BatchClassifier batchClassifier;
+        /**
+         * the results of each loaded model by model version - created on first use, dropped when the model is unloaded
+         */
+        private final ConcurrentMap<String, CompletableFuture<ModelResults>> modelResults;
+
+        Classification(EarlyFoldingClassifier earlyFoldingClassifier,
+                       ModelRegistry modelRegistry,
+                       TopologyEngine topologyEngine,
+                       TopologyCalculator topologyCalculator,
+                       AnnotatedStructureCache annotatedStructureCache,
+                       BatchClassifier batchClassifier) {
+            this.earlyFoldingClassifier = earlyFoldingClassifier;
+            this.modelRegistry = modelRegistry;
+            this.topologyEngine = topologyEngine;
+            this.topologyCalculator = topologyCalculator;
+            this.annotatedStructureCache = annotatedStructureCache;
+            this.batchClassifier = batchClassifier;
+            this.modelResults = new ConcurrentHashMap<>();
+        }
+
+        void retainResults(List<ModelBundle> loadedBundles) {
+            modelResults.keySet().retainAll(loadedBundles.stream()
+                    .map(ModelBundle::getVersion)
+                    .collect(Collectors.toSet()));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package de.bioforscher.efr.service;
+
+import de.bioforscher.efr.cache.ResultCache;
+import de.bioforscher.efr.model.Protein;
+import de.bioforscher.efr.table.PredictionTable;
+
+import java.util.Optional;
+
+/**
+ * the results of a single model - results are only valid for the model (and the features) they were computed with
+ */
+public class ModelResults {
+    /**
+     * results of PDB chains, keyed by their id
+     */
+    private final ResultCache<Protein> proteinCache;
+    /**
+     * results of uploaded structures, keyed by the digest of the uploaded file
+     */
+    private final ResultCache<Protein> uploadCache;
+    /**
+     * predictions of PDB chains computed in advance (see S6_PrecomputePredictions), <code>null</code> if disabled
+     */
+    private final PredictionTable predictionTable;
+
+    ModelResults(ResultCache<Protein> proteinCache,
+                 ResultCache<Protein> uploadCache,
+                 PredictionTable predictionTable) {
+        this.proteinCache = proteinCache;
+        this.uploadCache = uploadCache;
+        this.predictionTable = predictionTable;
+    }
+
+    public ResultCache<Protein> getProteinCache() {
+        return proteinCache;
+    }
+
+    public ResultCache<Protein> getUploadCache() {
+        return uploadCache;
+    }
+
+    /**
+     * @param chainId the chain id (e.g. 1acj_A)
+     * @return the precomputed predictions of the chain (without coordinates), empty if there are none
+     */
+    public Optional<Protein> getPrecomputedProtein(String chainId) {
+        return predictionTable != null ? predictionTable.get(chainId) : Optional.empty();
+    }
+}
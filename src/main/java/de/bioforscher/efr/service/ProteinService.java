@@ -0,0 +1,359 @@
+package de.bioforscher.efr.service;
+
+import de.bioforscher.efr.cache.ContentHash;
+import de.bioforscher.efr.job.CostModel;
+import de.bioforscher.efr.job.Job;
+import de.bioforscher.efr.job.JobCost;
+import de.bioforscher.efr.job.JobManager;
+import de.bioforscher.efr.metrics.MetricsRegistry;
+import de.bioforscher.efr.model.Protein;
+import de.bioforscher.efr.model.ResiduePrediction;
+import de.bioforscher.efr.registry.ModelBundle;
+import de.bioforscher.efr.startup.StartupMode;
+import de.bioforscher.efr.startup.StartupResource;
+import de.bioforscher.efr.store.StoredStructure;
+import de.bioforscher.efr.store.StructureStore;
+import de.bioforscher.jstructure.model.feature.ComputationException;
+import de.bioforscher.jstructure.model.structure.Chain;
+import de.bioforscher.jstructure.model.structure.Structure;
+import de.bioforscher.jstructure.model.structure.StructureParser;
+import de.bioforscher.jstructure.model.structure.selection.SelectionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.*;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * classifies chains of the PDB and uploaded structures as jobs - results are served from the caches and the prediction
+ * table whenever possible
+ */
+@Component
+public class ProteinService {
+    private static final Logger logger = LoggerFactory.getLogger(ProteinService.class);
+    public static final String EXAMPLE_DATA_ID = "1acj_A";
+    /**
+     * a PDB id and a chain id, e.g. 1acj_A
+     */
+    private static final Pattern VALID_CHAIN_ID = Pattern.compile("[0-9a-zA-Z]{4}_[0-9a-zA-Z]+");
+    /**
+     *  the flag indicating that a file was uploaded (with need to be base64-encoded to be processed by the REST-
+     *  interface) - this value can also be used to decode the submitted string as e.g. the header information has be
+     *  removed
+     */
+    private static final String FILE_ENCODING_FLAG = "base64,";
+    private static final double[] PER_RESIDUE_BUCKETS = { 0.0001, 0.0005, 0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1, 5 };
+    private final JobManager jobManager;
+    private final ClassificationService classificationService;
+    private final StructureStore structureStore;
+    private final Environment environment;
+    private StartupResource<Protein> exampleProtein;
+
+    public ProteinService(JobManager jobManager,
+                          ClassificationService classificationService,
+                          StructureStore structureStore,
+                          Environment environment) {
+        this.jobManager = jobManager;
+        this.classificationService = classificationService;
+        this.structureStore = structureStore;
+        this.environment = environment;
+    }
+
+    @PostConstruct
+    public void activate() {
+        this.exampleProtein = new StartupResource<>("example-protein", this::createExampleProtein);
+        exampleProtein.start(environment.getProperty("efr.startup.mode", StartupMode.class, StartupMode.BACKGROUND));
+    }
+
+    /**
+     * create example data container
+     */
+    private Protein createExampleProtein() {
+        String[] exampleSplit = EXAMPLE_DATA_ID.split("_");
+        Chain chain = structureStore.parse(exampleSplit[0]).select().chainId(exampleSplit[1]).asChain();
+        List<String> csvLines;
+        try {
+            try(InputStream inputStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("data/example.csv")) {
+                try(InputStreamReader inputStreamReader = new InputStreamReader(inputStream)) {
+                    try (BufferedReader bufferedReader = new BufferedReader(inputStreamReader)) {
+                        csvLines = bufferedReader.lines().collect(Collectors.toList());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Map<String, Integer> residueIndices = new HashMap<>();
+        chain.aminoAcids().forEach(aminoAcid -> residueIndices.put(aminoAcid.getResidueIdentifier().toString(), residueIndices.size()));
+        return new Protein(chain,
+                csvLines.stream()
+                        // skip header
+                        .skip(1)
+                        .map(line -> {
+                            String residueIdentifier = line.split(",")[1];
+                            Integer index = residueIndices.get(residueIdentifier);
+                            if(index == null) {
+                                throw new IllegalStateException("example prediction of residue " + residueIdentifier +
+                                        " does not match any residue of " + EXAMPLE_DATA_ID);
+                            }
+                            return ResiduePrediction.parseCsvLine(line, index);
+                        })
+                        .collect(Collectors.toList()));
+    }
+
+    /**
+     * @return the example as reported by the readiness endpoint
+     */
+    public StartupResource<?> getStartupResource() {
+        return exampleProtein;
+    }
+
+    /**
+     * the coordinates of a chain of the structure store, without parsing the entry
+     * @param id the chain id (e.g. 1acj_A)
+     * @param includeLigands whether to include the ligands (and water) of the chain
+     * @return the chain in PDB format, empty if the entry is not part of the structure store
+     * @throws ComputationException if the id is no valid chain id
+     */
+    public Optional<String> getStoredPdbRepresentation(String id, boolean includeLigands) {
+        String[] split = splitChainId(id);
+        return structureStore.getPdbRepresentation(split[0], split[1], includeLigands);
+    }
+
+    /**
+     * classify a chain of the PDB
+     * @param id the chain id (e.g. 1acj_A)
+     * @param model the name or version of the model to use, <code>null</code> for the default model
+     * @return the job handle - already finished, if the result is known
+     * @throws ComputationException if the id is no valid chain id
+     */
+    public Job<Protein> submitProteinJob(String id, String model) {
+        logger.info("providing protein with id {}", id);
+        // the example was classified by the bundled model
+        boolean bundledModel = classificationService.isReady() ?
+                classificationService.resolveModel(model) == ModelBundle.bundled() :
+                model == null || ModelBundle.BUNDLED_NAME.equals(model);
+        if(EXAMPLE_DATA_ID.equals(id) && bundledModel) {
+            return exampleProtein.isReady() ?
+                    jobManager.completed(id, exampleProtein.get()) :
+                    jobManager.submit("id:" + EXAMPLE_DATA_ID, id, exampleProtein::get);
+        }
+
+        String[] split = splitChainId(id);
+        String pdbId = split[0];
+        String chainId = split[1];
+        String cacheKey = pdbId + "_" + chainId;
+
+        // the cache can only be consulted right away, once the classifier is loaded
+        if(classificationService.isReady()) {
+            ModelResults modelResults = classificationService.getResults(classificationService.resolveModel(model));
+            Optional<Protein> cachedProtein = modelResults.getProteinCache().get(cacheKey);
+            if(cachedProtein.isPresent()) {
+                logger.info("serving {} from cache", id);
+                return jobManager.completed(id, cachedProtein.get());
+            }
+
+            // precomputed predictions are served right away, when their coordinates do not have to be parsed
+            Optional<Protein> precomputedProtein = modelResults.getPrecomputedProtein(cacheKey);
+            Optional<String> storedPdbRepresentation = precomputedProtein.isPresent() ?
+                    structureStore.getPdbRepresentation(pdbId, chainId, true) :
+                    Optional.empty();
+            if(storedPdbRepresentation.isPresent()) {
+                logger.info("serving {} from prediction table", id);
+                return jobManager.completed(id, precomputedProtein.get().withPdbRepresentation(storedPdbRepresentation.get()));
+            }
+        }
+
+        return jobManager.submit("id:" + cacheKey + (model == null ? "" : "@" + model), id, estimateChainCost(pdbId, chainId), progressListener -> {
+            // the model is chosen once - replacing it only affects subsequent jobs
+            ModelBundle modelBundle = classificationService.resolveModel(model);
+            ModelResults modelResults = classificationService.getResults(modelBundle);
+            Optional<Protein> cachedProtein = modelResults.getProteinCache().get(cacheKey);
+            if(cachedProtein.isPresent()) {
+                return cachedProtein.get();
+            }
+
+            Optional<Protein> precomputedProtein = modelResults.getPrecomputedProtein(cacheKey);
+            if(precomputedProtein.isPresent()) {
+                progressListener.onProgress("table", "found precomputed predictions of " + cacheKey);
+                String pdbRepresentation = structureStore.getPdbRepresentation(pdbId, chainId, true)
+                        .orElseGet(() -> structureStore.parse(pdbId)
+                                .select()
+                                .chainId(chainId)
+                                .asChain()
+                                .getPdbRepresentation());
+                return precomputedProtein.get().withPdbRepresentation(pdbRepresentation);
+            }
+
+            long start = System.nanoTime();
+            // reusing the annotation of a sibling chain would make the chain look much cheaper than it is
+            Protein protein = classificationService.classify(pdbId,
+                    chainId,
+                    modelBundle,
+                    progressListener,
+                    annotatedProtein -> observeThroughput(annotatedProtein, System.nanoTime() - start));
+            modelResults.getProteinCache().put(cacheKey, protein);
+            return protein;
+        });
+    }
+
+    /**
+     * classify an uploaded structure
+     * @param postPayload the base64-encoded file
+     * @param model the name or version of the model to use, <code>null</code> for the default model
+     * @return the job handle - already finished, if the result is known
+     * @throws ComputationException if the payload contains no valid file
+     */
+    public Job<Protein> submitStructureJob(String postPayload, String model) {
+        logger.info("processing submitted structure");
+        byte[] uploadedFileContent = decodeSubmittedFile(postPayload);
+        String hash = ContentHash.sha256(uploadedFileContent);
+
+        if(classificationService.isReady()) {
+            ModelResults modelResults = classificationService.getResults(classificationService.resolveModel(model));
+            Optional<Protein> cachedProtein = modelResults.getUploadCache().get(hash);
+            if(cachedProtein.isPresent()) {
+                logger.info("serving uploaded structure {} from cache", hash);
+                return jobManager.completed("upload " + hash, cachedProtein.get());
+            }
+        }
+
+        return jobManager.submit("upload:" + hash + (model == null ? "" : "@" + model),
+                "upload " + hash,
+                estimateUploadCost(uploadedFileContent),
+                progressListener -> {
+            ModelBundle modelBundle = classificationService.resolveModel(model);
+            ModelResults modelResults = classificationService.getResults(modelBundle);
+            Optional<Protein> cachedProtein = modelResults.getUploadCache().get(hash);
+            if(cachedProtein.isPresent()) {
+                return cachedProtein.get();
+            }
+
+            long start = System.nanoTime();
+            Protein protein = classificationService.classify(parseSubmittedChain(uploadedFileContent), modelBundle, progressListener);
+            observeThroughput(protein, System.nanoTime() - start);
+            modelResults.getUploadCache().put(hash, protein);
+            return protein;
+        });
+    }
+
+    /**
+     * @return the PDB id (lower case) and the chain id
+     */
+    private static String[] splitChainId(String id) {
+        if(!VALID_CHAIN_ID.matcher(id).matches()) {
+            throw new ComputationException("invalid chain id " + id + " - expected a PDB id and a chain id, e.g. " + EXAMPLE_DATA_ID);
+        }
+        String[] split = id.split("_");
+        return new String[] { split[0].toLowerCase(), split[1] };
+    }
+
+    private static byte[] decodeSubmittedFile(String postPayload) {
+        try {
+            String structureData = postPayload.substring(postPayload.indexOf(FILE_ENCODING_FLAG) + FILE_ENCODING_FLAG.length(), postPayload.length() - 2);
+            return Base64.getDecoder().decode(structureData);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new ComputationException("no valid file content");
+        }
+    }
+
+    private static Chain parseSubmittedChain(byte[] uploadedFileContent) {
+        try {
+            Structure structure = StructureParser.fromInputStream(new ByteArrayInputStream(uploadedFileContent)).parse();
+            return structure.select().asChain();
+        } catch (NullPointerException e) {
+            // NPE happens when ProteinIdentifier cannot be set
+            throw new ComputationException("no valid file content");
+        } catch (SelectionException e) {
+            throw new ComputationException("structure does not contain amino acids");
+        } catch (Exception e) {
+            // wrap generic exceptions
+            throw new ComputationException(e);
+        }
+    }
+
+    /**
+     * the size of chains in the structure store is known without parsing them - other chains are assumed to be of typical
+     * size
+     */
+    private JobCost estimateChainCost(String pdbId, String chainId) {
+        CostModel costModel = jobManager.getCostModel();
+        Optional<StoredStructure> storedStructure = structureStore.get(pdbId);
+        if(!storedStructure.isPresent()) {
+            return costModel.estimateTypical();
+        }
+
+        StoredStructure structure = storedStructure.get();
+        int chain = structure.indexOfChain(chainId);
+        if(chain == -1) {
+            return costModel.estimateTypical();
+        }
+        int residueCount = 0;
+        int atomCount = 0;
+        for(int group = structure.getFirstGroup(chain); group < structure.getGroupEnd(chain); group++) {
+            if(structure.isAminoAcid(group)) {
+                residueCount++;
+            }
+            atomCount += structure.getAtomEnd(group) - structure.getFirstAtom(group);
+        }
+        return costModel.estimate(residueCount, atomCount);
+    }
+
+    /**
+     * count the atom records and alpha carbons of an uploaded file - cheaper by far than parsing it
+     */
+    private JobCost estimateUploadCost(byte[] uploadedFileContent) {
+        int residueCount = 0;
+        int atomCount = 0;
+        int lineStart = 0;
+        for(int i = 0; i <= uploadedFileContent.length; i++) {
+            if(i < uploadedFileContent.length && uploadedFileContent[i] != '\n') {
+                continue;
+            }
+            if(startsWith(uploadedFileContent, lineStart, "ATOM  ") || startsWith(uploadedFileContent, lineStart, "HETATM")) {
+                atomCount++;
+                if(startsWith(uploadedFileContent, lineStart + 12, " CA ")) {
+                    residueCount++;
+                }
+            }
+            lineStart = i + 1;
+        }
+        return residueCount == 0 ?
+                jobManager.getCostModel().estimateTypical() :
+                jobManager.getCostModel().estimate(residueCount, atomCount);
+    }
+
+    private static boolean startsWith(byte[] content, int offset, String prefix) {
+        if(offset + prefix.length() > content.length) {
+            return false;
+        }
+        for(int i = 0; i < prefix.length(); i++) {
+            if(content[offset + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * chains differ in length by orders of magnitude - normalized times tell whether the service got slower and let the
+     * job queue estimate how long chains take
+     */
+    private void observeThroughput(Protein protein, long durationNanos) {
+        int residueCount = protein.getPredictions().size();
+        if(residueCount == 0) {
+            return;
+        }
+        jobManager.getCostModel().observe(residueCount, durationNanos);
+        MetricsRegistry.getDefault()
+                .histogram("efr_residue_processing_seconds",
+                        "time to annotate and classify a chain divided by its number of residues",
+                        PER_RESIDUE_BUCKETS)
+                .observe(durationNanos / 1e9 / residueCount);
+    }
+}
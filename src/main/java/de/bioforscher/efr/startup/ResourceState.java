@@ -0,0 +1,8 @@
+package de.bioforscher.efr.startup;
+
+public enum ResourceState {
+    PENDING,
+    LOADING,
+    READY,
+    FAILED
+}
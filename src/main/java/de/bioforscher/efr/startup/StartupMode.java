@@ -0,0 +1,19 @@
+package de.bioforscher.efr.startup;
+
+/**
+ * when expensive resources are loaded
+ */
+public enum StartupMode {
+    /**
+     * during startup - the application only starts serving once everything is available
+     */
+    EAGER,
+    /**
+     * right after startup, but without delaying it - requests wait for the resources they need
+     */
+    BACKGROUND,
+    /**
+     * by the first request which needs them
+     */
+    LAZY
+}
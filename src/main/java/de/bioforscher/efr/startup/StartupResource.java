@@ -0,0 +1,139 @@
+package de.bioforscher.efr.startup;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * a resource which is expensive to create - it is loaded at most once, either explicitly or by its first user, who
+ * will wait for it in any case
+ * @param <T> the type of the resource
+ */
+public class StartupResource<T> {
+    private static final Logger logger = LoggerFactory.getLogger(StartupResource.class);
+    private final String name;
+    private final Supplier<T> loader;
+    private final CompletableFuture<T> future;
+    private final AtomicBoolean started;
+    private volatile ResourceState state;
+    private volatile long loadingTime;
+    private volatile String message;
+
+    /**
+     * @param name the name reported by the readiness endpoint
+     * @param loader creates the resource
+     */
+    public StartupResource(String name, Supplier<T> loader) {
+        this.name = name;
+        this.loader = loader;
+        this.future = new CompletableFuture<>();
+        this.started = new AtomicBoolean();
+        this.state = ResourceState.PENDING;
+        this.loadingTime = -1;
+    }
+
+    /**
+     * load the resource in the calling thread - does nothing, if loading was started before
+     */
+    public void load() {
+        if(!started.compareAndSet(false, true)) {
+            return;
+        }
+
+        state = ResourceState.LOADING;
+        logger.info("loading {}", name);
+        long start = System.currentTimeMillis();
+        try {
+            T resource = loader.get();
+            loadingTime = System.currentTimeMillis() - start;
+            state = ResourceState.READY;
+            logger.info("{} available after {} ms",
+                    name,
+                    loadingTime);
+            future.complete(resource);
+        } catch (RuntimeException | Error e) {
+            loadingTime = System.currentTimeMillis() - start;
+            message = e.getMessage();
+            state = ResourceState.FAILED;
+            logger.error("could not load {}", name, e);
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * load the resource in a separate thread - does nothing, if loading was started before
+     */
+    public void loadInBackground() {
+        if(started.get()) {
+            return;
+        }
+        Thread thread = new Thread(this::load, "efr-startup-" + name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * load the resource as demanded by the startup mode
+     * @param startupMode when to load the resource
+     */
+    public void start(StartupMode startupMode) {
+        switch (startupMode) {
+            case EAGER:
+                load();
+                break;
+            case BACKGROUND:
+                loadInBackground();
+                break;
+            default:
+                // loaded by the first request needing it
+        }
+    }
+
+    /**
+     * access the resource - it is loaded in the calling thread, if nobody did so before, or awaited if it is currently
+     * loading
+     * @return the resource
+     * @throws IllegalStateException if the resource could not be loaded
+     */
+    @JsonIgnore
+    public T get() {
+        load();
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException(name + " is not available: " + message, e.getCause());
+        }
+    }
+
+    /**
+     * @return true if the resource can be accessed without waiting
+     */
+    @JsonIgnore
+    public boolean isReady() {
+        return state == ResourceState.READY;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ResourceState getState() {
+        return state;
+    }
+
+    /**
+     * @return the time needed to load the resource in milliseconds, -1 if it is not loaded yet
+     */
+    public long getLoadingTime() {
+        return loadingTime;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,166 @@
+package de.bioforscher.efr.store;
+
+import java.nio.FloatBuffer;
+
+/**
+ * writes the content of a {@link StoredStructure} as fixed-width PDB records (HEADER, TITLE, ATOM, HETATM, TER, END)
+ */
+class PdbRecordWriter {
+    private static final int TITLE_LENGTH = 70;
+    private final StoredStructure structure;
+    private final FloatBuffer coordinates;
+    private final boolean includeLigands;
+    private final StringBuilder builder;
+
+    PdbRecordWriter(StoredStructure structure, boolean includeLigands) {
+        this.structure = structure;
+        this.coordinates = structure.getCoordinates();
+        this.includeLigands = includeLigands;
+        // an atom record is 80 characters wide
+        this.builder = new StringBuilder(81 * structure.getAtomCount() + 1024);
+    }
+
+    void writeHeader() {
+        builder.append("HEADER    ");
+        appendLeft("", 52);
+        appendLeft(structure.getPdbId() == null ? "" : structure.getPdbId().toUpperCase(), 4);
+        builder.append('\n');
+
+        String title = structure.getTitle();
+        if(title == null || title.isEmpty()) {
+            return;
+        }
+        builder.append("TITLE     ")
+                .append(title, 0, Math.min(title.length(), TITLE_LENGTH))
+                .append('\n');
+        int continuation = 2;
+        for(int start = TITLE_LENGTH; start < title.length(); start += TITLE_LENGTH - 1) {
+            builder.append("TITLE   ");
+            appendRight(String.valueOf(continuation++), 2);
+            builder.append(' ')
+                    .append(title, start, Math.min(title.length(), start + TITLE_LENGTH - 1))
+                    .append('\n');
+        }
+    }
+
+    /**
+     * like PDB files: polymer atoms, a TER record and the ligands of the chain
+     */
+    void writeChain(int chain) {
+        String chainId = structure.getChainId(chain);
+        int lastSerial = 0;
+        int lastPolymerGroup = -1;
+        for(int group = structure.getFirstGroup(chain); group < structure.getGroupEnd(chain); group++) {
+            if(structure.isLigand(group)) {
+                continue;
+            }
+
+            for(int atom = structure.getFirstAtom(group); atom < structure.getAtomEnd(group); atom++) {
+                writeAtom("ATOM  ", chainId, group, atom);
+                lastSerial = structure.getPdbSerial(atom);
+            }
+            lastPolymerGroup = group;
+        }
+
+        if(lastPolymerGroup != -1) {
+            builder.append("TER   ");
+            appendRight(String.valueOf(lastSerial + 1), 5);
+            builder.append("      ");
+            appendRight(structure.getThreeLetterCode(lastPolymerGroup), 3);
+            builder.append(' ');
+            appendChainId(chainId);
+            appendResidueIdentifier(lastPolymerGroup);
+            builder.append('\n');
+        }
+
+        if(!includeLigands) {
+            return;
+        }
+        for(int group = structure.getFirstGroup(chain); group < structure.getGroupEnd(chain); group++) {
+            if(!structure.isLigand(group)) {
+                continue;
+            }
+
+            for(int atom = structure.getFirstAtom(group); atom < structure.getAtomEnd(group); atom++) {
+                writeAtom("HETATM", chainId, group, atom);
+            }
+        }
+    }
+
+    private void writeAtom(String record, String chainId, int group, int atom) {
+        String name = structure.getAtomName(atom);
+        String element = structure.getElement(atom);
+        builder.append(record);
+        appendRight(String.valueOf(structure.getPdbSerial(atom)), 5);
+        builder.append(' ');
+        // names of atoms with single-letter elements start in the second column of their field
+        if(name.length() < 4 && !(element.length() == 2 && name.startsWith(element))) {
+            builder.append(' ');
+            appendLeft(name, 3);
+        } else {
+            appendLeft(name, 4);
+        }
+        builder.append(' ');
+        appendRight(structure.getThreeLetterCode(group), 3);
+        builder.append(' ');
+        appendChainId(chainId);
+        appendResidueIdentifier(group);
+        builder.append("   ");
+        appendFixed(coordinates.get(3 * atom), 8, 3);
+        appendFixed(coordinates.get(3 * atom + 1), 8, 3);
+        appendFixed(coordinates.get(3 * atom + 2), 8, 3);
+        appendFixed(structure.getOccupancy(atom), 6, 2);
+        appendFixed(structure.getBfactor(atom), 6, 2);
+        builder.append("          ");
+        appendRight(element, 2);
+        builder.append('\n');
+    }
+
+    private void appendChainId(String chainId) {
+        // the PDB format has room for a single character
+        builder.append(chainId.isEmpty() ? ' ' : chainId.charAt(0));
+    }
+
+    private void appendResidueIdentifier(int group) {
+        appendRight(String.valueOf(structure.getResidueNumber(group)), 4);
+        String insertionCode = structure.getInsertionCode(group);
+        builder.append(insertionCode == null || insertionCode.isEmpty() ? ' ' : insertionCode.charAt(0));
+    }
+
+    private void appendLeft(String value, int width) {
+        builder.append(value);
+        for(int i = value.length(); i < width; i++) {
+            builder.append(' ');
+        }
+    }
+
+    private void appendRight(String value, int width) {
+        for(int i = value.length(); i < width; i++) {
+            builder.append(' ');
+        }
+        builder.append(value);
+    }
+
+    /**
+     * equivalent to <code>String.format("%width.decimalsf", value)</code> without its overhead
+     */
+    private void appendFixed(double value, int width, int decimals) {
+        long scale = (long) Math.pow(10, decimals);
+        long scaled = Math.round(Math.abs(value) * scale);
+        String fraction = String.valueOf(scaled % scale);
+        StringBuilder formatted = new StringBuilder(width);
+        if(value < 0 && scaled != 0) {
+            formatted.append('-');
+        }
+        formatted.append(scaled / scale).append('.');
+        for(int i = fraction.length(); i < decimals; i++) {
+            formatted.append('0');
+        }
+        formatted.append(fraction);
+        appendRight(formatted.toString(), width);
+    }
+
+    String finish() {
+        return builder.append("END\n").toString();
+    }
+}
@@ -0,0 +1,302 @@
+package de.bioforscher.efr.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * a parsed PDB entry in compact binary form - all values are big-endian 4 byte values stored column by column, so
+ * the file can be memory-mapped and coordinates are read without copying:
+ * <pre>
+ * int      magic number 'EFRS'
+ * int      format version
+ * int      pdb id, title (string indices)
+ * int      number of chains c, groups g, atoms a and strings s
+ * float    3a coordinates (x, y, z of each atom)
+ * float    a occupancies
+ * float    a b-factors
+ * int      a pdb serials
+ * int      a atom names, a elements (string indices)
+ * int      g + 1 offsets of the first atom of each group, followed by a
+ * int      g residue numbers
+ * int      g insertion codes, g three-letter codes (string indices, -1 for absent values)
+ * int      g flags (see {@link #AMINO_ACID_FLAG}, {@link #LIGAND_FLAG})
+ * int      c + 1 offsets of the first group of each chain, followed by g
+ * int      c chain ids (string indices)
+ * string   s strings (each: int length, UTF-8 bytes)
+ * </pre>
+ * instances are immutable and may be shared between threads
+ */
+public class StoredStructure {
+    static final int MAGIC_NUMBER = 0x45465253;
+    static final int VERSION = 1;
+    static final int HEADER_LENGTH = 32;
+    static final int AMINO_ACID_FLAG = 1;
+    static final int LIGAND_FLAG = 2;
+    private final FloatBuffer coordinates;
+    private final FloatBuffer occupancies;
+    private final FloatBuffer bFactors;
+    private final IntBuffer pdbSerials;
+    private final IntBuffer atomNames;
+    private final IntBuffer elements;
+    private final IntBuffer groupAtomOffsets;
+    private final IntBuffer residueNumbers;
+    private final IntBuffer insertionCodes;
+    private final IntBuffer threeLetterCodes;
+    private final IntBuffer groupFlags;
+    private final IntBuffer chainGroupOffsets;
+    private final IntBuffer chainIds;
+    private final String[] strings;
+    private final String pdbId;
+    private final String title;
+
+    private StoredStructure(ByteBuffer buffer) throws IOException {
+        if(buffer.getInt(0) != MAGIC_NUMBER) {
+            throw new IOException("not a stored structure");
+        }
+        if(buffer.getInt(4) != VERSION) {
+            throw new IOException("unsupported format version " + buffer.getInt(4));
+        }
+        int pdbIdIndex = buffer.getInt(8);
+        int titleIndex = buffer.getInt(12);
+        int chainCount = buffer.getInt(16);
+        int groupCount = buffer.getInt(20);
+        int atomCount = buffer.getInt(24);
+        int stringCount = buffer.getInt(28);
+
+        int position = HEADER_LENGTH;
+        this.coordinates = slice(buffer, position, 3 * atomCount).asFloatBuffer();
+        position += 12 * atomCount;
+        this.occupancies = slice(buffer, position, atomCount).asFloatBuffer();
+        position += 4 * atomCount;
+        this.bFactors = slice(buffer, position, atomCount).asFloatBuffer();
+        position += 4 * atomCount;
+        this.pdbSerials = slice(buffer, position, atomCount).asIntBuffer();
+        position += 4 * atomCount;
+        this.atomNames = slice(buffer, position, atomCount).asIntBuffer();
+        position += 4 * atomCount;
+        this.elements = slice(buffer, position, atomCount).asIntBuffer();
+        position += 4 * atomCount;
+        this.groupAtomOffsets = slice(buffer, position, groupCount + 1).asIntBuffer();
+        position += 4 * (groupCount + 1);
+        this.residueNumbers = slice(buffer, position, groupCount).asIntBuffer();
+        position += 4 * groupCount;
+        this.insertionCodes = slice(buffer, position, groupCount).asIntBuffer();
+        position += 4 * groupCount;
+        this.threeLetterCodes = slice(buffer, position, groupCount).asIntBuffer();
+        position += 4 * groupCount;
+        this.groupFlags = slice(buffer, position, groupCount).asIntBuffer();
+        position += 4 * groupCount;
+        this.chainGroupOffsets = slice(buffer, position, chainCount + 1).asIntBuffer();
+        position += 4 * (chainCount + 1);
+        this.chainIds = slice(buffer, position, chainCount).asIntBuffer();
+        position += 4 * chainCount;
+
+        // strings are few (distinct atom names, residue names and chain ids) - they are decoded once
+        this.strings = new String[stringCount];
+        for(int i = 0; i < stringCount; i++) {
+            int length = buffer.getInt(position);
+            byte[] bytes = new byte[length];
+            ByteBuffer stringBuffer = buffer.duplicate();
+            stringBuffer.position(position + 4);
+            stringBuffer.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            position += 4 + length;
+        }
+        this.pdbId = string(pdbIdIndex);
+        this.title = string(titleIndex);
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int position, int values) throws IOException {
+        if(position + 4L * values > buffer.limit()) {
+            throw new IOException("truncated stored structure");
+        }
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(position);
+        slice.limit(position + 4 * values);
+        return slice.slice();
+    }
+
+    /**
+     * map a stored structure into memory
+     * @param path the file to read
+     * @return the structure
+     * @throws IOException if the file cannot be read or is no stored structure
+     */
+    public static StoredStructure map(Path path) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new StoredStructure(buffer);
+        }
+    }
+
+    /**
+     * @param buffer the encoded structure (see {@link StructureStoreWriter#encode})
+     * @return the structure
+     * @throws IOException if the buffer does not contain a stored structure
+     */
+    public static StoredStructure wrap(ByteBuffer buffer) throws IOException {
+        return new StoredStructure(buffer);
+    }
+
+    private String string(int index) {
+        return index < 0 ? null : strings[index];
+    }
+
+    public String getPdbId() {
+        return pdbId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public int getChainCount() {
+        return chainIds.limit();
+    }
+
+    public int getGroupCount() {
+        return residueNumbers.limit();
+    }
+
+    public int getAtomCount() {
+        return pdbSerials.limit();
+    }
+
+    public List<String> getChainIds() {
+        String[] ids = new String[getChainCount()];
+        for(int chain = 0; chain < ids.length; chain++) {
+            ids[chain] = getChainId(chain);
+        }
+        return Arrays.asList(ids);
+    }
+
+    public String getChainId(int chain) {
+        return string(chainIds.get(chain));
+    }
+
+    /**
+     * @param chainId the chain id (e.g. A)
+     * @return the index of the chain, -1 if there is no such chain
+     */
+    public int indexOfChain(String chainId) {
+        for(int chain = 0; chain < getChainCount(); chain++) {
+            if(getChainId(chain).equals(chainId)) {
+                return chain;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the index of the first group of the chain
+     */
+    public int getFirstGroup(int chain) {
+        return chainGroupOffsets.get(chain);
+    }
+
+    /**
+     * @return the index after the last group of the chain
+     */
+    public int getGroupEnd(int chain) {
+        return chainGroupOffsets.get(chain + 1);
+    }
+
+    public int getResidueNumber(int group) {
+        return residueNumbers.get(group);
+    }
+
+    /**
+     * @return the insertion code, <code>null</code> if the residue has none
+     */
+    public String getInsertionCode(int group) {
+        return string(insertionCodes.get(group));
+    }
+
+    public String getThreeLetterCode(int group) {
+        return string(threeLetterCodes.get(group));
+    }
+
+    public boolean isAminoAcid(int group) {
+        return (groupFlags.get(group) & AMINO_ACID_FLAG) != 0;
+    }
+
+    public boolean isLigand(int group) {
+        return (groupFlags.get(group) & LIGAND_FLAG) != 0;
+    }
+
+    /**
+     * @return the index of the first atom of the group
+     */
+    public int getFirstAtom(int group) {
+        return groupAtomOffsets.get(group);
+    }
+
+    /**
+     * @return the index after the last atom of the group
+     */
+    public int getAtomEnd(int group) {
+        return groupAtomOffsets.get(group + 1);
+    }
+
+    public int getPdbSerial(int atom) {
+        return pdbSerials.get(atom);
+    }
+
+    public String getAtomName(int atom) {
+        return string(atomNames.get(atom));
+    }
+
+    public String getElement(int atom) {
+        return string(elements.get(atom));
+    }
+
+    public float getOccupancy(int atom) {
+        return occupancies.get(atom);
+    }
+
+    public float getBfactor(int atom) {
+        return bFactors.get(atom);
+    }
+
+    /**
+     * @return a read-only view of the coordinates of all atoms (x, y, z of atom i at 3i, 3i + 1, 3i + 2) - backed by
+     * the mapped file
+     */
+    public FloatBuffer getCoordinates() {
+        return coordinates.asReadOnlyBuffer();
+    }
+
+    /**
+     * @param includeLigands whether to write ligands (and water)
+     * @return the whole entry in PDB format
+     */
+    public String toPdbRepresentation(boolean includeLigands) {
+        PdbRecordWriter writer = new PdbRecordWriter(this, includeLigands);
+        writer.writeHeader();
+        for(int chain = 0; chain < getChainCount(); chain++) {
+            writer.writeChain(chain);
+        }
+        return writer.finish();
+    }
+
+    /**
+     * @param chain the index of the chain
+     * @param includeLigands whether to write ligands (and water) of the chain
+     * @return the atoms of a single chain in PDB format
+     */
+    public String toPdbRepresentation(int chain, boolean includeLigands) {
+        PdbRecordWriter writer = new PdbRecordWriter(this, includeLigands);
+        writer.writeChain(chain);
+        return writer.finish();
+    }
+}
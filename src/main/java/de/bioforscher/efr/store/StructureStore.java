@@ -0,0 +1,101 @@
+package de.bioforscher.efr.store;
+
+import de.bioforscher.efr.metrics.MetricsRegistry;
+import de.bioforscher.jstructure.model.structure.Structure;
+import de.bioforscher.jstructure.model.structure.StructureParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * pre-parsed entries of the local PDB mirror in a directory, divided like the PDB (e.g. ac/1acj.efrs) - created by
+ * {@link StructureStoreWriter}, entries missing from the store are parsed from the PDB text files
+ */
+public class StructureStore {
+    private static final Logger logger = LoggerFactory.getLogger(StructureStore.class);
+    private static final Pattern VALID_PDB_ID = Pattern.compile("[A-Za-z0-9]{4}");
+    static final String FILE_SUFFIX = ".efrs";
+    private final Path directory;
+
+    /**
+     * @param directory the root of the store - <code>null</code> to always use the PDB text files
+     */
+    public StructureStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @param pdbId the PDB id
+     * @return the file of the entry in this store
+     */
+    public Path resolve(String pdbId) {
+        String normalizedPdbId = pdbId.toLowerCase();
+        return directory.resolve(normalizedPdbId.substring(1, 3)).resolve(normalizedPdbId + FILE_SUFFIX);
+    }
+
+    /**
+     * @param pdbId the PDB id
+     * @return the memory-mapped entry, empty if it is not part of this store (or cannot be read)
+     */
+    public Optional<StoredStructure> get(String pdbId) {
+        Optional<StoredStructure> storedStructure = map(pdbId);
+        MetricsRegistry.getDefault()
+                .counter("efr_structure_store_requests_total", "lookups of pre-parsed structures", "result", storedStructure.isPresent() ? "hit" : "miss")
+                .increment();
+        return storedStructure;
+    }
+
+    private Optional<StoredStructure> map(String pdbId) {
+        if(directory == null || !VALID_PDB_ID.matcher(pdbId).matches()) {
+            return Optional.empty();
+        }
+
+        Path path = resolve(pdbId);
+        if(!Files.exists(path)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(StoredStructure.map(path));
+        } catch (IOException e) {
+            logger.warn("could not read stored structure {}: {}", path, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * jstructure creates its model by parsing PDB records - stored entries are handed over as plain records (no
+     * decompression, no header or annotation records), everything else is parsed from the local PDB mirror
+     * @param pdbId the PDB id
+     * @return the parsed structure
+     */
+    public Structure parse(String pdbId) {
+        Optional<StoredStructure> storedStructure = get(pdbId);
+        if(!storedStructure.isPresent()) {
+            return StructureParser.fromPdbId(pdbId).parse();
+        }
+
+        byte[] pdbRepresentation = storedStructure.get().toPdbRepresentation(true).getBytes(StandardCharsets.UTF_8);
+        return StructureParser.fromInputStream(new ByteArrayInputStream(pdbRepresentation)).parse();
+    }
+
+    /**
+     * the coordinates of a single chain, without parsing the entry
+     * @param pdbId the PDB id
+     * @param chainId the chain id (e.g. A)
+     * @param includeLigands whether to include the ligands (and water) of the chain
+     * @return the chain in PDB format, empty if the entry is not part of this store or has no such chain
+     */
+    public Optional<String> getPdbRepresentation(String pdbId, String chainId, boolean includeLigands) {
+        return get(pdbId).flatMap(storedStructure -> {
+            int chain = storedStructure.indexOfChain(chainId);
+            return chain == -1 ? Optional.empty() : Optional.of(storedStructure.toPdbRepresentation(chain, includeLigands));
+        });
+    }
+}
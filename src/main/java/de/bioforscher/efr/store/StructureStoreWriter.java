@@ -0,0 +1,259 @@
+package de.bioforscher.efr.store;
+
+import de.bioforscher.efr.io.AtomicFiles;
+import de.bioforscher.jstructure.model.identifier.ResidueIdentifier;
+import de.bioforscher.jstructure.model.structure.Atom;
+import de.bioforscher.jstructure.model.structure.Chain;
+import de.bioforscher.jstructure.model.structure.Group;
+import de.bioforscher.jstructure.model.structure.Structure;
+import de.bioforscher.jstructure.model.structure.StructureParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * converts the entries of a local PDB mirror (*.ent.gz files) to the binary format of {@link StoredStructure} - only
+ * entries whose stored version is missing or older than the PDB file are converted again
+ */
+public class StructureStoreWriter {
+    private static final Logger logger = LoggerFactory.getLogger(StructureStoreWriter.class);
+    private static final String STRUCTURE_FILE_PREFIX = "pdb";
+    private static final String STRUCTURE_FILE_SUFFIX = ".ent.gz";
+    private final Path pdbDirectory;
+    private final int threads;
+
+    /**
+     * @param pdbDirectory the root of the local PDB mirror
+     * @param threads the number of files converted concurrently (0 - one per core)
+     */
+    public StructureStoreWriter(Path pdbDirectory, int threads) {
+        this.pdbDirectory = pdbDirectory;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * update the store in the given directory
+     * @param storeDirectory the directory to write to
+     * @return the number of converted entries
+     */
+    public int convert(Path storeDirectory) {
+        StructureStore structureStore = new StructureStore(storeDirectory);
+        List<Path> structureFiles;
+        try(Stream<Path> paths = Files.walk(pdbDirectory)) {
+            structureFiles = paths.filter(path -> path.getFileName().toString().endsWith(STRUCTURE_FILE_SUFFIX))
+                    .filter(Files::isRegularFile)
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        List<Path> changedFiles = structureFiles.stream()
+                .filter(structureFile -> isChanged(structureFile, structureStore.resolve(getPdbId(structureFile))))
+                .collect(Collectors.toList());
+        logger.info("found {} structure files - {} are new or changed",
+                structureFiles.size(),
+                changedFiles.size());
+
+        AtomicInteger converted = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = changedFiles.stream()
+                    .map(structureFile -> executor.submit(() -> {
+                        try {
+                            write(parse(structureFile), structureStore.resolve(getPdbId(structureFile)));
+                            int count = converted.incrementAndGet();
+                            if(count % 1000 == 0) {
+                                logger.info("converted {} of {} files",
+                                        count,
+                                        changedFiles.size());
+                            }
+                        } catch (Exception e) {
+                            // the entry stays missing (or outdated) and will be converted again next time
+                            failed.incrementAndGet();
+                            logger.warn("could not convert {}: {}",
+                                    structureFile,
+                                    e.getMessage());
+                        }
+                    }))
+                    .collect(Collectors.toList());
+            for(Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while converting structure files", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        if(failed.get() > 0) {
+            logger.warn("{} of {} structure files could not be converted",
+                    failed.get(),
+                    changedFiles.size());
+        }
+        logger.info("converted {} structure files to {}",
+                converted.get(),
+                storeDirectory);
+        return converted.get();
+    }
+
+    private static String getPdbId(Path structureFile) {
+        String fileName = structureFile.getFileName().toString();
+        return fileName.substring(STRUCTURE_FILE_PREFIX.length(), fileName.length() - STRUCTURE_FILE_SUFFIX.length());
+    }
+
+    private static boolean isChanged(Path structureFile, Path storedFile) {
+        try {
+            return !Files.exists(storedFile) ||
+                    Files.getLastModifiedTime(storedFile).compareTo(Files.getLastModifiedTime(structureFile)) < 0;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    private static Structure parse(Path structureFile) throws IOException {
+        try(InputStream inputStream = new GZIPInputStream(Files.newInputStream(structureFile))) {
+            return StructureParser.fromInputStream(inputStream).parse();
+        }
+    }
+
+    /**
+     * write a structure to a file - a temporary file is written first, so readers never see partial content
+     * @param structure the structure to write
+     * @param path the destination
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Structure structure, Path path) throws IOException {
+        AtomicFiles.write(path, encode(structure));
+    }
+
+    /**
+     * @param structure the structure to encode
+     * @return the structure in the format described at {@link StoredStructure}
+     */
+    public static byte[] encode(Structure structure) {
+        Map<String, Integer> stringIndices = new LinkedHashMap<>();
+        List<Chain> chains = structure.chains().collect(Collectors.toList());
+        List<Group> groups = new ArrayList<>();
+        List<Atom> atoms = new ArrayList<>();
+        int[] chainGroupOffsets = new int[chains.size() + 1];
+        int[] chainIds = new int[chains.size()];
+        for(int chain = 0; chain < chains.size(); chain++) {
+            chainIds[chain] = index(stringIndices, chains.get(chain).getChainIdentifier().getChainId());
+            chains.get(chain).groups().forEach(groups::add);
+            chainGroupOffsets[chain + 1] = groups.size();
+        }
+        int[] groupAtomOffsets = new int[groups.size() + 1];
+        for(int group = 0; group < groups.size(); group++) {
+            groups.get(group).atoms().forEach(atoms::add);
+            groupAtomOffsets[group + 1] = atoms.size();
+        }
+        int pdbIdIndex = index(stringIndices, structure.getProteinIdentifier().getPdbId());
+        int titleIndex = index(stringIndices, structure.getTitle());
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(StoredStructure.HEADER_LENGTH +
+                32 * atoms.size() +
+                24 * groups.size() +
+                1024);
+        try(DataOutputStream outputStream = new DataOutputStream(byteArrayOutputStream)) {
+            // all strings are indexed before anything is written - the header contains their number
+            int[] residueNumbers = new int[groups.size()];
+            int[] insertionCodes = new int[groups.size()];
+            int[] threeLetterCodes = new int[groups.size()];
+            int[] groupFlags = new int[groups.size()];
+            for(int group = 0; group < groups.size(); group++) {
+                Group residue = groups.get(group);
+                ResidueIdentifier residueIdentifier = residue.getResidueIdentifier();
+                residueNumbers[group] = residueIdentifier.getResidueNumber();
+                String insertionCode = residueIdentifier.getInsertionCode();
+                insertionCodes[group] = insertionCode == null || insertionCode.isEmpty() ? -1 : index(stringIndices, insertionCode);
+                threeLetterCodes[group] = index(stringIndices, residue.getThreeLetterCode());
+                groupFlags[group] = (residue.isAminoAcid() ? StoredStructure.AMINO_ACID_FLAG : 0) |
+                        (residue.isLigand() ? StoredStructure.LIGAND_FLAG : 0);
+            }
+            int[] atomNames = new int[atoms.size()];
+            int[] elements = new int[atoms.size()];
+            for(int atom = 0; atom < atoms.size(); atom++) {
+                atomNames[atom] = index(stringIndices, atoms.get(atom).getName());
+                elements[atom] = index(stringIndices, atoms.get(atom).getElement() == null ?
+                        "" :
+                        atoms.get(atom).getElement().name().toUpperCase());
+            }
+
+            outputStream.writeInt(StoredStructure.MAGIC_NUMBER);
+            outputStream.writeInt(StoredStructure.VERSION);
+            outputStream.writeInt(pdbIdIndex);
+            outputStream.writeInt(titleIndex);
+            outputStream.writeInt(chains.size());
+            outputStream.writeInt(groups.size());
+            outputStream.writeInt(atoms.size());
+            outputStream.writeInt(stringIndices.size());
+
+            for(Atom atom : atoms) {
+                double[] coordinates = atom.getCoordinates();
+                outputStream.writeFloat((float) coordinates[0]);
+                outputStream.writeFloat((float) coordinates[1]);
+                outputStream.writeFloat((float) coordinates[2]);
+            }
+            for(Atom atom : atoms) {
+                outputStream.writeFloat(atom.getOccupancy());
+            }
+            for(Atom atom : atoms) {
+                outputStream.writeFloat(atom.getBfactor());
+            }
+            for(Atom atom : atoms) {
+                outputStream.writeInt(atom.getPdbSerial());
+            }
+            writeInts(outputStream, atomNames);
+            writeInts(outputStream, elements);
+            writeInts(outputStream, groupAtomOffsets);
+            writeInts(outputStream, residueNumbers);
+            writeInts(outputStream, insertionCodes);
+            writeInts(outputStream, threeLetterCodes);
+            writeInts(outputStream, groupFlags);
+            writeInts(outputStream, chainGroupOffsets);
+            writeInts(outputStream, chainIds);
+            for(String value : stringIndices.keySet()) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                outputStream.writeInt(bytes.length);
+                outputStream.write(bytes);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    private static int index(Map<String, Integer> stringIndices, String value) {
+        if(value == null) {
+            return -1;
+        }
+        return stringIndices.computeIfAbsent(value, key -> stringIndices.size());
+    }
+
+    private static void writeInts(DataOutputStream outputStream, int[] values) throws IOException {
+        for(int value : values) {
+            outputStream.writeInt(value);
+        }
+    }
+}
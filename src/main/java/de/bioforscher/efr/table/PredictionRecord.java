@@ -0,0 +1,157 @@
+package de.bioforscher.efr.table;
+
+import de.bioforscher.efr.model.Protein;
+import de.bioforscher.efr.model.ResiduePrediction;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * the predictions of a chain in the data file of a {@link PredictionTable} - all values are big-endian and stored
+ * column by column, residues in the order of their ranking:
+ * <pre>
+ * string   pdb id, chain id, title (each: int length, UTF-8 bytes - length -1 for absent values)
+ * int      number of residues n
+ * int      number of features m
+ * int      n positions of the residues in the chain
+ * string   n residue identifiers
+ * byte     n one-letter codes
+ * byte     n reduced secondary structure elements
+ * float    m columns of n feature values
+ * double   n probabilities
+ * byte     ceil(n / 8) early folding flags, least significant bit first
+ * </pre>
+ * probabilities keep their full precision, features are reported with 4 decimal places anyway
+ */
+class PredictionRecord {
+    private PredictionRecord() {
+        // deny instantiation
+    }
+
+    static byte[] encode(Protein protein) {
+        List<ResiduePrediction> predictions = protein.getPredictions();
+        int residueCount = predictions.size();
+        int featureCount = ResiduePrediction.FEATURE_NAMES.size();
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(256 + residueCount * (4 * featureCount + 24));
+        try(DataOutputStream outputStream = new DataOutputStream(byteArrayOutputStream)) {
+            writeString(outputStream, protein.getPdbId());
+            writeString(outputStream, protein.getChainId());
+            writeString(outputStream, protein.getTitle());
+            outputStream.writeInt(residueCount);
+            outputStream.writeInt(featureCount);
+            for(ResiduePrediction prediction : predictions) {
+                outputStream.writeInt(prediction.getIndex());
+            }
+            for(ResiduePrediction prediction : predictions) {
+                writeString(outputStream, prediction.getResidueIdentifier());
+            }
+            for(ResiduePrediction prediction : predictions) {
+                outputStream.writeByte(prediction.getOneLetterCode().charAt(0));
+            }
+            for(ResiduePrediction prediction : predictions) {
+                outputStream.writeByte(prediction.getSecondaryStructure().charAt(0));
+            }
+            for(int featureIndex = 0; featureIndex < featureCount; featureIndex++) {
+                for(ResiduePrediction prediction : predictions) {
+                    outputStream.writeFloat((float) prediction.getFeature(featureIndex));
+                }
+            }
+            for(ResiduePrediction prediction : predictions) {
+                outputStream.writeDouble(prediction.getProbability());
+            }
+            byte[] earlyFoldingFlags = new byte[(residueCount + 7) / 8];
+            for(int i = 0; i < residueCount; i++) {
+                if(predictions.get(i).isEarlyFolding()) {
+                    earlyFoldingFlags[i / 8] |= 1 << (i % 8);
+                }
+            }
+            outputStream.write(earlyFoldingFlags);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    /**
+     * @param buffer the record, starting at the current position of the buffer - the position is advanced
+     * @return the protein, without coordinates
+     */
+    static Protein decode(ByteBuffer buffer) {
+        String pdbId = readString(buffer);
+        String chainId = readString(buffer);
+        String title = readString(buffer);
+        int residueCount = buffer.getInt();
+        int featureCount = buffer.getInt();
+        if(featureCount != ResiduePrediction.FEATURE_NAMES.size()) {
+            throw new IllegalStateException("record of " + pdbId + "_" + chainId + " has " + featureCount +
+                    " features - expected " + ResiduePrediction.FEATURE_NAMES.size());
+        }
+
+        // numeric columns are copied in bulk
+        int[] indices = new int[residueCount];
+        buffer.asIntBuffer().get(indices);
+        buffer.position(buffer.position() + 4 * residueCount);
+        String[] residueIdentifiers = new String[residueCount];
+        for(int i = 0; i < residueCount; i++) {
+            residueIdentifiers[i] = readString(buffer);
+        }
+        byte[] oneLetterCodes = new byte[residueCount];
+        buffer.get(oneLetterCodes);
+        byte[] secondaryStructures = new byte[residueCount];
+        buffer.get(secondaryStructures);
+        float[] featureColumns = new float[featureCount * residueCount];
+        buffer.asFloatBuffer().get(featureColumns);
+        buffer.position(buffer.position() + 4 * featureColumns.length);
+        double[][] features = new double[residueCount][featureCount];
+        for(int featureIndex = 0; featureIndex < featureCount; featureIndex++) {
+            for(int i = 0; i < residueCount; i++) {
+                features[i][featureIndex] = featureColumns[featureIndex * residueCount + i];
+            }
+        }
+        double[] probabilities = new double[residueCount];
+        buffer.asDoubleBuffer().get(probabilities);
+        buffer.position(buffer.position() + 8 * residueCount);
+        byte[] earlyFoldingFlags = new byte[(residueCount + 7) / 8];
+        buffer.get(earlyFoldingFlags);
+
+        List<ResiduePrediction> predictions = new ArrayList<>(residueCount);
+        for(int i = 0; i < residueCount; i++) {
+            predictions.add(new ResiduePrediction(indices[i],
+                    chainId,
+                    residueIdentifiers[i],
+                    String.valueOf((char) oneLetterCodes[i]),
+                    String.valueOf((char) secondaryStructures[i]),
+                    features[i],
+                    probabilities[i],
+                    (earlyFoldingFlags[i / 8] & (1 << (i % 8))) != 0));
+        }
+        return new Protein(pdbId, chainId, title, predictions);
+    }
+
+    private static void writeString(DataOutputStream outputStream, String value) throws IOException {
+        if(value == null) {
+            outputStream.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        outputStream.writeInt(bytes.length);
+        outputStream.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if(length == -1) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,261 @@
+package de.bioforscher.efr.table;
+
+import de.bioforscher.efr.metrics.MetricsRegistry;
+import de.bioforscher.efr.model.Protein;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Pattern;
+
+/**
+ * precomputed predictions of many chains (e.g. the whole PDB), stored in a directory and memory-mapped:
+ * <ul>
+ *     <li>{@value #DATA_FILE} - the predictions of each chain (see {@link PredictionRecord}), appended one after another
+ *     - records never cross a multiple of {@link #SEGMENT_SIZE}, so the file is mapped in segments</li>
+ *     <li>{@value #INDEX_FILE} - int magic number 'EFRT', int format version, int number of chains, followed by one
+ *     entry per chain sorted by chain id: {@value #KEY_LENGTH} bytes chain id (ASCII, padded with zeros), long offset
+ *     and int length of its record</li>
+ * </ul>
+ * the table is written by {@link PredictionTableWriter} - appended chains are picked up by readers within a minute
+ */
+public class PredictionTable {
+    private static final Logger logger = LoggerFactory.getLogger(PredictionTable.class);
+    public static final String DATA_FILE = "predictions.dat";
+    public static final String INDEX_FILE = "predictions.idx";
+    static final int MAGIC_NUMBER = 0x45465254;
+    static final int VERSION = 1;
+    static final int HEADER_LENGTH = 12;
+    static final int KEY_LENGTH = 16;
+    static final int ENTRY_LENGTH = KEY_LENGTH + 12;
+    static final long SEGMENT_SIZE = 1L << 30;
+    private static final Pattern VALID_CHAIN_ID = Pattern.compile("[A-Za-z0-9]{4}_[A-Za-z0-9]+");
+    private static final long REFRESH_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+    private final Path directory;
+    private volatile Snapshot snapshot;
+    private volatile long nextRefresh;
+
+    /**
+     * @param directory the directory of the table - may be empty or not exist yet
+     */
+    public PredictionTable(Path directory) {
+        this.directory = directory;
+        this.snapshot = Snapshot.EMPTY;
+        refresh();
+        logger.info("opened prediction table {} with {} chains",
+                directory,
+                snapshot.size);
+    }
+
+    /**
+     * @param chainId the chain id (e.g. 1acj_A)
+     * @return the precomputed protein without coordinates, empty if the chain is not part of this table
+     */
+    public Optional<Protein> get(String chainId) {
+        Optional<Protein> protein = find(chainId).map(record -> {
+            try {
+                return PredictionRecord.decode(record);
+            } catch (RuntimeException e) {
+                logger.warn("could not decode precomputed predictions of {}: {}", chainId, e.getMessage());
+                return null;
+            }
+        });
+        MetricsRegistry.getDefault()
+                .counter("efr_prediction_table_requests_total", "lookups of precomputed predictions", "result", protein.isPresent() ? "hit" : "miss")
+                .increment();
+        return protein;
+    }
+
+    /**
+     * @param chainId the chain id (e.g. 1acj_A)
+     * @return <code>true</code> if the chain is part of this table
+     */
+    public boolean contains(String chainId) {
+        return find(chainId).isPresent();
+    }
+
+    /**
+     * @return the number of chains in this table
+     */
+    public int size() {
+        refreshIfDue();
+        return snapshot.size;
+    }
+
+    private Optional<ByteBuffer> find(String chainId) {
+        byte[] key = toKey(chainId);
+        if(key == null) {
+            return Optional.empty();
+        }
+
+        refreshIfDue();
+        return snapshot.find(key);
+    }
+
+    /**
+     * @return the normalized chain id as index key (lower case PDB id), <code>null</code> for invalid ids
+     */
+    static byte[] toKey(String chainId) {
+        if(!VALID_CHAIN_ID.matcher(chainId).matches() || chainId.length() > KEY_LENGTH) {
+            return null;
+        }
+        String normalizedChainId = chainId.substring(0, 4).toLowerCase() + chainId.substring(4);
+        byte[] key = new byte[KEY_LENGTH];
+        byte[] bytes = normalizedChainId.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(bytes, 0, key, 0, bytes.length);
+        return key;
+    }
+
+    private void refreshIfDue() {
+        if(System.currentTimeMillis() >= nextRefresh) {
+            refresh();
+        }
+    }
+
+    /**
+     * map the index again, if it was replaced by a writer
+     */
+    private synchronized void refresh() {
+        nextRefresh = System.currentTimeMillis() + REFRESH_INTERVAL;
+        Path indexPath = directory.resolve(INDEX_FILE);
+        try {
+            if(!Files.exists(indexPath)) {
+                return;
+            }
+            long lastModified = Files.getLastModifiedTime(indexPath).toMillis();
+            if(lastModified == snapshot.lastModified) {
+                return;
+            }
+
+            Snapshot previousSnapshot = snapshot;
+            snapshot = Snapshot.map(indexPath, directory.resolve(DATA_FILE), lastModified);
+            if(previousSnapshot != Snapshot.EMPTY) {
+                logger.info("reloaded prediction table {} - {} chains (previously {})",
+                        directory,
+                        snapshot.size,
+                        previousSnapshot.size);
+            }
+        } catch (IOException e) {
+            // keep serving the previous state
+            logger.warn("could not read prediction table {}: {}", directory, e.getMessage());
+        }
+    }
+
+    /**
+     * an immutable state of the table - data segments are mapped on first access
+     */
+    private static class Snapshot {
+        private static final Snapshot EMPTY = new Snapshot(null, null, 0, 0, -1);
+        private final ByteBuffer index;
+        private final Path dataPath;
+        private final int size;
+        private final long dataLength;
+        private final long lastModified;
+        private final AtomicReferenceArray<MappedByteBuffer> segments;
+
+        private Snapshot(ByteBuffer index, Path dataPath, int size, long dataLength, long lastModified) {
+            this.index = index;
+            this.dataPath = dataPath;
+            this.size = size;
+            this.dataLength = dataLength;
+            this.lastModified = lastModified;
+            this.segments = new AtomicReferenceArray<>((int) ((dataLength + SEGMENT_SIZE - 1) / SEGMENT_SIZE));
+        }
+
+        static Snapshot map(Path indexPath, Path dataPath, long lastModified) throws IOException {
+            MappedByteBuffer index;
+            try(FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+                index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            if(index.limit() < HEADER_LENGTH || index.getInt(0) != MAGIC_NUMBER) {
+                throw new IOException("not a prediction table index");
+            }
+            if(index.getInt(4) != VERSION) {
+                throw new IOException("unsupported format version " + index.getInt(4));
+            }
+            int size = index.getInt(8);
+            if(HEADER_LENGTH + (long) size * ENTRY_LENGTH > index.limit()) {
+                throw new IOException("truncated prediction table index");
+            }
+
+            // only data referenced by the index is mapped - a writer may be appending right now
+            long dataLength = 0;
+            for(int entry = 0; entry < size; entry++) {
+                int position = HEADER_LENGTH + entry * ENTRY_LENGTH + KEY_LENGTH;
+                dataLength = Math.max(dataLength, index.getLong(position) + index.getInt(position + 8));
+            }
+            if(dataLength > Files.size(dataPath)) {
+                throw new IOException("prediction table index references missing data");
+            }
+            return new Snapshot(index, dataPath, size, dataLength, lastModified);
+        }
+
+        Optional<ByteBuffer> find(byte[] key) {
+            int low = 0;
+            int high = size - 1;
+            while(low <= high) {
+                int middle = (low + high) >>> 1;
+                int position = HEADER_LENGTH + middle * ENTRY_LENGTH;
+                int comparison = compare(position, key);
+                if(comparison < 0) {
+                    low = middle + 1;
+                } else if(comparison > 0) {
+                    high = middle - 1;
+                } else {
+                    return Optional.of(record(index.getLong(position + KEY_LENGTH), index.getInt(position + KEY_LENGTH + 8)));
+                }
+            }
+            return Optional.empty();
+        }
+
+        private int compare(int position, byte[] key) {
+            for(int i = 0; i < KEY_LENGTH; i++) {
+                int comparison = Integer.compare(index.get(position + i) & 0xFF, key[i] & 0xFF);
+                if(comparison != 0) {
+                    return comparison;
+                }
+            }
+            return 0;
+        }
+
+        private ByteBuffer record(long offset, int length) {
+            int segment = (int) (offset / SEGMENT_SIZE);
+            ByteBuffer buffer = segment(segment).duplicate();
+            int position = (int) (offset - segment * SEGMENT_SIZE);
+            buffer.position(position);
+            buffer.limit(position + length);
+            return buffer.slice();
+        }
+
+        private MappedByteBuffer segment(int segment) {
+            MappedByteBuffer mappedSegment = segments.get(segment);
+            if(mappedSegment != null) {
+                return mappedSegment;
+            }
+
+            synchronized (this) {
+                mappedSegment = segments.get(segment);
+                if(mappedSegment == null) {
+                    try(FileChannel channel = FileChannel.open(dataPath, StandardOpenOption.READ)) {
+                        long start = segment * SEGMENT_SIZE;
+                        mappedSegment = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, dataLength - start));
+                    } catch (IOException e) {
+                        throw new IllegalStateException("could not map " + dataPath, e);
+                    }
+                    segments.set(segment, mappedSegment);
+                }
+                return mappedSegment;
+            }
+        }
+    }
+}
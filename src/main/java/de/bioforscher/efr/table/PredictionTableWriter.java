@@ -0,0 +1,159 @@
+package de.bioforscher.efr.table;
+
+import de.bioforscher.efr.io.AtomicFiles;
+import de.bioforscher.efr.model.Protein;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * appends chains to a {@link PredictionTable} - records are appended to the data file right away, the index is
+ * rewritten every {@value #INDEX_INTERVAL} chains and on {@link #close()}; chains which are appended again replace
+ * their previous record<br />
+ * a crash never corrupts the table: the index is replaced atomically and only references data written before it,
+ * chains appended after the last index update are just missing
+ */
+public class PredictionTableWriter implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(PredictionTableWriter.class);
+    private static final int INDEX_INTERVAL = 10000;
+    private final Path directory;
+    private final FileChannel dataChannel;
+    private final FileLock lock;
+    /**
+     * all index entries by their chain id: offset and length of the record
+     */
+    private final Map<String, long[]> entries;
+    private int pendingEntries;
+
+    /**
+     * @param directory the directory of the table - created if necessary
+     * @throws IOException if the table cannot be opened or is used by another writer
+     */
+    public PredictionTableWriter(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        this.entries = readIndex(directory.resolve(PredictionTable.INDEX_FILE));
+        this.dataChannel = FileChannel.open(directory.resolve(PredictionTable.DATA_FILE),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        this.lock = dataChannel.tryLock();
+        if(lock == null) {
+            dataChannel.close();
+            throw new IOException("prediction table " + directory + " is used by another writer");
+        }
+        // data behind the last index update belongs to nobody - it is overwritten
+        long dataLength = entries.values()
+                .stream()
+                .mapToLong(entry -> entry[0] + entry[1])
+                .max()
+                .orElse(0);
+        dataChannel.truncate(dataLength);
+        dataChannel.position(dataLength);
+        logger.info("appending to prediction table {} with {} chains",
+                directory,
+                entries.size());
+    }
+
+    /**
+     * @param protein the protein to append
+     * @throws IOException if the record cannot be written
+     */
+    public synchronized void append(Protein protein) throws IOException {
+        String chainId = protein.getPdbId() + "_" + protein.getChainId();
+        byte[] key = PredictionTable.toKey(chainId);
+        if(key == null) {
+            throw new IllegalArgumentException("cannot store chain id " + chainId);
+        }
+
+        byte[] record = PredictionRecord.encode(protein);
+        long offset = dataChannel.position();
+        // records must not cross segment boundaries - the gap is left empty
+        if(offset / PredictionTable.SEGMENT_SIZE != (offset + record.length - 1) / PredictionTable.SEGMENT_SIZE) {
+            offset = (offset / PredictionTable.SEGMENT_SIZE + 1) * PredictionTable.SEGMENT_SIZE;
+            dataChannel.position(offset);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        while(buffer.hasRemaining()) {
+            dataChannel.write(buffer);
+        }
+
+        entries.put(new String(key, StandardCharsets.US_ASCII), new long[] { offset, record.length });
+        pendingEntries++;
+        if(pendingEntries >= INDEX_INTERVAL) {
+            writeIndex();
+        }
+    }
+
+    /**
+     * make all appended chains visible to readers
+     * @throws IOException if the index cannot be written
+     */
+    public synchronized void writeIndex() throws IOException {
+        // data first: the index must never reference data which did not reach the disk
+        dataChannel.force(false);
+
+        Path indexPath = directory.resolve(PredictionTable.INDEX_FILE);
+        AtomicFiles.write(indexPath, indexOutputStream -> {
+            DataOutputStream outputStream = new DataOutputStream(indexOutputStream);
+            outputStream.writeInt(PredictionTable.MAGIC_NUMBER);
+            outputStream.writeInt(PredictionTable.VERSION);
+            outputStream.writeInt(entries.size());
+            // keys are ASCII and padded with zeros - string order is byte order
+            for(Map.Entry<String, long[]> entry : entries.entrySet()) {
+                outputStream.write(entry.getKey().getBytes(StandardCharsets.US_ASCII));
+                outputStream.writeLong(entry.getValue()[0]);
+                outputStream.writeInt((int) entry.getValue()[1]);
+            }
+            outputStream.flush();
+        });
+        logger.info("wrote index of prediction table {} with {} chains",
+                directory,
+                entries.size());
+        pendingEntries = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            writeIndex();
+        } finally {
+            lock.release();
+            dataChannel.close();
+        }
+    }
+
+    private static Map<String, long[]> readIndex(Path indexPath) throws IOException {
+        Map<String, long[]> entries = new TreeMap<>();
+        if(!Files.exists(indexPath)) {
+            return entries;
+        }
+
+        ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(indexPath));
+        if(index.limit() < PredictionTable.HEADER_LENGTH || index.getInt() != PredictionTable.MAGIC_NUMBER) {
+            throw new IOException("not a prediction table index: " + indexPath);
+        }
+        int version = index.getInt();
+        if(version != PredictionTable.VERSION) {
+            throw new IOException("unsupported format version " + version + " of " + indexPath);
+        }
+        int size = index.getInt();
+        byte[] key = new byte[PredictionTable.KEY_LENGTH];
+        for(int entry = 0; entry < size; entry++) {
+            index.get(key);
+            entries.put(new String(key, StandardCharsets.US_ASCII), new long[] { index.getLong(), index.getInt() });
+        }
+        return entries;
+    }
+}
@@ -27,6 +27,8 @@
             $scope.errorException = '';
             // process indicator
             $scope.processing = false;
+            // the last step reported by the server while processing
+            $scope.progress = null;
 
             // chain to present
             $scope.chain = '1acj_A';
@@ -45,17 +47,13 @@
                     return [];
                 }
                 return ViewService.complete(query).then(function(response) {
+                    // empty when user input does not match any chain id
                     return response.data;
                 }, function(response) {
-                    // case when backend works correctly and user input does not match any chain id
-                    if(response.data.exception === 'NullPointerException') {
-                        return [];
-                    } else {
-                        console.log(response.data);
-                        $scope.errorException = /*response.data.exception*/'exception';
-                        $scope.errorMessage = "failed to autocomplete by server: " + response.data.message;
-                        $scope.error = true;
-                    }
+                    console.log(response.data);
+                    $scope.errorException = /*response.data.exception*/'exception';
+                    $scope.errorMessage = "failed to autocomplete by server: " + response.data.message;
+                    $scope.error = true;
                 });
             };
 
@@ -66,7 +64,13 @@
                     $scope.valid = false;
                     $scope.processing = true;
                     $scope.error = false;
-                    ViewService.handleStructureQuery($scope.chain).then(function (response) {
+                    $scope.progress = null;
+                    var chain = $scope.chain;
+                    ViewService.handleStructureQuery(chain, function(event) {
+                        $scope.progress = event.message;
+                    }).then(function (response) {
+                        // coordinates and CSV are not part of the response - remember where to fetch them from
+                        response.data.id = chain;
                         $scope.protein = response.data;
                     }, function (response) {
                         console.log(response.data);
@@ -82,8 +86,12 @@
                 if(newValue !== null && newValue !== undefined) {
                     $scope.valid = true;
 
-                    var blob = new Blob([$scope.protein.csvRepresentation], { type : 'text/plain' });
-                    $scope.url =  (window.URL || window.webkitURL).createObjectURL(blob);
+                    if($scope.protein.csvRepresentation) {
+                        var blob = new Blob([$scope.protein.csvRepresentation], { type : 'text/plain' });
+                        $scope.url =  (window.URL || window.webkitURL).createObjectURL(blob);
+                    } else {
+                        $scope.url = ViewService.predictionsUrl($scope.protein.id);
+                    }
 
                     // update NGL instance
                     $timeout(function() {
@@ -91,7 +99,10 @@
                         angular.element(document.querySelector('#ngl')).empty();
 
                         var stage = new NGL.Stage('ngl', { backgroundColor : 'white' });
-                        var stringBlob = new Blob([$scope.protein.pdbRepresentation], { type : 'text/plain' });
+                        // uploaded structures are delivered with their coordinates, others are fetched (and cached) separately
+                        var structure = $scope.protein.pdbRepresentation ?
+                            new Blob([$scope.protein.pdbRepresentation], { type : 'text/plain' }) :
+                            ViewService.structureUrl($scope.protein.id);
 
                         var processed = [];
                         $scope.protein.earlyFoldingResidues.forEach(function(earlyFoldingResidue) {
@@ -104,7 +115,7 @@
                             ["#cccccc", "*"]
                         ], "early folding residues");
 
-                        stage.loadFile(stringBlob, { ext : 'pdb' }).then(function(comp) {
+                        stage.loadFile(structure, { ext : 'pdb' }).then(function(comp) {
                             component = comp;
 
                             // draw actual structure
@@ -133,14 +144,50 @@
             };
         }]);
 
-    MODULE.factory('ViewService', ['$http',
-        function($http) {
+    MODULE.factory('ViewService', ['$http', '$q', '$rootScope',
+        function($http, $q, $rootScope) {
+            var fetchStructure = function(chain) {
+                return $http.get('efpred/api/id/' + chain, { params : { pdb : false, csv : false } });
+            };
+
             return {
                 complete : function(query) {
                     return $http.get('efpred/api/complete/' + query);
                 },
-                handleStructureQuery : function(chain) {
-                    return $http.get('efpred/api/id/' + chain);
+                // reports the steps of the server via onProgress when the browser supports server-sent events
+                handleStructureQuery : function(chain, onProgress) {
+                    if(!window.EventSource) {
+                        return fetchStructure(chain);
+                    }
+
+                    var deferred = $q.defer();
+                    var source = new EventSource('efpred/api/id/' + chain + '/events');
+                    source.addEventListener('progress', function(event) {
+                        var progress = JSON.parse(event.data);
+                        $rootScope.$applyAsync(function() {
+                            onProgress(progress);
+                        });
+                    });
+                    source.addEventListener('result', function(event) {
+                        source.close();
+                        deferred.resolve({ data : JSON.parse(event.data) });
+                    });
+                    source.addEventListener('failure', function(event) {
+                        source.close();
+                        deferred.reject({ data : JSON.parse(event.data) });
+                    });
+                    // connection problems (e.g. proxies not supporting streams) - fall back to a plain request
+                    source.onerror = function() {
+                        source.close();
+                        deferred.resolve(fetchStructure(chain));
+                    };
+                    return deferred.promise;
+                },
+                structureUrl : function(chain) {
+                    return 'efpred/api/structure/' + chain;
+                },
+                predictionsUrl : function(chain) {
+                    return 'efpred/api/id/' + chain + '/predictions?format=csv';
                 },
                 submitFile : function(file) {
                     return $http({
@@ -0,0 +1,305 @@
+package de.bioforscher.efr;
+
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * responses pass the filter as they would pass the deployed WAR - spring-test is not a dependency, so requests and
+ * responses are minimal proxies which record what the filter does to them
+ */
+public class CompressionFilterTest {
+    private static final int MINIMUM_SIZE = 2048;
+    private static final String JSON = "application/json";
+    private final CompressionFilter compressionFilter = new CompressionFilter(Arrays.asList(JSON, " text/csv"), MINIMUM_SIZE);
+
+    @Test
+    public void shouldPassSmallResponsesAsIs() throws Exception {
+        byte[] content = createContent(MINIMUM_SIZE - 1);
+        TestResponse response = new TestResponse();
+
+        compressionFilter.doFilter(new TestRequest("gzip").create(), response.create(), write(JSON, content));
+
+        assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeader(HttpHeaders.VARY));
+        assertEquals(content.length, response.contentLength);
+        assertArrayEquals(content, response.getContent());
+    }
+
+    @Test
+    public void shouldCompressLargeResponses() throws Exception {
+        byte[] content = createContent(MINIMUM_SIZE);
+        TestResponse response = new TestResponse();
+
+        compressionFilter.doFilter(new TestRequest("deflate, gzip").create(), response.create(), write(JSON + ";charset=UTF-8", content));
+
+        assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeader(HttpHeaders.VARY));
+        // the length of the uncompressed content is withheld
+        assertEquals(-1, response.contentLength);
+        assertArrayEquals(content, gunzip(response.getContent()));
+    }
+
+    @Test
+    public void shouldPassOtherTypesAsIs() throws Exception {
+        byte[] content = createContent(4 * MINIMUM_SIZE);
+        TestResponse response = new TestResponse();
+
+        compressionFilter.doFilter(new TestRequest("gzip").create(), response.create(), write("image/png", content));
+
+        assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertNull(response.getHeader(HttpHeaders.VARY));
+        assertArrayEquals(content, response.getContent());
+    }
+
+    @Test
+    public void shouldNotCompressWhenClientRefusesGzip() throws Exception {
+        byte[] content = createContent(4 * MINIMUM_SIZE);
+        for(String acceptEncoding : new String[] { "gzip;q=0", "deflate, gzip; q=0.0", "deflate" }) {
+            TestResponse response = new TestResponse();
+
+            compressionFilter.doFilter(new TestRequest(acceptEncoding).create(), response.create(), write(JSON, content));
+
+            assertNull(acceptEncoding, response.getHeader(HttpHeaders.CONTENT_ENCODING));
+            assertArrayEquals(acceptEncoding, content, response.getContent());
+        }
+    }
+
+    @Test
+    public void shouldAcceptGzipOfNonZeroQuality() {
+        assertTrue(CompressionFilter.acceptsGzip(new TestRequest("gzip;q=0.5").create()));
+        assertTrue(CompressionFilter.acceptsGzip(new TestRequest("br, GZIP").create()));
+        assertFalse(CompressionFilter.acceptsGzip(new TestRequest("gzip;q=0.000").create()));
+        assertFalse(CompressionFilter.acceptsGzip(new TestRequest(null).create()));
+    }
+
+    @Test
+    public void shouldPassContentAsIsWhenFlushedBeforeMinimumSize() throws Exception {
+        byte[] head = createContent(100);
+        byte[] tail = createContent(4 * MINIMUM_SIZE);
+        TestResponse response = new TestResponse();
+
+        compressionFilter.doFilter(new TestRequest("gzip").create(), response.create(), (request, filteredResponse) -> {
+            filteredResponse.setContentType(JSON);
+            filteredResponse.getOutputStream().write(head);
+            // the client is waiting for the head, e.g. the first rows of a streamed table
+            filteredResponse.flushBuffer();
+            assertArrayEquals(head, response.getContent());
+            filteredResponse.getOutputStream().write(tail);
+        });
+
+        assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(head);
+        expected.write(tail);
+        assertArrayEquals(expected.toByteArray(), response.getContent());
+    }
+
+    @Test
+    public void shouldCompressResponseWrittenByAsyncDispatch() throws Exception {
+        byte[] content = createContent(4 * MINIMUM_SIZE);
+        TestRequest testRequest = new TestRequest("gzip");
+        HttpServletRequest request = testRequest.create();
+        TestResponse response = new TestResponse();
+        AtomicBoolean asyncStarted = new AtomicBoolean();
+        AtomicReference<ServletResponse> asyncResponse = new AtomicReference<>();
+
+        // the handler returns a DeferredResult - nothing is written until it is set
+        compressionFilter.doFilter(request, response.create(), (initialRequest, filteredResponse) -> {
+            asyncStarted.set(true);
+            WebAsyncUtils.getAsyncManager(initialRequest).setAsyncWebRequest(createAsyncWebRequest(asyncStarted));
+            asyncResponse.set(filteredResponse);
+        });
+        assertEquals(0, response.getContent().length);
+        assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+
+        // the result is set - the container dispatches again, with the response asynchronous processing started with
+        asyncStarted.set(false);
+        testRequest.dispatcherType = DispatcherType.ASYNC;
+        compressionFilter.doFilter(request, asyncResponse.get(), write(JSON, content));
+
+        assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(content, gunzip(response.getContent()));
+    }
+
+    private static FilterChain write(String contentType, byte[] content) {
+        return (request, response) -> {
+            response.setContentType(contentType);
+            response.setContentLength(content.length);
+            response.getOutputStream().write(content);
+        };
+    }
+
+    private static byte[] createContent(int length) {
+        Random random = new Random(length);
+        StringBuilder content = new StringBuilder(length);
+        while(content.length() < length) {
+            content.append(random.nextInt(100));
+        }
+        content.setLength(length);
+        return content.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        try(InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            byte[] buffer = new byte[4096];
+            int length;
+            while((length = inputStream.read(buffer)) > 0) {
+                content.write(buffer, 0, length);
+            }
+        }
+        return content.toByteArray();
+    }
+
+    private static AsyncWebRequest createAsyncWebRequest(AtomicBoolean asyncStarted) {
+        return proxy(AsyncWebRequest.class, (proxy, method, arguments) -> {
+            if(method.getName().equals("isAsyncStarted")) {
+                return asyncStarted.get();
+            }
+            return defaultValue(method);
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler invocationHandler) {
+        return (T) Proxy.newProxyInstance(CompressionFilterTest.class.getClassLoader(), new Class<?>[] { type }, invocationHandler);
+    }
+
+    private static Object defaultValue(Method method) {
+        Class<?> returnType = method.getReturnType();
+        if(returnType == boolean.class) {
+            return false;
+        } else if(returnType == int.class) {
+            return 0;
+        } else if(returnType == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+    private static class TestRequest {
+        private final Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        private final Map<String, Object> attributes = new HashMap<>();
+        private DispatcherType dispatcherType = DispatcherType.REQUEST;
+
+        TestRequest(String acceptEncoding) {
+            if(acceptEncoding != null) {
+                headers.put(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+            }
+        }
+
+        HttpServletRequest create() {
+            return proxy(HttpServletRequest.class, (proxy, method, arguments) -> {
+                switch(method.getName()) {
+                    case "getHeader":
+                        return headers.get((String) arguments[0]);
+                    case "getAttribute":
+                        return attributes.get((String) arguments[0]);
+                    case "setAttribute":
+                        attributes.put((String) arguments[0], arguments[1]);
+                        return null;
+                    case "removeAttribute":
+                        attributes.remove((String) arguments[0]);
+                        return null;
+                    case "getDispatcherType":
+                        return dispatcherType;
+                    default:
+                        return defaultValue(method);
+                }
+            });
+        }
+    }
+
+    private static class TestResponse {
+        private final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        private final ServletOutputStream outputStream = new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                content.write(b);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+        };
+        private String contentType;
+        private long contentLength = -1;
+
+        HttpServletResponse create() {
+            return proxy(HttpServletResponse.class, (proxy, method, arguments) -> {
+                switch(method.getName()) {
+                    case "setContentType":
+                        contentType = (String) arguments[0];
+                        return null;
+                    case "getContentType":
+                        return contentType;
+                    case "getCharacterEncoding":
+                        return StandardCharsets.UTF_8.name();
+                    case "setContentLength":
+                        contentLength = (Integer) arguments[0];
+                        return null;
+                    case "setContentLengthLong":
+                        contentLength = (Long) arguments[0];
+                        return null;
+                    case "setHeader":
+                        headers.put((String) arguments[0], new ArrayList<>(Collections.singletonList((String) arguments[1])));
+                        return null;
+                    case "addHeader":
+                        headers.computeIfAbsent((String) arguments[0], name -> new ArrayList<>()).add((String) arguments[1]);
+                        return null;
+                    case "getHeader":
+                        return getHeader((String) arguments[0]);
+                    case "containsHeader":
+                        return headers.containsKey((String) arguments[0]);
+                    case "getOutputStream":
+                        return outputStream;
+                    default:
+                        return defaultValue(method);
+                }
+            });
+        }
+
+        String getHeader(String name) {
+            List<String> values = headers.get(name);
+            return values == null ? null : String.join(", ", values);
+        }
+
+        byte[] getContent() {
+            return content.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package de.bioforscher.efr;
+
+import de.bioforscher.efr.model.FeatureColumn;
+import de.bioforscher.efr.model.FeatureMatrix;
+import de.bioforscher.efr.model.ParallelRows;
+import de.bioforscher.efr.model.ResiduePrediction;
+import de.bioforscher.efr.registry.ModelBundle;
+import de.bioforscher.jstructure.model.feature.ComputationException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.Classifier;
+import weka.classifiers.functions.LinearRegression;
+import weka.classifiers.trees.REPTree;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SerializationHelper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * the shared-header inference path has to report exactly the probabilities of the reference path, which wraps each
+ * residue in its own Weka dataset - the GMLVQ classes of the bundled model are not needed, models of the same layout are
+ * trained on synthetic residues (a linear one and a tree, whose splits notice any deviation of a single value)
+ */
+public class EarlyFoldingClassifierTest {
+    private Path directory;
+    private List<ModelBundle> models;
+
+    @Before
+    public void trainModels() throws Exception {
+        directory = Files.createTempDirectory("efr-models");
+        Instances trainingData = createTrainingData(2000);
+        models = new ArrayList<>();
+        models.add(createBundle("linear", new LinearRegression(), trainingData));
+        models.add(createBundle("tree", new REPTree(), trainingData));
+    }
+
+    @After
+    public void deleteModels() throws IOException {
+        try(Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void shouldScoreExampleIdenticallyByBothPaths() throws IOException {
+        assertIdenticalProbabilities(readExample(), ParallelRows.SEQUENTIAL);
+    }
+
+    @Test
+    public void shouldScoreSyntheticChainIdenticallyByBothPaths() {
+        assertIdenticalProbabilities(createSyntheticChain(1500), ParallelRows.SEQUENTIAL);
+    }
+
+    @Test
+    public void shouldScoreIdenticallyWhenSplitAcrossCores() throws IOException {
+        assertIdenticalProbabilities(readExample(), new ParallelRows(1));
+        assertIdenticalProbabilities(createSyntheticChain(1500), new ParallelRows(1));
+    }
+
+    @Test(expected = ComputationException.class)
+    public void shouldFailWhenSharedHeaderPathCannotScoreResidue() throws Exception {
+        TestChain chain = createSyntheticChain(10);
+        EarlyFoldingClassifier.scoreWithSharedHeader(createBundle("failing", new FailingClassifier(), createTrainingData(10)),
+                createFeatureRows(chain),
+                chain.prolines);
+    }
+
+    @Test(expected = ComputationException.class)
+    public void shouldFailWhenReferencePathCannotScoreResidue() throws Exception {
+        TestChain chain = createSyntheticChain(2000);
+        EarlyFoldingClassifier.scoreByReference(createBundle("failing", new FailingClassifier(), createTrainingData(10)),
+                new ParallelRows(1),
+                chain.featureMatrix,
+                chain.loopFractions,
+                null,
+                chain.prolines);
+    }
+
+    private void assertIdenticalProbabilities(TestChain chain, ParallelRows parallelRows) {
+        for(ModelBundle model : models) {
+            double[] referenceProbabilities = EarlyFoldingClassifier.scoreByReference(model,
+                    parallelRows,
+                    chain.featureMatrix,
+                    chain.loopFractions,
+                    null,
+                    chain.prolines);
+            // feature rows are normalized in place - each run starts from fresh ones
+            double[] sharedHeaderProbabilities = EarlyFoldingClassifier.scoreWithSharedHeader(model,
+                    parallelRows,
+                    createFeatureRows(chain),
+                    chain.prolines);
+            for(int row = 0; row < chain.size(); row++) {
+                assertEquals(model.getName() + ", residue " + row + (chain.prolines[row] ? " (proline)" : ""),
+                        referenceProbabilities[row],
+                        sharedHeaderProbabilities[row],
+                        0.0);
+            }
+        }
+    }
+
+    private static double[][] createFeatureRows(TestChain chain) {
+        double[][] featureRows = new double[chain.size()][];
+        for(int row = 0; row < chain.size(); row++) {
+            featureRows[row] = EarlyFoldingClassifier.createFeatureRow(chain.featureMatrix, row, chain.loopFractions[row]);
+        }
+        return featureRows;
+    }
+
+    private ModelBundle createBundle(String name, Classifier classifier, Instances trainingData) throws Exception {
+        classifier.buildClassifier(trainingData);
+        Path bundleDirectory = Files.createDirectory(directory.resolve(name));
+        SerializationHelper.write(bundleDirectory.resolve(ModelBundle.MODEL_FILE).toString(), classifier);
+        return ModelBundle.load(name, bundleDirectory);
+    }
+
+    /**
+     * normalized features in the attribute order of the model, the class value depends on a few of them
+     */
+    private static Instances createTrainingData(int residueCount) {
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        for(String featureName : ResiduePrediction.FEATURE_NAMES) {
+            attributes.add(new Attribute(featureName));
+        }
+        attributes.add(new Attribute("folds"));
+        Instances trainingData = new Instances("train", attributes, residueCount);
+        trainingData.setClassIndex(attributes.size() - 1);
+
+        Random random = new Random(residueCount);
+        for(int row = 0; row < residueCount; row++) {
+            double[] values = new double[attributes.size()];
+            for(int i = 0; i < values.length - 1; i++) {
+                values[i] = random.nextGaussian();
+            }
+            values[values.length - 1] = 0.5 * values[0] - 0.3 * values[4] + (values[13] > 0 ? 0.2 : -0.2) +
+                    0.1 * random.nextGaussian();
+            trainingData.add(new DenseInstance(1.0, values));
+        }
+        return trainingData;
+    }
+
+    /**
+     * the features of the bundled 1acj example
+     */
+    private static TestChain readExample() throws IOException {
+        InputStream inputStream = Thread.currentThread()
+                .getContextClassLoader()
+                .getResourceAsStream("data/example.csv");
+        assertNotNull("missing example data", inputStream);
+        List<ResiduePrediction> predictions = new ArrayList<>();
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            // skip the header
+            String line = reader.readLine();
+            while((line = reader.readLine()) != null) {
+                if(!line.isEmpty()) {
+                    predictions.add(ResiduePrediction.parseCsvLine(line, predictions.size()));
+                }
+            }
+        }
+
+        TestChain chain = new TestChain(predictions.size());
+        int loopFractionIndex = ResiduePrediction.FEATURE_NAMES.indexOf("loop_fraction");
+        for(int row = 0; row < predictions.size(); row++) {
+            ResiduePrediction prediction = predictions.get(row);
+            for(FeatureColumn column : FeatureColumn.values()) {
+                chain.featureMatrix.set(row, column, prediction.getFeature(ResiduePrediction.FEATURE_NAMES.indexOf(column.getColumnName())));
+            }
+            chain.loopFractions[row] = prediction.getFeature(loopFractionIndex);
+            chain.prolines[row] = "P".equals(prediction.getOneLetterCode());
+        }
+        return chain;
+    }
+
+    private static TestChain createSyntheticChain(int residueCount) {
+        Random random = new Random(residueCount);
+        TestChain chain = new TestChain(residueCount);
+        for(int row = 0; row < residueCount; row++) {
+            for(FeatureColumn column : FeatureColumn.values()) {
+                chain.featureMatrix.set(row, column, random.nextGaussian() * 10);
+            }
+            chain.loopFractions[row] = random.nextDouble();
+            // roughly the frequency of prolines in the PDB
+            chain.prolines[row] = random.nextInt(22) == 0;
+        }
+        return chain;
+    }
+
+    private static class TestChain {
+        private final FeatureMatrix featureMatrix;
+        private final double[] loopFractions;
+        private final boolean[] prolines;
+
+        TestChain(int residueCount) {
+            this.featureMatrix = new FeatureMatrix(residueCount);
+            this.loopFractions = new double[residueCount];
+            this.prolines = new boolean[residueCount];
+        }
+
+        int size() {
+            return loopFractions.length;
+        }
+    }
+
+    /**
+     * a model which cannot score any residue
+     */
+    private static class FailingClassifier extends AbstractClassifier {
+        @Override
+        public void buildClassifier(Instances data) {
+        }
+
+        @Override
+        public double classifyInstance(Instance instance) throws Exception {
+            throw new Exception("cannot score " + instance);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package de.bioforscher.efr;
+
+import de.bioforscher.efr.plip.PlipDocumentProvider;
+import de.bioforscher.efr.plip.PlipDocumentResolver;
+import de.bioforscher.jstructure.feature.interaction.PLIPIntraMolecularAnnotator;
+import de.bioforscher.jstructure.model.structure.Chain;
+import de.bioforscher.jstructure.model.structure.StructureParser;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * a small chain built in memory, so tests neither depend on the PDB nor on the PLIP-REST-Service: two antiparallel
+ * helices joined by a loop, along with a PLIP document of local and non-local hydrophobic interactions and hydrogen
+ * bonds (backbone, side chain and mixed ones) - residue 6 and 11 interact, whose separation is the largest one still
+ * considered local
+ */
+public class SyntheticChain {
+    public static final String PDB_ID = "1syn";
+    public static final String CHAIN_ID = "A";
+    private static final String SEQUENCE = "ALSALLASLAALSASASALASLLAALSALLSA";
+    private static final int HELIX_LENGTH = 14;
+    private static final double HELIX_RADIUS = 2.3;
+    private static final double HELIX_RISE = 1.5;
+    private static final double HELIX_TURN = Math.toRadians(100);
+    private static final double AXIS_DISTANCE = 9.5;
+    /**
+     * pairs of residue numbers whose beta carbons interact
+     */
+    private static final int[][] HYDROPHOBIC_INTERACTIONS = {
+            { 2, 5 }, { 5, 9 }, { 6, 11 }, { 20, 24 }, { 2, 31 }, { 6, 27 }, { 9, 24 }, { 12, 20 }
+    };
+    /**
+     * donor and acceptor of hydrogen bonds besides the i -> i + 4 backbone bonds of both helices
+     */
+    private static final Object[][] HYDROGEN_BONDS = {
+            { 3, "OG", 30, "O" }, { 13, "OG", 21, "OG" }, { 26, "N", 8, "O" }, { 17, "OG", 15, "O" }
+    };
+    private static final Map<String, SyntheticAtom> ATOMS = createAtoms();
+
+    private SyntheticChain() {
+        // deny instantiation
+    }
+
+    /**
+     * @return the parsed chain without any features
+     */
+    public static Chain create() {
+        return StructureParser.fromInputStream(new ByteArrayInputStream(createPdbRepresentation().getBytes(StandardCharsets.UTF_8)))
+                .parse()
+                .select()
+                .chainId(CHAIN_ID)
+                .asChain();
+    }
+
+    /**
+     * @return the chain with the PLIP interactions of {@link #createPlipDocument()} and no other features
+     */
+    public static Chain createWithInteractions() {
+        Chain chain = create();
+        new PLIPIntraMolecularAnnotator().process(chain, createPlipDocument());
+        return chain;
+    }
+
+    /**
+     * compute the structure-level features of the chain - the classifier is set up to use the synthetic PLIP document
+     * @return the annotated chain
+     */
+    public static Chain annotate() {
+        EarlyFoldingClassifier earlyFoldingClassifier = EarlyFoldingClassifier.getInstance();
+        earlyFoldingClassifier.setPlipDocumentResolver(new PlipDocumentResolver(null, new PlipDocumentProvider() {
+            @Override
+            public Optional<Document> getIntraChainDocument(Chain chain) {
+                return Optional.of(createPlipDocument());
+            }
+
+            @Override
+            public String getSourceName() {
+                return "synthetic";
+            }
+        }));
+        Chain chain = create();
+        earlyFoldingClassifier.annotate(Collections.singletonList(chain));
+        return chain;
+    }
+
+    /**
+     * @return the chain in PDB format
+     */
+    public static String createPdbRepresentation() {
+        StringBuilder pdbRepresentation = new StringBuilder()
+                .append(String.format(Locale.US, "%-50s%-9s   %-4s%n", "HEADER    DE NOVO PROTEIN", "18-OCT-26", PDB_ID.toUpperCase(Locale.US)));
+        for(SyntheticAtom atom : ATOMS.values()) {
+            pdbRepresentation.append(String.format(Locale.US,
+                    "ATOM  %5d %-4s %3s %s%4d    %8.3f%8.3f%8.3f  1.00  0.00          %2s%n",
+                    atom.serial,
+                    " " + atom.name,
+                    residueName(atom.residueNumber),
+                    CHAIN_ID,
+                    atom.residueNumber,
+                    atom.coordinates[0],
+                    atom.coordinates[1],
+                    atom.coordinates[2],
+                    atom.name.substring(0, 1)));
+        }
+        return pdbRepresentation.append(String.format("TER%nEND%n")).toString();
+    }
+
+    /**
+     * @return the intra-chain interactions in the layout of the PLIP-REST-Service
+     */
+    public static Document createPlipDocument() {
+        StringBuilder hydrophobicInteractions = new StringBuilder();
+        for(int i = 0; i < HYDROPHOBIC_INTERACTIONS.length; i++) {
+            SyntheticAtom atom = ATOMS.get(key(HYDROPHOBIC_INTERACTIONS[i][0], "CB"));
+            SyntheticAtom partnerAtom = ATOMS.get(key(HYDROPHOBIC_INTERACTIONS[i][1], "CB"));
+            hydrophobicInteractions.append("<hydrophobic_interaction id=\"").append(i + 1).append("\">")
+                    .append(residueElements(atom, partnerAtom))
+                    .append(element("dist", format(distance(atom, partnerAtom))))
+                    .append(element("ligcarbonidx", String.valueOf(partnerAtom.serial)))
+                    .append(element("protcarbonidx", String.valueOf(atom.serial)))
+                    .append(coordinateElements(atom, partnerAtom))
+                    .append("</hydrophobic_interaction>");
+        }
+
+        List<Object[]> bonds = new ArrayList<>();
+        for(int donor = 5; donor <= SEQUENCE.length(); donor++) {
+            // within either helix
+            if(donor <= HELIX_LENGTH || donor > SEQUENCE.length() - HELIX_LENGTH + 4) {
+                bonds.add(new Object[] { donor, "N", donor - 4, "O" });
+            }
+        }
+        Collections.addAll(bonds, HYDROGEN_BONDS);
+        StringBuilder hydrogenBonds = new StringBuilder();
+        for(int i = 0; i < bonds.size(); i++) {
+            SyntheticAtom donor = ATOMS.get(key((int) bonds.get(i)[0], (String) bonds.get(i)[1]));
+            SyntheticAtom acceptor = ATOMS.get(key((int) bonds.get(i)[2], (String) bonds.get(i)[3]));
+            hydrogenBonds.append("<hydrogen_bond id=\"").append(i + 1).append("\">")
+                    .append(residueElements(donor, acceptor))
+                    .append(element("sidechain", isBackbone(donor.name) ? "False" : "True"))
+                    .append(element("dist_h-a", format(distance(donor, acceptor) - 1.0)))
+                    .append(element("dist_d-a", format(distance(donor, acceptor))))
+                    .append(element("don_angle", "160.00"))
+                    .append(element("protisdon", "True"))
+                    .append(element("donoridx", String.valueOf(donor.serial)))
+                    .append(element("donortype", donor.name.equals("N") ? "Nam" : "O3"))
+                    .append(element("acceptoridx", String.valueOf(acceptor.serial)))
+                    .append(element("acceptortype", acceptor.name.equals("O") ? "O2" : "O3"))
+                    .append(coordinateElements(donor, acceptor))
+                    .append("</hydrogen_bond>");
+        }
+
+        return Jsoup.parse("<report><bindingsite id=\"1\" has_interactions=\"True\"><interactions>" +
+                "<hydrophobic_interactions>" + hydrophobicInteractions + "</hydrophobic_interactions>" +
+                "<hydrogen_bonds>" + hydrogenBonds + "</hydrogen_bonds>" +
+                "<water_bridges></water_bridges><salt_bridges></salt_bridges><pi_stacks></pi_stacks>" +
+                "<pi_cation_interactions></pi_cation_interactions><halogen_bonds></halogen_bonds>" +
+                "<metal_complexes></metal_complexes>" +
+                "</interactions></bindingsite></report>");
+    }
+
+    /**
+     * the first helix runs up, the loop crosses over and the second helix runs down next to the first one
+     */
+    private static Map<String, SyntheticAtom> createAtoms() {
+        int residueCount = SEQUENCE.length();
+        double[][] alphaCarbons = new double[residueCount][];
+        double[][] radials = new double[residueCount][];
+        for(int i = 0; i < HELIX_LENGTH; i++) {
+            double angle = i * HELIX_TURN;
+            radials[i] = new double[] { Math.cos(angle), Math.sin(angle), 0 };
+            alphaCarbons[i] = new double[] { HELIX_RADIUS * radials[i][0], HELIX_RADIUS * radials[i][1], HELIX_RISE * i };
+
+            int j = residueCount - HELIX_LENGTH + i;
+            double antiparallelAngle = i * HELIX_TURN + Math.PI;
+            radials[j] = new double[] { Math.cos(antiparallelAngle), Math.sin(antiparallelAngle), 0 };
+            alphaCarbons[j] = new double[] { AXIS_DISTANCE + HELIX_RADIUS * radials[j][0],
+                    HELIX_RADIUS * radials[j][1],
+                    HELIX_RISE * (HELIX_LENGTH - 1 - i) };
+        }
+        int loopLength = residueCount - 2 * HELIX_LENGTH;
+        double[] loopStart = alphaCarbons[HELIX_LENGTH - 1];
+        double[] loopEnd = alphaCarbons[HELIX_LENGTH + loopLength];
+        for(int i = 0; i < loopLength; i++) {
+            double fraction = (i + 1.0) / (loopLength + 1.0);
+            radials[HELIX_LENGTH + i] = new double[] { 0, -1, 0 };
+            alphaCarbons[HELIX_LENGTH + i] = new double[] { loopStart[0] + fraction * (loopEnd[0] - loopStart[0]),
+                    loopStart[1] + fraction * (loopEnd[1] - loopStart[1]) - 2.0,
+                    loopStart[2] + 3.0 };
+        }
+
+        Map<String, SyntheticAtom> atoms = new LinkedHashMap<>();
+        for(int i = 0; i < residueCount; i++) {
+            int residueNumber = i + 1;
+            double[] ca = alphaCarbons[i];
+            double[] radial = radials[i];
+            double[] tangent = { -radial[1], radial[0], 0 };
+            double[] up = { 0, 0, 1 };
+            double[] c = offset(ca, tangent, 1.2, up, 0.5);
+            add(atoms, residueNumber, "N", offset(ca, tangent, -1.2, up, -0.5));
+            add(atoms, residueNumber, "CA", ca);
+            add(atoms, residueNumber, "C", c);
+            add(atoms, residueNumber, "O", offset(c, radial, -1.23, up, 0));
+            double[] cb = offset(ca, radial, 1.53, up, 0);
+            add(atoms, residueNumber, "CB", cb);
+            char oneLetterCode = SEQUENCE.charAt(i);
+            if(oneLetterCode == 'L') {
+                double[] cg = offset(cb, radial, 1.52, up, 0);
+                add(atoms, residueNumber, "CG", cg);
+                add(atoms, residueNumber, "CD1", offset(cg, radial, 1.0, tangent, 1.1));
+                add(atoms, residueNumber, "CD2", offset(cg, radial, 1.0, tangent, -1.1));
+            } else if(oneLetterCode == 'S') {
+                add(atoms, residueNumber, "OG", offset(cb, radial, 1.42, up, 0));
+            }
+        }
+        return atoms;
+    }
+
+    private static void add(Map<String, SyntheticAtom> atoms, int residueNumber, String name, double[] coordinates) {
+        atoms.put(key(residueNumber, name), new SyntheticAtom(atoms.size() + 1, name, residueNumber, coordinates));
+    }
+
+    private static double[] offset(double[] origin, double[] direction1, double length1, double[] direction2, double length2) {
+        double[] coordinates = new double[3];
+        for(int i = 0; i < 3; i++) {
+            coordinates[i] = origin[i] + length1 * direction1[i] + length2 * direction2[i];
+        }
+        return coordinates;
+    }
+
+    private static String key(int residueNumber, String name) {
+        return residueNumber + "-" + name;
+    }
+
+    private static String residueName(int residueNumber) {
+        switch(SEQUENCE.charAt(residueNumber - 1)) {
+            case 'L':
+                return "LEU";
+            case 'S':
+                return "SER";
+            default:
+                return "ALA";
+        }
+    }
+
+    private static boolean isBackbone(String name) {
+        return name.equals("N") || name.equals("CA") || name.equals("C") || name.equals("O");
+    }
+
+    private static String residueElements(SyntheticAtom atom, SyntheticAtom partnerAtom) {
+        return element("resnr", String.valueOf(atom.residueNumber)) +
+                element("restype", residueName(atom.residueNumber)) +
+                element("reschain", CHAIN_ID) +
+                element("resnr_lig", String.valueOf(partnerAtom.residueNumber)) +
+                element("restype_lig", residueName(partnerAtom.residueNumber)) +
+                element("reschain_lig", CHAIN_ID);
+    }
+
+    private static String coordinateElements(SyntheticAtom atom, SyntheticAtom partnerAtom) {
+        return "<ligcoo>" + coordinates(partnerAtom) + "</ligcoo><protcoo>" + coordinates(atom) + "</protcoo>";
+    }
+
+    private static String coordinates(SyntheticAtom atom) {
+        return element("x", format(atom.coordinates[0])) +
+                element("y", format(atom.coordinates[1])) +
+                element("z", format(atom.coordinates[2]));
+    }
+
+    private static String element(String name, String content) {
+        return "<" + name + ">" + content + "</" + name + ">";
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.US, "%.3f", value);
+    }
+
+    private static double distance(SyntheticAtom atom1, SyntheticAtom atom2) {
+        double sum = 0;
+        for(int i = 0; i < 3; i++) {
+            sum += (atom1.coordinates[i] - atom2.coordinates[i]) * (atom1.coordinates[i] - atom2.coordinates[i]);
+        }
+        return Math.sqrt(sum);
+    }
+
+    private static class SyntheticAtom {
+        private final int serial;
+        private final String name;
+        private final int residueNumber;
+        private final double[] coordinates;
+
+        SyntheticAtom(int serial, String name, int residueNumber, double[] coordinates) {
+            this.serial = serial;
+            this.name = name;
+            this.residueNumber = residueNumber;
+            this.coordinates = coordinates;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package de.bioforscher.efr.graph;
+
+import de.bioforscher.efr.SyntheticChain;
+import de.bioforscher.efr.model.FeatureColumn;
+import de.bioforscher.efr.model.FeatureMatrix;
+import de.bioforscher.efr.model.InteractionPartition;
+import de.bioforscher.efr.model.RawFeatureVector;
+import de.bioforscher.jstructure.model.structure.Chain;
+import de.bioforscher.jstructure.model.structure.aminoacid.AminoAcid;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static de.bioforscher.efr.model.FeatureColumn.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * the exact mode has to agree with the textbook definitions, evaluated over all pairs of nodes - sampled graphs have
+ * to stay within the error bound, and the native engine has to reproduce the values of jstructure on a synthetic chain
+ */
+public class TopologyCalculatorTest {
+    private static final double TOLERANCE = 1e-12;
+    private static final Set<FeatureColumn> TOPOLOGIC_COLUMNS = EnumSet.of(BETWEENNESS,
+            CLOSENESS,
+            CLUSTERING_COEFFICIENT,
+            HYDROGEN_BETWEENNESS,
+            HYDROGEN_CLOSENESS,
+            HYDROGEN_CLUSTERING_COEFFICIENT,
+            HYDROPHOBIC_BETWEENNESS,
+            HYDROPHOBIC_CLOSENESS,
+            HYDROPHOBIC_CLUSTERING_COEFFICIENT,
+            CONV_BETWEENNESS,
+            CONV_CLOSENESS,
+            CONV_CLUSTERING_COEFFICIENT,
+            DISTINCT_NEIGHBORHOODS,
+            CONV_DISTINCT_NEIGHBORHOODS);
+
+    @Test
+    public void shouldMatchAllPairsOnSmallGraphs() {
+        try(TopologyCalculator topologyCalculator = new TopologyCalculator(1, 0, 0.01)) {
+            for(int nodeCount : new int[] { 1, 2, 3, 4, 10, 25 }) {
+                for(double density : new double[] { 0, 0.1, 0.3, 1 }) {
+                    assertMatchesAllPairs(createRandomGraph(nodeCount, density), topologyCalculator);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldMatchAllPairsOnChainLikeGraphs() {
+        // sharded across threads from 64 sources per thread on
+        try(TopologyCalculator topologyCalculator = new TopologyCalculator(4, 0, 0.01)) {
+            for(int nodeCount : new int[] { 100, 300 }) {
+                assertMatchesAllPairs(createChainLikeGraph(nodeCount, true), topologyCalculator);
+                // several components, some of them isolated nodes
+                assertMatchesAllPairs(createChainLikeGraph(nodeCount, false), topologyCalculator);
+            }
+        }
+    }
+
+    @Test
+    public void shouldStayWithinErrorBoundWhenSampling() {
+        ResidueGraph graph = createChainLikeGraph(3000, true);
+        GraphTopology exact;
+        GraphTopology sampled;
+        try(TopologyCalculator exactCalculator = new TopologyCalculator(1, 0, 0.1);
+            TopologyCalculator samplingCalculator = new TopologyCalculator(1, 1000, 0.1)) {
+            exact = exactCalculator.calculate(graph);
+            sampled = samplingCalculator.calculate(graph);
+        }
+        assertFalse(exact.isApproximated());
+        assertTrue(sampled.isApproximated());
+        for(int node = 0; node < graph.getNodeCount(); node++) {
+            assertEquals("betweenness of " + node, exact.getBetweenness(node), sampled.getBetweenness(node), 0.1);
+            // not sampled
+            assertEquals("clustering coefficient of " + node,
+                    exact.getClusteringCoefficient(node),
+                    sampled.getClusteringCoefficient(node),
+                    0.0);
+        }
+    }
+
+    @Test
+    public void shouldReproduceJstructureOnSyntheticChain() {
+        Chain chain = SyntheticChain.annotate();
+        List<AminoAcid> aminoAcids = chain.aminoAcids().collect(Collectors.toList());
+        FeatureMatrix jstructure = RawFeatureVector.createFeatureMatrix(aminoAcids,
+                InteractionPartition.DEFAULT_SEPARATION,
+                null);
+        FeatureMatrix natively;
+        try(TopologyCalculator topologyCalculator = new TopologyCalculator(1, 0, 0.01)) {
+            natively = RawFeatureVector.createFeatureMatrix(aminoAcids,
+                    InteractionPartition.DEFAULT_SEPARATION,
+                    topologyCalculator);
+        }
+        for(int row = 0; row < aminoAcids.size(); row++) {
+            for(FeatureColumn column : TOPOLOGIC_COLUMNS) {
+                assertEquals(aminoAcids.get(row) + ", " + column,
+                        jstructure.get(row, column),
+                        natively.get(row, column),
+                        1e-6);
+            }
+        }
+    }
+
+    private static void assertMatchesAllPairs(ResidueGraph graph, TopologyCalculator topologyCalculator) {
+        GraphTopology graphTopology = topologyCalculator.calculate(graph);
+        AllPairs allPairs = new AllPairs(graph);
+        int nodeCount = graph.getNodeCount();
+        String name = nodeCount + " nodes, " + graph.getEdgeCount() + " edges, node ";
+        for(int node = 0; node < nodeCount; node++) {
+            assertEquals(name + node, allPairs.betweenness(node), graphTopology.getBetweenness(node), TOLERANCE);
+            assertEquals(name + node, allPairs.closeness(node), graphTopology.getCloseness(node), TOLERANCE);
+            assertEquals(name + node, allPairs.clusteringCoefficient(node), graphTopology.getClusteringCoefficient(node), TOLERANCE);
+            assertEquals(name + node, allPairs.distinctNeighborhoodCount(node), graphTopology.getDistinctNeighborhoodCount(node));
+        }
+    }
+
+    private static ResidueGraph createRandomGraph(int nodeCount, double density) {
+        Random random = new Random(nodeCount);
+        ResidueGraph.Builder builder = ResidueGraph.builder(nodeCount);
+        for(int node1 = 0; node1 < nodeCount; node1++) {
+            for(int node2 = node1 + 1; node2 < nodeCount; node2++) {
+                if(random.nextDouble() < density) {
+                    builder.addEdge(node1, node2);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * sequence neighbors, many local and few non-local contacts - like the contact graphs of a chain
+     */
+    private static ResidueGraph createChainLikeGraph(int nodeCount, boolean connected) {
+        Random random = new Random(nodeCount);
+        ResidueGraph.Builder builder = ResidueGraph.builder(nodeCount);
+        for(int node = 0; node < nodeCount - 1; node++) {
+            if(connected || node % 37 != 0) {
+                builder.addEdge(node, node + 1);
+            }
+        }
+        for(int i = 0; i < 2 * nodeCount; i++) {
+            int node = random.nextInt(nodeCount);
+            builder.addEdge(node, Math.min(nodeCount - 1, node + 2 + random.nextInt(8)));
+        }
+        for(int i = 0; i < nodeCount / 4; i++) {
+            builder.addEdge(random.nextInt(nodeCount), random.nextInt(nodeCount));
+        }
+        return builder.build();
+    }
+
+    /**
+     * the properties by their definitions: distances of all pairs by Floyd-Warshall, the number of shortest paths
+     * between all pairs by extending the paths to each node's predecessors on them
+     */
+    private static class AllPairs {
+        private static final int UNREACHABLE = Integer.MAX_VALUE / 2;
+        private final ResidueGraph graph;
+        private final int nodeCount;
+        private final int[][] distances;
+        private final double[][] pathCounts;
+
+        AllPairs(ResidueGraph graph) {
+            this.graph = graph;
+            this.nodeCount = graph.getNodeCount();
+            this.distances = new int[nodeCount][nodeCount];
+            for(int node1 = 0; node1 < nodeCount; node1++) {
+                for(int node2 = 0; node2 < nodeCount; node2++) {
+                    distances[node1][node2] = node1 == node2 ? 0 : graph.isAdjacent(node1, node2) ? 1 : UNREACHABLE;
+                }
+            }
+            for(int via = 0; via < nodeCount; via++) {
+                for(int node1 = 0; node1 < nodeCount; node1++) {
+                    for(int node2 = 0; node2 < nodeCount; node2++) {
+                        distances[node1][node2] = Math.min(distances[node1][node2], distances[node1][via] + distances[via][node2]);
+                    }
+                }
+            }
+
+            this.pathCounts = new double[nodeCount][nodeCount];
+            for(int source = 0; source < nodeCount; source++) {
+                int[] sourceDistances = distances[source];
+                Integer[] byDistance = new Integer[nodeCount];
+                for(int node = 0; node < nodeCount; node++) {
+                    byDistance[node] = node;
+                }
+                Arrays.sort(byDistance, (node1, node2) -> Integer.compare(sourceDistances[node1], sourceDistances[node2]));
+                pathCounts[source][source] = 1;
+                for(int target : byDistance) {
+                    if(target == source || sourceDistances[target] == UNREACHABLE) {
+                        continue;
+                    }
+                    for(int predecessor = 0; predecessor < nodeCount; predecessor++) {
+                        if(graph.isAdjacent(predecessor, target) && sourceDistances[predecessor] == sourceDistances[target] - 1) {
+                            pathCounts[source][target] += pathCounts[source][predecessor];
+                        }
+                    }
+                }
+            }
+        }
+
+        double betweenness(int node) {
+            if(nodeCount < 3) {
+                return 0;
+            }
+            double sum = 0;
+            for(int source = 0; source < nodeCount; source++) {
+                for(int target = 0; target < nodeCount; target++) {
+                    if(source == node || target == node || source == target || distances[source][target] == UNREACHABLE) {
+                        continue;
+                    }
+                    if(distances[source][node] + distances[node][target] == distances[source][target]) {
+                        sum += pathCounts[source][node] * pathCounts[node][target] / pathCounts[source][target];
+                    }
+                }
+            }
+            // ordered pairs
+            return sum / ((nodeCount - 1.0) * (nodeCount - 2.0));
+        }
+
+        double closeness(int node) {
+            int reachedCount = 0;
+            long distanceSum = 0;
+            for(int other = 0; other < nodeCount; other++) {
+                if(other != node && distances[node][other] != UNREACHABLE) {
+                    reachedCount++;
+                    distanceSum += distances[node][other];
+                }
+            }
+            return reachedCount == 0 ? 0 : reachedCount / (double) distanceSum;
+        }
+
+        double clusteringCoefficient(int node) {
+            int degree = graph.degree(node);
+            if(degree < 2) {
+                return 0;
+            }
+            int links = 0;
+            for(int neighbor1 = 0; neighbor1 < nodeCount; neighbor1++) {
+                for(int neighbor2 = neighbor1 + 1; neighbor2 < nodeCount; neighbor2++) {
+                    if(graph.isAdjacent(node, neighbor1) && graph.isAdjacent(node, neighbor2) && graph.isAdjacent(neighbor1, neighbor2)) {
+                        links++;
+                    }
+                }
+            }
+            return links / (degree * (degree - 1) / 2.0);
+        }
+
+        int distinctNeighborhoodCount(int node) {
+            int count = 0;
+            int previousNeighbor = -1;
+            for(int neighbor = 0; neighbor < nodeCount; neighbor++) {
+                if(!graph.isAdjacent(node, neighbor) || Math.abs(neighbor - node) <= InteractionPartition.DEFAULT_SEPARATION) {
+                    continue;
+                }
+                if(previousNeighbor == -1 || neighbor - previousNeighbor > InteractionPartition.DEFAULT_SEPARATION) {
+                    count++;
+                }
+                previousNeighbor = neighbor;
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package de.bioforscher.efr.model;
+
+import de.bioforscher.efr.SyntheticChain;
+import de.bioforscher.jstructure.feature.interaction.PLIPInteractionContainer;
+import de.bioforscher.jstructure.model.structure.Chain;
+import de.bioforscher.jstructure.model.structure.aminoacid.AminoAcid;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * the single pass has to count exactly what the containers of local and non-local interactions, which were used to
+ * assemble the features before, reported for each residue of a synthetic chain
+ */
+public class InteractionPartitionTest {
+    @Test
+    public void shouldCountLikeContainersOnSyntheticChain() {
+        Chain chain = SyntheticChain.createWithInteractions();
+        List<AminoAcid> aminoAcids = chain.aminoAcids().collect(Collectors.toList());
+        int interactionCount = 0;
+        for(AminoAcid aminoAcid : aminoAcids) {
+            PLIPInteractionContainer plipInteractionContainer = aminoAcid.getFeature(PLIPInteractionContainer.class);
+            interactionCount += plipInteractionContainer.getInteractions().size();
+            InteractionPartition interactionPartition = InteractionPartition.of(plipInteractionContainer);
+
+            PLIPInteractionContainer nonLocalPlipInteractionContainer = new PLIPInteractionContainer(null,
+                    plipInteractionContainer
+                            .getInteractions()
+                            .stream()
+                            // interactions have to be non-local
+                            .filter(inter -> Math.abs(inter.getPartner1().getResidueIndex() - inter.getPartner2().getResidueIndex()) > 5)
+                            .collect(Collectors.toList()));
+            PLIPInteractionContainer localPlipInteractionContainer = new PLIPInteractionContainer(null,
+                    plipInteractionContainer
+                            .getInteractions()
+                            .stream()
+                            // interactions have to be local
+                            .filter(inter -> !nonLocalPlipInteractionContainer.getInteractions().contains(inter))
+                            .collect(Collectors.toList()));
+
+            String residue = aminoAcid.toString();
+            assertEquals(residue, localPlipInteractionContainer.getHydrogenBonds().size(), interactionPartition.getLocalHydrogenBonds());
+            assertEquals(residue, localPlipInteractionContainer.getHydrophobicInteractions().size(), interactionPartition.getLocalHydrophobicInteractions());
+            assertEquals(residue, localPlipInteractionContainer.getBackboneInteractions().size(), interactionPartition.getLocalBackboneInteractions());
+            assertEquals(residue, localPlipInteractionContainer.getInteractions().size(), interactionPartition.getLocalInteractions());
+            assertEquals(residue, nonLocalPlipInteractionContainer.getHydrogenBonds().size(), interactionPartition.getNonLocalHydrogenBonds());
+            assertEquals(residue, nonLocalPlipInteractionContainer.getHydrophobicInteractions().size(), interactionPartition.getNonLocalHydrophobicInteractions());
+            assertEquals(residue, nonLocalPlipInteractionContainer.getBackboneInteractions().size(), interactionPartition.getNonLocalBackboneInteractions());
+            assertEquals(residue, nonLocalPlipInteractionContainer.getInteractions().size(), interactionPartition.getNonLocalInteractions());
+        }
+        // the chain has to exercise the partition at all
+        assertTrue("no PLIP interactions annotated", interactionCount > 0);
+    }
+
+    @Test
+    public void shouldCountPartnersAtSeparationAsLocal() {
+        List<AminoAcid> aminoAcids = SyntheticChain.createWithInteractions()
+                .aminoAcids()
+                .collect(Collectors.toList());
+        // residue 6 and 11 are exactly the default separation apart, residue 6 and 27 are not
+        InteractionPartition residue6 = InteractionPartition.of(aminoAcids.get(5).getFeature(PLIPInteractionContainer.class));
+        InteractionPartition residue11 = InteractionPartition.of(aminoAcids.get(10).getFeature(PLIPInteractionContainer.class));
+        assertEquals(1, residue6.getLocalHydrophobicInteractions());
+        assertEquals(1, residue6.getNonLocalHydrophobicInteractions());
+        assertEquals(1, residue11.getLocalHydrophobicInteractions());
+        assertEquals(0, residue11.getNonLocalInteractions());
+    }
+}
@@ -0,0 +1,131 @@
+package de.bioforscher.efr.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.DoubleStream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * the default smoother has to reproduce the features the model was trained with bit by bit - those were computed by
+ * {@link java.util.stream.DoubleStream#average()} of Java 8 over the residue itself, up to 4 N-terminal and up to 4
+ * C-terminal neighbors
+ */
+public class ValueSmootherTest {
+    private static final boolean JAVA_8 = "1.8".equals(System.getProperty("java.specification.version"));
+
+    @Test
+    public void shouldReproduceAverageOfRandomChains() {
+        Random random = new Random(42);
+        for(int rowCount : new int[] { 1, 2, 4, 5, 8, 9, 10, 17, 100, 1500 }) {
+            FeatureMatrix featureMatrix = new FeatureMatrix(rowCount);
+            for(int row = 0; row < rowCount; row++) {
+                for(FeatureColumn column : FeatureColumn.values()) {
+                    featureMatrix.set(row, column, random.nextDouble() * Math.pow(10, random.nextInt(12) - 6));
+                }
+            }
+            assertReproducesAverage(featureMatrix, ParallelRows.SEQUENTIAL);
+        }
+    }
+
+    @Test
+    public void shouldReproduceAverageOfValuesOfDifferentMagnitude() {
+        // values which lose precision when summed naively
+        double[] pattern = { 1e16, 1, -1e16, 3.3, 1e-10, 0.1, 0.2, 0.3, -7.1e8 };
+        FeatureMatrix featureMatrix = new FeatureMatrix(50);
+        for(int row = 0; row < 50; row++) {
+            for(FeatureColumn column : FeatureColumn.values()) {
+                featureMatrix.set(row, column, pattern[(row + column.ordinal()) % pattern.length]);
+            }
+        }
+        assertReproducesAverage(featureMatrix, ParallelRows.SEQUENTIAL);
+    }
+
+    @Test
+    public void shouldReproduceAverageWhenSmoothingColumnsConcurrently() {
+        Random random = new Random(7);
+        FeatureMatrix featureMatrix = new FeatureMatrix(2000);
+        for(int row = 0; row < 2000; row++) {
+            for(FeatureColumn column : FeatureColumn.values()) {
+                featureMatrix.set(row, column, random.nextGaussian() * 100);
+            }
+        }
+        assertReproducesAverage(featureMatrix, new ParallelRows(1));
+    }
+
+    private static void assertReproducesAverage(FeatureMatrix featureMatrix, ParallelRows parallelRows) {
+        int rowCount = featureMatrix.getRowCount();
+        double[][] expected = new double[rowCount][];
+        for(int row = 0; row < rowCount; row++) {
+            expected[row] = smoothAsBefore(featureMatrix, row);
+        }
+
+        ValueSmoother.smoothValues(featureMatrix, parallelRows);
+
+        for(int row = 0; row < rowCount; row++) {
+            for(FeatureColumn column : FeatureColumn.values()) {
+                assertEquals("row " + row + " of " + rowCount + ", " + column,
+                        expected[row][column.ordinal()],
+                        featureMatrix.get(row, column),
+                        0.0);
+            }
+        }
+    }
+
+    /**
+     * the implementation the model was trained with: collect the window, then average each feature
+     */
+    private static double[] smoothAsBefore(FeatureMatrix featureMatrix, int row) {
+        List<Integer> rowsToSmooth = new ArrayList<>();
+        rowsToSmooth.add(row);
+        for(int i = 0; i < ValueSmoother.DEFAULT_WINDOW_SIZE; i++) {
+            int indexToGet = row - (i + 1);
+            if(indexToGet > -1) {
+                rowsToSmooth.add(indexToGet);
+            }
+        }
+        for(int i = 0; i < ValueSmoother.DEFAULT_WINDOW_SIZE; i++) {
+            int indexToGet = row + (i + 1);
+            if(indexToGet < featureMatrix.getRowCount()) {
+                rowsToSmooth.add(indexToGet);
+            }
+        }
+
+        double[] smoothed = new double[FeatureMatrix.COLUMN_COUNT];
+        for(FeatureColumn column : FeatureColumn.values()) {
+            double[] window = rowsToSmooth.stream()
+                    .mapToDouble(rowToSmooth -> featureMatrix.get(rowToSmooth, column))
+                    .toArray();
+            smoothed[column.ordinal()] = averageOfJava8(window);
+            if(JAVA_8) {
+                assertEquals(DoubleStream.of(window).average().getAsDouble(), smoothed[column.ordinal()], 0.0);
+            }
+        }
+        return smoothed;
+    }
+
+    /**
+     * {@link DoubleStream#average()} as implemented by Java 8 (DoublePipeline and Collectors) - later runtimes subtract
+     * the compensation from the sum instead of adding it
+     */
+    private static double averageOfJava8(double[] values) {
+        // sum, compensation, count and simple sum
+        double[] summands = new double[4];
+        for(double value : values) {
+            double tmp = value - summands[1];
+            double sum = summands[0];
+            double velvel = sum + tmp;
+            summands[1] = (velvel - sum) - tmp;
+            summands[0] = velvel;
+            summands[2]++;
+            summands[3] += value;
+        }
+        double tmp = summands[0] + summands[1];
+        double simpleSum = summands[3];
+        double finalSum = Double.isNaN(tmp) && Double.isInfinite(simpleSum) ? simpleSum : tmp;
+        return finalSum / summands[2];
+    }
+}
@@ -0,0 +1,99 @@
+package de.bioforscher.efr.pipeline;
+
+import de.bioforscher.efr.SyntheticChain;
+import de.bioforscher.jstructure.model.feature.ComputationException;
+import de.bioforscher.jstructure.model.feature.FeatureContainer;
+import de.bioforscher.jstructure.model.feature.FeatureContainerEntry;
+import de.bioforscher.jstructure.model.structure.Chain;
+import de.bioforscher.jstructure.model.structure.Group;
+import de.bioforscher.jstructure.model.structure.Structure;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * calculator stages annotate a copy of the structure - the features they add have to reach the original structure,
+ * its chains and groups, those present before must not be duplicated
+ */
+public class FeatureStageTest {
+    @Test
+    public void shouldTransferFeaturesOfCopyToStructure() {
+        Chain chain = SyntheticChain.create();
+        Structure structure = chain.getParentStructure();
+        Group firstGroup = structure.groups().findFirst().get();
+        firstGroup.getFeatureContainer().addFeature(new PresentMarker());
+
+        new FeaturePipeline(Runnable::run, FeatureStage.ofCalculator("marking", FeatureStageTest::mark, "marker"))
+                .process(chain);
+
+        assertEquals(1, count(structure.getFeatureContainer(), AddedMarker.class));
+        assertEquals(1, count(chain.getFeatureContainer(), AddedMarker.class));
+        List<Group> groups = structure.groups().collect(Collectors.toList());
+        // the residues of the synthetic chain
+        assertEquals(32, groups.size());
+        for(Group group : groups) {
+            assertEquals("residue " + group.getResidueIndex(), 1, count(group.getFeatureContainer(), AddedMarker.class));
+            assertEquals(group.getResidueIndex(), group.getFeature(AddedMarker.class).residueIndex);
+        }
+        assertEquals(1, count(firstGroup.getFeatureContainer(), PresentMarker.class));
+    }
+
+    @Test
+    public void shouldLeaveStructureUntouchedWhenCalculatorFails() {
+        Chain chain = SyntheticChain.create();
+        FeaturePipeline featurePipeline = new FeaturePipeline(Runnable::run,
+                FeatureStage.ofCalculator("marking", FeatureStageTest::mark, "marker"),
+                FeatureStage.ofCalculator("failing", copy -> {
+                    throw new ComputationException("cannot annotate");
+                }, new String[] { "marker" }, "failure"));
+
+        try {
+            featurePipeline.process(chain);
+            fail("failing stage was not reported");
+        } catch (ComputationException e) {
+            assertEquals("cannot annotate", e.getMessage());
+        }
+        // the marking stage succeeded before, thus its features were transferred - nothing of the failing one
+        chain.getParentStructure()
+                .groups()
+                .forEach(group -> assertEquals(1, count(group.getFeatureContainer(), AddedMarker.class)));
+    }
+
+    private static void mark(Structure copy) {
+        copy.getFeatureContainer().addFeature(new AddedMarker(-1));
+        copy.chains().forEach(chain -> chain.getFeatureContainer().addFeature(new AddedMarker(-1)));
+        copy.groups().forEach(group -> group.getFeatureContainer().addFeature(new AddedMarker(group.getResidueIndex())));
+    }
+
+    private static long count(FeatureContainer featureContainer, Class<?> type) {
+        return featureContainer.getFeatures()
+                .stream()
+                .filter(type::isInstance)
+                .count();
+    }
+
+    /**
+     * added by the calculator to the copy
+     */
+    private static class AddedMarker extends FeatureContainerEntry {
+        private final int residueIndex;
+
+        AddedMarker(int residueIndex) {
+            super(null);
+            this.residueIndex = residueIndex;
+        }
+    }
+
+    /**
+     * present before the pipeline runs
+     */
+    private static class PresentMarker extends FeatureContainerEntry {
+        PresentMarker() {
+            super(null);
+        }
+    }
+}